@@ -0,0 +1,115 @@
+package marsrover;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded missions shared by the benchmarks.
+ *
+ * @author Tempest
+ */
+final class BenchmarkMissions {
+
+    static final long SEED = 42;
+
+    private BenchmarkMissions() {
+    }
+
+    /**
+     * Number of rovers to deploy so that the given share of the plateau
+     * cells is occupied, but no more than fleetSize.
+     */
+    static int fleetFor(int plateauSize, int fleetSize, double density) {
+        long cells = (long) plateauSize * plateauSize;
+        return (int) Math.max(1, Math.min(fleetSize, (long) (cells * density)));
+    }
+
+    /**
+     * Deploys rovers on free random cells and gives each a random command
+     * String, mostly M with some L and R.
+     */
+    static List<Rover> deploy(Plateau p, int rovers, int commandLength, Occupancy occupancy)
+            throws Rover.InvalidInputException {
+        Random random = new Random(SEED);
+        List<Rover> roversList = new ArrayList<>(rovers);
+        FleetStore fleet = new FleetStore(rovers);
+        int attempts = rovers * 4;
+        while (roversList.size() < rovers && attempts-- > 0) {
+            int x = random.nextInt(p.getWidth());
+            int y = random.nextInt(p.getHeight());
+            if (!occupancy.isOccupied(x, y)) {
+                occupancy.occupy(x, y);
+                Rover rover = new Rover(fleet, x, y, "NESW".charAt(random.nextInt(4)),
+                        roversList.size());
+                rover.setMoveCommands(commands(random, commandLength));
+                roversList.add(rover);
+            }
+        }
+        return roversList;
+    }
+
+    /**
+     * Deployment positions of a fleet, put back before each invocation so
+     * that every invocation runs the same mission.
+     */
+    static final class Starts {
+
+        private final int[] x;
+        private final int[] y;
+        private final byte[] heading;
+
+        Starts(List<Rover> roversList) {
+            x = new int[roversList.size()];
+            y = new int[roversList.size()];
+            heading = new byte[roversList.size()];
+            for (int i = 0; i < roversList.size(); i++) {
+                Rover rover = roversList.get(i);
+                x[i] = rover.getX();
+                y[i] = rover.getY();
+                heading[i] = rover.getFleet().heading[rover.getSlot()];
+            }
+        }
+
+        void restore(List<Rover> roversList) {
+            for (int i = 0; i < roversList.size(); i++) {
+                Rover rover = roversList.get(i);
+                FleetStore fleet = rover.getFleet();
+                fleet.x[rover.getSlot()] = x[i];
+                fleet.y[rover.getSlot()] = y[i];
+                fleet.heading[rover.getSlot()] = heading[i];
+            }
+        }
+    }
+
+    static String commands(Random random, int length) {
+        StringBuilder commands = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            commands.append("MMMLR".charAt(random.nextInt(5)));
+        }
+        return commands.toString();
+    }
+
+    /**
+     * Writes a mission file in the input.txt format to a temporary file.
+     */
+    static File write(int plateauSize, int rovers, int commandLength) throws IOException {
+        File file = File.createTempFile("mission", ".txt");
+        file.deleteOnExit();
+        Random random = new Random(SEED);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            out.write((plateauSize - 1) + " " + (plateauSize - 1) + "\n");
+            for (int i = 0; i < rovers; i++) {
+                out.write("\n" + random.nextInt(plateauSize) + " " + random.nextInt(plateauSize) + " "
+                        + "NESW".charAt(random.nextInt(4)) + "\n\n");
+                out.write(commands(random, commandLength));
+                out.write("\n");
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+package marsrover;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Executing the move commands of a whole fleet: Rover.executeMovementCommands
+ * against the occupancy index, and the compiled CommandProgram path used by
+ * MarsRover.moveRovers. The baseline against the rover list scans the whole
+ * list on every move, so it has its own benchmark, ListExecuteBenchmark,
+ * limited to small fleets.
+ *
+ * @author Tempest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecuteBenchmark {
+
+    @Param({"100", "10000"})
+    public int plateauSize;
+
+    @Param({"100", "10000"})
+    public int fleetSize;
+
+    @Param({"10", "1000"})
+    public int commandLength;
+
+    @Param({"0.01", "0.5"})
+    public double density;
+
+    private Plateau plateau;
+    private List<Rover> roversList;
+    private Occupancy occupancy;
+    private BenchmarkMissions.Starts starts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        plateau = new Plateau(plateauSize - 1, plateauSize - 1);
+        int rovers = BenchmarkMissions.fleetFor(plateauSize, fleetSize, density);
+        roversList = BenchmarkMissions.deploy(plateau, rovers, commandLength,
+                Occupancy.forPlateau(plateau, rovers));
+        starts = new BenchmarkMissions.Starts(roversList);
+    }
+
+    /**
+     * Puts every rover back at its deployment position, so that each
+     * invocation runs the same mission.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        starts.restore(roversList);
+        occupancy = Occupancy.of(plateau, roversList);
+    }
+
+    @Benchmark
+    public List<Rover> occupancy() {
+        for (Rover rover : roversList) {
+            rover.executeMovementCommands(plateau, occupancy);
+        }
+        return roversList;
+    }
+
+    @Benchmark
+    public List<Rover> compiled() {
+        MarsRover.moveRovers(plateau, roversList, occupancy);
+        return roversList;
+    }
+}
@@ -0,0 +1,68 @@
+package marsrover;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Baseline for ExecuteBenchmark: Rover.executeMovementCommands against the
+ * rover list, which scans every rover on each move. The cost grows with the
+ * fleet size times the number of commands, so only the small fleet is run.
+ *
+ * @author Tempest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListExecuteBenchmark {
+
+    @Param({"100", "10000"})
+    public int plateauSize;
+
+    @Param({"100"})
+    public int fleetSize;
+
+    @Param({"10", "1000"})
+    public int commandLength;
+
+    @Param({"0.01", "0.5"})
+    public double density;
+
+    private Plateau plateau;
+    private List<Rover> roversList;
+    private BenchmarkMissions.Starts starts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        plateau = new Plateau(plateauSize - 1, plateauSize - 1);
+        int rovers = BenchmarkMissions.fleetFor(plateauSize, fleetSize, density);
+        roversList = BenchmarkMissions.deploy(plateau, rovers, commandLength,
+                Occupancy.forPlateau(plateau, rovers));
+        starts = new BenchmarkMissions.Starts(roversList);
+    }
+
+    /**
+     * Puts every rover back at its deployment position, so that each
+     * invocation runs the same mission.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        starts.restore(roversList);
+    }
+
+    @Benchmark
+    public List<Rover> roversList() {
+        for (Rover rover : roversList) {
+            rover.executeMovementCommands(plateau, roversList);
+        }
+        return roversList;
+    }
+}
@@ -0,0 +1,80 @@
+package marsrover;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * MarsRover.printRoverPositions and the ResultWriter formats, writing to a
+ * discarding stream in place of the console.
+ *
+ * @author Tempest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OutputBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int plateauSize;
+
+    @Param({"1000", "1000000"})
+    public int fleetSize;
+
+    private List<Rover> roversList;
+    private PrintStream console;
+    private OutputStream discard;
+
+    @Setup
+    public void setUp() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Plateau p = new Plateau(plateauSize - 1, plateauSize - 1);
+        int rovers = BenchmarkMissions.fleetFor(plateauSize, fleetSize, 1.0);
+        roversList = BenchmarkMissions.deploy(p, rovers, 0, Occupancy.forPlateau(p, rovers));
+        console = System.out;
+        discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        System.setOut(new PrintStream(discard));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void printRoverPositions() {
+        MarsRover.printRoverPositions(roversList);
+    }
+
+    @Benchmark
+    public void writeText() throws IOException {
+        try (ResultWriter writer = new ResultWriter(discard, ResultWriter.Format.TEXT)) {
+            writer.write(roversList);
+        }
+    }
+
+    @Benchmark
+    public void writeBinary() throws IOException {
+        try (ResultWriter writer = new ResultWriter(discard, ResultWriter.Format.BINARY)) {
+            writer.write(roversList);
+        }
+    }
+}
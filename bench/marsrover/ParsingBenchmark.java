@@ -0,0 +1,83 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Loading a mission file: the Scanner based MarsRover.initializePlateau and
+ * initializeRovers against MissionParser with FleetLoader.
+ *
+ * @author Tempest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParsingBenchmark {
+
+    @Param({"100", "100000"})
+    public int plateauSize;
+
+    @Param({"1000", "100000"})
+    public int fleetSize;
+
+    @Param({"10", "1000"})
+    public int commandLength;
+
+    private File file;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkMissions.write(plateauSize, fleetSize, commandLength);
+        // rovers that can't be deployed are reported on the console
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Rover> scanner() throws FileNotFoundException, Rover.InvalidInputException {
+        List<Rover> roversList = new ArrayList<>();
+        try (Scanner input = new Scanner(file)) {
+            Plateau p = MarsRover.initializePlateau(input);
+            MarsRover.initializeRovers(input, roversList, p);
+        }
+        return roversList;
+    }
+
+    @Benchmark
+    public List<Rover> missionParser() throws IOException, Plateau.InvalidSizeException,
+            Rover.InvalidInputException, MissionParser.MalformedMissionException {
+        List<Rover> roversList = new ArrayList<>();
+        try (MissionFile input = new MissionFile(file)) {
+            MissionParser parser = new MissionParser(input);
+            parser.parse(new FleetLoader(input, parser, roversList));
+        }
+        return roversList;
+    }
+}
@@ -0,0 +1,69 @@
+package marsrover;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rover.validLocation with the rover list scan against the occupancy index.
+ *
+ * @author Tempest
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidLocationBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"100", "10000"})
+    public int plateauSize;
+
+    @Param({"100", "10000"})
+    public int fleetSize;
+
+    @Param({"0.01", "0.5"})
+    public double density;
+
+    private Plateau plateau;
+    private List<Rover> roversList;
+    private Occupancy occupancy;
+    private int[] probeX;
+    private int[] probeY;
+    private int probe;
+
+    @Setup
+    public void setUp() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        plateau = new Plateau(plateauSize - 1, plateauSize - 1);
+        int rovers = BenchmarkMissions.fleetFor(plateauSize, fleetSize, density);
+        occupancy = Occupancy.forPlateau(plateau, rovers);
+        roversList = BenchmarkMissions.deploy(plateau, rovers, 0, occupancy);
+        Random random = new Random(BenchmarkMissions.SEED);
+        probeX = new int[PROBES];
+        probeY = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeX[i] = random.nextInt(plateauSize);
+            probeY[i] = random.nextInt(plateauSize);
+        }
+    }
+
+    @Benchmark
+    public boolean roversList() {
+        int i = probe++ & (PROBES - 1);
+        return Rover.validLocation(probeX[i], probeY[i], plateau, roversList);
+    }
+
+    @Benchmark
+    public boolean occupancy() {
+        int i = probe++ & (PROBES - 1);
+        return Rover.validLocation(probeX[i], probeY[i], plateau, occupancy);
+    }
+}
@@ -0,0 +1,213 @@
+package marsrover;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads missions in the packed binary format written by MissionConverter.
+ *
+ * All numbers are big-endian. The file starts with a 32-byte header:
+ * <pre>
+ *   0  magic "MRMB"
+ *   4  int version (1)
+ *   8  int X coordinate of the North-Easternmost point of the plateau
+ *  12  int Y coordinate of the North-Easternmost point of the plateau
+ *  16  long number of rovers
+ *  24  byte width of the rover coordinates, 2 (unsigned) or 4 (signed)
+ *  25  7 bytes reserved, zero
+ * </pre>
+ * Then comes the deployment table, one fixed-width entry per rover in file
+ * order: X and Y coordinates, the upper-cased direction letter from the
+ * text file, and an int number of move commands. The move commands follow, each
+ * rover's packed at four commands per byte starting at the low bits, with
+ * every rover starting on a new byte. A command is two bits, with the codes
+ * of CommandArena: M is 0, R is 1, L is 3, and 2 marks a character that was
+ * not a valid command.
+ *
+ * Rovers are reported to the handler with the file position of their first
+ * command byte and their number of commands, and go through the same
+ * deployment rules as the text format, so both formats give the same
+ * results.
+ *
+ * @author Tempest
+ */
+public class BinaryMissionParser implements MissionReader {
+
+    /**
+     * First bytes of a binary mission file.
+     */
+    public static final byte[] MAGIC = {'M', 'R', 'M', 'B'};
+
+    /**
+     * Version of the binary format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    public static final int HEADER_BYTES = 32;
+
+    /**
+     * The four commands packed in each byte value, first command first.
+     */
+    private static final byte[] UNPACKED = new byte[256 * 4];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < 4; i++) {
+                UNPACKED[b * 4 + i] = (byte) CommandArena.commandOf((b >>> (i * 2)) & 3);
+            }
+        }
+    }
+
+    private final MissionFile file;
+    private int roverX;
+    private int roverY;
+    private char roverDirection;
+
+    /**
+     * Constructs a parser reading the given mission file.
+     *
+     * @param file - the opened mission file
+     */
+    public BinaryMissionParser(MissionFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Checks whether a file starts with the binary magic.
+     *
+     * @param file - the opened mission file
+     * @return true if the file is in the binary format
+     */
+    public static boolean isBinary(MissionFile file) {
+        if (file.size() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (file.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the size of a deployment table entry.
+     *
+     * @param coordinateBytes - width of the rover coordinates, 2 or 4
+     * @return size of an entry, in bytes
+     */
+    static int entryBytes(int coordinateBytes) {
+        return 2 * coordinateBytes + 1 + 4;
+    }
+
+    @Override
+    public void parse(MissionHandler handler) throws Plateau.InvalidSizeException,
+            Rover.InvalidInputException, MissionParser.MalformedMissionException {
+        if (file.size() < HEADER_BYTES || !isBinary(file)) {
+            throw new Plateau.InvalidSizeException("Plateau requires top and right coordinates!");
+        }
+        if (file.getInt(4) != VERSION) {
+            throw new MissionParser.MalformedMissionException("Unsupported binary mission version "
+                    + file.getInt(4) + ".");
+        }
+        long rovers = file.getLong(16);
+        int coordinateBytes = file.get(24);
+        if (coordinateBytes != 2 && coordinateBytes != 4 || rovers < 0
+                || rovers > (file.size() - HEADER_BYTES) / entryBytes(coordinateBytes)) {
+            throw new MissionParser.MalformedMissionException("Binary mission header is corrupt.");
+        }
+        handler.plateau(file.getInt(8), file.getInt(12));
+
+        int entry = entryBytes(coordinateBytes);
+        long table = HEADER_BYTES;
+        long commands = table + rovers * entry;
+        for (long i = 0; i < rovers; i++) {
+            long pos = table + i * entry;
+            if (coordinateBytes == 2) {
+                roverX = (file.get(pos) & 0xFF) << 8 | (file.get(pos + 1) & 0xFF);
+                roverY = (file.get(pos + 2) & 0xFF) << 8 | (file.get(pos + 3) & 0xFF);
+            } else {
+                roverX = file.getInt(pos);
+                roverY = file.getInt(pos + 4);
+            }
+            roverDirection = (char) (file.get(pos + 2 * coordinateBytes) & 0xFF);
+            int length = file.getInt(pos + 2 * coordinateBytes + 1);
+            long bytes = (length + 3L) >>> 2;
+            if (length < 0 || commands + bytes > file.size()) {
+                throw new MissionParser.MalformedMissionException("Rover " + i
+                        + ": move commands run past the end of the file.");
+            }
+            handler.rover(roverX, roverY, roverDirection, commands, length);
+            commands += bytes;
+        }
+    }
+
+    @Override
+    public String getRoverLine() {
+        return roverX + " " + roverY + " " + roverDirection;
+    }
+
+    @Override
+    public String commands(long start, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i += 4) {
+            int b = file.get(start + (i >>> 2)) & 0xFF;
+            System.arraycopy(UNPACKED, b * 4, text, i, Math.min(4, length - i));
+        }
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public boolean checkCommands(long start, int length) throws Rover.InvalidInputException {
+        for (int i = 0; i < length; i++) {
+            if (code(start, i) == CommandArena.CODE_INVALID) {
+                throw new Rover.InvalidInputException("Movement command must be L, R, or M.");
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long appendCommands(CommandArena arena, long start, int length)
+            throws Rover.InvalidInputException {
+        long first = arena.size();
+        arena.reserve(length);
+        for (int i = 0; i < length; i++) {
+            int code = code(start, i);
+            if (code == CommandArena.CODE_INVALID) {
+                throw new Rover.InvalidInputException("Movement command must be L, R, or M.");
+            }
+            arena.add(code);
+        }
+        return first;
+    }
+
+    /**
+     * Executes the packed commands, resolving each run of M in one step.
+     */
+    @Override
+    public void execute(FleetStepper stepper, int slot, long start, int length) {
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            int code = code(start, i);
+            if (code == CommandArena.CODE_MOVE) {
+                run++;
+            } else {
+                if (run > 0) {
+                    stepper.advance(slot, run);
+                    run = 0;
+                }
+                stepper.step(slot, CommandArena.commandOf(code));
+            }
+        }
+        if (run > 0) {
+            stepper.advance(slot, run);
+        }
+    }
+
+    private int code(long start, int i) {
+        return (file.get(start + (i >>> 2)) >>> ((i & 3) << 1)) & 3;
+    }
+}
@@ -0,0 +1,85 @@
+package marsrover;
+
+import java.util.Arrays;
+
+/**
+ * Primitive open-addressing map from a long key, such as a packed bucket or
+ * cell, to the first rover stored under it.
+ *
+ * @author Tempest
+ */
+class BucketMap {
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    BucketMap(int expected) {
+        int capacity = 16;
+        while (capacity < 4L * expected && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @return the value, or -1 if the key is not present
+     */
+    int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != -1) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the value unless the key is present.
+     *
+     * @return the value already stored for the key, or -1 if it was added
+     */
+    int putIfAbsent(long key, int value) {
+        int slot = slot(key);
+        while (values[slot] != -1) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (keys.length >>> 1)) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(keys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != -1) {
+                    int s = slot(oldKeys[i]);
+                    while (values[s] != -1) {
+                        s = (s + 1) & mask;
+                    }
+                    keys[s] = oldKeys[i];
+                    values[s] = oldValues[i];
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,176 @@
+package marsrover;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot of a running mission: the plateau, and for every rover its ID,
+ * position, heading and command cursor, the number of its move commands
+ * already executed.
+ *
+ * The snapshot file is big-endian: the magic "MRCP", an int version (1), the
+ * plateau top-right coordinates as two ints, the long size of the mission
+ * file, an int number of rovers, then 17 bytes per rover (int ID, int x,
+ * int y, heading byte, int cursor), and finally the long CRC32 of all the
+ * preceding bytes. It is written to a temporary file that is synced to disk
+ * and then renamed over the previous snapshot, so a crash at any moment
+ * leaves either the old or the new snapshot, never a torn one.
+ *
+ * @author Tempest
+ */
+public class Checkpoint {
+
+    /**
+     * First bytes of a snapshot file.
+     */
+    public static final int MAGIC = 'M' << 24 | 'R' << 16 | 'C' << 8 | 'P';
+
+    /**
+     * Version of the snapshot format.
+     */
+    public static final int VERSION = 1;
+
+    final int rightX;
+    final int topY;
+    final long missionSize;
+    final int[] x;
+    final int[] y;
+    final byte[] heading;
+    final int[] cursor;
+
+    /**
+     * Constructs an empty snapshot for a fleet.
+     *
+     * @param rightX - X coordinate of the North-Easternmost point of the plateau
+     * @param topY - Y coordinate of the North-Easternmost point of the plateau
+     * @param missionSize - size of the mission file, in bytes
+     * @param rovers - number of rovers
+     */
+    public Checkpoint(int rightX, int topY, long missionSize, int rovers) {
+        this.rightX = rightX;
+        this.topY = topY;
+        this.missionSize = missionSize;
+        this.x = new int[rovers];
+        this.y = new int[rovers];
+        this.heading = new byte[rovers];
+        this.cursor = new int[rovers];
+    }
+
+    /**
+     * Copies the state of a fleet into the snapshot. The rover ID is the
+     * slot.
+     *
+     * @param fleet - the fleet to copy
+     * @param cursors - number of move commands executed by each rover
+     */
+    public void copyFrom(FleetStore fleet, int[] cursors) {
+        int rovers = x.length;
+        System.arraycopy(fleet.x, 0, x, 0, rovers);
+        System.arraycopy(fleet.y, 0, y, 0, rovers);
+        System.arraycopy(fleet.heading, 0, heading, 0, rovers);
+        System.arraycopy(cursors, 0, cursor, 0, rovers);
+    }
+
+    /**
+     * Get the number of rovers in the snapshot.
+     *
+     * @return number of rovers
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Writes the snapshot durably, replacing the target file atomically.
+     *
+     * @param target - the snapshot file
+     * @throws IOException if the snapshot can't be written
+     */
+    public void write(File target) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(file, 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rightX);
+            out.writeInt(topY);
+            out.writeLong(missionSize);
+            out.writeInt(x.length);
+            for (int i = 0; i < x.length; i++) {
+                out.writeInt(i);
+                out.writeInt(x[i]);
+                out.writeInt(y[i]);
+                out.writeByte(heading[i]);
+                out.writeInt(cursor[i]);
+            }
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+            file.getChannel().force(true);
+        }
+        Path path = target.toPath().toAbsolutePath();
+        Files.move(temp.toPath(), path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // make the rename itself durable; not every platform can sync a directory
+        try (FileChannel dir = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // the snapshot is written, only the rename may be lost on power failure
+        }
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param file - the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file can't be read, or is not a complete
+     * snapshot
+     */
+    public static Checkpoint read(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileInputStream stream = new FileInputStream(file)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(stream, 1 << 16), crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a mission checkpoint: " + file);
+            }
+            int rightX = in.readInt();
+            int topY = in.readInt();
+            long missionSize = in.readLong();
+            int rovers = in.readInt();
+            if (rovers < 0 || rovers > (file.length() - 36) / 17) {
+                throw new IOException("Corrupt mission checkpoint: " + file);
+            }
+            Checkpoint checkpoint = new Checkpoint(rightX, topY, missionSize, rovers);
+            for (int i = 0; i < rovers; i++) {
+                if (in.readInt() != i) {
+                    throw new IOException("Corrupt mission checkpoint: " + file);
+                }
+                checkpoint.x[i] = in.readInt();
+                checkpoint.y[i] = in.readInt();
+                checkpoint.heading[i] = in.readByte();
+                checkpoint.cursor[i] = in.readInt();
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(in).readLong() != expected) {
+                throw new IOException("Corrupt mission checkpoint: " + file);
+            }
+            return checkpoint;
+        }
+    }
+}
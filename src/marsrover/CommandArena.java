@@ -0,0 +1,187 @@
+package marsrover;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Move commands of a whole fleet, packed at two bits per command into one
+ * growable long array.
+ *
+ * A rover's commands are a range of the arena, kept as a start index and a
+ * length in its FleetStore, so a fleet has no String or array per rover.
+ * Command i is stored in word i / 32 starting at bit 2 * (i % 32). The
+ * codes are shared with the binary mission format: M is 0, R is 1 (a
+ * quarter turn clockwise) and L is 3 (three quarter turns), so a turn adds
+ * the code to the heading modulo 4.
+ *
+ * @author Tempest
+ */
+public class CommandArena {
+
+    static final int CODE_MOVE = 0;
+    static final int CODE_RIGHT = 1;
+    static final int CODE_INVALID = 2;
+    static final int CODE_LEFT = 3;
+
+    private static final int CODES_PER_WORD = 32;
+
+    private long[] words;
+    private long size;
+
+    /**
+     * Constructs an empty arena.
+     *
+     * @param capacity - number of commands to make room for up front
+     */
+    public CommandArena(long capacity) {
+        this.words = new long[(int) Math.max(1, Math.min(Integer.MAX_VALUE - 8,
+                (capacity + CODES_PER_WORD - 1) / CODES_PER_WORD))];
+    }
+
+    /**
+     * Get the two-bit code of a move command.
+     *
+     * @param command - the command character
+     * @return code of L, R or M, or CODE_INVALID for any other character
+     */
+    static int codeOf(int command) {
+        switch (command) {
+            case 'M':
+                return CODE_MOVE;
+            case 'R':
+                return CODE_RIGHT;
+            case 'L':
+                return CODE_LEFT;
+            default:
+                return CODE_INVALID;
+        }
+    }
+
+    /**
+     * Get the move command of a two-bit code.
+     *
+     * @param code - the code, 0 to 3
+     * @return L, R or M, or '?' for CODE_INVALID
+     */
+    static char commandOf(int code) {
+        return "MR?L".charAt(code);
+    }
+
+    /**
+     * Get the number of commands stored.
+     *
+     * @return number of commands
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Adds one command code at the end of the arena.
+     *
+     * @param code - the code, 0 to 3
+     */
+    public void add(int code) {
+        int word = (int) (size >>> 5);
+        if (word == words.length) {
+            grow(word + 1);
+        }
+        words[word] |= (long) code << ((size & 31) << 1);
+        size++;
+    }
+
+    /**
+     * Adds a String of move commands at the end of the arena. Characters
+     * other than L, R and M are stored as CODE_INVALID.
+     *
+     * @param commands - String of characters M, L, and/or R
+     * @return index of the first added command
+     */
+    public long append(CharSequence commands) {
+        long start = size;
+        reserve(commands.length());
+        for (int i = 0; i < commands.length(); i++) {
+            add(codeOf(commands.charAt(i)));
+        }
+        return start;
+    }
+
+    /**
+     * Adds a range of another arena at the end of this one.
+     *
+     * @param other - the arena to copy from
+     * @param start - index of the first command to copy
+     * @param length - number of commands to copy
+     * @return index of the first added command
+     */
+    public long append(CommandArena other, long start, int length) {
+        long first = size;
+        reserve(length);
+        for (int i = 0; i < length; i++) {
+            add(other.get(start + i));
+        }
+        return first;
+    }
+
+    /**
+     * Drops the commands from an index on, so the arena can be refilled from
+     * there.
+     *
+     * @param newSize - number of commands to keep
+     */
+    void truncate(long newSize) {
+        for (long i = newSize; i < size && (i & 31) != 0; i++) {
+            words[(int) (i >>> 5)] &= ~(3L << ((i & 31) << 1));
+        }
+        for (long word = (newSize + 31) >>> 5; word <= (size - 1) >>> 5 && size > 0; word++) {
+            words[(int) word] = 0;
+        }
+        size = Math.min(size, newSize);
+    }
+
+    /**
+     * Gets the code of one command.
+     *
+     * @param index - index of the command
+     * @return the code, 0 to 3
+     */
+    public int get(long index) {
+        return (int) (words[(int) (index >>> 5)] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Decodes a range of commands into a String.
+     *
+     * @param start - index of the first command
+     * @param length - number of commands
+     * @return String of characters M, L, and/or R
+     */
+    public String text(long start, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = (byte) commandOf(get(start + i));
+        }
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Makes room for more commands, so that a long command String grows the
+     * array at most once.
+     *
+     * @param more - number of commands about to be added
+     */
+    public void reserve(long more) {
+        long needed = (size + more + CODES_PER_WORD - 1) / CODES_PER_WORD;
+        if (needed > words.length) {
+            grow(needed);
+        }
+    }
+
+    private void grow(long minWords) {
+        long capacity = Math.max(minWords, (long) words.length * 2);
+        if (minWords > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many move commands for one arena");
+        }
+        words = Arrays.copyOf(words, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+    }
+}
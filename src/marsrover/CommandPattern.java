@@ -0,0 +1,636 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Move commands written with repeat groups, such as "MM(LMMRM)50000R".
+ *
+ * A group is a sequence of commands, itself possibly holding groups, in
+ * parentheses and followed by a decimal repeat count. Plain L, R and M
+ * Strings are patterns without groups, so the grammar is backwards
+ * compatible.
+ *
+ * Every part of a pattern knows its effect on an unobstructed rover that
+ * starts at (0, 0) facing North: its net rotation, its net displacement and
+ * the bounding box of the cells it passes through. A group runs as follows:
+ * <ul>
+ * <li>If the body does not turn the rover, every repetition shifts the
+ * same path by the same displacement. The number of repetitions whose
+ * swept rectangle stays on the plateau and holds no other rover is found
+ * with a few rectangle checks on the occupancy index, and the rover jumps
+ * to the end of them in one step.</li>
+ * <li>Near a blocker the body is executed one repetition at a time. Since
+ * no other rover moves meanwhile, the rover's path only depends on its
+ * position and heading, so once a repetition leaves it where it started
+ * (blocked, or back from a loop) the remaining repetitions are skipped.</li>
+ * <li>A body that turns the rover comes back to the same heading every
+ * two or four repetitions, and such a period that ends where it started
+ * is skipped the same way.</li>
+ * </ul>
+ * The final position is the same as executing the expanded commands one by
+ * one.
+ *
+ * The pattern is kept as a tree of its groups and never expanded: engines
+ * that need the commands one at a time read them with codeAt or forEach.
+ *
+ * @author Tempest
+ */
+public class CommandPattern {
+
+    /**
+     * Largest number of commands a pattern may expand to, small enough that
+     * the displacement of any part of the pattern fits in a long.
+     */
+    public static final long MAX_LENGTH = 1L << 60;
+
+    /**
+     * Deepest nesting of groups accepted.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * Probes of a rectangle check allowed per skipped command; a check that
+     * would cost more is not worth making.
+     */
+    private static final int PROBES_PER_COMMAND = 4;
+
+    /**
+     * Largest number of repetitions stepped between two failed attempts to
+     * skip ahead.
+     */
+    private static final long MAX_BACKOFF = 1 << 16;
+
+    private final Segment body;
+
+    private CommandPattern(Segment body) {
+        this.body = body;
+    }
+
+    /**
+     * Compiles a String of move commands with repeat groups.
+     *
+     * @param commands - characters M, L, R, and groups "(...)count"
+     * @return the compiled pattern
+     * @throws marsrover.Rover.InvalidInputException if the String is not a
+     * valid pattern, or expands to more than MAX_LENGTH commands
+     */
+    public static CommandPattern parse(CharSequence commands) throws Rover.InvalidInputException {
+        Parser parser = new Parser(commands);
+        Segment body = parser.parse();
+        if (parser.error != null) {
+            throw new Rover.InvalidInputException(parser.error);
+        }
+        return new CommandPattern(body);
+    }
+
+    /**
+     * Checks a String of move commands with repeat groups without throwing.
+     *
+     * @param commands - characters M, L, R, and groups "(...)count"
+     * @return index of the first error, or -1 if the pattern is valid
+     */
+    public static int errorIndex(CharSequence commands) {
+        Parser parser = new Parser(commands);
+        parser.parse();
+        return parser.error == null ? -1 : parser.errorIndex;
+    }
+
+    /**
+     * Checks whether a String of move commands uses repeat groups.
+     *
+     * @param commands - String of move commands
+     * @return true if there is an opening parenthesis
+     */
+    public static boolean hasGroups(CharSequence commands) {
+        for (int i = 0; i < commands.length(); i++) {
+            if (commands.charAt(i) == '(') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of commands the pattern expands to.
+     *
+     * @return number of commands
+     */
+    public long length() {
+        return body.length;
+    }
+
+    /**
+     * Gets the code of one command of the expanded pattern, in time
+     * proportional to the nesting depth.
+     *
+     * @param index - index of the command, below length()
+     * @return the code, as in CommandArena
+     */
+    public int codeAt(long index) {
+        return body.codeAt(index);
+    }
+
+    /**
+     * Passes the codes of the expanded commands to an action, in order,
+     * without storing them.
+     *
+     * @param action - receives each code, as in CommandArena
+     */
+    public void forEach(IntConsumer action) {
+        body.forEach(action);
+    }
+
+    /**
+     * Counts the M commands issued in each heading by a rover running the
+     * pattern, whatever blocks it: turns never depend on collisions.
+     *
+     * @param heading - heading of the rover before the first command
+     * @return number of M commands issued facing N, E, S and W
+     */
+    public long[] moves(int heading) {
+        long[] moves = new long[4];
+        for (int k = 0; k < 4; k++) {
+            moves[(heading + k) & 3] = body.headingMoves[k];
+        }
+        return moves;
+    }
+
+    /**
+     * Executes the pattern on a rover of the stepper's fleet.
+     *
+     * @param stepper - stepper of the fleet holding the rover
+     * @param slot - slot of the rover
+     */
+    public void run(FleetStepper stepper, int slot) {
+        body.run(stepper, slot);
+    }
+
+    /**
+     * X part of a vector given relative to a rover facing North, for a rover
+     * with the given heading.
+     */
+    private static long turnX(int heading, long x, long y) {
+        switch (heading) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return -x;
+            default:
+                return -y;
+        }
+    }
+
+    /**
+     * Y part of a vector given relative to a rover facing North, for a rover
+     * with the given heading.
+     */
+    private static long turnY(int heading, long x, long y) {
+        switch (heading) {
+            case 0:
+                return y;
+            case 1:
+                return -x;
+            case 2:
+                return -y;
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * A part of a pattern and its effect on an unobstructed rover starting
+     * at (0, 0) facing North.
+     */
+    private abstract static class Segment {
+
+        int rotation;
+        long dx;
+        long dy;
+        long minX;
+        long minY;
+        long maxX;
+        long maxY;
+        long length;
+        long moves;
+        final long[] headingMoves = new long[4];
+
+        /**
+         * Adds the effect of another segment, run after this one.
+         */
+        void then(Segment next) {
+            long x1 = turnX(rotation, next.minX, next.minY);
+            long y1 = turnY(rotation, next.minX, next.minY);
+            long x2 = turnX(rotation, next.maxX, next.maxY);
+            long y2 = turnY(rotation, next.maxX, next.maxY);
+            minX = Math.min(minX, dx + Math.min(x1, x2));
+            minY = Math.min(minY, dy + Math.min(y1, y2));
+            maxX = Math.max(maxX, dx + Math.max(x1, x2));
+            maxY = Math.max(maxY, dy + Math.max(y1, y2));
+            dx += turnX(rotation, next.dx, next.dy);
+            dy += turnY(rotation, next.dx, next.dy);
+            for (int k = 0; k < 4; k++) {
+                headingMoves[(rotation + k) & 3] += next.headingMoves[k];
+            }
+            rotation = (rotation + next.rotation) & 3;
+            length += next.length;
+            moves += next.moves;
+        }
+
+        abstract void run(FleetStepper stepper, int slot);
+
+        abstract int codeAt(long index);
+
+        abstract void forEach(IntConsumer action);
+    }
+
+    /**
+     * Commands without groups, run as a CommandProgram.
+     */
+    private static final class Plain extends Segment {
+
+        private final String commands;
+        private final CommandProgram program;
+
+        Plain(String commands) {
+            this.commands = commands;
+            this.program = CommandProgram.compile(commands);
+            int heading = 0;
+            for (int i = 0; i < commands.length(); i++) {
+                char c = commands.charAt(i);
+                if (c == 'L') {
+                    heading = FleetStepper.LEFT[heading];
+                } else if (c == 'R') {
+                    heading = FleetStepper.RIGHT[heading];
+                } else {
+                    dx += FleetStepper.DX[heading];
+                    dy += FleetStepper.DY[heading];
+                    minX = Math.min(minX, dx);
+                    minY = Math.min(minY, dy);
+                    maxX = Math.max(maxX, dx);
+                    maxY = Math.max(maxY, dy);
+                    moves++;
+                    headingMoves[heading]++;
+                }
+            }
+            rotation = heading;
+            length = commands.length();
+        }
+
+        @Override
+        void run(FleetStepper stepper, int slot) {
+            program.run(stepper, slot);
+        }
+
+        @Override
+        int codeAt(long index) {
+            return CommandArena.codeOf(commands.charAt((int) index));
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < commands.length(); i++) {
+                action.accept(CommandArena.codeOf(commands.charAt(i)));
+            }
+        }
+    }
+
+    /**
+     * A sequence of segments.
+     */
+    private static final class Sequence extends Segment {
+
+        private final Segment[] parts;
+        private final long[] ends;
+
+        Sequence(List<Segment> parts) {
+            this.parts = parts.toArray(new Segment[parts.size()]);
+            this.ends = new long[this.parts.length];
+            for (int i = 0; i < this.parts.length; i++) {
+                then(this.parts[i]);
+                ends[i] = length;
+            }
+        }
+
+        @Override
+        void run(FleetStepper stepper, int slot) {
+            for (Segment part : parts) {
+                part.run(stepper, slot);
+            }
+        }
+
+        @Override
+        int codeAt(long index) {
+            // the first part ending after the index
+            int low = 0;
+            int high = parts.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] > index) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return parts[low].codeAt(index - (ends[low] - parts[low].length));
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (Segment part : parts) {
+                part.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * A body repeated a number of times.
+     */
+    private static final class Repeat extends Segment {
+
+        private final Segment body;
+        private final long count;
+        private final int period;
+
+        Repeat(Segment body, long count) {
+            this.body = body;
+            this.count = count;
+            this.period = body.rotation == 0 ? 1 : body.rotation == 2 ? 2 : 4;
+            // the path repeats after a period, so it is covered by the first
+            // one; the end of the run only depends on the reps past the last
+            // full period, or on the count when the body does not turn
+            for (long i = 0; i < Math.min(count, period); i++) {
+                then(body);
+            }
+            if (body.rotation == 0) {
+                minX = Math.min(body.minX, body.minX + (count - 1) * body.dx);
+                minY = Math.min(body.minY, body.minY + (count - 1) * body.dy);
+                maxX = Math.max(body.maxX, body.maxX + (count - 1) * body.dx);
+                maxY = Math.max(body.maxY, body.maxY + (count - 1) * body.dy);
+                dx = count * body.dx;
+                dy = count * body.dy;
+            } else {
+                Segment end = new Sequence(new ArrayList<Segment>());
+                for (long i = 0; i < count % period; i++) {
+                    end.then(body);
+                }
+                dx = end.dx;
+                dy = end.dy;
+                rotation = end.rotation;
+            }
+            if (count == 0) {
+                minX = 0;
+                minY = 0;
+                maxX = 0;
+                maxY = 0;
+            }
+            length = body.length * count;
+            moves = body.moves * count;
+            // repetition j of each period starts turned by j body rotations
+            Arrays.fill(headingMoves, 0);
+            for (int j = 0; j < period && j < count; j++) {
+                long reps = count / period + (j < count % period ? 1 : 0);
+                int turn = (j * body.rotation) & 3;
+                for (int k = 0; k < 4; k++) {
+                    headingMoves[(turn + k) & 3] += reps * body.headingMoves[k];
+                }
+            }
+        }
+
+        @Override
+        void run(FleetStepper stepper, int slot) {
+            FleetStore fleet = stepper.getFleet();
+            // a recorded rover takes every step, so nothing is skipped
+            boolean recorded = stepper.getRecorder() != null;
+            boolean drifts = !recorded && body.rotation == 0 && (body.dx != 0 || body.dy != 0);
+            long remaining = count;
+            long wait = 0;
+            long backoff = 1;
+            while (remaining > 0) {
+                if (drifts && wait == 0) {
+                    long reps = unblockedRepetitions(stepper, slot, remaining);
+                    if (reps > 0) {
+                        int h = fleet.heading[slot];
+                        stepper.place(slot, (int) (fleet.x[slot] + reps * turnX(h, body.dx, body.dy)),
+                                (int) (fleet.y[slot] + reps * turnY(h, body.dx, body.dy)));
+                        if (MissionMetrics.ENABLED) {
+                            MissionMetrics.commands(reps * body.length);
+                            MissionMetrics.moves(reps * body.moves);
+                        }
+                        remaining -= reps;
+                        backoff = 1;
+                        continue;
+                    }
+                    wait = backoff;
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                }
+                int x = fleet.x[slot];
+                int y = fleet.y[slot];
+                byte heading = fleet.heading[slot];
+                long reps = Math.min(period, remaining);
+                for (long i = 0; i < reps; i++) {
+                    body.run(stepper, slot);
+                }
+                remaining -= reps;
+                if (wait > 0) {
+                    wait--;
+                }
+                if (!recorded && remaining >= period && fleet.x[slot] == x && fleet.y[slot] == y
+                        && fleet.heading[slot] == heading) {
+                    // every further period would take the same path back here
+                    long skipped = remaining - remaining % period;
+                    if (MissionMetrics.ENABLED) {
+                        MissionMetrics.commands(skipped * body.length);
+                    }
+                    remaining -= skipped;
+                }
+            }
+        }
+
+        /**
+         * Finds how many repetitions of a body that does not turn the rover
+         * can run without a move being blocked: all the cells they pass
+         * through must be on the plateau and free of other rovers.
+         *
+         * @return number of repetitions, at most remaining
+         */
+        private long unblockedRepetitions(FleetStepper stepper, int slot, long remaining) {
+            FleetStore fleet = stepper.getFleet();
+            Plateau p = stepper.getPlateau();
+            int h = fleet.heading[slot];
+            int x = fleet.x[slot];
+            int y = fleet.y[slot];
+            long stepX = turnX(h, body.dx, body.dy);
+            long stepY = turnY(h, body.dx, body.dy);
+            long x1 = x + turnX(h, body.minX, body.minY);
+            long y1 = y + turnY(h, body.minX, body.minY);
+            long x2 = x + turnX(h, body.maxX, body.maxY);
+            long y2 = y + turnY(h, body.maxX, body.maxY);
+            long[] box = {Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2)};
+            if (box[0] < 0 || box[1] < 0 || box[2] >= p.getWidth() || box[3] >= p.getHeight()) {
+                return 0;
+            }
+            long reps = Math.min(remaining, Math.min(fit(box[0], box[2], stepX, p.getWidth()),
+                    fit(box[1], box[3], stepY, p.getHeight())));
+
+            Occupancy occupancy = stepper.getOccupancy();
+            occupancy.vacate(x, y);
+            try {
+                if (free(occupancy, box, stepX, stepY, reps)) {
+                    return reps;
+                }
+                long low = 0;
+                long high = reps;
+                while (high - low > 1) {
+                    long mid = (low + high) >>> 1;
+                    if (free(occupancy, box, stepX, stepY, mid)) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return low;
+            } finally {
+                occupancy.occupy(x, y);
+            }
+        }
+
+        /**
+         * Number of repetitions that keep a box within 0..size-1 on one axis
+         * while it moves by step each time.
+         */
+        private static long fit(long min, long max, long step, int size) {
+            if (step > 0) {
+                return (size - 1 - max) / step + 1;
+            }
+            if (step < 0) {
+                return min / -step + 1;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Checks that the rectangle swept by the box over some repetitions
+         * is free, if the check costs less than running them.
+         */
+        private boolean free(Occupancy occupancy, long[] box, long stepX, long stepY, long reps) {
+            int minX = (int) Math.min(box[0], box[0] + (reps - 1) * stepX);
+            int minY = (int) Math.min(box[1], box[1] + (reps - 1) * stepY);
+            int maxX = (int) Math.max(box[2], box[2] + (reps - 1) * stepX);
+            int maxY = (int) Math.max(box[3], box[3] + (reps - 1) * stepY);
+            if (occupancy.isEmptyCost(minX, minY, maxX, maxY) > PROBES_PER_COMMAND * reps * body.length) {
+                return false;
+            }
+            return occupancy.isEmpty(minX, minY, maxX, maxY);
+        }
+
+        @Override
+        int codeAt(long index) {
+            return body.codeAt(index % body.length);
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (long i = 0; i < count; i++) {
+                body.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser of the pattern grammar. Records the first
+     * error instead of throwing.
+     */
+    private static final class Parser {
+
+        private final CharSequence text;
+        private int pos;
+        String error;
+        int errorIndex;
+
+        Parser(CharSequence text) {
+            this.text = text;
+        }
+
+        Segment parse() {
+            Segment body = sequence(0);
+            if (error == null && pos < text.length()) {
+                fail(pos, "Repeat group closed without being opened.");
+            }
+            return body;
+        }
+
+        private Segment sequence(int depth) {
+            List<Segment> parts = new ArrayList<>();
+            long length = 0;
+            int plainStart = pos;
+            while (pos < text.length() && error == null) {
+                char c = text.charAt(pos);
+                if (c == 'L' || c == 'R' || c == 'M') {
+                    pos++;
+                } else if (c == '(') {
+                    if (pos > plainStart) {
+                        parts.add(new Plain(text.subSequence(plainStart, pos).toString()));
+                    }
+                    if (depth == MAX_DEPTH) {
+                        return fail(pos, "Repeat groups are nested too deeply.");
+                    }
+                    pos++;
+                    Segment body = sequence(depth + 1);
+                    if (error != null) {
+                        return null;
+                    }
+                    if (pos >= text.length() || text.charAt(pos) != ')') {
+                        return fail(pos, "Repeat group must be closed with a parenthesis.");
+                    }
+                    pos++;
+                    int countStart = pos;
+                    long count = 0;
+                    while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+                        count = count > MAX_LENGTH / 10 ? MAX_LENGTH + 1
+                                : Math.min(count * 10 + (text.charAt(pos) - '0'), MAX_LENGTH + 1);
+                        pos++;
+                    }
+                    if (pos == countStart) {
+                        return fail(pos, "Repeat group must be followed by a count.");
+                    }
+                    if (body.length > 0 && count > MAX_LENGTH / body.length) {
+                        return fail(countStart, "Movement commands are too long.");
+                    }
+                    Repeat repeat = new Repeat(body, count);
+                    parts.add(repeat);
+                    length += repeat.length;
+                    plainStart = pos;
+                } else if (c == ')' && depth > 0) {
+                    break;
+                } else if (c == ')') {
+                    return fail(pos, "Repeat group closed without being opened.");
+                } else {
+                    return fail(pos, "Movement command must be L, R, or M.");
+                }
+                if (length + (pos - plainStart) > MAX_LENGTH) {
+                    return fail(pos, "Movement commands are too long.");
+                }
+            }
+            if (error != null) {
+                return null;
+            }
+            if (pos > plainStart) {
+                parts.add(new Plain(text.subSequence(plainStart, pos).toString()));
+            }
+            return parts.size() == 1 ? parts.get(0) : new Sequence(parts);
+        }
+
+        private Segment fail(int index, String message) {
+            if (error == null) {
+                error = message;
+                errorIndex = index;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package marsrover;
+
+import java.util.Arrays;
+
+/**
+ * Move commands of a rover compiled into a compact program.
+ *
+ * Consecutive L and R commands are folded into one net rotation, and every
+ * run of M commands becomes a single "advance up to k cells" operation that
+ * is resolved with one ray-cast against the plateau edge and the nearest
+ * rover in the way (see FleetStepper.advance). Since no other rover moves
+ * while a rover executes its commands, a blocked rover stays blocked for the
+ * rest of the run, so the final position is the same as with
+ * Rover.executeMovementCommands.
+ *
+ * @author Tempest
+ */
+public class CommandProgram {
+
+    /**
+     * Operations of the program. A value of zero or more advances the rover
+     * by up to that many cells, a negative value -r turns it r quarter turns
+     * to the right.
+     */
+    private final int[] ops;
+
+    /**
+     * Number of L and R commands folded into the turn operations.
+     */
+    private final int turnCommands;
+
+    private CommandProgram(int[] ops, int turnCommands) {
+        this.ops = ops;
+        this.turnCommands = turnCommands;
+    }
+
+    /**
+     * Compiles a String of move commands. Characters other than L, R and M
+     * are ignored, same as Rover.executeMovementCommands.
+     *
+     * @param commands - String of characters M, L, and/or R
+     * @return the compiled program
+     */
+    public static CommandProgram compile(CharSequence commands) {
+        int[] ops = new int[16];
+        int count = 0;
+        int rotation = 0;
+        int advance = 0;
+        int turnCommands = 0;
+        for (int i = 0; i < commands.length(); i++) {
+            switch (commands.charAt(i)) {
+                case 'L':
+                    rotation += 3;
+                    turnCommands++;
+                    break;
+                case 'R':
+                    rotation++;
+                    turnCommands++;
+                    break;
+                case 'M':
+                    // a turn only splits two runs of M if it changes the heading
+                    if ((rotation & 3) != 0) {
+                        if (count + 2 > ops.length) {
+                            ops = Arrays.copyOf(ops, ops.length * 2);
+                        }
+                        if (advance > 0) {
+                            ops[count++] = advance;
+                            advance = 0;
+                        }
+                        ops[count++] = -(rotation & 3);
+                    }
+                    rotation = 0;
+                    advance++;
+                    break;
+            }
+        }
+        return finish(ops, count, rotation, advance, turnCommands);
+    }
+
+    /**
+     * Adds the pending run of M and turn to the operations.
+     */
+    private static CommandProgram finish(int[] ops, int count, int rotation, int advance,
+            int turnCommands) {
+        if (count + 2 > ops.length) {
+            ops = Arrays.copyOf(ops, count + 2);
+        }
+        if (advance > 0) {
+            ops[count++] = advance;
+        }
+        if ((rotation & 3) != 0) {
+            ops[count++] = -(rotation & 3);
+        }
+        return new CommandProgram(Arrays.copyOf(ops, count), turnCommands);
+    }
+
+    /**
+     * Compiles the move commands of a rover, read from its fleet's command
+     * arena.
+     *
+     * @param rover - the rover
+     * @return the compiled program
+     */
+    public static CommandProgram compile(Rover rover) {
+        FleetStore fleet = rover.getFleet();
+        int slot = rover.getSlot();
+        return compile(fleet.commands, fleet.commandStart[slot], fleet.commandLength[slot]);
+    }
+
+    /**
+     * Compiles a range of a command arena.
+     *
+     * @param commands - the arena holding the commands
+     * @param start - index of the first command
+     * @param length - number of commands
+     * @return the compiled program
+     */
+    public static CommandProgram compile(CommandArena commands, long start, int length) {
+        int[] ops = new int[16];
+        int count = 0;
+        int rotation = 0;
+        int advance = 0;
+        int turnCommands = 0;
+        for (int i = 0; i < length; i++) {
+            int code = commands.get(start + i);
+            if (code == CommandArena.CODE_INVALID) {
+                continue;
+            }
+            if (code != CommandArena.CODE_MOVE) {
+                rotation += code;
+                turnCommands++;
+                continue;
+            }
+            // a turn only splits two runs of M if it changes the heading
+            if ((rotation & 3) != 0) {
+                if (count + 2 > ops.length) {
+                    ops = Arrays.copyOf(ops, ops.length * 2);
+                }
+                if (advance > 0) {
+                    ops[count++] = advance;
+                    advance = 0;
+                }
+                ops[count++] = -(rotation & 3);
+            }
+            rotation = 0;
+            advance++;
+        }
+        return finish(ops, count, rotation, advance, turnCommands);
+    }
+
+    /**
+     * Get the number of operations of the program.
+     *
+     * @return integer representing the number of operations
+     */
+    public int size() {
+        return ops.length;
+    }
+
+    /**
+     * Executes the program on a rover, keeping the occupancy index up to
+     * date.
+     *
+     * @param rover - the rover to move
+     * @param p - initialized Plateau object
+     * @param occupancy - occupancy index of the deployed rovers
+     */
+    public void run(Rover rover, Plateau p, Occupancy occupancy) {
+        run(new FleetStepper(p, occupancy, rover.getFleet()), rover.getSlot());
+    }
+
+    /**
+     * Executes the program on a rover of the stepper's fleet.
+     *
+     * @param stepper - stepper of the fleet holding the rover
+     * @param slot - slot of the rover
+     */
+    public void run(FleetStepper stepper, int slot) {
+        for (int op : ops) {
+            if (op < 0) {
+                stepper.turn(slot, -op);
+            } else {
+                stepper.advance(slot, op);
+            }
+        }
+        if (MissionMetrics.ENABLED) {
+            // advance() counts the M commands, the folded turns are counted here
+            MissionMetrics.commands(turnCommands);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package marsrover;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs a mission engine against ReferenceEngine on random missions and
+ * reports the first rover whose final pose differs.
+ *
+ * Each mission comes from its own seed, drawn from the fuzzer's seed, so a
+ * divergence can be replayed alone. The mission is written by
+ * MissionGenerator on a plateau of up to MAX_SIDE cells a side, loaded
+ * twice, and run by the reference on one copy and by the engine on the
+ * other. One mission in three is dense, with rovers deployed next to each
+ * other on most of the plateau, so that most moves are blocked; one in
+ * three has impassable terrain. Rovers that can't be deployed are skipped
+ * quietly. When the engine diverges, the mission file (and terrain map) is
+ * kept to be run again with MarsRover --engine.
+ *
+ * Usage: java marsrover.EngineFuzzer [--seed S] [--missions N] [engine...]
+ *   engines are named as in MissionEngine.forName (default: all but the
+ *   reference)
+ *
+ * @author Tempest
+ */
+public class EngineFuzzer {
+
+    /**
+     * Number of missions run by default.
+     */
+    public static final int DEFAULT_MISSIONS = 200;
+
+    /**
+     * Largest number of cells on a side of the plateau.
+     */
+    public static final int MAX_SIDE = 48;
+
+    private static final int MAX_COMMANDS = 120;
+
+    private final MissionEngine reference = new ReferenceEngine();
+    private long seed = 42;
+    private int missions = DEFAULT_MISSIONS;
+
+    /**
+     * Main method fuzzing engines from the command line. Exits with status
+     * 1 if an engine diverges from the reference.
+     *
+     * @param args - options followed by engine names
+     * @throws IOException if a mission can't be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        EngineFuzzer fuzzer = new EngineFuzzer();
+        int first = 0;
+        while (first + 1 < args.length && args[first].startsWith("--")) {
+            if (args[first].equals("--seed") && args[first + 1].matches("-?[0-9]{1,18}")) {
+                fuzzer.setSeed(Long.parseLong(args[first + 1]));
+            } else if (args[first].equals("--missions") && args[first + 1].matches("[0-9]{1,9}")) {
+                fuzzer.setMissions(Integer.parseInt(args[first + 1]));
+            } else {
+                break;
+            }
+            first += 2;
+        }
+        String[] names = args.length > first ? Arrays.copyOfRange(args, first, args.length)
+                : Arrays.copyOfRange(MissionEngine.NAMES, 1, MissionEngine.NAMES.length);
+        boolean diverged = false;
+        for (String name : names) {
+            MissionEngine engine = MissionEngine.forName(name);
+            if (engine == null) {
+                System.out.println("Unknown engine " + name);
+                System.out.println("Usage: java marsrover.EngineFuzzer [--seed S] [--missions N] [engine...]");
+                System.exit(1);
+            }
+            Divergence divergence = fuzzer.run(engine);
+            if (divergence == null) {
+                System.out.println(name + ": " + fuzzer.missions + " missions agree with the reference");
+            } else {
+                System.out.println(name + ": " + divergence);
+                diverged = true;
+            }
+        }
+        System.exit(diverged ? 1 : 0);
+    }
+
+    /**
+     * Sets the seed the mission seeds are drawn from.
+     *
+     * @param seed - random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of missions to run.
+     *
+     * @param missions - number of missions
+     */
+    public void setMissions(int missions) {
+        this.missions = missions;
+    }
+
+    /**
+     * Runs the missions until the engine diverges from the reference.
+     *
+     * @param engine - the engine to check
+     * @return the first divergence, or null if the engine agrees on every
+     * mission
+     * @throws IOException if a mission can't be written or read
+     */
+    public Divergence run(MissionEngine engine) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < missions; i++) {
+            Divergence divergence = check(engine, random.nextLong());
+            if (divergence != null) {
+                return divergence;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs one mission with the engine and with the reference.
+     *
+     * @param engine - the engine to check
+     * @param missionSeed - seed of the mission
+     * @return the divergence of the lowest slot, or null if the engine
+     * leaves every rover where the reference does
+     * @throws IOException if the mission can't be written or read
+     */
+    public Divergence check(MissionEngine engine, long missionSeed) throws IOException {
+        SplittableRandom random = new SplittableRandom(missionSeed);
+        int rightX = 1 + random.nextInt(MAX_SIDE - 1);
+        int topY = 1 + random.nextInt(MAX_SIDE - 1);
+        boolean dense = random.nextInt(3) == 0;
+        MissionGenerator generator = new MissionGenerator();
+        generator.setPlateau(rightX, topY);
+        generator.setDensity(dense ? 0.5 + random.nextDouble() * 0.5 : random.nextDouble() * 0.3);
+        generator.setCollisionRate(dense ? 0.5 + random.nextDouble() * 0.5 : random.nextDouble());
+        generator.setCommandLength(1 + random.nextInt(MAX_COMMANDS));
+        generator.setMix(1 + random.nextInt(4), random.nextInt(3), random.nextInt(3));
+        generator.setSeed(random.nextLong());
+
+        File missionFile = File.createTempFile("fuzz", ".txt");
+        File terrainFile = null;
+        boolean keep = false;
+        try {
+            generator.write(missionFile);
+            if (random.nextInt(3) == 0) {
+                terrainFile = File.createTempFile("fuzz", ".map");
+                int share = 3 + random.nextInt(8);
+                try (TerrainMap terrain = TerrainMap.create(terrainFile, rightX + 1, topY + 1)) {
+                    for (int x = 0; x <= rightX; x++) {
+                        for (int y = 0; y <= topY; y++) {
+                            if (random.nextInt(share) == 0) {
+                                terrain.block(x, y);
+                            }
+                        }
+                    }
+                }
+            }
+            Divergence divergence = compare(engine, missionSeed, missionFile, terrainFile);
+            keep = divergence != null;
+            return divergence;
+        } finally {
+            if (!keep) {
+                missionFile.delete();
+                if (terrainFile != null) {
+                    terrainFile.delete();
+                }
+            }
+        }
+    }
+
+    private Divergence compare(MissionEngine engine, long missionSeed, File missionFile, File terrainFile)
+            throws IOException {
+        try (MissionFile expectedFile = new MissionFile(missionFile);
+                MissionFile actualFile = new MissionFile(missionFile);
+                TerrainMap expectedTerrain = terrainFile == null ? null : TerrainMap.open(terrainFile);
+                TerrainMap actualTerrain = terrainFile == null ? null : TerrainMap.open(terrainFile)) {
+            FleetLoader expected = load(expectedFile, expectedTerrain);
+            FleetLoader actual = load(actualFile, actualTerrain);
+            FleetStore fleet = actual.getFleet();
+            int size = fleet.size();
+            int[] startX = new int[size];
+            int[] startY = new int[size];
+            byte[] startHeading = new byte[size];
+            for (int slot = 0; slot < size; slot++) {
+                startX[slot] = fleet.getX(slot);
+                startY[slot] = fleet.getY(slot);
+                startHeading[slot] = fleet.getHeading(slot);
+            }
+
+            reference.moveRovers(expected.getPlateau(), expected.getRovers(), expected.getOccupancy());
+            engine.moveRovers(actual.getPlateau(), actual.getRovers(), actual.getOccupancy());
+
+            List<Rover> expectedRovers = expected.getRovers();
+            List<Rover> actualRovers = actual.getRovers();
+            for (int slot = 0; slot < size; slot++) {
+                Rover expectedRover = expectedRovers.get(slot);
+                Rover actualRover = actualRovers.get(slot);
+                boolean inSync = actual.getOccupancy().isOccupied(actualRover.getX(), actualRover.getY());
+                if (!expectedRover.getPosition().equals(actualRover.getPosition()) || !inSync) {
+                    String start = startX[slot] + " " + startY[slot] + " "
+                            + FleetStore.directionOf(startHeading[slot]);
+                    return new Divergence(missionSeed, missionFile, terrainFile, slot, start,
+                            expectedRover.getPosition(), actualRover.getPosition(), inSync);
+                }
+            }
+            return null;
+        } catch (Plateau.InvalidSizeException | Rover.InvalidInputException
+                | MissionParser.MalformedMissionException e) {
+            throw new IOException("Generated mission can't be loaded: " + missionFile, e);
+        }
+    }
+
+    /**
+     * Loads a mission, skipping rovers that can't be deployed without the
+     * message FleetLoader prints for them.
+     */
+    private static FleetLoader load(MissionFile file, TerrainMap terrain) throws Plateau.InvalidSizeException,
+            Rover.InvalidInputException, MissionParser.MalformedMissionException {
+        MissionReader parser = MissionReader.open(file);
+        FleetLoader loader = new FleetLoader(file, parser) {
+            @Override
+            public void rover(int x, int y, char direction, long commandsStart, int commandsLength)
+                    throws Rover.InvalidInputException {
+                if (Rover.validLocation(x, y, getPlateau(), getOccupancy())) {
+                    super.rover(x, y, direction, commandsStart, commandsLength);
+                }
+            }
+        };
+        loader.setTerrain(terrain);
+        parser.parse(loader);
+        return loader;
+    }
+
+    /**
+     * The first rover an engine leaves somewhere else than the reference.
+     */
+    public static class Divergence {
+
+        private final long missionSeed;
+        private final File missionFile;
+        private final File terrainFile;
+        private final int slot;
+        private final String start;
+        private final String expected;
+        private final String actual;
+        private final boolean inSync;
+
+        Divergence(long missionSeed, File missionFile, File terrainFile, int slot, String start,
+                String expected, String actual, boolean inSync) {
+            this.missionSeed = missionSeed;
+            this.missionFile = missionFile;
+            this.terrainFile = terrainFile;
+            this.slot = slot;
+            this.start = start;
+            this.expected = expected;
+            this.actual = actual;
+            this.inSync = inSync;
+        }
+
+        /**
+         * Get the seed of the mission, for EngineFuzzer.check.
+         *
+         * @return seed of the mission
+         */
+        public long getMissionSeed() {
+            return missionSeed;
+        }
+
+        /**
+         * Get the mission file, kept for running the mission again.
+         *
+         * @return the mission file
+         */
+        public File getMissionFile() {
+            return missionFile;
+        }
+
+        /**
+         * Get the terrain map of the mission.
+         *
+         * @return the terrain map file, or null if the mission has none
+         */
+        public File getTerrainFile() {
+            return terrainFile;
+        }
+
+        /**
+         * Get the slot of the rover, its place among the deployed rovers.
+         *
+         * @return slot of the rover
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        /**
+         * Get the position the rover was deployed at.
+         *
+         * @return position as "x y direction"
+         */
+        public String getStart() {
+            return start;
+        }
+
+        /**
+         * Get the final position of the rover under the reference.
+         *
+         * @return position as "x y direction"
+         */
+        public String getExpected() {
+            return expected;
+        }
+
+        /**
+         * Get the final position of the rover under the engine.
+         *
+         * @return position as "x y direction"
+         */
+        public String getActual() {
+            return actual;
+        }
+
+        /**
+         * Checks whether the engine left the rover's cell marked in the
+         * occupancy index.
+         *
+         * @return false if the occupancy index is out of sync
+         */
+        public boolean isInSync() {
+            return inSync;
+        }
+
+        @Override
+        public String toString() {
+            return "rover " + slot + " deployed at " + start + " ends at " + actual + " instead of "
+                    + expected + (inSync ? "" : ", its cell not marked as occupied")
+                    + " (mission seed " + missionSeed + ", mission file " + missionFile
+                    + (terrainFile != null ? ", terrain map " + terrainFile : "") + ")";
+        }
+    }
+}
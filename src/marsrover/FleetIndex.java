@@ -0,0 +1,387 @@
+package marsrover;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index of the rovers of a FleetStore, answering rectangle, radius
+ * and nearest-rover queries without scanning the fleet.
+ *
+ * The plateau is cut into a uniform grid of square buckets, a power of two
+ * cells wide, with about as many buckets as rovers. Each bucket holds a
+ * doubly linked list of rover slots threaded through int arrays, so a move
+ * is at most an unlink and a link and allocates nothing. Once created, the
+ * index is attached to its store and every move made through the store,
+ * whether by a FleetStepper, Rover.moveForward or any of the mission
+ * engines, keeps it in sync.
+ *
+ * A query visits only the buckets it overlaps, and a nearest-rover query
+ * visits rings of buckets around the point until no unvisited bucket can
+ * hold a closer rover. Distances are Euclidean; equally distant rovers are
+ * ordered by slot. Queries reuse buffers of the index, so the index must be
+ * used from one thread at a time, like the store itself.
+ *
+ * @author Tempest
+ */
+public class FleetIndex {
+
+    private final FleetStore fleet;
+    private final int shift;
+    private final int across;
+    private final int down;
+    private final int[] head;
+    private int[] next;
+    private int[] previous;
+    private int[] bucket;
+    private long[] heapDistances;
+    private int[] heapSlots;
+    private int heapSize;
+    private final int[] single = new int[1];
+
+    /**
+     * Indexes the rovers of a fleet and attaches the index to the store.
+     *
+     * @param p - the plateau the fleet is deployed on
+     * @param fleet - the fleet to index
+     * @param expectedRovers - estimate of the largest number of rovers the
+     * fleet will hold, which sizes the buckets
+     */
+    public FleetIndex(Plateau p, FleetStore fleet, int expectedRovers) {
+        this.fleet = fleet;
+        long budget = Math.max(Math.max(expectedRovers, fleet.size()), 1);
+        int s = 0;
+        while (s < 31 && bucketsAlong(p.getWidth(), s) * bucketsAlong(p.getHeight(), s) > budget) {
+            s++;
+        }
+        this.shift = s;
+        this.across = (int) bucketsAlong(p.getWidth(), s);
+        this.down = (int) bucketsAlong(p.getHeight(), s);
+        this.head = new int[across * down];
+        Arrays.fill(head, -1);
+        int capacity = Math.max(fleet.size(), 16);
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.bucket = new int[capacity];
+        for (int slot = 0; slot < fleet.size(); slot++) {
+            link(slot, bucketOf(fleet.x[slot], fleet.y[slot]));
+        }
+        fleet.index = this;
+    }
+
+    /**
+     * Indexes the rovers of a fleet, sizing the buckets for the rovers it
+     * holds now, and attaches the index to the store.
+     *
+     * @param p - the plateau the fleet is deployed on
+     * @param fleet - the fleet to index
+     */
+    public FleetIndex(Plateau p, FleetStore fleet) {
+        this(p, fleet, fleet.size());
+    }
+
+    private static long bucketsAlong(int cells, int shift) {
+        return Math.max(((long) cells + (1L << shift) - 1) >>> shift, 1);
+    }
+
+    /**
+     * Get the fleet this index covers.
+     *
+     * @return the FleetStore object
+     */
+    public FleetStore getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Get the width of a bucket.
+     *
+     * @return width and height of a bucket, in cells
+     */
+    public long getBucketSize() {
+        return 1L << shift;
+    }
+
+    /**
+     * Called by the store when a rover has been added.
+     *
+     * @param slot - slot of the new rover
+     */
+    void added(int slot) {
+        if (slot >= next.length) {
+            int capacity = Math.max(next.length * 2, slot + 1);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            bucket = Arrays.copyOf(bucket, capacity);
+        }
+        link(slot, bucketOf(fleet.x[slot], fleet.y[slot]));
+    }
+
+    /**
+     * Called by the store when a rover's coordinates have changed.
+     *
+     * @param slot - slot of the rover
+     */
+    void moved(int slot) {
+        int b = bucketOf(fleet.x[slot], fleet.y[slot]);
+        if (b != bucket[slot]) {
+            unlink(slot);
+            link(slot, b);
+        }
+    }
+
+    private void link(int slot, int b) {
+        int first = head[b];
+        next[slot] = first;
+        previous[slot] = -1;
+        if (first != -1) {
+            previous[first] = slot;
+        }
+        head[b] = slot;
+        bucket[slot] = b;
+    }
+
+    private void unlink(int slot) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            head[bucket[slot]] = after;
+        }
+        if (after != -1) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Get the bucket holding a cell. Cells off the plateau, where only
+     * rovers placed by hand can be, go to the nearest edge bucket.
+     */
+    private int bucketOf(int x, int y) {
+        return bucketY(y) * across + bucketX(x);
+    }
+
+    private int bucketX(long x) {
+        return (int) Math.max(0, Math.min(across - 1, x >> shift));
+    }
+
+    private int bucketY(long y) {
+        return (int) Math.max(0, Math.min(down - 1, y >> shift));
+    }
+
+    /**
+     * Finds the rovers inside a rectangle, edges included.
+     *
+     * @param minX - X coordinate of the left column
+     * @param minY - Y coordinate of the bottom row
+     * @param maxX - X coordinate of the right column
+     * @param maxY - Y coordinate of the top row
+     * @param slots - receives the slot of each rover found, in no particular
+     * order
+     * @return number of rovers found
+     */
+    public int rectangle(int minX, int minY, int maxX, int maxY, IntConsumer slots) {
+        if (minX > maxX || minY > maxY) {
+            return 0;
+        }
+        int found = 0;
+        int left = bucketX(minX);
+        int right = bucketX(maxX);
+        int top = bucketY(maxY);
+        for (int by = bucketY(minY); by <= top; by++) {
+            for (int bx = left; bx <= right; bx++) {
+                for (int slot = head[by * across + bx]; slot != -1; slot = next[slot]) {
+                    int x = fleet.x[slot];
+                    int y = fleet.y[slot];
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        slots.accept(slot);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the rovers within a distance of a point.
+     *
+     * @param x - X coordinate of the point
+     * @param y - Y coordinate of the point
+     * @param radius - largest distance, in cells, at least 0
+     * @param slots - receives the slot of each rover found, in no particular
+     * order
+     * @return number of rovers found
+     */
+    public int radius(int x, int y, int radius, IntConsumer slots) {
+        if (radius < 0) {
+            return 0;
+        }
+        long limit = (long) radius * radius;
+        int found = 0;
+        int left = bucketX((long) x - radius);
+        int right = bucketX((long) x + radius);
+        int top = bucketY((long) y + radius);
+        for (int by = bucketY((long) y - radius); by <= top; by++) {
+            for (int bx = left; bx <= right; bx++) {
+                for (int slot = head[by * across + bx]; slot != -1; slot = next[slot]) {
+                    if (distance(fleet.x[slot] - (long) x, fleet.y[slot] - (long) y) <= limit) {
+                        slots.accept(slot);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the rover nearest to a point.
+     *
+     * @param x - X coordinate of the point
+     * @param y - Y coordinate of the point
+     * @return slot of the nearest rover, or -1 if the fleet is empty
+     */
+    public int nearest(int x, int y) {
+        return nearest(x, y, single) == 0 ? -1 : single[0];
+    }
+
+    /**
+     * Finds the rovers nearest to a point, as many as the array holds.
+     *
+     * @param x - X coordinate of the point
+     * @param y - Y coordinate of the point
+     * @param slots - receives the slots of the nearest rovers, nearest first
+     * @return number of rovers found, the smaller of slots.length and the
+     * fleet size
+     */
+    public int nearest(int x, int y, int[] slots) {
+        int k = Math.min(slots.length, fleet.size());
+        if (k == 0) {
+            return 0;
+        }
+        if (heapSlots == null || heapSlots.length < k) {
+            heapSlots = new int[Math.max(k, 16)];
+            heapDistances = new long[heapSlots.length];
+        }
+        heapSize = 0;
+        int cx = bucketX(x);
+        int cy = bucketY(y);
+        int rings = Math.max(Math.max(cx, across - 1 - cx), Math.max(cy, down - 1 - cy));
+        for (int r = 0; r <= rings; r++) {
+            int left = cx - r;
+            int right = cx + r;
+            int bottom = cy - r;
+            int top = cy + r;
+            for (int bx = Math.max(left, 0); bx <= Math.min(right, across - 1); bx++) {
+                if (bottom >= 0) {
+                    offerBucket(bottom * across + bx, x, y, k);
+                }
+                if (top < down && r > 0) {
+                    offerBucket(top * across + bx, x, y, k);
+                }
+            }
+            for (int by = Math.max(bottom + 1, 0); by <= Math.min(top - 1, down - 1); by++) {
+                if (left >= 0) {
+                    offerBucket(by * across + left, x, y, k);
+                }
+                if (right < across && r > 0) {
+                    offerBucket(by * across + right, x, y, k);
+                }
+            }
+            if (heapSize == k) {
+                // every rover outside the visited square is at least this far
+                // away along one axis
+                long gap = Long.MAX_VALUE;
+                if (left > 0) {
+                    gap = Math.min(gap, x - ((long) left << shift) + 1);
+                }
+                if (right < across - 1) {
+                    gap = Math.min(gap, ((long) (right + 1) << shift) - x);
+                }
+                if (bottom > 0) {
+                    gap = Math.min(gap, y - ((long) bottom << shift) + 1);
+                }
+                if (top < down - 1) {
+                    gap = Math.min(gap, ((long) (top + 1) << shift) - y);
+                }
+                if (heapDistances[0] < distance(gap, 0)) {
+                    break;
+                }
+            }
+        }
+        // pop the farthest rover first, filling the result from the end
+        for (int i = heapSize - 1; i >= 0; i--) {
+            slots[i] = heapSlots[0];
+            heapSize--;
+            heapDistances[0] = heapDistances[heapSize];
+            heapSlots[0] = heapSlots[heapSize];
+            siftDown(0);
+        }
+        return k;
+    }
+
+    /**
+     * Offers the rovers of a bucket to the max-heap of the k nearest ones.
+     */
+    private void offerBucket(int b, int x, int y, int k) {
+        for (int slot = head[b]; slot != -1; slot = next[slot]) {
+            long d = distance(fleet.x[slot] - (long) x, fleet.y[slot] - (long) y);
+            if (heapSize < k) {
+                int i = heapSize++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!farther(d, slot, heapDistances[parent], heapSlots[parent])) {
+                        break;
+                    }
+                    heapDistances[i] = heapDistances[parent];
+                    heapSlots[i] = heapSlots[parent];
+                    i = parent;
+                }
+                heapDistances[i] = d;
+                heapSlots[i] = slot;
+            } else if (farther(heapDistances[0], heapSlots[0], d, slot)) {
+                heapDistances[0] = d;
+                heapSlots[0] = slot;
+                siftDown(0);
+            }
+        }
+    }
+
+    private void siftDown(int i) {
+        long d = heapDistances[i];
+        int slot = heapSlots[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && farther(heapDistances[child + 1], heapSlots[child + 1],
+                    heapDistances[child], heapSlots[child])) {
+                child++;
+            }
+            if (!farther(heapDistances[child], heapSlots[child], d, slot)) {
+                break;
+            }
+            heapDistances[i] = heapDistances[child];
+            heapSlots[i] = heapSlots[child];
+            i = child;
+        }
+        heapDistances[i] = d;
+        heapSlots[i] = slot;
+    }
+
+    private static boolean farther(long d1, int slot1, long d2, int slot2) {
+        return d1 > d2 || d1 == d2 && slot1 > slot2;
+    }
+
+    /**
+     * Squared Euclidean length of a vector. Each axis saturates at
+     * Integer.MAX_VALUE cells so that the sum fits in a long.
+     */
+    private static long distance(long dx, long dy) {
+        dx = Math.min(Math.abs(dx), Integer.MAX_VALUE);
+        dy = Math.min(Math.abs(dy), Integer.MAX_VALUE);
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,201 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the plateau and the deployed fleet from a parsed mission file.
+ *
+ * Applies the same deployment rules as MarsRover.initializeRovers: a rover
+ * that can't be placed is reported and its move commands are skipped.
+ * Deployed rovers are added to a FleetStore, in which the slot of a rover is
+ * also its ID.
+ *
+ * @author Tempest
+ */
+public class FleetLoader implements MissionHandler {
+
+    private final MissionFile file;
+    private final MissionReader parser;
+    private final List<Rover> roversList;
+    private final FleetStore fleet;
+    private Plateau plateau;
+    private Occupancy occupancy;
+    private long denseFleetSize;
+    private MissionProfile profile;
+    private TerrainMap terrain;
+
+    /**
+     * Constructs a loader with its own list of rovers.
+     *
+     * @param file - the opened mission file
+     * @param parser - the parser that will report to this loader
+     */
+    public FleetLoader(MissionFile file, MissionReader parser) {
+        this(file, parser, new ArrayList<Rover>());
+    }
+
+    /**
+     * Constructs a loader adding rovers to the given list.
+     *
+     * @param file - the opened mission file
+     * @param parser - the parser that will report to this loader
+     * @param roversList - list that receives the deployed rovers
+     */
+    public FleetLoader(MissionFile file, MissionReader parser, List<Rover> roversList) {
+        this(file, parser, roversList, new FleetStore(16));
+    }
+
+    /**
+     * Constructs a loader deploying rovers into the given store. The store's
+     * command arena grows as the commands are loaded.
+     *
+     * @param file - the opened mission file
+     * @param parser - the parser that will report to this loader
+     * @param roversList - list that receives the deployed rovers
+     * @param fleet - the empty store receiving the rovers
+     */
+    protected FleetLoader(MissionFile file, MissionReader parser, List<Rover> roversList,
+            FleetStore fleet) {
+        this.file = file;
+        this.parser = parser;
+        this.roversList = roversList;
+        this.fleet = fleet;
+    }
+
+    @Override
+    public void plateau(int rightX, int topY) throws Plateau.InvalidSizeException {
+        plateau = new Plateau(rightX, topY);
+        plateau.setTerrain(terrain);
+        // the fleet size is not known until every rover is read, so the
+        // index starts sparse on a large plateau and turns dense once the
+        // fleet is big enough for it
+        denseFleetSize = Occupancy.denseFleetSize(plateau);
+        occupancy = Occupancy.forPlateau(plateau, 0);
+        if (profile != null) {
+            profile.start("deploy");
+        }
+    }
+
+    @Override
+    public void rover(int x, int y, char direction, long commandsStart, int commandsLength)
+            throws Rover.InvalidInputException {
+        if (Rover.validLocation(x, y, plateau, occupancy)) {
+            byte heading = FleetStore.headingOf(direction);
+            if (heading == -1) {
+                throw new Rover.InvalidInputException("Direction must be N, S, E, or W.");
+            }
+            int slot = fleet.add(x, y, heading);
+            occupancy.occupy(x, y);
+            if (fleet.size() == denseFleetSize) {
+                occupancy = Occupancy.forPlateau(plateau, denseFleetSize);
+                for (int i = 0; i < fleet.size(); i++) {
+                    occupancy.occupy(fleet.getX(i), fleet.getY(i));
+                }
+            }
+            deployed(slot, commandsStart, commandsLength);
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.deployment(true);
+                MissionMetrics.progress(1);
+            }
+        } else {
+            MessageStream.get().println("Could not deploy rover at " + parser.getRoverLine());
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.deployment(false);
+                MissionMetrics.progress(1);
+            }
+        }
+    }
+
+    /**
+     * Called after a rover has been deployed. Adds a Rover view of the slot
+     * to the rovers list and packs its move commands into the fleet's
+     * command arena.
+     *
+     * @param slot - slot of the deployed rover in the fleet
+     * @param commandsStart - location of the move commands in the file
+     * @param commandsLength - number of move commands
+     * @throws marsrover.Rover.InvalidInputException if the move commands are
+     * not valid
+     */
+    protected void deployed(int slot, long commandsStart, int commandsLength)
+            throws Rover.InvalidInputException {
+        Rover rover = fleet.rover(slot);
+        roversList.add(rover);
+        parser.loadCommands(fleet, slot, commandsStart, commandsLength);
+    }
+
+    /**
+     * Set the profile that gets a "deploy" phase started once the plateau is
+     * initialized.
+     *
+     * @param profile - the profile of the run, or null
+     */
+    public void setProfile(MissionProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Set the impassable cells of the plateau, applied once the plateau is
+     * initialized. Rovers can't be deployed or move onto them.
+     *
+     * @param terrain - the terrain map, or null for open ground everywhere
+     */
+    public void setTerrain(TerrainMap terrain) {
+        this.terrain = terrain;
+    }
+
+    /**
+     * Get the opened mission file.
+     *
+     * @return the MissionFile object
+     */
+    public MissionFile getFile() {
+        return file;
+    }
+
+    /**
+     * Get the reader of the mission file.
+     *
+     * @return the MissionReader reporting to this loader
+     */
+    public MissionReader getReader() {
+        return parser;
+    }
+
+    /**
+     * Get the list of deployed rovers.
+     *
+     * @return list of Rover objects in deployment order
+     */
+    public List<Rover> getRovers() {
+        return roversList;
+    }
+
+    /**
+     * Get the store holding the deployed rovers.
+     *
+     * @return the FleetStore object
+     */
+    public FleetStore getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Get the plateau created from the first line of the file.
+     *
+     * @return the Plateau object
+     */
+    public Plateau getPlateau() {
+        return plateau;
+    }
+
+    /**
+     * Get the occupancy index of the deployed rovers.
+     *
+     * @return occupancy index in sync with the rovers list
+     */
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+}
@@ -0,0 +1,327 @@
+package marsrover;
+
+/**
+ * Executes move commands on the rovers of a FleetStore.
+ *
+ * Turns and moves are table lookups on the heading byte and write straight
+ * into the store arrays, so stepping allocates nothing.
+ *
+ * @author Tempest
+ */
+public class FleetStepper {
+
+    static final byte[] LEFT = {3, 0, 1, 2};
+    static final byte[] RIGHT = {1, 2, 3, 0};
+    static final int[] DX = {0, 1, 0, -1};
+    static final int[] DY = {1, 0, -1, 0};
+
+    private final Plateau plateau;
+    private final Occupancy occupancy;
+    private final FleetStore fleet;
+    private TrajectoryRecorder recorder;
+
+    /**
+     * Constructs a stepper for a fleet deployed on a plateau.
+     *
+     * @param p - initialized Plateau object
+     * @param occupancy - occupancy index in sync with the fleet
+     * @param fleet - the fleet to move
+     */
+    public FleetStepper(Plateau p, Occupancy occupancy, FleetStore fleet) {
+        this.plateau = p;
+        this.occupancy = occupancy;
+        this.fleet = fleet;
+    }
+
+    /**
+     * Get the fleet moved by this stepper.
+     *
+     * @return the FleetStore object
+     */
+    public FleetStore getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Get the plateau the fleet moves on.
+     *
+     * @return the Plateau object
+     */
+    public Plateau getPlateau() {
+        return plateau;
+    }
+
+    /**
+     * Get the occupancy index kept in sync with the fleet.
+     *
+     * @return the Occupancy object
+     */
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Set the recorder receiving every step, or null to stop recording.
+     * While recording, repeat groups run one repetition at a time, so that
+     * every step reaches the trace.
+     *
+     * @param recorder - the TrajectoryRecorder object, or null
+     */
+    public void setRecorder(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Get the recorder receiving every step.
+     *
+     * @return the TrajectoryRecorder object, or null if not recording
+     */
+    public TrajectoryRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Puts a rover on a cell, keeping the occupancy index in sync. The caller
+     * must have checked that the rover can get there.
+     *
+     * @param slot - slot of the rover
+     * @param x - X coordinate of the cell
+     * @param y - Y coordinate of the cell
+     */
+    void place(int slot, int x, int y) {
+        occupancy.vacate(fleet.x[slot], fleet.y[slot]);
+        occupancy.occupy(x, y);
+        fleet.moveTo(slot, x, y);
+    }
+
+    /**
+     * Executes a single movement command. Values other than L, R and M are
+     * ignored.
+     *
+     * @param slot - slot of the rover
+     * @param command - one of L, R, or M
+     */
+    public void step(int slot, int command) {
+        switch (command) {
+            case 'L':
+                if (recorder != null) {
+                    recorder.track(slot, fleet);
+                    recorder.turned(3);
+                }
+                fleet.heading[slot] = LEFT[fleet.heading[slot]];
+                break;
+            case 'R':
+                if (recorder != null) {
+                    recorder.track(slot, fleet);
+                    recorder.turned(1);
+                }
+                fleet.heading[slot] = RIGHT[fleet.heading[slot]];
+                break;
+            case 'M':
+                move(slot);
+                return;
+            default:
+                return;
+        }
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(1);
+        }
+    }
+
+    /**
+     * Turns a rover clockwise by the given number of quarter turns.
+     *
+     * @param slot - slot of the rover
+     * @param quarterTurns - number of 90 degree turns to the right, 0 to 3
+     */
+    public void turn(int slot, int quarterTurns) {
+        if (recorder != null) {
+            recorder.track(slot, fleet);
+            recorder.turned(quarterTurns);
+        }
+        fleet.heading[slot] = (byte) ((fleet.heading[slot] + quarterTurns) & 3);
+    }
+
+    /**
+     * Moves a rover forward one cell, unless the cell is off the plateau or
+     * occupied by another rover.
+     *
+     * @param slot - slot of the rover
+     */
+    public void move(int slot) {
+        int h = fleet.heading[slot];
+        int x = fleet.x[slot];
+        int y = fleet.y[slot];
+        int newX = x + DX[h];
+        int newY = y + DY[h];
+        if (plateau.contains(newX, newY) && !occupancy.isOccupied(newX, newY)) {
+            if (recorder != null) {
+                recorder.track(slot, fleet);
+                recorder.moved(1);
+            }
+            occupancy.vacate(x, y);
+            occupancy.occupy(newX, newY);
+            fleet.moveTo(slot, newX, newY);
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.commands(1);
+                MissionMetrics.moves(1);
+            }
+        } else {
+            if (recorder != null) {
+                recorder.track(slot, fleet);
+                recorder.blocked(1);
+            }
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.commands(1);
+                MissionMetrics.blocked(1, MissionMetrics.causeAt(plateau, newX, newY));
+            }
+        }
+    }
+
+    /**
+     * Moves a rover forward by up to the given number of cells, stopping at
+     * the plateau edge or in front of another rover. Same result as calling
+     * move() that many times, but resolved with one ray-cast.
+     *
+     * @param slot - slot of the rover
+     * @param steps - number of M commands to apply
+     */
+    public void advance(int slot, int steps) {
+        int x = fleet.x[slot];
+        int y = fleet.y[slot];
+        if (!plateau.contains(x, y)) {
+            // only rovers placed by hand can be off the plateau; step them one by one
+            for (int i = 0; i < steps; i++) {
+                move(slot);
+            }
+            return;
+        }
+        int h = fleet.heading[slot];
+        int edge;
+        switch (h) {
+            case 0:
+                edge = plateau.getHeight() - 1 - y;
+                break;
+            case 1:
+                edge = plateau.getWidth() - 1 - x;
+                break;
+            case 2:
+                edge = y;
+                break;
+            default:
+                edge = x;
+                break;
+        }
+        int run = occupancy.freeRun(x, y, DX[h], DY[h], Math.min(steps, edge));
+        if (recorder != null) {
+            recorder.track(slot, fleet);
+            recorder.moved(run);
+            recorder.blocked(steps - run);
+        }
+        if (run > 0) {
+            int newX = x + DX[h] * run;
+            int newY = y + DY[h] * run;
+            occupancy.vacate(x, y);
+            occupancy.occupy(newX, newY);
+            fleet.moveTo(slot, newX, newY);
+        }
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(steps);
+            MissionMetrics.moves(run);
+            if (run < steps) {
+                MissionMetrics.blocked(steps - run, run == edge ? MissionMetrics.Block.EDGE
+                        : MissionMetrics.causeAt(plateau, x + DX[h] * (run + 1), y + DY[h] * (run + 1)));
+            }
+        }
+    }
+
+    /**
+     * Executes a String of move commands on a rover, one at a time.
+     *
+     * @param slot - slot of the rover
+     * @param commands - String of characters M, L, and/or R
+     */
+    public void execute(int slot, CharSequence commands) {
+        for (int i = 0; i < commands.length(); i++) {
+            step(slot, commands.charAt(i));
+        }
+    }
+
+    /**
+     * Executes a rover's own move commands, decoded from the fleet's command
+     * arena, resolving each run of M in one step. Commands given with repeat
+     * groups run through their CommandPattern, which skips ahead over
+     * repetitions that can't be blocked.
+     *
+     * @param slot - slot of the rover
+     */
+    public void execute(int slot) {
+        if (recorder != null) {
+            recorder.track(slot, fleet);
+        }
+        CommandPattern pattern = fleet.getPattern(slot);
+        if (pattern != null) {
+            pattern.run(this, slot);
+        } else {
+            execute(slot, 0, fleet.commandLength[slot]);
+        }
+    }
+
+    /**
+     * Executes part of a rover's own move commands, decoded from the fleet's
+     * command arena, resolving each run of M in one step. Executing a rover's
+     * commands in several consecutive parts gives the same result as
+     * executing them all at once.
+     *
+     * @param slot - slot of the rover
+     * @param from - index of the first command to execute
+     * @param to - index after the last command to execute
+     */
+    public void execute(int slot, int from, int to) {
+        CommandArena commands = fleet.commands;
+        long start = fleet.commandStart[slot];
+        int run = 0;
+        for (int i = from; i < to; i++) {
+            int code = commands.get(start + i);
+            if (code == CommandArena.CODE_MOVE) {
+                run++;
+            } else {
+                if (run > 0) {
+                    advance(slot, run);
+                    run = 0;
+                }
+                step(slot, CommandArena.commandOf(code));
+            }
+        }
+        if (run > 0) {
+            advance(slot, run);
+        }
+    }
+
+    /**
+     * Executes move commands read from a mission file on a rover, resolving
+     * each run of M in one step.
+     *
+     * @param slot - slot of the rover
+     * @param file - the opened mission file
+     * @param start - file position of the first move command
+     * @param length - number of move commands
+     */
+    public void execute(int slot, MissionFile file, long start, int length) {
+        long end = start + length;
+        long pos = start;
+        while (pos < end) {
+            byte command = file.get(pos);
+            if (command == 'M') {
+                long runStart = pos;
+                while (pos < end && file.get(pos) == 'M') {
+                    pos++;
+                }
+                advance(slot, (int) (pos - runStart));
+            } else {
+                step(slot, command);
+                pos++;
+            }
+        }
+    }
+}
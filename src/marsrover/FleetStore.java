@@ -0,0 +1,301 @@
+package marsrover;
+
+import java.util.Arrays;
+
+/**
+ * Positions and headings of a whole fleet, stored as parallel primitive
+ * arrays indexed by slot.
+ *
+ * Headings are stored as a byte: 0 for North, 1 for East, 2 for South and
+ * 3 for West, so that turning is an add modulo 4. Move commands are kept
+ * packed in a CommandArena shared by the fleet, each rover holding only the
+ * start and length of its range. A Rover object is a thin view over one
+ * slot of a store.
+ *
+ * @author Tempest
+ */
+public class FleetStore {
+
+    private static final String CARDINAL_DIRECTIONS = "NESW";
+
+    int[] x;
+    int[] y;
+    byte[] heading;
+    long[] commandStart;
+    int[] commandLength;
+    final CommandArena commands;
+    private CommandPattern[] patterns;
+    FleetIndex index;
+    private int size;
+    private FleetStepper stepper;
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param capacity - number of rovers to make room for up front
+     */
+    public FleetStore(int capacity) {
+        this(capacity, capacity);
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param capacity - number of rovers to make room for up front
+     * @param commandCapacity - number of move commands to make room for up
+     * front, or -1 for a store without a command arena, whose rovers' move
+     * commands are kept elsewhere
+     */
+    public FleetStore(int capacity, long commandCapacity) {
+        capacity = Math.max(capacity, 1);
+        this.x = new int[capacity];
+        this.y = new int[capacity];
+        this.heading = new byte[capacity];
+        this.commandStart = new long[capacity];
+        this.commandLength = new int[capacity];
+        this.commands = commandCapacity < 0 ? null : new CommandArena(commandCapacity);
+    }
+
+    /**
+     * Converts a cardinal direction letter into a heading.
+     *
+     * @param direction - 'N', 'E', 'S' or 'W'
+     * @return heading from 0 to 3, or -1 if the letter is not a direction
+     */
+    public static byte headingOf(char direction) {
+        return (byte) CARDINAL_DIRECTIONS.indexOf(direction);
+    }
+
+    /**
+     * Converts a heading into a cardinal direction letter.
+     *
+     * @param heading - heading from 0 to 3
+     * @return 'N', 'E', 'S' or 'W'
+     */
+    public static char directionOf(byte heading) {
+        return CARDINAL_DIRECTIONS.charAt(heading);
+    }
+
+    /**
+     * Adds a rover to the store.
+     *
+     * @param x - X coordinate of the rover
+     * @param y - Y coordinate of the rover
+     * @param heading - heading of the rover, from 0 to 3
+     * @return the slot of the new rover
+     */
+    public int add(int x, int y, byte heading) {
+        if (size == this.x.length) {
+            int capacity = size * 2;
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.heading = Arrays.copyOf(this.heading, capacity);
+            this.commandStart = Arrays.copyOf(this.commandStart, capacity);
+            this.commandLength = Arrays.copyOf(this.commandLength, capacity);
+            if (patterns != null) {
+                patterns = Arrays.copyOf(patterns, capacity);
+            }
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.heading[size] = heading;
+        size++;
+        if (index != null) {
+            index.added(size - 1);
+        }
+        return size - 1;
+    }
+
+    /**
+     * Get the number of rovers in the store.
+     *
+     * @return integer representing the number of rovers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the X coordinate of a rover.
+     *
+     * @param slot - slot of the rover
+     * @return integer representing the X coordinate of the rover
+     */
+    public int getX(int slot) {
+        return x[slot];
+    }
+
+    /**
+     * Gets the Y coordinate of a rover.
+     *
+     * @param slot - slot of the rover
+     * @return integer representing the Y coordinate of the rover
+     */
+    public int getY(int slot) {
+        return y[slot];
+    }
+
+    /**
+     * Gets the heading of a rover.
+     *
+     * @param slot - slot of the rover
+     * @return heading from 0 to 3
+     */
+    public byte getHeading(int slot) {
+        return heading[slot];
+    }
+
+    /**
+     * Moves a rover to a cell, keeping the spatial index, if any, in sync.
+     * Checking that the rover can get there is up to the caller.
+     *
+     * @param slot - slot of the rover
+     * @param newX - new X coordinate of the rover
+     * @param newY - new Y coordinate of the rover
+     */
+    void moveTo(int slot, int newX, int newY) {
+        x[slot] = newX;
+        y[slot] = newY;
+        if (index != null) {
+            index.moved(slot);
+        }
+    }
+
+    /**
+     * Brings the spatial index, if any, in sync with coordinates written
+     * straight into the arrays, such as by worker threads.
+     *
+     * @param slot - slot of the rover
+     */
+    void reindex(int slot) {
+        if (index != null) {
+            index.moved(slot);
+        }
+    }
+
+    /**
+     * Get the spatial index kept in sync with the rover positions.
+     *
+     * @return the FleetIndex object, or null if the fleet is not indexed
+     */
+    public FleetIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the move commands of a rover to a range of the command arena.
+     *
+     * @param slot - slot of the rover
+     * @param start - index of the first command in the arena
+     * @param length - number of commands
+     */
+    public void setCommands(int slot, long start, int length) {
+        commandStart[slot] = start;
+        commandLength[slot] = length;
+        if (patterns != null) {
+            patterns[slot] = null;
+        }
+    }
+
+    /**
+     * Sets the move commands of a rover from a pattern with repeat groups.
+     * The pattern is kept as it is, not expanded into the arena, and the
+     * rover's arena range is left empty: every way of running the fleet
+     * checks for a pattern first.
+     *
+     * @param slot - slot of the rover
+     * @param pattern - the compiled commands
+     */
+    public void setPattern(int slot, CommandPattern pattern) {
+        setCommands(slot, commands == null ? 0 : commands.size(), 0);
+        if (patterns == null) {
+            patterns = new CommandPattern[x.length];
+        }
+        patterns[slot] = pattern;
+    }
+
+    /**
+     * Gets the pattern a rover's move commands were given with.
+     *
+     * @param slot - slot of the rover
+     * @return the pattern, or null if the commands have no repeat groups
+     */
+    public CommandPattern getPattern(int slot) {
+        return patterns == null ? null : patterns[slot];
+    }
+
+    /**
+     * Gets the arena holding the move commands of the fleet.
+     *
+     * @return the CommandArena object, or null if the store has none
+     */
+    public CommandArena getCommands() {
+        return commands;
+    }
+
+    /**
+     * Gets the index of a rover's first move command in the arena.
+     *
+     * @param slot - slot of the rover
+     * @return index of the first command
+     */
+    public long getCommandStart(int slot) {
+        return commandStart[slot];
+    }
+
+    /**
+     * Gets the number of move commands of a rover in the arena, 0 for a
+     * rover whose commands are a pattern.
+     *
+     * @param slot - slot of the rover
+     * @return number of commands in the arena range
+     */
+    public int getCommandLength(int slot) {
+        return commandLength[slot];
+    }
+
+    /**
+     * Gets the number of move commands of a rover, including the expansion
+     * of a pattern.
+     *
+     * @param slot - slot of the rover
+     * @return number of commands
+     */
+    public long getCommandCount(int slot) {
+        CommandPattern pattern = getPattern(slot);
+        return pattern != null ? pattern.length() : commandLength[slot];
+    }
+
+    /**
+     * Gets a stepper moving the fleet on a plateau, reusing the last one
+     * made for the same plateau and occupancy index, so that the Rover
+     * methods moving one rover at a time don't allocate one per call.
+     *
+     * The cache is not synchronized and keeps the last plateau and occupancy
+     * index reachable until a stepper for another pair replaces it. A store
+     * is meant to be moved through its Rover views by one thread at a time;
+     * threads racing here each still get a stepper for their own pair.
+     *
+     * @param p - initialized Plateau object
+     * @param occupancy - occupancy index in sync with the fleet
+     * @return the FleetStepper object, without a recorder
+     */
+    FleetStepper stepper(Plateau p, Occupancy occupancy) {
+        FleetStepper cached = stepper;
+        if (cached == null || cached.getPlateau() != p || cached.getOccupancy() != occupancy) {
+            cached = new FleetStepper(p, occupancy, this);
+            stepper = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Creates a Rover view over a slot. The rover ID is the slot number.
+     *
+     * @param slot - slot of the rover
+     * @return Rover object reading and writing the slot
+     */
+    public Rover rover(int slot) {
+        return new Rover(this, slot, slot);
+    }
+}
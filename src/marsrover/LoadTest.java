@@ -0,0 +1,220 @@
+package marsrover;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the MarsRover command line end to end over a matrix of generated
+ * missions and reports wall time, peak resident memory and GC time.
+ *
+ * Every combination of the listed values gets its own directory under the
+ * work directory, with a generated input.txt, and is run in a fresh JVM.
+ * The JVM runs MarsRover.main through LoadTest.Child, which reports its GC
+ * time and peak resident set size on exit. Results are printed as one tab
+ * separated line per mission.
+ *
+ * Usage: java marsrover.LoadTest [options]
+ *   --plateau N,...     plateau sizes (top-right coordinate on both axes)
+ *   --rovers N,...      fleet sizes
+ *   --commands L,...    move commands per rover
+ *   --collisions P,...  chances of deploying next to another rover
+ *   --mix M,L,R         relative weights of M, L and R (default 3,1,1)
+ *   --seed S            random seed (default 42)
+ *   --jvm "OPTS"        options for the mission JVMs, e.g. "-Xmx2g"
+ *   --args "OPTS"       options for MarsRover, e.g. "--stream"
+ *   --work DIR          directory for the missions (default loadtest)
+ *   --keep              keep the generated missions and outputs
+ *
+ * @author Tempest
+ */
+public class LoadTest {
+
+    private static final String REPORT_PREFIX = "LOADTEST";
+
+    /**
+     * Main method of the harness.
+     *
+     * @param args - options, see the class description
+     * @throws IOException if a mission can't be written or run
+     * @throws InterruptedException if interrupted while a mission runs
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String[] plateaus = {"999"};
+        String[] fleets = {"1000"};
+        String[] commands = {"100"};
+        String[] collisions = {"0"};
+        String mix = "3,1,1";
+        long seed = 42;
+        String jvmOptions = "";
+        String missionOptions = "";
+        File work = new File("loadtest");
+        boolean keep = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plateau":
+                    plateaus = args[++i].split(",");
+                    break;
+                case "--rovers":
+                    fleets = args[++i].split(",");
+                    break;
+                case "--commands":
+                    commands = args[++i].split(",");
+                    break;
+                case "--collisions":
+                    collisions = args[++i].split(",");
+                    break;
+                case "--mix":
+                    mix = args[++i];
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--jvm":
+                    jvmOptions = args[++i];
+                    break;
+                case "--args":
+                    missionOptions = args[++i];
+                    break;
+                case "--work":
+                    work = new File(args[++i]);
+                    break;
+                case "--keep":
+                    keep = true;
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        System.out.println("plateau\trovers\tcommands\tcollisions\tinput_mb\twall_ms\tpeak_rss_mb\tgc_ms\texit");
+        String[] weights = mix.split(",");
+        for (String plateau : plateaus) {
+            for (String fleet : fleets) {
+                for (String commandLength : commands) {
+                    for (String collisionRate : collisions) {
+                        File dir = new File(work, plateau + "-" + fleet + "-" + commandLength + "-" + collisionRate);
+                        dir.mkdirs();
+                        File input = new File(dir, "input.txt");
+
+                        MissionGenerator generator = new MissionGenerator();
+                        generator.setPlateau(Integer.parseInt(plateau), Integer.parseInt(plateau));
+                        generator.setRovers(Long.parseLong(fleet));
+                        generator.setCommandLength(Integer.parseInt(commandLength));
+                        generator.setCollisionRate(Double.parseDouble(collisionRate));
+                        generator.setMix(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+                                Integer.parseInt(weights[2]));
+                        generator.setSeed(seed);
+                        generator.write(input);
+
+                        String result = run(dir, jvmOptions, missionOptions);
+                        System.out.println(plateau + "\t" + fleet + "\t" + commandLength + "\t" + collisionRate
+                                + "\t" + String.format("%.1f", input.length() / 1e6) + "\t" + result);
+                        if (!keep) {
+                            input.delete();
+                            new File(dir, "output.txt").delete();
+                            new File(dir, "report.txt").delete();
+                            dir.delete();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one mission in a fresh JVM.
+     *
+     * @return wall time, peak RSS, GC time and exit code, tab separated
+     */
+    private static String run(File dir, String jvmOptions, String missionOptions)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String option : jvmOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Child.class.getName());
+        for (String option : missionOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        File report = new File(dir, "report.txt");
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(dir);
+        builder.redirectOutput(new File(dir, "output.txt"));
+        builder.redirectError(report);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        int exit = process.waitFor();
+        long wallMs = (System.nanoTime() - start) / 1000000;
+
+        String rss = "n/a";
+        String gc = "n/a";
+        try (BufferedReader reader = new BufferedReader(new FileReader(report))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(REPORT_PREFIX)) {
+                    String[] tokens = line.split(" ");
+                    long rssKb = Long.parseLong(tokens[1]);
+                    rss = rssKb < 0 ? "n/a" : String.format("%.1f", rssKb / 1024.0);
+                    gc = tokens[2];
+                }
+            }
+        }
+        return wallMs + "\t" + rss + "\t" + gc + "\t" + exit;
+    }
+
+    /**
+     * Entry point of the mission JVMs: runs MarsRover.main and reports the
+     * peak resident set size in kB and the GC time in ms on standard error
+     * when the JVM exits.
+     */
+    public static class Child {
+
+        public static void main(String[] args) throws Exception {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                long gcMs = 0;
+                for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                    gcMs += Math.max(0, gc.getCollectionTime());
+                }
+                System.err.println(REPORT_PREFIX + " " + peakRssKb() + " " + gcMs);
+            }));
+            MarsRover.main(args);
+        }
+
+        /**
+         * Reads the peak resident set size from /proc, where available.
+         *
+         * @return peak RSS in kB, or -1 if unknown
+         */
+        private static long peakRssKb() {
+            File status = new File("/proc/self/status");
+            if (status.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(status))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.startsWith("VmHWM:")) {
+                            return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                        }
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
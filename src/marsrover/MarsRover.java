@@ -16,58 +16,388 @@ public class MarsRover {
      * Main method of the class
      * 
      * Assumes that the input comes from the text file named input.txt located
-     * in the same folder as the program.
+     * in the same folder as the program. The file may also be in the binary
+     * format written by MissionConverter, which is detected automatically.
      * 
      * In case of incorrect input or file not found the method outputs error
      * messages to the console.
      * 
      * In case of successful run, outputs final rover positions to the console.
      * 
-     * @param args  - not using command line arguments so those will be ignored
+     * Options:
+     *   --stream    keep only rover positions in memory and stream the move
+     *               commands from the file (see StreamingMission)
+     *   --parallel  run rovers that can't meet each other concurrently on all
+     *               cores (see ParallelMission); same as --engine parallel
+     *   --engine E  move the rovers with engine E: sequential (default),
+     *               parallel or reference (see MissionEngine); not with
+     *               --stream or --ticks
+     *   --ticks     run every rover one command per tick, all at the same
+     *               time (see TickSimulation); not with --stream
+     *   --profile   print the time and allocations of each phase and the
+     *               distribution of per-rover execution times to standard
+     *               error (see MissionProfile)
+     *   --output F  write the final positions to file F instead of the console
+     *   --binary    write the final positions in the binary format of
+     *               ResultWriter instead of text
+     *   --checkpoint F
+     *               save the fleet to checkpoint file F every minute while
+     *               the rovers move (see ResumableMission); not with
+     *               --stream, --ticks or engines other than sequential
+     *   --checkpoint-interval S
+     *               save a checkpoint every S seconds instead
+     *   --resume    continue from the checkpoint file, if there is one
+     *               (default checkpoint file: checkpoint.dat)
+     *   --validate  check the whole file and print a report of the malformed
+     *               lines instead of running the mission
+     *   --lenient   skip rovers with malformed lines or invalid commands,
+     *               print a report of them and run the rest
+     *   --strict    stop at the first malformed line with a report, without
+     *               the exception output of the default checks
+     *   --terrain F keep rovers off the impassable cells of terrain map F
+     *               (see TerrainMap and TerrainConverter)
+     *   --trace F   record the path of every rover to trace file F while
+     *               the rovers move (see TrajectoryRecorder); not with
+     *               --ticks, --checkpoint or engines other than sequential
+     * 
+     * The validation options apply to text missions. Options that can't be
+     * used together are rejected with a usage error.
+     * 
+     * Start the JVM with -Dmarsrover.metrics=true to follow the mission live
+     * over JMX (see MissionMetrics).
+     * 
+     * @param args  - command line options
      * @throws marsrover.Rover.InvalidInputException
      */
     public static void main(String[] args) throws Rover.InvalidInputException {
-        Scanner input = null;
         String inFileName = "input.txt";
+        boolean streaming = false;
+        String engineName = "sequential";
+        boolean ticks = false;
+        MissionProfile profile = null;
+        String outFileName = null;
+        ResultWriter.Format format = ResultWriter.Format.TEXT;
+        String checkpointFileName = null;
+        long checkpointInterval = ResumableMission.DEFAULT_INTERVAL_MILLIS;
+        boolean resume = false;
+        boolean validate = false;
+        boolean lenient = false;
+        boolean strict = false;
+        String terrainFileName = null;
+        String traceFileName = null;
+        TerrainMap terrain = null;
+        MissionFile file = null;
 
-        List<Rover> roversList = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stream")) {
+                streaming = true;
+            } else if (arg.equals("--parallel")) {
+                engineName = "parallel";
+            } else if (arg.equals("--engine") && i + 1 < args.length) {
+                engineName = args[++i];
+                if (MissionEngine.forName(engineName) == null) {
+                    System.out.println("Unknown engine " + engineName);
+                    System.out.println("Exiting program now. Please try again.");
+                    System.exit(1);
+                }
+            } else if (arg.equals("--ticks")) {
+                ticks = true;
+            } else if (arg.equals("--profile")) {
+                profile = new MissionProfile();
+            } else if (arg.equals("--output") && i + 1 < args.length) {
+                outFileName = args[++i];
+            } else if (arg.equals("--binary")) {
+                format = ResultWriter.Format.BINARY;
+            } else if (arg.equals("--checkpoint") && i + 1 < args.length) {
+                checkpointFileName = args[++i];
+            } else if (arg.equals("--checkpoint-interval") && i + 1 < args.length
+                    && args[i + 1].matches("[0-9]{1,9}")) {
+                checkpointInterval = Long.parseLong(args[++i]) * 1000;
+            } else if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.equals("--validate")) {
+                validate = true;
+            } else if (arg.equals("--lenient")) {
+                lenient = true;
+            } else if (arg.equals("--strict")) {
+                strict = true;
+            } else if (arg.equals("--terrain") && i + 1 < args.length) {
+                terrainFileName = args[++i];
+            } else if (arg.equals("--trace") && i + 1 < args.length) {
+                traceFileName = args[++i];
+            } else {
+                System.out.println("Unknown option " + arg);
+                System.out.println("Exiting program now. Please try again.");
+                System.exit(1);
+            }
+        }
+
+        if (resume && checkpointFileName == null) {
+            checkpointFileName = "checkpoint.dat";
+        }
+        String conflict = optionConflict(streaming, engineName, ticks, checkpointFileName != null,
+                traceFileName != null);
+        if (conflict != null) {
+            System.out.println(conflict);
+            System.out.println("Exiting program now. Please try again.");
+            System.exit(1);
+        }
 
+        if (profile != null) {
+            profile.start("open");
+        }
+        if (terrainFileName != null) {
+            try {
+                terrain = TerrainMap.open(new File(terrainFileName));
+            } catch (IOException e) {
+                System.out.println("Can't open terrain map - " + e);
+                System.out.println("Exiting program now. Please try again.");
+                System.exit(1);
+            }
+        }
         try {
-            input = new Scanner(new File(inFileName));
-        } catch (FileNotFoundException e) {
+            file = new MissionFile(new File(inFileName));
+        } catch (IOException e) {
             System.out.println("Can't open file - " + e);
         }
 
-        if (input != null) {
-            // process first line for plateau initialization
-            if (input.hasNextLine()) {
-                Plateau plateau = initializePlateau(input);
-                
-                // process the rest of the file for rovers and commands
-                initializeRovers(input, roversList, plateau);
+        if (file != null) {
+            MissionMetrics.register();
+            try (MissionFile input = file; TerrainMap map = terrain) {
+                // process first line for plateau initialization
+                if (input.size() > 0) {
+                    MissionReader parser = MissionReader.open(input);
+                    if (validate) {
+                        if (!(parser instanceof MissionParser)) {
+                            System.out.println("Only text missions can be validated.");
+                            System.exit(1);
+                        }
+                        ValidationReport report = ((MissionParser) parser).validate(null, strict);
+                        report.print(System.out);
+                        System.exit(report.isValid() ? 0 : 1);
+                    }
+                    MissionMetrics.phase("deploying", 0);
+                    if (profile != null) {
+                        profile.start("plateau");
+                    }
+                    if (streaming) {
+                        // deploy all rovers, then stream their commands from the file
+                        StreamingMission mission = new StreamingMission(input, parser);
+                        mission.setProfile(profile);
+                        mission.setTerrain(map);
+                        if (!parse(parser, mission, lenient, strict)) {
+                            System.out.println("Exiting program now. Please try again.");
+                            System.exit(1);
+                        }
+                        MissionMetrics.phase("moving", mission.getFleet().size());
+                        if (profile != null) {
+                            profile.start("move");
+                        }
+                        try (TrajectoryRecorder trace = openTrace(traceFileName)) {
+                            mission.setRecorder(trace);
+                            mission.run(profile);
+                        } catch (IOException | UncheckedIOException e) {
+                            System.out.println("Can't write trace - " + e);
+                            System.exit(1);
+                        }
+                        MissionMetrics.phase("output", 0);
+                        if (profile != null) {
+                            profile.start("output");
+                        }
+                        writeResults(mission.getFleet(), outFileName, format);
+                    } else {
+                        List<Rover> roversList = new ArrayList<>();
 
-                // move rovers using the stored commands
-                moveRovers(plateau, roversList);
+                        // process the whole file for the plateau, rovers and commands
+                        FleetLoader loader = new FleetLoader(input, parser, roversList);
+                        loader.setProfile(profile);
+                        loader.setTerrain(map);
+                        if (!parse(parser, loader, lenient, strict)) {
+                            System.out.println("Exiting program now. Please try again.");
+                            System.exit(1);
+                        }
+                        if (profile != null) {
+                            profile.start("move");
+                        }
 
-                // output the final positions of the rovers to the console
-                printRoverPositions(roversList);
-            } else {
-                System.out.println("Input file does not contain plateau top-right coordinates!");
+                        // move rovers using the stored commands
+                        if (ticks) {
+                            if (longestCommands(roversList) > Integer.MAX_VALUE) {
+                                System.out.println("Move commands are too long for --ticks,"
+                                        + " one tick per command.");
+                                System.out.println("Exiting program now. Please try again.");
+                                System.exit(1);
+                            }
+                            if (MissionMetrics.ENABLED) {
+                                MissionMetrics.phase("ticking", longestCommands(roversList));
+                            }
+                            TickSimulation.moveRovers(loader.getPlateau(), roversList,
+                                    loader.getOccupancy(),
+                                    Runtime.getRuntime().availableProcessors());
+                        } else if (!engineName.equals("sequential")) {
+                            MissionMetrics.phase("moving", roversList.size());
+                            MissionEngine.forName(engineName).moveRovers(loader.getPlateau(),
+                                    roversList, loader.getOccupancy());
+                        } else if (checkpointFileName != null) {
+                            ResumableMission mission = new ResumableMission(loader,
+                                    new File(checkpointFileName), checkpointInterval);
+                            if (resume) {
+                                mission.resume();
+                            }
+                            MissionMetrics.phase("moving", roversList.size());
+                            mission.run(profile);
+                        } else {
+                            MissionMetrics.phase("moving", roversList.size());
+                            try (TrajectoryRecorder trace = openTrace(traceFileName)) {
+                                moveRovers(loader.getPlateau(), roversList,
+                                        loader.getOccupancy(), profile, trace);
+                            } catch (IOException | UncheckedIOException e) {
+                                System.out.println("Can't write trace - " + e);
+                                System.exit(1);
+                            }
+                        }
+
+                        // output the final positions of the rovers to the console or the
+                        // output file
+                        MissionMetrics.phase("output", 0);
+                        if (profile != null) {
+                            profile.start("output");
+                        }
+                        writeResults(loader.getFleet(), outFileName, format);
+                    }
+                    MissionMetrics.phase("done", 0);
+                    if (profile != null) {
+                        System.out.flush();
+                        profile.print(System.err);
+                    }
+                } else {
+                    System.out.println("Input file does not contain"
+                            + " plateau top-right coordinates!");
+                    System.out.println("Exiting program now. Please try again.");
+                    System.exit(1);
+                }
+            } catch (InvalidSizeException e) {
+                System.out.println(e + ": Unable to initialize plateau.");
+            } catch (MissionParser.MalformedMissionException e) {
                 System.out.println("Exiting program now. Please try again.");
-                System.exit(1);
+            } catch (IOException e) {
+                System.out.println("Can't read file - " + e);
             }
         }
     }
 
+    /**
+     * Parses the mission file into the handler. In lenient or strict mode a
+     * text mission goes through MissionParser.validate, which prints a
+     * report of the malformed lines instead of throwing.
+     * 
+     * @param parser - the reader of the mission file
+     * @param handler - receives the plateau and the rovers
+     * @param lenient - true to skip malformed rovers
+     * @param strict - true to stop at the first malformed line
+     * @return false if the mission can't be run
+     */
+    private static boolean parse(MissionReader parser, MissionHandler handler, boolean lenient,
+            boolean strict) throws InvalidSizeException, Rover.InvalidInputException,
+            MissionParser.MalformedMissionException {
+        if ((lenient || strict) && parser instanceof MissionParser) {
+            ValidationReport report = ((MissionParser) parser).validate(handler, strict);
+            if (!report.isValid()) {
+                report.print(System.out);
+            }
+            return !report.isStopped();
+        }
+        parser.parse(handler);
+        return true;
+    }
+
+    /**
+     * Checks that the ways of running the mission given on the command line
+     * can be used together.
+     * 
+     * @param streaming - true with --stream
+     * @param engineName - name of the engine, "sequential" by default
+     * @param ticks - true with --ticks
+     * @param checkpoint - true with --checkpoint or --resume
+     * @param trace - true with --trace
+     * @return a message naming the options that can't be used together, or
+     * null if there are none
+     */
+    static String optionConflict(boolean streaming, String engineName, boolean ticks,
+            boolean checkpoint, boolean trace) {
+        boolean engine = !engineName.equals("sequential");
+        if (streaming && (ticks || engine || checkpoint)) {
+            return (ticks ? "--ticks" : engine ? "--engine " + engineName : "--checkpoint")
+                    + " can't be used with --stream.";
+        }
+        if (ticks && (engine || checkpoint || trace)) {
+            return (engine ? "--engine " + engineName : checkpoint ? "--checkpoint" : "--trace")
+                    + " can't be used with --ticks.";
+        }
+        if (engine && (checkpoint || trace)) {
+            return (checkpoint ? "--checkpoint" : "--trace")
+                    + " can't be used with --engine " + engineName + ".";
+        }
+        if (checkpoint && trace) {
+            return "--trace can't be used with --checkpoint.";
+        }
+        return null;
+    }
+
+    /**
+     * Opens the trace file recording the paths of the rovers.
+     * 
+     * @param traceFileName - name of the file to write, or null for no trace
+     * @return the recorder, or null for no trace
+     */
+    private static TrajectoryRecorder openTrace(String traceFileName) throws IOException {
+        return traceFileName == null ? null
+                : new TrajectoryRecorder(new FileOutputStream(traceFileName).getChannel());
+    }
+
+    /**
+     * Outputs the locations of the rovers in a fleet store to the console or
+     * to a file.
+     * 
+     * @param fleet - the FleetStore holding the rovers, slot being the ID
+     * @param outFileName - name of the file to write, or null for the console
+     * @param format - the output format
+     */
+    private static void writeResults(FleetStore fleet, String outFileName,
+            ResultWriter.Format format) {
+        try (ResultWriter results = outFileName == null
+                ? new ResultWriter(System.out, format)
+                : new ResultWriter(new FileOutputStream(outFileName).getChannel(), format)) {
+            results.write(fleet);
+        } catch (IOException e) {
+            System.out.println("Can't write file - " + e);
+        }
+    }
+
     /**
      * Outputs the locations of the rovers to the console
      * 
      * @param roversList - list of Rover objects
      */
     public static void printRoverPositions(List<Rover> roversList) {
-        for (int i = 0; i < roversList.size(); i++) {
-            Rover r = roversList.get(i);
-            System.out.println(r.getPosition());
+        try (ResultWriter results = new ResultWriter(System.out, ResultWriter.Format.TEXT)) {
+            results.write(roversList);
+        } catch (IOException e) {
+            System.out.println("Can't write positions - " + e);
+        }
+    }
+
+    /**
+     * Outputs the locations of the rovers in a fleet store to the console
+     * 
+     * @param fleet - the FleetStore holding the rovers
+     */
+    public static void printRoverPositions(FleetStore fleet) {
+        try (ResultWriter results = new ResultWriter(System.out, ResultWriter.Format.TEXT)) {
+            results.write(fleet);
+        } catch (IOException e) {
+            System.out.println("Can't write positions - " + e);
         }
     }
 
@@ -103,7 +433,25 @@ public class MarsRover {
      * @param p - the Plateau object to be 
      * @throws marsrover.Rover.InvalidInputException 
      */
-    public static void initializeRovers(Scanner input, List<Rover> roversList, Plateau p) throws Rover.InvalidInputException {
+    public static void initializeRovers(Scanner input, List<Rover> roversList, Plateau p)
+            throws Rover.InvalidInputException {
+        initializeRovers(input, roversList, p, Occupancy.of(p, roversList));
+    }
+
+    /**
+     * Parses the input file and stores the initial locations of rovers and
+     * their move commands into Rover objects that are stored in the roversList.
+     * Every deployed rover is also marked in the occupancy index.
+     * 
+     * @param input - the Scanner object opened on the input file
+     * @param roversList - a list of Rover objects
+     * @param p - the Plateau object to be 
+     * @param occupancy - occupancy index in sync with the roversList
+     * @throws marsrover.Rover.InvalidInputException 
+     */
+    public static void initializeRovers(Scanner input, List<Rover> roversList, Plateau p,
+            Occupancy occupancy) throws Rover.InvalidInputException {
+        FleetStore fleet = new FleetStore(16);
         int roverId = 0;
         
         while (input.hasNextLine()) {
@@ -120,11 +468,15 @@ public class MarsRover {
             int y = Integer.parseInt(tokens[1]);
             char direction = tokens[2].toUpperCase().charAt(0);
             // check if the rover can be placed at that location
-            if (Rover.validLocation(x, y, p, roversList)) {
+            if (Rover.validLocation(x, y, p, occupancy)) {
                 // create rover and add it to the list
-                Rover rover = new Rover(x, y, direction, roverId);
+                Rover rover = new Rover(fleet, x, y, direction, roverId);
                 roversList.add(rover);
+                occupancy.occupy(x, y);
                 roverId++;
+                if (MissionMetrics.ENABLED) {
+                    MissionMetrics.deployment(true);
+                }
 
                 // Skip over empty line after rover position and the command line.
                 // Assume that every rover has a line following it with commands.
@@ -135,6 +487,9 @@ public class MarsRover {
                 rover.setMoveCommands(line);
             } else {
                 System.out.println("Could not deploy rover at " + line);
+                if (MissionMetrics.ENABLED) {
+                    MissionMetrics.deployment(false);
+                }
                 // Skip over the move commands of the rover that couldn't be deployed.
                 input.nextLine();
                 input.nextLine();
@@ -149,8 +504,89 @@ public class MarsRover {
      * @param roversList - list of Rover objects
      */
     public static void moveRovers(Plateau p, List<Rover> roversList) {
+        moveRovers(p, roversList, Occupancy.of(p, roversList));
+    }
+
+    /**
+     * Execute rover movement commands on each rover in the roversList, using
+     * the occupancy index for collision checks. The commands of each rover
+     * are decoded straight from its fleet's command arena, and each run of M
+     * is resolved in one step.
+     * 
+     * @param p - the initialized Plateau object
+     * @param roversList - list of Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     */
+    public static void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy) {
+        moveRovers(p, roversList, occupancy, null);
+    }
+
+    /**
+     * Execute rover movement commands on each rover in the roversList, using
+     * the occupancy index for collision checks, and record the time each
+     * rover takes in the profile.
+     * 
+     * @param p - the initialized Plateau object
+     * @param roversList - list of Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     * @param profile - profile receiving the execution time of each rover,
+     * or null
+     */
+    public static void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy,
+            MissionProfile profile) {
+        moveRovers(p, roversList, occupancy, profile, null);
+    }
+
+    /**
+     * Execute rover movement commands on each rover in the roversList, using
+     * the occupancy index for collision checks, and record the path of each
+     * rover in the trace. The recorder is left open. Without a trace, rovers
+     * whose commands have no repeat groups run as a compiled CommandProgram.
+     * 
+     * @param p - the initialized Plateau object
+     * @param roversList - list of Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     * @param profile - profile receiving the execution time of each rover,
+     * or null
+     * @param trace - recorder receiving every step, or null
+     */
+    public static void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy,
+            MissionProfile profile, TrajectoryRecorder trace) {
+        FleetStepper stepper = null;
+        for (Rover rover : roversList) {
+            long start = profile != null ? System.nanoTime() : 0;
+            if (stepper == null || stepper.getFleet() != rover.getFleet()) {
+                stepper = new FleetStepper(p, occupancy, rover.getFleet());
+                stepper.setRecorder(trace);
+            }
+            // folded turns would leave steps out of a trace
+            if (trace != null || rover.getFleet().getPattern(rover.getSlot()) != null) {
+                stepper.execute(rover.getSlot());
+            } else {
+                CommandProgram.compile(rover).run(stepper, rover.getSlot());
+            }
+            if (profile != null) {
+                profile.rover(rover.getId(), rover.getMoveCommandCount(),
+                        System.nanoTime() - start);
+            }
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.progress(1);
+            }
+        }
+    }
+
+    /**
+     * Get the length of the longest command String, which is the number of
+     * ticks of a TickSimulation.
+     * 
+     * @param roversList - list of Rover objects
+     * @return length of the longest command String
+     */
+    private static long longestCommands(List<Rover> roversList) {
+        long longest = 0;
         for (Rover rover : roversList) {
-            rover.executeMovementCommands(p, roversList);
+            longest = Math.max(longest, rover.getMoveCommandCount());
         }
+        return longest;
     }
 }
@@ -0,0 +1,46 @@
+package marsrover;
+
+import java.io.PrintStream;
+
+/**
+ * Stream receiving the messages printed while a mission is loaded, such as
+ * the rovers that could not be deployed and the exceptions reporting
+ * malformed input.
+ *
+ * Messages go to System.out, unless the thread has been given a stream of
+ * its own: MissionBatch gives every mission it runs the stream buffering its
+ * output, so that missions running side by side on a pool keep their
+ * messages apart without touching System.out.
+ *
+ * @author Tempest
+ */
+final class MessageStream {
+
+    private static final ThreadLocal<PrintStream> STREAM = new ThreadLocal<>();
+
+    private MessageStream() {
+    }
+
+    /**
+     * Gets the stream for the messages of the current thread.
+     *
+     * @return the thread's stream, or System.out if it has none
+     */
+    static PrintStream get() {
+        PrintStream stream = STREAM.get();
+        return stream != null ? stream : System.out;
+    }
+
+    /**
+     * Sets the stream for the messages of the current thread.
+     *
+     * @param stream - the stream, or null to go back to System.out
+     */
+    static void set(PrintStream stream) {
+        if (stream == null) {
+            STREAM.remove();
+        } else {
+            STREAM.set(stream);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package marsrover;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent missions, each on its own plateau and fleet, on a
+ * work-stealing pool.
+ *
+ * Every mission gives the same output as running MarsRover on it alone:
+ * the messages about rovers that could not be deployed and the final rover
+ * positions. The output is either written to one file per mission, or
+ * merged into a single stream in the order the missions were listed, each
+ * mission under a "# file" line, however the pool schedules them. Each
+ * mission prints into a buffer of its own (see MessageStream), and
+ * System.out is left alone. Only a bounded window of missions runs ahead of
+ * the next one to be written, so memory does not grow with the size of the
+ * batch.
+ *
+ * A mission that fails, because its file can't be read or its plateau or
+ * a rover is malformed, is reported and does not stop the others.
+ *
+ * Usage: java marsrover.MissionBatch [options] file-or-directory...
+ *   --threads N       number of pool threads (default: number of cores)
+ *   --output F        write the merged output to F instead of the console
+ *   --output-dir D    write each mission's output to D/name.out instead;
+ *                     missions sharing a file name get D/name-N.out, N
+ *                     being the mission's place in the batch
+ *
+ * Directories are expanded to the files they contain, sorted by name. A
+ * summary with the number of missions per second is printed to standard
+ * error.
+ *
+ * @author Tempest
+ */
+public class MissionBatch {
+
+    /**
+     * Missions allowed to run ahead of the next one to be written, per
+     * thread.
+     */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private final int threads;
+    private File outputDir;
+
+    /**
+     * Constructs a batch runner.
+     *
+     * @param threads - number of pool threads
+     */
+    public MissionBatch(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Main method running a batch from the command line.
+     *
+     * @param args - options and mission files, see the class description
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String outFileName = null;
+        String outDirName = null;
+        List<File> missions = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length && args[i + 1].matches("[0-9]{1,4}")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--output") && i + 1 < args.length) {
+                outFileName = args[++i];
+            } else if (args[i].equals("--output-dir") && i + 1 < args.length) {
+                outDirName = args[++i];
+            } else if (args[i].startsWith("--")) {
+                System.out.println("Unknown option " + args[i]);
+                System.exit(1);
+            } else {
+                addMissions(new File(args[i]), missions);
+            }
+        }
+        if (missions.isEmpty()) {
+            System.out.println("Usage: java marsrover.MissionBatch [options] file-or-directory...");
+            System.exit(1);
+        }
+
+        MissionBatch batch = new MissionBatch(threads);
+        long start = System.nanoTime();
+        int failed = 0;
+        try {
+            if (outDirName != null) {
+                File dir = new File(outDirName);
+                dir.mkdirs();
+                batch.setOutputDir(dir);
+                failed = batch.run(missions, null);
+            } else if (outFileName != null) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFileName), 1 << 16)) {
+                    failed = batch.run(missions, out);
+                }
+            } else {
+                failed = batch.run(missions, System.out);
+                System.out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("Can't write file - " + e);
+            System.exit(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d missions, %d failed, %.2f s, %.0f missions/s%n", missions.size(), failed,
+                seconds, missions.size() / seconds);
+    }
+
+    /**
+     * Adds a mission file, or the files of a directory sorted by name.
+     */
+    private static void addMissions(File file, List<File> missions) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles(File::isFile);
+            if (files != null) {
+                Arrays.sort(files);
+                missions.addAll(Arrays.asList(files));
+            }
+        } else {
+            missions.add(file);
+        }
+    }
+
+    /**
+     * Set the directory receiving one output file per mission, named after
+     * the mission file with ".out" appended, and with the mission's place in
+     * the batch when several missions have the same file name. Without one,
+     * run merges the outputs into its stream.
+     *
+     * @param outputDir - the output directory, or null
+     */
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Runs the missions, writing their outputs in the order given. Failed
+     * missions are listed on standard error.
+     *
+     * @param missions - the mission files
+     * @param merged - stream receiving the merged output; unused with an
+     * output directory
+     * @return number of failed missions
+     * @throws IOException if an output can't be written
+     */
+    public int run(List<File> missions, OutputStream merged) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<String> outputNames = outputDir != null ? outputNames(missions) : null;
+        int failed = 0;
+        try {
+            Deque<Future<Result>> window = new ArrayDeque<>();
+            int submitted = 0;
+            for (int next = 0; next < missions.size(); next++) {
+                while (submitted < missions.size() && window.size() < threads * WINDOW_PER_THREAD) {
+                    File mission = missions.get(submitted++);
+                    window.add(pool.submit(() -> runMission(mission)));
+                }
+                Result result = await(window.poll());
+                File mission = missions.get(next);
+                if (result.failure != null) {
+                    failed++;
+                    System.err.println("FAILED " + mission + " - " + result.failure);
+                }
+                if (outputDir != null) {
+                    try (OutputStream out = new FileOutputStream(new File(outputDir, outputNames.get(next)))) {
+                        out.write(result.output);
+                    }
+                } else {
+                    merged.write(("# " + mission + "\n").getBytes(StandardCharsets.US_ASCII));
+                    merged.write(result.output);
+                }
+            }
+            if (merged != null) {
+                merged.flush();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return failed;
+    }
+
+    /**
+     * Names the output file of each mission after its file, adding the
+     * mission's place in the batch to names shared by several missions, as
+     * files from different directories may have the same name.
+     */
+    static List<String> outputNames(List<File> missions) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (File mission : missions) {
+            counts.merge(mission.getName(), 1, Integer::sum);
+        }
+        Set<String> used = new HashSet<>();
+        List<String> names = new ArrayList<>(missions.size());
+        for (int i = 0; i < missions.size(); i++) {
+            String name = missions.get(i).getName();
+            String outputName = counts.get(name) == 1 ? name + ".out" : name + "-" + (i + 1) + ".out";
+            while (!used.add(outputName)) {
+                outputName = outputName.substring(0, outputName.length() - 4) + "-" + (i + 1) + ".out";
+            }
+            names.add(outputName);
+        }
+        return names;
+    }
+
+    private static Result await(Future<Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(new byte[0], "interrupted");
+        } catch (ExecutionException e) {
+            return new Result(new byte[0], String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Runs one mission, capturing everything it prints.
+     *
+     * @param mission - the mission file
+     * @return the output of the mission and its failure, if any
+     */
+    static Result runMission(File mission) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        PrintStream out = new PrintStream(buffer, true);
+        String failure = null;
+        MessageStream.set(out);
+        try (MissionFile file = new MissionFile(mission)) {
+            if (file.size() > 0) {
+                MissionReader parser = MissionReader.open(file);
+                FleetLoader loader = new FleetLoader(file, parser);
+                parser.parse(loader);
+                MarsRover.moveRovers(loader.getPlateau(), loader.getRovers(), loader.getOccupancy());
+                try (ResultWriter results = new ResultWriter(out, ResultWriter.Format.TEXT)) {
+                    results.write(loader.getFleet());
+                }
+            } else {
+                failure = "Input file does not contain plateau top-right coordinates!";
+            }
+        } catch (IOException e) {
+            failure = "Can't read file - " + e;
+            out.println(failure);
+        } catch (Plateau.InvalidSizeException | Rover.InvalidInputException
+                | MissionParser.MalformedMissionException e) {
+            // these exceptions print their message when created
+            failure = lastLine(buffer);
+        } catch (RuntimeException e) {
+            failure = e.toString();
+        } finally {
+            MessageStream.set(null);
+        }
+        out.flush();
+        return new Result(buffer.toByteArray(), failure);
+    }
+
+    private static String lastLine(ByteArrayOutputStream out) {
+        String text = new String(out.toByteArray(), StandardCharsets.US_ASCII).trim();
+        return text.substring(text.lastIndexOf('\n') + 1);
+    }
+
+    /**
+     * Output of a mission, and the reason it failed or null.
+     */
+    static final class Result {
+
+        final byte[] output;
+        final String failure;
+
+        Result(byte[] output, String failure) {
+            this.output = output;
+            this.failure = failure;
+        }
+    }
+}
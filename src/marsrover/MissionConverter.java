@@ -0,0 +1,338 @@
+package marsrover;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Converts missions between the input.txt text format and the packed binary
+ * format read by BinaryMissionParser.
+ *
+ * Usage: java marsrover.MissionConverter input-file output-file
+ *
+ * The direction of the conversion is picked from the input file: a binary
+ * mission is written out as text, anything else is converted to binary.
+ * Every rover of the text file is kept, including ones that can't be
+ * deployed, so that both files give the same results. The binary format has
+ * no repeat groups, so a command line with groups is written out expanded;
+ * one that expands to more commands than a binary rover can hold is an
+ * error. A line with malformed groups is kept as it is, and fails to load
+ * from either file.
+ *
+ * @author Tempest
+ */
+public class MissionConverter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Main method converting a mission file from the command line.
+     *
+     * @param args - input file name and output file name
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: java marsrover.MissionConverter input-file output-file");
+            System.exit(1);
+        }
+        try (MissionFile input = new MissionFile(new File(args[0]))) {
+            if (BinaryMissionParser.isBinary(input)) {
+                toText(input, new File(args[1]));
+            } else {
+                toBinary(input, new File(args[1]));
+            }
+        } catch (IOException e) {
+            System.out.println("Can't convert file - " + e);
+            System.exit(1);
+        } catch (Plateau.InvalidSizeException | Rover.InvalidInputException
+                | MissionParser.MalformedMissionException e) {
+            System.out.println("Exiting program now. Please try again.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts a text mission to the binary format. The text is parsed twice:
+     * once to count the rovers, which sizes the deployment table, and once to
+     * write the table and the packed commands.
+     *
+     * @param input - the opened text mission
+     * @param output - the binary file to write
+     * @throws IOException if the output can't be written
+     * @throws marsrover.Plateau.InvalidSizeException if the plateau line is
+     * malformed
+     * @throws marsrover.Rover.InvalidInputException if a command line with
+     * repeat groups expands to more than Integer.MAX_VALUE commands
+     * @throws marsrover.MissionParser.MalformedMissionException if a rover line
+     * is malformed
+     */
+    public static void toBinary(MissionFile input, File output) throws IOException,
+            Plateau.InvalidSizeException, Rover.InvalidInputException,
+            MissionParser.MalformedMissionException {
+        MissionParser parser = new MissionParser(input);
+        Census census = new Census(input);
+        parser.parse(census);
+        int coordinateBytes = census.fitsInShort ? 2 : 4;
+
+        try (RandomAccessFile raf = new RandomAccessFile(output, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ChannelWriter header = new ChannelWriter(channel, 0);
+            header.put(BinaryMissionParser.MAGIC);
+            header.putInt(BinaryMissionParser.VERSION);
+            header.putInt(census.rightX);
+            header.putInt(census.topY);
+            header.putLong(census.rovers);
+            header.put(coordinateBytes);
+            while (header.written() < BinaryMissionParser.HEADER_BYTES) {
+                header.put(0);
+            }
+            header.flush();
+
+            ChannelWriter table = new ChannelWriter(channel, BinaryMissionParser.HEADER_BYTES);
+            ChannelWriter commands = new ChannelWriter(channel, BinaryMissionParser.HEADER_BYTES
+                    + census.rovers * BinaryMissionParser.entryBytes(coordinateBytes));
+            Packer packer = new Packer(commands);
+            try {
+                parser.parse(new MissionHandler() {
+                    private int index;
+
+                    @Override
+                    public void plateau(int rightX, int topY) {
+                    }
+
+                    @Override
+                    public void rover(int x, int y, char direction, long commandsStart, int commandsLength)
+                            throws Rover.InvalidInputException {
+                        if (coordinateBytes == 2) {
+                            table.putShort(x);
+                            table.putShort(y);
+                        } else {
+                            table.putInt(x);
+                            table.putInt(y);
+                        }
+                        table.put(direction);
+                        if (census.grouped.get(index++)) {
+                            CommandPattern pattern = CommandPattern.parse(input.text(commandsStart, commandsLength));
+                            table.putInt((int) pattern.length());
+                            pattern.forEach(packer);
+                        } else {
+                            table.putInt(commandsLength);
+                            for (int i = 0; i < commandsLength; i++) {
+                                packer.accept(CommandArena.codeOf(input.get(commandsStart + i)));
+                            }
+                        }
+                        packer.finish();
+                    }
+                });
+                table.flush();
+                commands.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Converts a binary mission to the text format, with blank lines between
+     * the plateau, rover and command lines like input.txt.
+     *
+     * @param input - the opened binary mission
+     * @param output - the text file to write
+     * @throws IOException if the output can't be written
+     * @throws marsrover.Plateau.InvalidSizeException if the header is missing
+     * @throws marsrover.Rover.InvalidInputException never, the converter
+     * accepts every rover
+     * @throws marsrover.MissionParser.MalformedMissionException if the file is
+     * corrupt
+     */
+    public static void toText(MissionFile input, File output) throws IOException,
+            Plateau.InvalidSizeException, Rover.InvalidInputException,
+            MissionParser.MalformedMissionException {
+        BinaryMissionParser parser = new BinaryMissionParser(input);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE)) {
+            try {
+                parser.parse(new MissionHandler() {
+                    @Override
+                    public void plateau(int rightX, int topY) {
+                        write(rightX + " " + topY);
+                    }
+
+                    @Override
+                    public void rover(int x, int y, char direction, long commandsStart, int commandsLength) {
+                        write("\n\n" + x + " " + y + " " + direction + "\n\n");
+                        write(parser.commands(commandsStart, commandsLength));
+                    }
+
+                    private void write(String text) {
+                        try {
+                            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * First pass over a text mission: plateau, number of rovers, whether
+     * every rover coordinate fits in two unsigned bytes, and which rovers
+     * have valid repeat groups to expand.
+     */
+    private static class Census implements MissionHandler {
+
+        private final MissionFile input;
+        private final BitSet grouped = new BitSet();
+        private int rightX;
+        private int topY;
+        private long rovers;
+        private boolean fitsInShort = true;
+
+        Census(MissionFile input) {
+            this.input = input;
+        }
+
+        @Override
+        public void plateau(int rightX, int topY) {
+            this.rightX = rightX;
+            this.topY = topY;
+        }
+
+        @Override
+        public void rover(int x, int y, char direction, long commandsStart, int commandsLength)
+                throws Rover.InvalidInputException {
+            if (x < 0 || y < 0 || x > 0xFFFF || y > 0xFFFF) {
+                fitsInShort = false;
+            }
+            for (long i = commandsStart; i < commandsStart + commandsLength; i++) {
+                if (input.get(i) == '(') {
+                    String text = input.text(commandsStart, commandsLength);
+                    if (CommandPattern.errorIndex(text) == -1) {
+                        if (CommandPattern.parse(text).length() > Integer.MAX_VALUE) {
+                            throw new Rover.InvalidInputException("Rover " + x + " " + y + " " + direction
+                                    + " has more than " + Integer.MAX_VALUE + " move commands once its"
+                                    + " repeat groups are expanded, too many for the binary format.");
+                        }
+                        grouped.set(Math.toIntExact(rovers));
+                    }
+                    break;
+                }
+            }
+            rovers++;
+        }
+    }
+
+    /**
+     * Packs command codes four to a byte, the first in the low bits.
+     */
+    private static class Packer implements IntConsumer {
+
+        private final ChannelWriter out;
+        private int packed;
+        private int count;
+
+        Packer(ChannelWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(int code) {
+            packed |= code << ((count & 3) << 1);
+            if ((++count & 3) == 0) {
+                out.put(packed);
+                packed = 0;
+            }
+        }
+
+        /**
+         * Writes the last, partly filled byte of a rover's commands.
+         */
+        void finish() {
+            if ((count & 3) != 0) {
+                out.put(packed);
+            }
+            packed = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Buffered writer to a fixed region of a file channel, so that the
+     * deployment table and the command streams can be written in one pass.
+     * Write errors are thrown as UncheckedIOException, to get through the
+     * MissionHandler callbacks.
+     */
+    private static class ChannelWriter {
+
+        private final FileChannel channel;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private long position;
+        private long written;
+        private int pos;
+
+        ChannelWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        long written() {
+            return written + pos;
+        }
+
+        void put(int b) {
+            if (pos == BUFFER_SIZE) {
+                flush();
+            }
+            buffer[pos++] = (byte) b;
+        }
+
+        void put(byte[] bytes) {
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        void putShort(int value) {
+            put(value >>> 8);
+            put(value);
+        }
+
+        void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void flush() {
+            try {
+                ByteBuffer block = ByteBuffer.wrap(buffer, 0, pos);
+                while (block.hasRemaining()) {
+                    position += channel.write(block, position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written += pos;
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package marsrover;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A way of executing the move commands of a deployed fleet.
+ *
+ * Every engine must leave the rovers where ReferenceEngine leaves them:
+ * rovers run one after the other in list order, each running all of its
+ * commands, and a move off the plateau, onto impassable terrain or onto
+ * another rover is skipped. Engines move the rovers of the list in place,
+ * so the final poses are read from the rovers or their fleet, and keep the
+ * occupancy index in sync with them. EngineFuzzer checks an engine against
+ * the reference on random missions.
+ *
+ * @author Tempest
+ */
+public interface MissionEngine {
+
+    /**
+     * Names of the engines known to forName, the reference first.
+     */
+    String[] NAMES = {"reference", "sequential", "parallel"};
+
+    /**
+     * Execute the movement commands of each rover in the roversList.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of deployed Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     */
+    void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy);
+
+    /**
+     * Gets an engine by name: "reference" for ReferenceEngine, "sequential"
+     * for MarsRover.moveRovers, or "parallel" for ParallelMission on the
+     * common pool.
+     *
+     * @param name - name of the engine
+     * @return the engine, or null if there is no engine of that name
+     */
+    static MissionEngine forName(String name) {
+        switch (name) {
+            case "reference":
+                return new ReferenceEngine();
+            case "sequential":
+                return MarsRover::moveRovers;
+            case "parallel":
+                return (p, roversList, occupancy)
+                        -> ParallelMission.moveRovers(p, roversList, occupancy, ForkJoinPool.commonPool());
+            default:
+                return null;
+        }
+    }
+}
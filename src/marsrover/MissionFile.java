@@ -0,0 +1,143 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only, memory-mapped view of a mission file.
+ *
+ * The file is mapped in segments of 1 GiB so that multi-gigabyte missions can
+ * be addressed with a single long position. Bytes are read straight from the
+ * mapping, without copying them into Strings.
+ *
+ * @author Tempest
+ */
+public class MissionFile implements Closeable {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    /**
+     * Opens and maps the mission file.
+     *
+     * @param file - the mission file to read
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public MissionFile(File file) throws IOException {
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            this.size = channel.size();
+            int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, 1L << SEGMENT_SHIFT));
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the size of the file.
+     *
+     * @return number of bytes in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads one byte of the file.
+     *
+     * @param pos - position of the byte, from 0 to size() - 1
+     * @return the byte at the given position
+     */
+    public byte get(long pos) {
+        return segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & SEGMENT_MASK));
+    }
+
+    /**
+     * Reads a big-endian int of the file.
+     *
+     * @param pos - position of the first byte, from 0 to size() - 4
+     * @return the int at the given position
+     */
+    public int getInt(long pos) {
+        return (get(pos) & 0xFF) << 24 | (get(pos + 1) & 0xFF) << 16
+                | (get(pos + 2) & 0xFF) << 8 | (get(pos + 3) & 0xFF);
+    }
+
+    /**
+     * Reads a big-endian long of the file.
+     *
+     * @param pos - position of the first byte, from 0 to size() - 8
+     * @return the long at the given position
+     */
+    public long getLong(long pos) {
+        return (long) getInt(pos) << 32 | (getInt(pos + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Finds the next occurrence of a byte.
+     *
+     * @param b - the byte to look for
+     * @param from - position to start searching from
+     * @return position of the byte, or size() if it does not occur
+     */
+    public long indexOf(byte b, long from) {
+        long pos = from;
+        while (pos < size) {
+            MappedByteBuffer segment = segments[(int) (pos >>> SEGMENT_SHIFT)];
+            int i = (int) (pos & SEGMENT_MASK);
+            int limit = segment.limit();
+            while (i < limit) {
+                if (segment.get(i) == b) {
+                    return (pos & ~SEGMENT_MASK) + i;
+                }
+                i++;
+            }
+            pos = (pos & ~SEGMENT_MASK) + limit;
+        }
+        return size;
+    }
+
+    /**
+     * Copies a range of the file into a String. Meant for the rare cases that
+     * need text, such as error messages or per-rover command Strings.
+     *
+     * @param start - position of the first byte
+     * @param length - number of bytes to copy
+     * @return the bytes decoded as ASCII text
+     */
+    public String text(long start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Releases the file. The mapped segments are released by the garbage
+     * collector once unreachable.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,257 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Writes seeded, synthetic mission files in the input.txt format.
+ *
+ * The same settings and seed always give the same file. Rovers and their
+ * commands are written as they are generated, through a fixed-size buffer,
+ * so missions of many gigabytes can be written with a small heap.
+ *
+ * Usage: java marsrover.MissionGenerator [options] output-file
+ *   --plateau X Y      top-right coordinates of the plateau (default 99 99)
+ *   --rovers N         number of rovers (default 100)
+ *   --density D        number of rovers as a share of the plateau cells,
+ *                      instead of --rovers
+ *   --commands L       number of move commands per rover (default 100)
+ *   --mix M,L,R        relative weights of M, L and R (default 3,1,1)
+ *   --collisions P     chance, from 0 to 1, that a rover is deployed next to
+ *                      a recently deployed rover (default 0)
+ *   --seed S           random seed (default 42)
+ *
+ * @author Tempest
+ */
+public class MissionGenerator {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int RECENT_ROVERS = 1024;
+    private static final int NEIGHBOURHOOD = 2;
+
+    private int rightX = 99;
+    private int topY = 99;
+    private long rovers = 100;
+    private int commandLength = 100;
+    private int weightM = 3;
+    private int weightL = 1;
+    private int weightR = 1;
+    private double collisionRate;
+    private long seed = 42;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos;
+    private OutputStream out;
+
+    /**
+     * Main method generating a mission file from the command line.
+     *
+     * @param args - options followed by the output file name
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        MissionGenerator generator = new MissionGenerator();
+        double density = -1;
+        String outFileName = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plateau":
+                    generator.setPlateau(Integer.parseInt(args[++i]), Integer.parseInt(args[++i]));
+                    break;
+                case "--rovers":
+                    generator.setRovers(Long.parseLong(args[++i]));
+                    break;
+                case "--density":
+                    density = Double.parseDouble(args[++i]);
+                    break;
+                case "--commands":
+                    generator.setCommandLength(Integer.parseInt(args[++i]));
+                    break;
+                case "--mix":
+                    String[] weights = args[++i].split(",");
+                    generator.setMix(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+                            Integer.parseInt(weights[2]));
+                    break;
+                case "--collisions":
+                    generator.setCollisionRate(Double.parseDouble(args[++i]));
+                    break;
+                case "--seed":
+                    generator.setSeed(Long.parseLong(args[++i]));
+                    break;
+                default:
+                    outFileName = args[i];
+                    break;
+            }
+        }
+        if (outFileName == null) {
+            System.out.println("Usage: java marsrover.MissionGenerator [options] output-file");
+            System.exit(1);
+        }
+        if (density >= 0) {
+            generator.setDensity(density);
+        }
+        generator.write(new File(outFileName));
+    }
+
+    /**
+     * Sets the top-right coordinates of the plateau.
+     *
+     * @param rightX - X coordinate of the North-Easternmost point
+     * @param topY - Y coordinate of the North-Easternmost point
+     */
+    public void setPlateau(int rightX, int topY) {
+        this.rightX = rightX;
+        this.topY = topY;
+    }
+
+    /**
+     * Sets the number of rovers.
+     *
+     * @param rovers - number of rovers to write
+     */
+    public void setRovers(long rovers) {
+        this.rovers = rovers;
+    }
+
+    /**
+     * Sets the number of rovers as a share of the plateau cells. Must be
+     * called after setPlateau.
+     *
+     * @param density - share of the plateau cells, from 0 to 1
+     */
+    public void setDensity(double density) {
+        this.rovers = (long) ((rightX + 1L) * (topY + 1L) * density);
+    }
+
+    /**
+     * Sets the number of move commands per rover.
+     *
+     * @param commandLength - number of move commands per rover
+     */
+    public void setCommandLength(int commandLength) {
+        this.commandLength = commandLength;
+    }
+
+    /**
+     * Sets the relative weights of the move commands.
+     *
+     * @param m - weight of M
+     * @param l - weight of L
+     * @param r - weight of R
+     */
+    public void setMix(int m, int l, int r) {
+        this.weightM = m;
+        this.weightL = l;
+        this.weightR = r;
+    }
+
+    /**
+     * Sets the chance that a rover is deployed next to a recently deployed
+     * rover, which makes blocked moves and failed deployments more likely.
+     *
+     * @param collisionRate - chance from 0 to 1
+     */
+    public void setCollisionRate(double collisionRate) {
+        this.collisionRate = collisionRate;
+    }
+
+    /**
+     * Sets the random seed.
+     *
+     * @param seed - random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the mission to a file.
+     *
+     * @param file - the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void write(File file) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            write(stream);
+        }
+    }
+
+    /**
+     * Writes the mission to a stream. The stream is not closed.
+     *
+     * @param stream - the stream to write to
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream stream) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] recentX = new int[RECENT_ROVERS];
+        int[] recentY = new int[RECENT_ROVERS];
+        int weightTotal = weightM + weightL + weightR;
+        out = stream;
+        bufferPos = 0;
+
+        writeInt(rightX);
+        writeByte(' ');
+        writeInt(topY);
+        for (long i = 0; i < rovers; i++) {
+            int x;
+            int y;
+            if (i > 0 && random.nextDouble() < collisionRate) {
+                int recent = (int) (random.nextLong(Math.min(i, RECENT_ROVERS)));
+                x = clamp(recentX[recent] + random.nextInt(-NEIGHBOURHOOD, NEIGHBOURHOOD + 1), rightX);
+                y = clamp(recentY[recent] + random.nextInt(-NEIGHBOURHOOD, NEIGHBOURHOOD + 1), topY);
+            } else {
+                x = (int) random.nextLong(rightX + 1L);
+                y = (int) random.nextLong(topY + 1L);
+            }
+            recentX[(int) (i % RECENT_ROVERS)] = x;
+            recentY[(int) (i % RECENT_ROVERS)] = y;
+
+            writeByte('\n');
+            writeByte('\n');
+            writeInt(x);
+            writeByte(' ');
+            writeInt(y);
+            writeByte(' ');
+            writeByte("NESW".charAt(random.nextInt(4)));
+            writeByte('\n');
+            writeByte('\n');
+            for (int c = 0; c < commandLength; c++) {
+                int pick = random.nextInt(weightTotal);
+                writeByte(pick < weightM ? 'M' : pick < weightM + weightL ? 'L' : 'R');
+            }
+        }
+        out.write(buffer, 0, bufferPos);
+        out.flush();
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (bufferPos == BUFFER_SIZE) {
+            out.write(buffer, 0, BUFFER_SIZE);
+            bufferPos = 0;
+        }
+        buffer[bufferPos++] = (byte) b;
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            writeByte('0' + value / divisor % 10);
+            divisor /= 10;
+        }
+    }
+}
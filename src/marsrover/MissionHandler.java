@@ -0,0 +1,34 @@
+package marsrover;
+
+/**
+ * Receives the contents of a mission file as a MissionReader scans it.
+ *
+ * @author Tempest
+ */
+public interface MissionHandler {
+
+    /**
+     * Called once with the top-right coordinates from the first line.
+     *
+     * @param rightX - X coordinate of the North-Easternmost point of the plateau
+     * @param topY - Y coordinate of the North-Easternmost point of the plateau
+     * @throws marsrover.Plateau.InvalidSizeException if the plateau can't be
+     * created with these coordinates
+     */
+    void plateau(int rightX, int topY) throws Plateau.InvalidSizeException;
+
+    /**
+     * Called once per rover, in file order.
+     *
+     * @param x - X coordinate of the rover
+     * @param y - Y coordinate of the rover
+     * @param direction - cardinal direction letter, upper-cased
+     * @param commandsStart - location of the move commands in the file, to be
+     * decoded through the MissionReader
+     * @param commandsLength - number of move commands
+     * @throws marsrover.Rover.InvalidInputException if the rover can't be
+     * created
+     */
+    void rover(int x, int y, char direction, long commandsStart, int commandsLength)
+            throws Rover.InvalidInputException;
+}
@@ -0,0 +1,273 @@
+package marsrover;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of a running mission, published as a platform MBean.
+ *
+ * Metrics are off unless the JVM is started with -Dmarsrover.metrics=true.
+ * Every recording site is guarded by the ENABLED constant, which the JIT
+ * folds away when metrics are off. When on, the counters are LongAdders,
+ * which stripe updates from different threads over separate cells and
+ * allocate nothing once those cells exist. Moves resolved in one ray-cast
+ * (see FleetStepper.advance) are counted as the single M commands they
+ * stand for.
+ *
+ * @author Tempest
+ */
+public class MissionMetrics implements MissionMetricsMBean {
+
+    /**
+     * Whether metrics are recorded, read once from the marsrover.metrics
+     * system property.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("marsrover.metrics");
+
+    /**
+     * Name the MBean is registered under.
+     */
+    public static final String OBJECT_NAME = "marsrover:type=MissionMetrics";
+
+    private static final LongAdder COMMANDS = new LongAdder();
+    private static final LongAdder MOVES = new LongAdder();
+    private static final LongAdder BLOCKED_BY_EDGE = new LongAdder();
+    private static final LongAdder BLOCKED_BY_ROVER = new LongAdder();
+    private static final LongAdder BLOCKED_BY_TERRAIN = new LongAdder();
+    private static final LongAdder DEPLOYED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder PHASE_DONE = new LongAdder();
+
+    private static volatile String phase = "idle";
+    private static volatile long phaseTotal;
+    private static volatile long phaseStart = System.nanoTime();
+
+    private long lastSample = System.nanoTime();
+    private long lastCommands;
+    private long lastMoves;
+    private double commandsPerSecond;
+    private double movesPerSecond;
+
+    /**
+     * Registers the metrics with the platform MBean server, if metrics are
+     * enabled and they are not registered yet.
+     */
+    public static void register() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MissionMetrics(), name);
+            }
+        } catch (JMException e) {
+            System.out.println("Unable to register mission metrics - " + e);
+        }
+    }
+
+    /**
+     * Starts a new phase of the mission. Does nothing if metrics are off.
+     *
+     * @param name - name of the phase
+     * @param total - units of work in the phase, or 0 if not known
+     */
+    public static void phase(String name, long total) {
+        if (!ENABLED) {
+            return;
+        }
+        startPhase(name, total);
+    }
+
+    private static void startPhase(String name, long total) {
+        PHASE_DONE.reset();
+        phaseTotal = total;
+        phaseStart = System.nanoTime();
+        phase = name;
+    }
+
+    /**
+     * Records units of work done in the current phase.
+     *
+     * @param units - units of work done
+     */
+    public static void progress(long units) {
+        PHASE_DONE.add(units);
+    }
+
+    /**
+     * Records executed commands.
+     *
+     * @param count - number of L, R and M commands
+     */
+    public static void commands(long count) {
+        COMMANDS.add(count);
+    }
+
+    /**
+     * What refused an M command.
+     */
+    public enum Block {
+        /** the plateau edge */
+        EDGE,
+        /** another rover */
+        ROVER,
+        /** an impassable cell of the terrain map */
+        TERRAIN
+    }
+
+    /**
+     * Records M commands that moved the rover.
+     *
+     * @param taken - number of M commands that moved the rover
+     */
+    public static void moves(long taken) {
+        if (taken > 0) {
+            MOVES.add(taken);
+        }
+    }
+
+    /**
+     * Records M commands that were refused.
+     *
+     * @param blocked - number of M commands that were refused
+     * @param cause - what was in the way
+     */
+    public static void blocked(long blocked, Block cause) {
+        if (blocked > 0) {
+            (cause == Block.EDGE ? BLOCKED_BY_EDGE : cause == Block.TERRAIN ? BLOCKED_BY_TERRAIN
+                    : BLOCKED_BY_ROVER).add(blocked);
+        }
+    }
+
+    /**
+     * Tells what refused a move onto a cell that the rover could not enter.
+     *
+     * @param p - the plateau the rover moves on
+     * @param x - X coordinate of the cell
+     * @param y - Y coordinate of the cell
+     * @return EDGE if the cell is off the plateau, TERRAIN if it is
+     * impassable, ROVER otherwise
+     */
+    public static Block causeAt(Plateau p, int x, int y) {
+        return !p.contains(x, y) ? Block.EDGE : p.isBlocked(x, y) ? Block.TERRAIN : Block.ROVER;
+    }
+
+    /**
+     * Records a deployment attempt.
+     *
+     * @param deployed - true if the rover was deployed, false if rejected
+     */
+    public static void deployment(boolean deployed) {
+        (deployed ? DEPLOYED : REJECTED).increment();
+    }
+
+    /**
+     * Clears every counter and returns to the idle phase.
+     */
+    static void reset() {
+        COMMANDS.reset();
+        MOVES.reset();
+        BLOCKED_BY_EDGE.reset();
+        BLOCKED_BY_ROVER.reset();
+        BLOCKED_BY_TERRAIN.reset();
+        DEPLOYED.reset();
+        REJECTED.reset();
+        startPhase("idle", 0);
+    }
+
+    @Override
+    public long getCommandsExecuted() {
+        return COMMANDS.sum();
+    }
+
+    @Override
+    public long getMovesTaken() {
+        return MOVES.sum();
+    }
+
+    @Override
+    public long getMovesBlockedByEdge() {
+        return BLOCKED_BY_EDGE.sum();
+    }
+
+    @Override
+    public long getMovesBlockedByRover() {
+        return BLOCKED_BY_ROVER.sum();
+    }
+
+    @Override
+    public long getMovesBlockedByTerrain() {
+        return BLOCKED_BY_TERRAIN.sum();
+    }
+
+    @Override
+    public long getRoversDeployed() {
+        return DEPLOYED.sum();
+    }
+
+    @Override
+    public long getRoversRejected() {
+        return REJECTED.sum();
+    }
+
+    @Override
+    public String getPhase() {
+        return phase;
+    }
+
+    @Override
+    public double getPhaseSeconds() {
+        return (System.nanoTime() - phaseStart) / 1e9;
+    }
+
+    @Override
+    public long getPhaseDone() {
+        return PHASE_DONE.sum();
+    }
+
+    @Override
+    public long getPhaseTotal() {
+        return phaseTotal;
+    }
+
+    @Override
+    public double getPhaseProgress() {
+        long total = phaseTotal;
+        return total > 0 ? Math.min(1.0, (double) PHASE_DONE.sum() / total) : -1;
+    }
+
+    @Override
+    public synchronized double getCommandsPerSecond() {
+        sample();
+        return commandsPerSecond;
+    }
+
+    @Override
+    public synchronized double getMovesPerSecond() {
+        sample();
+        return movesPerSecond;
+    }
+
+    /**
+     * Updates the rates from the counter deltas since the last sample. Calls
+     * less than 100ms apart reuse the previous rates, so that reading several
+     * attributes at once gives consistent values.
+     */
+    private void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSample;
+        if (elapsed < 100000000L) {
+            return;
+        }
+        long commands = COMMANDS.sum();
+        long moves = MOVES.sum();
+        commandsPerSecond = (commands - lastCommands) * 1e9 / elapsed;
+        movesPerSecond = (moves - lastMoves) * 1e9 / elapsed;
+        lastCommands = commands;
+        lastMoves = moves;
+        lastSample = now;
+    }
+}
@@ -0,0 +1,80 @@
+package marsrover;
+
+/**
+ * Management interface of MissionMetrics, as seen from a JMX console.
+ *
+ * @author Tempest
+ */
+public interface MissionMetricsMBean {
+
+    /**
+     * @return number of L, R and M commands executed
+     */
+    long getCommandsExecuted();
+
+    /**
+     * @return number of M commands that moved a rover
+     */
+    long getMovesTaken();
+
+    /**
+     * @return number of M commands refused at the plateau edge
+     */
+    long getMovesBlockedByEdge();
+
+    /**
+     * @return number of M commands refused because another rover was in the way
+     */
+    long getMovesBlockedByRover();
+
+    /**
+     * @return number of M commands refused because the cell is impassable
+     * terrain
+     */
+    long getMovesBlockedByTerrain();
+
+    /**
+     * @return number of rovers deployed
+     */
+    long getRoversDeployed();
+
+    /**
+     * @return number of rovers that could not be deployed
+     */
+    long getRoversRejected();
+
+    /**
+     * @return name of the current phase of the mission
+     */
+    String getPhase();
+
+    /**
+     * @return seconds spent in the current phase
+     */
+    double getPhaseSeconds();
+
+    /**
+     * @return units of work done in the current phase, e.g. rovers moved
+     */
+    long getPhaseDone();
+
+    /**
+     * @return units of work of the current phase, or 0 if not known
+     */
+    long getPhaseTotal();
+
+    /**
+     * @return share of the current phase done, from 0 to 1, or -1 if not known
+     */
+    double getPhaseProgress();
+
+    /**
+     * @return commands executed per second since the last call
+     */
+    double getCommandsPerSecond();
+
+    /**
+     * @return moves taken per second since the last call
+     */
+    double getMovesPerSecond();
+}
@@ -0,0 +1,445 @@
+package marsrover;
+
+/**
+ * Parses a memory-mapped mission file byte by byte.
+ *
+ * Accepts the same format as MarsRover.initializePlateau and
+ * initializeRovers: the plateau top-right coordinates on the first line,
+ * then for every rover a line "x y D" followed by a line of move commands,
+ * with blank separator lines allowed anywhere after the first line.
+ * Coordinates and directions are decoded straight from the mapped bytes and
+ * the move commands are reported as a range of the file, so no intermediate
+ * Strings are made.
+ *
+ * @author Tempest
+ */
+public class MissionParser implements MissionReader {
+
+    private static final byte NEWLINE = '\n';
+
+    private final MissionFile file;
+    private final long size;
+    private long pos;
+    private long line;
+    private long lineStart;
+    private long roverLineStart;
+    private int roverLineLength;
+
+    /**
+     * Constructs a parser reading the given mission file.
+     *
+     * @param file - the opened mission file
+     */
+    public MissionParser(MissionFile file) {
+        this.file = file;
+        this.size = file.size();
+    }
+
+    /**
+     * Parses the whole file, reporting the plateau and every rover to the
+     * handler in file order.
+     *
+     * @param handler - receives the plateau and the rovers
+     * @throws marsrover.Plateau.InvalidSizeException if the first line does
+     * not hold two coordinates, or the handler rejects them
+     * @throws marsrover.Rover.InvalidInputException if the handler rejects a
+     * rover
+     * @throws marsrover.MissionParser.MalformedMissionException if a rover line
+     * can't be parsed
+     */
+    @Override
+    public void parse(MissionHandler handler) throws Plateau.InvalidSizeException,
+            Rover.InvalidInputException, MalformedMissionException {
+        pos = 0;
+        line = 1;
+        lineStart = 0;
+        parsePlateau(handler);
+        while (skipBlankLines()) {
+            parseRover(handler);
+        }
+    }
+
+    /**
+     * Checks the whole file without throwing, recording every malformed
+     * line in a report, and reports the plateau and the valid rovers to the
+     * handler, if there is one. A rover with a malformed line or invalid
+     * move commands is skipped together with its commands. In strict mode
+     * the check stops at the first error.
+     *
+     * Clean files give the handler the same calls as parse.
+     *
+     * @param handler - receives the plateau and the valid rovers, or null
+     * to only check the file
+     * @param strict - true to stop at the first error
+     * @return the errors found
+     */
+    public ValidationReport validate(MissionHandler handler, boolean strict) {
+        ValidationReport report = new ValidationReport();
+        pos = 0;
+        line = 1;
+        lineStart = 0;
+        if (!validatePlateau(handler, report)) {
+            report.stop();
+            return report;
+        }
+        while (skipBlankLines()) {
+            if (!validateRover(handler, report) && strict) {
+                report.stop();
+                break;
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Gets the text of the rover line most recently reported to the handler,
+     * for error messages.
+     *
+     * @return the rover line without its line terminator
+     */
+    @Override
+    public String getRoverLine() {
+        return file.text(roverLineStart, roverLineLength);
+    }
+
+    @Override
+    public String commands(long start, int length) {
+        return file.text(start, length);
+    }
+
+    @Override
+    public boolean checkCommands(long start, int length) throws Rover.InvalidInputException {
+        for (long i = start; i < start + length; i++) {
+            byte b = file.get(i);
+            if (b != 'L' && b != 'R' && b != 'M') {
+                if (b != '(') {
+                    throw new Rover.InvalidInputException("Movement command must be L, R, or M.");
+                }
+                CommandPattern.parse(file.text(start, length));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long appendCommands(CommandArena arena, long start, int length)
+            throws Rover.InvalidInputException {
+        long first = arena.size();
+        arena.reserve(length);
+        for (long i = start; i < start + length; i++) {
+            int code = CommandArena.codeOf(file.get(i));
+            if (code == CommandArena.CODE_INVALID) {
+                throw new Rover.InvalidInputException("Movement command must be L, R, or M.");
+            }
+            arena.add(code);
+        }
+        return first;
+    }
+
+    /**
+     * Packs plain commands straight from the file, and compiles a command
+     * line with repeat groups into a CommandPattern.
+     */
+    @Override
+    public void loadCommands(FleetStore fleet, int slot, long start, int length)
+            throws Rover.InvalidInputException {
+        CommandArena arena = fleet.getCommands();
+        long first = arena.size();
+        arena.reserve(length);
+        for (long i = start; i < start + length; i++) {
+            byte b = file.get(i);
+            int code = CommandArena.codeOf(b);
+            if (code == CommandArena.CODE_INVALID) {
+                if (b != '(') {
+                    throw new Rover.InvalidInputException("Movement command must be L, R, or M.");
+                }
+                arena.truncate(first);
+                fleet.setPattern(slot, CommandPattern.parse(file.text(start, length)));
+                return;
+            }
+            arena.add(code);
+        }
+        fleet.setCommands(slot, first, length);
+    }
+
+    @Override
+    public void execute(FleetStepper stepper, int slot, long start, int length) {
+        stepper.execute(slot, file, start, length);
+    }
+
+    private void parsePlateau(MissionHandler handler) throws Plateau.InvalidSizeException {
+        skipSpaces();
+        long x = readInt();
+        skipSpaces();
+        long y = readInt();
+        skipSpaces();
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE || !atEndOfLine()) {
+            throw new Plateau.InvalidSizeException("Plateau requires top and right coordinates!");
+        }
+        nextLine();
+        handler.plateau((int) x, (int) y);
+    }
+
+    private void parseRover(MissionHandler handler) throws Rover.InvalidInputException,
+            MalformedMissionException {
+        roverLineStart = pos;
+        skipSpaces();
+        long x = readInt();
+        skipSpaces();
+        long y = readInt();
+        skipSpaces();
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE || atEndOfLine()) {
+            throw new MalformedMissionException("Line " + line
+                    + ": rover requires X and Y coordinates and a direction.");
+        }
+        char direction = Character.toUpperCase((char) (file.get(pos) & 0xFF));
+        long end = file.indexOf(NEWLINE, pos);
+        roverLineLength = (int) (trimEnd(roverLineStart, end) - roverLineStart);
+        pos = end;
+        nextLine();
+
+        skipBlankLine();
+        skipSpaces();
+        long commandsStart = pos;
+        end = file.indexOf(NEWLINE, pos);
+        long commandsEnd = trimEnd(commandsStart, end);
+        pos = end;
+        nextLine();
+        handler.rover((int) x, (int) y, direction, commandsStart, (int) (commandsEnd - commandsStart));
+    }
+
+    private boolean validatePlateau(MissionHandler handler, ValidationReport report) {
+        skipSpaces();
+        long xStart = pos;
+        long x = readInt();
+        skipSpaces();
+        long yStart = pos;
+        long y = readInt();
+        skipSpaces();
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE || !atEndOfLine()) {
+            long errorPos = x == Long.MIN_VALUE ? xStart : y == Long.MIN_VALUE ? yStart : pos;
+            report.error(line, column(errorPos), ValidationReport.Code.PLATEAU);
+            return false;
+        }
+        if (x < 0 || y < 0) {
+            report.error(line, column(xStart), ValidationReport.Code.PLATEAU_SIZE);
+            return false;
+        }
+        nextLine();
+        if (handler != null) {
+            try {
+                handler.plateau((int) x, (int) y);
+            } catch (Plateau.InvalidSizeException e) {
+                report.error(1, column(xStart), ValidationReport.Code.PLATEAU_SIZE);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a rover line and its move commands, and reports the rover if
+     * both are valid.
+     *
+     * @return false if the rover had an error
+     */
+    private boolean validateRover(MissionHandler handler, ValidationReport report) {
+        roverLineStart = pos;
+        long roverLine = line;
+        skipSpaces();
+        long xStart = pos;
+        long x = readInt();
+        skipSpaces();
+        long yStart = pos;
+        long y = readInt();
+        skipSpaces();
+        ValidationReport.Code error = null;
+        long errorPos = x == Long.MIN_VALUE ? xStart : y == Long.MIN_VALUE ? yStart : pos;
+        char direction = 0;
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE || atEndOfLine()) {
+            error = ValidationReport.Code.ROVER;
+        } else {
+            direction = Character.toUpperCase((char) (file.get(pos) & 0xFF));
+            if (FleetStore.headingOf(direction) == -1) {
+                error = ValidationReport.Code.DIRECTION;
+            }
+        }
+        if (error != null) {
+            report.error(roverLine, column(errorPos), error);
+        }
+        long end = file.indexOf(NEWLINE, pos);
+        roverLineLength = (int) (trimEnd(roverLineStart, end) - roverLineStart);
+        pos = end;
+        nextLine();
+
+        skipBlankLine();
+        skipSpaces();
+        long commandsStart = pos;
+        end = file.indexOf(NEWLINE, pos);
+        long commandsEnd = trimEnd(commandsStart, end);
+        if (error == null) {
+            for (long i = commandsStart; i < commandsEnd; i++) {
+                byte b = file.get(i);
+                if (b != 'L' && b != 'R' && b != 'M') {
+                    long errorAt = i;
+                    if (b == '(') {
+                        int index = CommandPattern.errorIndex(file.text(commandsStart,
+                                (int) (commandsEnd - commandsStart)));
+                        errorAt = index < 0 ? -1 : commandsStart + index;
+                    }
+                    if (errorAt >= 0) {
+                        error = ValidationReport.Code.COMMAND;
+                        report.error(line, column(errorAt), error);
+                    }
+                    break;
+                }
+            }
+        }
+        pos = end;
+        nextLine();
+        if (error == null && handler != null) {
+            try {
+                handler.rover((int) x, (int) y, direction, commandsStart, (int) (commandsEnd - commandsStart));
+            } catch (Rover.InvalidInputException e) {
+                error = ValidationReport.Code.REJECTED;
+                report.error(roverLine, 1, error);
+            }
+        }
+        report.rover(error == null);
+        return error == null;
+    }
+
+    /**
+     * Gets the column of a file position on the current line.
+     */
+    private int column(long position) {
+        return (int) Math.min(Integer.MAX_VALUE, position - lineStart + 1);
+    }
+
+    /**
+     * Reads a decimal int at the current position.
+     *
+     * @return the value, or Long.MIN_VALUE if there is no valid int here
+     */
+    private long readInt() {
+        boolean negative = false;
+        if (pos < size && file.get(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        long start = pos;
+        long value = 0;
+        while (pos < size) {
+            int digit = file.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return Long.MIN_VALUE;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            return Long.MIN_VALUE;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return value;
+    }
+
+    /**
+     * Skips any blank lines, leaving the position at the start of the next
+     * line with content.
+     *
+     * @return false if the end of the file was reached
+     */
+    private boolean skipBlankLines() {
+        while (pos < size) {
+            long start = pos;
+            skipSpaces();
+            if (!atEndOfLine()) {
+                pos = start;
+                return true;
+            }
+            nextLine();
+        }
+        return false;
+    }
+
+    /**
+     * Skips the blank line that may separate a rover line from its move
+     * commands. Only one is skipped, as the command line itself may be
+     * empty and be followed by the blank line before the next rover.
+     */
+    private void skipBlankLine() {
+        long start = pos;
+        skipSpaces();
+        if (atEndOfLine()) {
+            nextLine();
+        } else {
+            pos = start;
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < size) {
+            byte b = file.get(pos);
+            if (b != ' ' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean atEndOfLine() {
+        if (pos >= size) {
+            return true;
+        }
+        byte b = file.get(pos);
+        return b == NEWLINE || (b == '\r' && (pos + 1 >= size || file.get(pos + 1) == NEWLINE));
+    }
+
+    /**
+     * Moves past the line terminator at the current position, if any.
+     */
+    private void nextLine() {
+        if (pos < size && file.get(pos) == '\r') {
+            pos++;
+        }
+        if (pos < size && file.get(pos) == NEWLINE) {
+            pos++;
+            line++;
+            lineStart = pos;
+        }
+    }
+
+    /**
+     * Drops trailing whitespace, including a carriage return, from a range.
+     */
+    private long trimEnd(long start, long end) {
+        while (end > start) {
+            byte b = file.get(end - 1);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                break;
+            }
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Exception thrown when a rover line of the mission file can't be parsed.
+     */
+    public static class MalformedMissionException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public MalformedMissionException(String message) {
+            MessageStream.get().println(message);
+        }
+    }
+}
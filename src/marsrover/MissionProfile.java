@@ -0,0 +1,150 @@
+package marsrover;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Timing of the phases of one mission run, for the --profile option.
+ *
+ * Phases are started one after the other on the main thread; starting a
+ * phase ends the previous one. For each phase the wall time and the bytes
+ * allocated by the main thread are kept (allocation counts need a JVM that
+ * supports com.sun.management.ThreadMXBean, such as HotSpot). The time each
+ * rover takes to execute its commands goes into a LatencyHistogram, and the
+ * slowest rover is remembered so that an outlier command string can be
+ * found.
+ *
+ * @author Tempest
+ */
+public class MissionProfile {
+
+    private static final int MAX_PHASES = 16;
+
+    private final String[] names = new String[MAX_PHASES];
+    private final long[] nanos = new long[MAX_PHASES];
+    private final long[] allocated = new long[MAX_PHASES];
+    private int phases;
+    private int current = -1;
+    private long phaseStart;
+    private long phaseAllocatedStart;
+
+    private final LatencyHistogram roverLatency = new LatencyHistogram();
+    private long slowestNanos = -1;
+    private int slowestRover = -1;
+    private long slowestCommands;
+
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Constructs an empty profile.
+     */
+    public MissionProfile() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one.
+     *
+     * @param name - name of the new phase
+     */
+    public void start(String name) {
+        end();
+        if (phases == MAX_PHASES) {
+            throw new IllegalStateException("Too many phases: " + name);
+        }
+        current = phases++;
+        names[current] = name;
+        phaseAllocatedStart = allocatedBytes();
+        phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    public void end() {
+        if (current >= 0) {
+            nanos[current] = System.nanoTime() - phaseStart;
+            allocated[current] = allocatedBytes() - phaseAllocatedStart;
+            current = -1;
+        }
+    }
+
+    /**
+     * Records how long a rover took to execute its move commands.
+     *
+     * @param id - ID of the rover
+     * @param commands - number of move commands of the rover
+     * @param elapsedNanos - time taken, in nanoseconds
+     */
+    public void rover(int id, long commands, long elapsedNanos) {
+        roverLatency.record(elapsedNanos);
+        if (elapsedNanos > slowestNanos) {
+            slowestNanos = elapsedNanos;
+            slowestRover = id;
+            slowestCommands = commands;
+        }
+    }
+
+    /**
+     * Get the histogram of the per-rover execution times.
+     *
+     * @return histogram of nanoseconds per rover
+     */
+    public LatencyHistogram getRoverLatency() {
+        return roverLatency;
+    }
+
+    /**
+     * Get the ID of the rover that took longest to execute its commands.
+     *
+     * @return ID of the slowest rover, or -1 if none was recorded
+     */
+    public int getSlowestRover() {
+        return slowestRover;
+    }
+
+    /**
+     * Ends the current phase and prints the report.
+     *
+     * @param out - the stream to print to
+     */
+    public void print(PrintStream out) {
+        end();
+        long total = 0;
+        out.println("Profile:");
+        out.println(String.format("  %-10s %12s %14s", "phase", "time ms", "allocated MB"));
+        for (int i = 0; i < phases; i++) {
+            total += nanos[i];
+            out.println(String.format("  %-10s %12.3f %14s", names[i], nanos[i] / 1e6,
+                    threads == null ? "n/a" : String.format("%.3f", allocated[i] / 1e6)));
+        }
+        out.println(String.format("  %-10s %12.3f", "total", total / 1e6));
+        if (roverLatency.getCount() > 0) {
+            out.println(String.format("Rover execution (%d rovers): p50 %s  p99 %s  p999 %s  max %s",
+                    roverLatency.getCount(),
+                    micros(roverLatency.getValueAtPercentile(50)),
+                    micros(roverLatency.getValueAtPercentile(99)),
+                    micros(roverLatency.getValueAtPercentile(99.9)),
+                    micros(roverLatency.getMax())));
+            out.println(String.format("Slowest rover: %d (%d move commands)", slowestRover, slowestCommands));
+        } else {
+            out.println("Rover execution: not timed per rover in this mode");
+        }
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1fus", nanos / 1e3);
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
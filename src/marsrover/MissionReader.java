@@ -0,0 +1,113 @@
+package marsrover;
+
+/**
+ * Reads the plateau and rovers of a mission file and gives access to the
+ * move commands of each rover.
+ *
+ * Rovers are reported to a MissionHandler with the location of their move
+ * commands in the file; what that location means depends on the format, so
+ * the commands are decoded through the same reader. Two formats exist: the
+ * input.txt text format (MissionParser) and the packed binary format
+ * (BinaryMissionParser).
+ *
+ * @author Tempest
+ */
+public interface MissionReader {
+
+    /**
+     * Opens a reader on a mission file, picking the format from the first
+     * bytes of the file.
+     *
+     * @param file - the opened mission file
+     * @return BinaryMissionParser if the file starts with the binary magic,
+     * otherwise MissionParser
+     */
+    static MissionReader open(MissionFile file) {
+        if (BinaryMissionParser.isBinary(file)) {
+            return new BinaryMissionParser(file);
+        }
+        return new MissionParser(file);
+    }
+
+    /**
+     * Parses the whole file, reporting the plateau and every rover to the
+     * handler in file order.
+     *
+     * @param handler - receives the plateau and the rovers
+     * @throws marsrover.Plateau.InvalidSizeException if the plateau is
+     * missing, or the handler rejects it
+     * @throws marsrover.Rover.InvalidInputException if the handler rejects a
+     * rover
+     * @throws marsrover.MissionParser.MalformedMissionException if a rover
+     * can't be read
+     */
+    void parse(MissionHandler handler) throws Plateau.InvalidSizeException,
+            Rover.InvalidInputException, MissionParser.MalformedMissionException;
+
+    /**
+     * Gets the text of the rover most recently reported to the handler, for
+     * error messages.
+     *
+     * @return the rover as a line "x y D"
+     */
+    String getRoverLine();
+
+    /**
+     * Decodes the move commands of a rover into a String, one character per
+     * command. Invalid commands are kept as characters other than L, R and M.
+     *
+     * @param start - location of the commands, as reported to the handler
+     * @param length - number of commands, as reported to the handler
+     * @return the move commands
+     */
+    String commands(long start, int length);
+
+    /**
+     * Checks that the move commands of a rover are all L, R or M, or a valid
+     * command line with repeat groups.
+     *
+     * @param start - location of the commands, as reported to the handler
+     * @param length - number of commands, as reported to the handler
+     * @return true if the commands have repeat groups, to be run through
+     * CommandPattern rather than execute
+     * @throws marsrover.Rover.InvalidInputException if a command is not valid
+     */
+    boolean checkCommands(long start, int length) throws Rover.InvalidInputException;
+
+    /**
+     * Checks the move commands of a rover and adds them to a command arena,
+     * without making a String.
+     *
+     * @param arena - the arena to add the commands to
+     * @param start - location of the commands, as reported to the handler
+     * @param length - number of commands, as reported to the handler
+     * @return index of the first command in the arena
+     * @throws marsrover.Rover.InvalidInputException if a command is not valid
+     */
+    long appendCommands(CommandArena arena, long start, int length) throws Rover.InvalidInputException;
+
+    /**
+     * Checks the move commands of a rover, adds them to its fleet's command
+     * arena and points the rover at them.
+     *
+     * @param fleet - the fleet holding the rover
+     * @param slot - slot of the rover
+     * @param start - location of the commands, as reported to the handler
+     * @param length - number of commands, as reported to the handler
+     * @throws marsrover.Rover.InvalidInputException if a command is not valid
+     */
+    default void loadCommands(FleetStore fleet, int slot, long start, int length)
+            throws Rover.InvalidInputException {
+        fleet.setCommands(slot, appendCommands(fleet.getCommands(), start, length), length);
+    }
+
+    /**
+     * Executes the move commands of a rover straight from the file.
+     *
+     * @param stepper - stepper of the fleet holding the rover
+     * @param slot - slot of the rover
+     * @param start - location of the commands, as reported to the handler
+     * @param length - number of commands, as reported to the handler
+     */
+    void execute(FleetStepper stepper, int slot, long start, int length);
+}
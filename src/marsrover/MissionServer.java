@@ -0,0 +1,395 @@
+package marsrover;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps a plateau and its fleet resident in one JVM and applies requests to
+ * them, so that a mission pays for JVM startup, class loading and JIT
+ * warm-up once instead of on every run.
+ *
+ * Requests and responses are single lines of text:
+ * <pre>
+ *   PLATEAU X Y       start over on an empty plateau with top-right (X, Y)
+ *                     -&gt; OK
+ *   DEPLOY x y D      deploy a rover facing D (N, E, S or W)
+ *                     -&gt; OK id
+ *   MOVE id CMDS      execute a batch of L, R and M commands on a rover,
+ *                     after the batches before it -&gt; x y D
+ *   POSITION id       -&gt; x y D
+ *   POSITIONS         -&gt; OK n, followed by the n rover positions in ID
+ *                     order, one per line
+ *   WITHIN x1 y1 x2 y2
+ *                     rovers inside the rectangle with corners (x1, y1)
+ *                     and (x2, y2) -&gt; OK n, then their n IDs in order
+ *   RADIUS x y r      rovers at most r cells from (x, y)
+ *                     -&gt; OK n, then their n IDs in order
+ *   NEAREST x y [k]   the k rovers nearest to (x, y), 1 by default
+ *                     -&gt; OK n, then their n IDs, nearest first
+ *   QUIT              close the connection
+ * </pre>
+ * A request that can't be applied gets "ERR" and a message, and changes
+ * nothing: a batch with an invalid command is rejected as a whole.
+ *
+ * Each client is served by its own thread, and every request is handed to
+ * a single writer thread that owns the plateau, the occupancy index and
+ * the fleet, so requests are applied one at a time in arrival order
+ * without any locking of the mission state. Command batches are executed
+ * as soon as they arrive, with each run of M resolved in one step, and are
+ * not kept. Region queries go through a FleetIndex that every move keeps
+ * up to date, so they don't scan the fleet.
+ *
+ * Usage: java marsrover.MissionServer [options]
+ *   --port N      listen on local port N instead of reading standard input
+ *   --mission F   start with the final state of mission file F
+ *
+ * @author Tempest
+ */
+public class MissionServer {
+
+    private static final ThreadFactory DAEMON = task -> {
+        Thread thread = new Thread(task, "marsrover-server");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /**
+     * Number of rovers the occupancy and spatial indexes of a new plateau
+     * are sized for.
+     */
+    private static final int EXPECTED_ROVERS = 1 << 16;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(DAEMON);
+    private Plateau plateau;
+    private Occupancy occupancy;
+    private FleetStore fleet;
+    private FleetStepper stepper;
+    private FleetIndex index;
+    private int[] found = new int[16];
+    private int foundCount;
+
+    /**
+     * Constructs a server without a plateau; the first request must be
+     * PLATEAU.
+     */
+    public MissionServer() {
+    }
+
+    /**
+     * Constructs a server holding a loaded mission.
+     *
+     * @param p - initialized Plateau object
+     * @param occupancy - occupancy index in sync with the fleet
+     * @param fleet - the deployed fleet
+     */
+    public MissionServer(Plateau p, Occupancy occupancy, FleetStore fleet) {
+        this.plateau = p;
+        this.occupancy = occupancy;
+        this.fleet = fleet;
+        this.stepper = new FleetStepper(p, occupancy, fleet);
+        this.index = new FleetIndex(p, fleet, Math.max(fleet.size(), EXPECTED_ROVERS));
+    }
+
+    /**
+     * Main method of the server.
+     *
+     * @param args - options, see the class description
+     */
+    public static void main(String[] args) {
+        int port = -1;
+        String missionFileName = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length && args[i + 1].matches("[0-9]{1,5}")) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--mission") && i + 1 < args.length) {
+                missionFileName = args[++i];
+            } else {
+                System.out.println("Unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        MissionServer server = new MissionServer();
+        if (missionFileName != null) {
+            try (MissionFile file = new MissionFile(new File(missionFileName))) {
+                MissionReader parser = MissionReader.open(file);
+                FleetLoader loader = new FleetLoader(file, parser);
+                parser.parse(loader);
+                MarsRover.moveRovers(loader.getPlateau(), loader.getRovers(), loader.getOccupancy());
+                server = new MissionServer(loader.getPlateau(), loader.getOccupancy(), loader.getFleet());
+            } catch (IOException e) {
+                System.out.println("Can't read file - " + e);
+                System.exit(1);
+            } catch (Plateau.InvalidSizeException | Rover.InvalidInputException
+                    | MissionParser.MalformedMissionException e) {
+                System.out.println("Exiting program now. Please try again.");
+                System.exit(1);
+            }
+        }
+
+        try {
+            if (port < 0) {
+                server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)),
+                        new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII)));
+            } else {
+                server.listen(port);
+            }
+        } catch (IOException e) {
+            System.out.println("Server stopped - " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Accepts clients on a local port, each served on its own thread, until
+     * the JVM is stopped.
+     *
+     * @param port - the port to listen on
+     * @throws IOException if the port can't be opened
+     */
+    public void listen(int port) throws IOException {
+        ExecutorService clients = Executors.newCachedThreadPool(DAEMON);
+        try (ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            while (true) {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                clients.execute(() -> {
+                    try (Socket s = client) {
+                        serve(new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII)),
+                                new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII)));
+                    } catch (IOException e) {
+                        // the client went away; nothing to clean up
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Serves one client until it sends QUIT or closes its input. Responses
+     * are flushed once the client has no more requests waiting, so a client
+     * can pipeline batches.
+     *
+     * @param in - requests from the client
+     * @param out - responses to the client
+     * @throws IOException if the client can't be read or written
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null && !line.trim().equalsIgnoreCase("QUIT")) {
+            out.write(request(line));
+            out.write('\n');
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Applies a request on the writer thread and waits for its response.
+     *
+     * @param line - the request
+     * @return the response, without the final line break
+     */
+    public String request(String line) {
+        try {
+            return writer.submit(() -> handle(line)).get();
+        } catch (ExecutionException e) {
+            return "ERR " + e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERR interrupted";
+        }
+    }
+
+    /**
+     * Applies a request. Must only be called on the writer thread.
+     */
+    private String handle(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        String verb = tokens[0].toUpperCase();
+        if (verb.equals("PLATEAU") && tokens.length == 3) {
+            int rightX = parse(tokens[1]);
+            int topY = parse(tokens[2]);
+            if (rightX < 0 || topY < 0) {
+                return "ERR Plateau top and right coordinates must be greater than 0!";
+            }
+            try {
+                plateau = new Plateau(rightX, topY);
+            } catch (Plateau.InvalidSizeException e) {
+                return "ERR " + e.getMessage();
+            }
+            occupancy = Occupancy.forPlateau(plateau, EXPECTED_ROVERS);
+            fleet = new FleetStore(16);
+            stepper = new FleetStepper(plateau, occupancy, fleet);
+            index = new FleetIndex(plateau, fleet, EXPECTED_ROVERS);
+            return "OK";
+        }
+        if (plateau == null) {
+            return "ERR No plateau; send PLATEAU X Y first.";
+        }
+        if (verb.equals("DEPLOY") && tokens.length == 4) {
+            int x = parse(tokens[1]);
+            int y = parse(tokens[2]);
+            byte heading = tokens[3].length() == 1 ? FleetStore.headingOf(tokens[3].toUpperCase().charAt(0)) : -1;
+            if (heading == -1) {
+                return "ERR Direction must be N, S, E, or W.";
+            }
+            if (x == -1 || y == -1 || !Rover.validLocation(x, y, plateau, occupancy)) {
+                return "ERR Could not deploy rover at " + tokens[1] + " " + tokens[2] + " " + tokens[3];
+            }
+            int slot = fleet.add(x, y, heading);
+            occupancy.occupy(x, y);
+            return "OK " + slot;
+        }
+        if (verb.equals("MOVE") && (tokens.length == 3 || tokens.length == 2)) {
+            int slot = slot(tokens[1]);
+            if (slot == -1) {
+                return "ERR No rover " + tokens[1];
+            }
+            String commands = tokens.length == 3 ? tokens[2] : "";
+            for (int i = 0; i < commands.length(); i++) {
+                char c = commands.charAt(i);
+                if (c != 'L' && c != 'R' && c != 'M') {
+                    return "ERR Movement command must be L, R, or M.";
+                }
+            }
+            execute(slot, commands);
+            return position(slot);
+        }
+        if (verb.equals("POSITION") && tokens.length == 2) {
+            int slot = slot(tokens[1]);
+            return slot == -1 ? "ERR No rover " + tokens[1] : position(slot);
+        }
+        if (verb.equals("POSITIONS") && tokens.length == 1) {
+            StringBuilder response = new StringBuilder(16 + fleet.size() * 12);
+            response.append("OK ").append(fleet.size());
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                response.append('\n').append(position(slot));
+            }
+            return response.toString();
+        }
+        if (verb.equals("WITHIN") && tokens.length == 5) {
+            int x1 = parse(tokens[1]);
+            int y1 = parse(tokens[2]);
+            int x2 = parse(tokens[3]);
+            int y2 = parse(tokens[4]);
+            if (x1 == -1 || y1 == -1 || x2 == -1 || y2 == -1) {
+                return "ERR Coordinates must be non-negative numbers.";
+            }
+            foundCount = 0;
+            index.rectangle(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2),
+                    this::collect);
+            Arrays.sort(found, 0, foundCount);
+            return ids(found, foundCount);
+        }
+        if (verb.equals("RADIUS") && tokens.length == 4) {
+            int x = parse(tokens[1]);
+            int y = parse(tokens[2]);
+            int radius = parse(tokens[3]);
+            if (x == -1 || y == -1 || radius == -1) {
+                return "ERR Coordinates and radius must be non-negative numbers.";
+            }
+            foundCount = 0;
+            index.radius(x, y, radius, this::collect);
+            Arrays.sort(found, 0, foundCount);
+            return ids(found, foundCount);
+        }
+        if (verb.equals("NEAREST") && (tokens.length == 3 || tokens.length == 4)) {
+            int x = parse(tokens[1]);
+            int y = parse(tokens[2]);
+            int k = tokens.length == 4 ? parse(tokens[3]) : 1;
+            if (x == -1 || y == -1 || k == -1) {
+                return "ERR Coordinates and count must be non-negative numbers.";
+            }
+            int[] nearest = new int[Math.min(k, fleet.size())];
+            return ids(nearest, index.nearest(x, y, nearest));
+        }
+        return "ERR Unknown request " + line.trim();
+    }
+
+    private void collect(int slot) {
+        if (foundCount == found.length) {
+            found = Arrays.copyOf(found, foundCount * 2);
+        }
+        found[foundCount++] = slot;
+    }
+
+    /**
+     * Formats the IDs of the rovers found by a query.
+     */
+    private static String ids(int[] slots, int count) {
+        StringBuilder response = new StringBuilder(16 + count * 8);
+        response.append("OK ").append(count);
+        for (int i = 0; i < count; i++) {
+            response.append(' ').append(slots[i]);
+        }
+        return response.toString();
+    }
+
+    /**
+     * Executes a validated batch, resolving each run of M in one step.
+     */
+    private void execute(int slot, String commands) {
+        int run = 0;
+        for (int i = 0; i < commands.length(); i++) {
+            char c = commands.charAt(i);
+            if (c == 'M') {
+                run++;
+            } else {
+                if (run > 0) {
+                    stepper.advance(slot, run);
+                    run = 0;
+                }
+                stepper.step(slot, c);
+            }
+        }
+        if (run > 0) {
+            stepper.advance(slot, run);
+        }
+    }
+
+    private String position(int slot) {
+        return fleet.getX(slot) + " " + fleet.getY(slot) + " " + FleetStore.directionOf(fleet.getHeading(slot));
+    }
+
+    private int slot(String token) {
+        int slot = parse(token);
+        return slot < fleet.size() ? slot : -1;
+    }
+
+    /**
+     * Parses a non-negative int without throwing.
+     *
+     * @return the value, or -1 if the token is not a non-negative int
+     */
+    private static int parse(String token) {
+        if (token.isEmpty() || token.length() > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+}
@@ -0,0 +1,180 @@
+package marsrover;
+
+import java.util.List;
+
+/**
+ * Index of the plateau cells currently occupied by rovers.
+ *
+ * Deployment and movement keep the index in sync with the rover positions so
+ * that collision checks take constant time. Two implementations exist: a
+ * dense bitmap for plateaus small enough to hold one bit per cell, and a
+ * sparse hash for huge plateaus with few rovers.
+ *
+ * @author Tempest
+ */
+public interface Occupancy {
+
+    /**
+     * Largest dense bitmap, in bytes, that is always acceptable regardless of
+     * the fleet size.
+     */
+    long DENSE_MIN_BYTES = 1L << 20;
+
+    /**
+     * Number of bitmap bytes per expected rover that the dense implementation
+     * may use before the sparse one is picked instead.
+     */
+    long DENSE_BYTES_PER_ROVER = 16;
+
+    /**
+     * Largest number of rovers the sparse implementation makes room for up
+     * front.
+     */
+    int SPARSE_INITIAL_ROVERS = 1 << 16;
+
+    /**
+     * Checks whether a rover is located at the given cell. The location must
+     * be within the plateau bounds.
+     *
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     * @return true if a rover occupies the location, otherwise false
+     */
+    boolean isOccupied(int x, int y);
+
+    /**
+     * Marks the given cell as occupied. The location must be within the
+     * plateau bounds.
+     *
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     */
+    void occupy(int x, int y);
+
+    /**
+     * Marks the given cell as free. The location must be within the plateau
+     * bounds.
+     *
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     */
+    void vacate(int x, int y);
+
+    /**
+     * Get the number of occupied cells.
+     *
+     * @return integer representing the number of occupied cells
+     */
+    int getOccupiedCount();
+
+    /**
+     * Casts a ray from a cell and counts the free cells in front of it.
+     *
+     * Cells are tested in order starting with (x + dx, y + dy). The caller
+     * must keep the whole ray within the plateau bounds.
+     *
+     * @param x - X coordinate of the starting cell
+     * @param y - Y coordinate of the starting cell
+     * @param dx - step along X, one of -1, 0 or 1
+     * @param dy - step along Y, one of -1, 0 or 1
+     * @param max - largest number of cells to test
+     * @return number of free cells before the first occupied one, at most max
+     */
+    default int freeRun(int x, int y, int dx, int dy, int max) {
+        int n = 0;
+        while (n < max && !isOccupied(x + dx * (n + 1), y + dy * (n + 1))) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Checks that no cell of a rectangle is occupied. The caller must keep
+     * the rectangle within the plateau bounds.
+     *
+     * @param minX - X coordinate of the left column
+     * @param minY - Y coordinate of the bottom row
+     * @param maxX - X coordinate of the right column
+     * @param maxY - Y coordinate of the top row
+     * @return true if every cell of the rectangle is free
+     */
+    default boolean isEmpty(int minX, int minY, int maxX, int maxY) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (isOccupied(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the work of isEmpty on a rectangle, in cell or word probes,
+     * so callers can tell whether the check is worth making.
+     *
+     * @param minX - X coordinate of the left column
+     * @param minY - Y coordinate of the bottom row
+     * @param maxX - X coordinate of the right column
+     * @param maxY - Y coordinate of the top row
+     * @return estimated number of probes
+     */
+    default long isEmptyCost(int minX, int minY, int maxX, int maxY) {
+        return ((long) maxX - minX + 1) * ((long) maxY - minY + 1);
+    }
+
+    /**
+     * Creates an empty occupancy index for the plateau, picking dense or
+     * sparse storage based on the plateau area and the expected fleet size,
+     * so that memory tracks the number of rovers rather than the map size.
+     * On a plateau with terrain the index also reports the impassable cells
+     * as occupied (see TerrainOccupancy).
+     *
+     * @param p - the initialized Plateau object
+     * @param expectedRovers - estimate of the number of rovers to be deployed
+     * @return empty occupancy index
+     */
+    static Occupancy forPlateau(Plateau p, long expectedRovers) {
+        Occupancy rovers;
+        if (expectedRovers >= denseFleetSize(p)) {
+            rovers = new OccupancyGrid(p);
+        } else {
+            // the estimate may be generous; the hash grows as rovers are added
+            rovers = new SparseOccupancy(p, (int) Math.min(expectedRovers, SPARSE_INITIAL_ROVERS));
+        }
+        return p.getTerrain() != null ? new TerrainOccupancy(rovers, p) : rovers;
+    }
+
+    /**
+     * Get the fleet size from which forPlateau picks dense storage for the
+     * plateau, so that a loader that can't tell the fleet size up front can
+     * start sparse and switch once the fleet gets there.
+     *
+     * @param p - the initialized Plateau object
+     * @return number of rovers, 0 if the plateau is small enough to be
+     * dense whatever the fleet
+     */
+    static long denseFleetSize(Plateau p) {
+        long denseBytes = ((p.getArea() + 63) >>> 6) * 8;
+        return denseBytes <= DENSE_MIN_BYTES ? 0
+                : (denseBytes + DENSE_BYTES_PER_ROVER - 1) / DENSE_BYTES_PER_ROVER;
+    }
+
+    /**
+     * Builds an occupancy index for the plateau and marks the location of
+     * every rover in the list that lies within the plateau bounds.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of Rover objects
+     * @return occupancy index in sync with the rover positions
+     */
+    static Occupancy of(Plateau p, List<Rover> roversList) {
+        Occupancy occupancy = forPlateau(p, roversList.size());
+        for (Rover r : roversList) {
+            if (p.contains(r.getX(), r.getY())) {
+                occupancy.occupy(r.getX(), r.getY());
+            }
+        }
+        return occupancy;
+    }
+}
@@ -0,0 +1,167 @@
+package marsrover;
+
+/**
+ * Dense occupancy index of the plateau cells currently occupied by rovers.
+ *
+ * Keeps one bit per plateau cell so that checking, occupying and vacating a
+ * cell all take constant time, instead of scanning the whole list of rovers.
+ * Deployment and movement are expected to keep the grid in sync with the
+ * rover positions.
+ *
+ * @author Tempest
+ */
+public class OccupancyGrid implements Occupancy {
+
+    private final int width;
+    private final long[] cells;
+    private int occupiedCount;
+
+    /**
+     * Constructs an empty occupancy grid covering the given plateau.
+     *
+     * @param p - the initialized Plateau object
+     * @throws IllegalArgumentException if the plateau has too many cells to be
+     * indexed with one bit per cell
+     */
+    public OccupancyGrid(Plateau p) {
+        this.width = p.getWidth();
+        long words = (p.getArea() + 63) >>> 6;
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Plateau is too large for an occupancy grid: "
+                    + p.getWidth() + "x" + p.getHeight());
+        }
+        this.cells = new long[(int) words];
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y) {
+        long bit = index(x, y);
+        return (cells[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public void occupy(int x, int y) {
+        long bit = index(x, y);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((cells[word] & mask) == 0) {
+            cells[word] |= mask;
+            occupiedCount++;
+        }
+    }
+
+    @Override
+    public void vacate(int x, int y) {
+        long bit = index(x, y);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((cells[word] & mask) != 0) {
+            cells[word] &= ~mask;
+            occupiedCount--;
+        }
+    }
+
+    @Override
+    public int getOccupiedCount() {
+        return occupiedCount;
+    }
+
+    /**
+     * Casts a ray from a cell and counts the free cells in front of it. Rays
+     * along a row are resolved 64 cells at a time, and rays along a column
+     * step through the bitmap one row pitch at a time.
+     */
+    @Override
+    public int freeRun(int x, int y, int dx, int dy, int max) {
+        if (max == 0) {
+            return 0;
+        }
+        if (dx == 0) {
+            return columnRun(index(x, y), dy * (long) width, max);
+        }
+        if (dy != 0) {
+            return Occupancy.super.freeRun(x, y, dx, dy, max);
+        }
+        long start = index(x, y);
+        long bit = dx > 0 ? nextSetBit(start + 1, start + max) : previousSetBit(start - 1, start - max);
+        return bit < 0 ? max : (int) Math.abs(bit - start) - 1;
+    }
+
+    /**
+     * Checks a rectangle one row at a time, 64 cells per probe.
+     */
+    @Override
+    public boolean isEmpty(int minX, int minY, int maxX, int maxY) {
+        for (int y = minY; y <= maxY; y++) {
+            if (nextSetBit(index(minX, y), index(maxX, y)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long isEmptyCost(int minX, int minY, int maxX, int maxY) {
+        return ((long) maxY - minY + 1) * ((((long) maxX - minX) >>> 6) + 1);
+    }
+
+    /**
+     * Counts the clear bits after a bit, stepping by the given stride.
+     */
+    private int columnRun(long bit, long stride, int max) {
+        for (int n = 0; n < max; n++) {
+            bit += stride;
+            if ((cells[(int) (bit >>> 6)] & (1L << bit)) != 0) {
+                return n;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Finds the lowest set bit in from..to, or -1 if there is none.
+     */
+    private long nextSetBit(long from, long to) {
+        int word = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long bits = cells[word] & (-1L << from);
+        while (true) {
+            if (word == last) {
+                bits &= -1L >>> (63 - (to & 63));
+            }
+            if (bits != 0) {
+                return ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (word == last) {
+                return -1;
+            }
+            bits = cells[++word];
+        }
+    }
+
+    /**
+     * Finds the highest set bit in to..from, going down, or -1 if there is
+     * none.
+     */
+    private long previousSetBit(long from, long to) {
+        int word = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long bits = cells[word] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (word == last) {
+                bits &= -1L << to;
+            }
+            if (bits != 0) {
+                return ((long) word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            if (word == last) {
+                return -1;
+            }
+            bits = cells[--word];
+        }
+    }
+
+    private long index(int x, int y) {
+        return (long) y * width + x;
+    }
+}
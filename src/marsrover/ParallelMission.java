@@ -0,0 +1,301 @@
+package marsrover;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Executes the rovers' move commands in parallel, with the same result as
+ * MarsRover.moveRovers.
+ *
+ * Turning never depends on collisions, so the headings a rover will have
+ * are known up front, and the number of M commands issued in each heading
+ * bounds how far the rover can get in each direction. Rovers whose
+ * reachable boxes overlap are grouped into one component; rovers in
+ * different components can never see each other, so components run
+ * concurrently on a ForkJoinPool while the rovers within a component still
+ * run one after the other in list order.
+ *
+ * @author Tempest
+ */
+public class ParallelMission {
+
+    /**
+     * Boxes spanning more grid buckets than this are checked against every
+     * other box instead of being bucketed.
+     */
+    private static final int MAX_BUCKETS_PER_BOX = 1024;
+
+    /**
+     * Components with fewer rovers than this are grouped into one task.
+     */
+    private static final int TASK_ROVERS = 4096;
+
+    private final Plateau plateau;
+    private final List<Rover> roversList;
+    private final int size;
+    private final int[] minX;
+    private final int[] maxX;
+    private final int[] minY;
+    private final int[] maxY;
+    private final int[] parent;
+    private int[] members;
+    private int[] componentStarts;
+
+    private ParallelMission(Plateau p, List<Rover> roversList) {
+        this.plateau = p;
+        this.roversList = roversList;
+        this.size = roversList.size();
+        this.minX = new int[size];
+        this.maxX = new int[size];
+        this.minY = new int[size];
+        this.maxY = new int[size];
+        this.parent = new int[size];
+    }
+
+    /**
+     * Execute rover movement commands on each rover in the roversList,
+     * running independent groups of rovers concurrently.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of deployed Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     * @param pool - the pool running the groups of rovers
+     */
+    public static void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy,
+            ForkJoinPool pool) {
+        ParallelMission mission = new ParallelMission(p, roversList);
+        mission.computeBoxes();
+        mission.groupComponents();
+        int[] startX = new int[mission.size];
+        int[] startY = new int[mission.size];
+        for (int i = 0; i < mission.size; i++) {
+            startX[i] = roversList.get(i).getX();
+            startY[i] = roversList.get(i).getY();
+        }
+        pool.invoke(mission.new ComponentsTask(0, mission.componentStarts.length - 1));
+
+        // bring the caller's occupancy index and the fleets' spatial indexes
+        // in sync with the final positions
+        for (int i = 0; i < mission.size; i++) {
+            occupancy.vacate(startX[i], startY[i]);
+        }
+        for (Rover rover : roversList) {
+            occupancy.occupy(rover.getX(), rover.getY());
+            rover.getFleet().reindex(rover.getSlot());
+        }
+    }
+
+    /**
+     * Computes the box each rover can reach, from the number of M commands
+     * issued in each heading, clipped to the plateau.
+     */
+    private void computeBoxes() {
+        long[] moves;
+        for (int i = 0; i < size; i++) {
+            Rover rover = roversList.get(i);
+            FleetStore fleet = rover.getFleet();
+            CommandPattern pattern = fleet.getPattern(rover.getSlot());
+            int heading = fleet.getHeading(rover.getSlot());
+            if (pattern != null) {
+                moves = pattern.moves(heading);
+            } else {
+                CommandArena commands = fleet.getCommands();
+                long start = fleet.getCommandStart(rover.getSlot());
+                int length = fleet.getCommandLength(rover.getSlot());
+                moves = new long[4];
+                for (int c = 0; c < length; c++) {
+                    int code = commands.get(start + c);
+                    if (code == CommandArena.CODE_MOVE) {
+                        moves[heading]++;
+                    } else if (code != CommandArena.CODE_INVALID) {
+                        // turn codes are quarter turns clockwise
+                        heading = (heading + code) & 3;
+                    }
+                }
+            }
+            int x = rover.getX();
+            int y = rover.getY();
+            minX[i] = (int) Math.max(0, x - moves[3]);
+            maxX[i] = (int) Math.min(plateau.getWidth() - 1, x + moves[1]);
+            minY[i] = (int) Math.max(0, y - moves[2]);
+            maxY[i] = (int) Math.min(plateau.getHeight() - 1, y + moves[0]);
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Joins rovers with overlapping boxes into components. Boxes are put in
+     * a uniform grid of buckets and boxes sharing a bucket are joined, which
+     * may join a few rovers that don't interact but never separates ones
+     * that do.
+     */
+    private void groupComponents() {
+        int[] extents = new int[size];
+        for (int i = 0; i < size; i++) {
+            extents[i] = Math.max(maxX[i] - minX[i], maxY[i] - minY[i]) + 1;
+        }
+        Arrays.sort(extents);
+        long bucket = size == 0 ? 1 : Math.max(1, 2L * extents[size / 2]);
+
+        BucketMap buckets = new BucketMap(size);
+        int[] huge = new int[16];
+        int hugeCount = 0;
+        for (int i = 0; i < size; i++) {
+            long bx0 = minX[i] / bucket;
+            long bx1 = maxX[i] / bucket;
+            long by0 = minY[i] / bucket;
+            long by1 = maxY[i] / bucket;
+            if ((bx1 - bx0 + 1) * (by1 - by0 + 1) > MAX_BUCKETS_PER_BOX) {
+                if (hugeCount == huge.length) {
+                    huge = Arrays.copyOf(huge, hugeCount * 2);
+                }
+                huge[hugeCount++] = i;
+                continue;
+            }
+            for (long bx = bx0; bx <= bx1; bx++) {
+                for (long by = by0; by <= by1; by++) {
+                    int other = buckets.putIfAbsent((bx << 32) | by, i);
+                    if (other != -1) {
+                        union(i, other);
+                    }
+                }
+            }
+        }
+        for (int h = 0; h < hugeCount; h++) {
+            int i = huge[h];
+            for (int j = 0; j < size; j++) {
+                if (minX[i] <= maxX[j] && minX[j] <= maxX[i] && minY[i] <= maxY[j] && minY[j] <= maxY[i]) {
+                    union(i, j);
+                }
+            }
+        }
+
+        // counting sort of the rovers by component, keeping list order within each
+        int[] offsets = new int[size + 1];
+        int componentCount = 0;
+        for (int i = 0; i < size; i++) {
+            int root = find(i);
+            parent[i] = root;
+            offsets[root + 1]++;
+            if (root == i) {
+                componentCount++;
+            }
+        }
+        componentStarts = new int[componentCount + 1];
+        int c = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+            if (parent[i] == i) {
+                componentStarts[c++] = offsets[i];
+            }
+        }
+        componentStarts[componentCount] = size;
+        members = new int[size];
+        for (int i = 0; i < size; i++) {
+            members[offsets[parent[i]]++] = i;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        // keep the lowest index as root so that roots are stable
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * Runs the rovers of one component in list order, on a plateau and
+     * occupancy index covering only the component's boxes and their part of
+     * the terrain.
+     */
+    private void runComponent(int component) {
+        int from = componentStarts[component];
+        int to = componentStarts[component + 1];
+        int left = Integer.MAX_VALUE;
+        int bottom = Integer.MAX_VALUE;
+        int right = 0;
+        int top = 0;
+        for (int m = from; m < to; m++) {
+            int i = members[m];
+            left = Math.min(left, minX[i]);
+            bottom = Math.min(bottom, minY[i]);
+            right = Math.max(right, maxX[i]);
+            top = Math.max(top, maxY[i]);
+        }
+        Plateau local;
+        try {
+            local = plateau.region(left, bottom, right, top);
+        } catch (Plateau.InvalidSizeException e) {
+            throw new IllegalStateException(e);
+        }
+        Occupancy occupancy = Occupancy.forPlateau(local, to - from);
+        FleetStore fleet = new FleetStore(to - from);
+        for (int m = from; m < to; m++) {
+            Rover rover = roversList.get(members[m]);
+            int x = rover.getX() - left;
+            int y = rover.getY() - bottom;
+            fleet.add(x, y, FleetStore.headingOf(rover.getDirection()));
+            occupancy.occupy(x, y);
+        }
+        FleetStepper stepper = new FleetStepper(local, occupancy, fleet);
+        for (int m = from; m < to; m++) {
+            Rover rover = roversList.get(members[m]);
+            int slot = m - from;
+            CommandPattern pattern = rover.getFleet().getPattern(rover.getSlot());
+            if (pattern != null) {
+                pattern.run(stepper, slot);
+            } else {
+                CommandProgram.compile(rover).run(stepper, slot);
+            }
+            FleetStore target = rover.getFleet();
+            target.x[rover.getSlot()] = fleet.x[slot] + left;
+            target.y[rover.getSlot()] = fleet.y[slot] + bottom;
+            target.heading[rover.getSlot()] = fleet.heading[slot];
+        }
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.progress(to - from);
+        }
+    }
+
+    /**
+     * Runs a range of components, splitting it while it holds many rovers.
+     */
+    private class ComponentsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ComponentsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && componentStarts[to] - componentStarts[from] > TASK_ROVERS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ComponentsTask(from, mid), new ComponentsTask(mid, to));
+            } else {
+                for (int c = from; c < to; c++) {
+                    runComponent(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package marsrover;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans move commands that take the rovers of a fleet to target cells.
+ *
+ * Each rover gets the cheapest program of L, R and M commands that reaches
+ * its target, where a move costs 1 and a turn costs the turn cost, 1 by
+ * default, so that with the default the program is also the shortest.
+ * Rovers run one after the other in slot order, as in MarsRover.moveRovers,
+ * so a rover plans around the plateau edges, the terrain, the rovers after
+ * it at their start cells and the rovers before it at their targets, and
+ * the programs can't be blocked when they are executed in order. A rover
+ * whose target can't be reached gets no program and stays where it is,
+ * which the rovers after it plan around.
+ *
+ * Each rover is an A* search over (cell, heading) states, guided by the
+ * Manhattan distance plus the turns still needed. The estimate is
+ * consistent, so the priority of the open states spans a few turn costs and
+ * the open set is a ring of buckets, one per priority, linked through int
+ * arrays. The states live in a primitive hash table keyed by cell. Both
+ * belong to the planning thread and are reused from rover to rover, so a
+ * search allocates only when it is larger than every search before it.
+ *
+ * Rovers are planned concurrently on a ForkJoinPool, each assuming that the
+ * rovers before it reach their targets. When one of them turns out not to,
+ * only the later rovers whose searches looked at its start or target cell
+ * are planned again, which gives the same programs as planning the rovers
+ * one at a time.
+ *
+ * Usage: java marsrover.PathPlanner [options] mission-file targets-file output-file
+ *   --turn-cost N  cost of a turn relative to a move, 1 by default
+ *   --terrain F    plan around the impassable cells of terrain map F
+ *
+ * The targets file has a line "x y" for each deployed rover, in ID order
+ * like the output of MarsRover, or "-" for a rover that should stay. The
+ * output file is the mission with the planned commands. A command line
+ * can't be empty, so a rover that stays gets the no-op "LR".
+ *
+ * @author Tempest
+ */
+public class PathPlanner {
+
+    /**
+     * Default largest number of states a search expands before the target
+     * is given up as unreachable.
+     */
+    public static final int DEFAULT_SEARCH_LIMIT = 1 << 22;
+
+    /**
+     * Largest cost of a turn relative to a move.
+     */
+    public static final int MAX_TURN_COST = 1000;
+
+    /**
+     * Rovers planned by one task before the work is split.
+     */
+    private static final int TASK_ROVERS = 64;
+
+    private final Plateau plateau;
+    private final FleetStore fleet;
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+    private int turnCost = 1;
+    private int searchLimit = DEFAULT_SEARCH_LIMIT;
+
+    private int[] targetX;
+    private int[] targetY;
+    private BucketMap starts;
+    private BucketMap targets;
+    private int[] sameTarget;
+    private long[] marks;
+    private int markMask;
+    private boolean[] reached;
+    private String[] programs;
+    private int[] boxes;
+
+    /**
+     * Constructs a planner for a deployed fleet.
+     *
+     * @param p - the plateau the fleet is deployed on, with its terrain if
+     * any
+     * @param fleet - the fleet, at the start poses to plan from
+     */
+    public PathPlanner(Plateau p, FleetStore fleet) {
+        this.plateau = p;
+        this.fleet = fleet;
+    }
+
+    /**
+     * Set the cost of a turn relative to a move.
+     *
+     * @param turnCost - cost of an L or R command, from 0 to MAX_TURN_COST
+     */
+    public void setTurnCost(int turnCost) {
+        if (turnCost < 0 || turnCost > MAX_TURN_COST) {
+            throw new IllegalArgumentException("Turn cost must be from 0 to " + MAX_TURN_COST + ": " + turnCost);
+        }
+        this.turnCost = turnCost;
+    }
+
+    /**
+     * Set the largest number of states a search expands before the target
+     * is given up as unreachable, which bounds the time spent on targets
+     * walled in on a large plateau.
+     *
+     * @param searchLimit - number of states, at least 1
+     */
+    public void setSearchLimit(int searchLimit) {
+        this.searchLimit = Math.max(searchLimit, 1);
+    }
+
+    /**
+     * Plans the programs of the fleet. The fleet is not changed; the
+     * programs are meant for Rover.setMoveCommands.
+     *
+     * @param targetX - X coordinate of the target of each slot, or -1 for a
+     * rover that stays
+     * @param targetY - Y coordinate of the target of each slot
+     * @param pool - the pool planning rovers concurrently, or null to plan
+     * on the calling thread
+     * @return the program of each slot, or null for a rover that stays or
+     * can't reach its target
+     */
+    public String[] plan(int[] targetX, int[] targetY, ForkJoinPool pool) {
+        int size = fleet.size();
+        this.targetX = targetX;
+        this.targetY = targetY;
+        starts = new BucketMap(size);
+        targets = new BucketMap(size);
+        sameTarget = new int[size];
+        reached = new boolean[size];
+        programs = new String[size];
+        boxes = new int[4 * size];
+        Arrays.fill(sameTarget, -1);
+        int bits = 64;
+        while (bits < 16L * size && bits < (1 << 30)) {
+            bits <<= 1;
+        }
+        marks = new long[bits >>> 6];
+        markMask = bits - 1;
+        for (int slot = 0; slot < size; slot++) {
+            starts.putIfAbsent(cell(fleet.x[slot], fleet.y[slot]), slot);
+            mark(cell(fleet.x[slot], fleet.y[slot]));
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (hasTarget(slot)) {
+                mark(cell(targetX[slot], targetY[slot]));
+                int first = targets.putIfAbsent(cell(targetX[slot], targetY[slot]), slot);
+                if (first != -1) {
+                    while (sameTarget[first] != -1) {
+                        first = sameTarget[first];
+                    }
+                    sameTarget[first] = slot;
+                }
+            }
+        }
+        // assume every rover gets there unless its target is taken for good
+        // or by a rover before it
+        for (int slot = 0; slot < size; slot++) {
+            if (hasTarget(slot)) {
+                int x = targetX[slot];
+                int y = targetY[slot];
+                int owner = plateau.contains(x, y) ? starts.get(cell(x, y)) : -1;
+                reached[slot] = plateau.contains(x, y) && !plateau.isBlocked(x, y)
+                        && (owner == -1 || owner == slot || owner < slot && reached[owner]);
+                for (int other = targets.get(cell(x, y)); other != -1 && other < slot; other = sameTarget[other]) {
+                    reached[slot] &= !reached[other];
+                }
+            }
+        }
+
+        int[] pending = new int[size];
+        int pendingCount = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (hasTarget(slot)) {
+                pending[pendingCount++] = slot;
+            }
+        }
+        int settled = 0;
+        while (true) {
+            if (pool != null && pendingCount > TASK_ROVERS) {
+                pool.invoke(new PlanTask(pending, 0, pendingCount));
+            } else {
+                for (int i = 0; i < pendingCount; i++) {
+                    planRover(pending[i]);
+                }
+            }
+            pendingCount = 0;
+            int changed = -1;
+            for (int slot = settled; slot < size; slot++) {
+                if (hasTarget(slot) && (programs[slot] != null) != reached[slot]) {
+                    changed = slot;
+                    break;
+                }
+            }
+            if (changed == -1) {
+                return programs;
+            }
+            // the rover stays at its start instead of reaching its target, or
+            // the other way round; replan the later searches that saw either
+            reached[changed] = !reached[changed];
+            settled = changed + 1;
+            for (int slot = settled; slot < size; slot++) {
+                if (hasTarget(slot) && (sees(slot, fleet.x[changed], fleet.y[changed])
+                        || sees(slot, targetX[changed], targetY[changed]))) {
+                    pending[pendingCount++] = slot;
+                }
+            }
+        }
+    }
+
+    private boolean hasTarget(int slot) {
+        return targetX[slot] >= 0;
+    }
+
+    private static long cell(int x, int y) {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Marks a start or target cell in a bit set that clears most cells
+     * without a lookup in the maps.
+     */
+    private void mark(long cell) {
+        int bit = markBit(cell);
+        marks[bit >>> 6] |= 1L << bit;
+    }
+
+    private int markBit(long cell) {
+        return (int) ((cell * 0x9E3779B97F4A7C15L) >>> 29) & markMask;
+    }
+
+    /**
+     * Checks whether the last search of a rover looked at a cell.
+     */
+    private boolean sees(int slot, int x, int y) {
+        int b = 4 * slot;
+        return x >= boxes[b] && y >= boxes[b + 1] && x <= boxes[b + 2] && y <= boxes[b + 3];
+    }
+
+    private void planRover(int slot) {
+        Search search = searches.get();
+        programs[slot] = search.run(slot);
+        int b = 4 * slot;
+        boxes[b] = search.minX;
+        boxes[b + 1] = search.minY;
+        boxes[b + 2] = search.maxX;
+        boxes[b + 3] = search.maxY;
+    }
+
+    /**
+     * Checks whether a cell is taken when a rover runs: off the plateau,
+     * impassable, or holding another rover at that time.
+     */
+    private boolean blocked(int slot, int x, int y) {
+        if (!plateau.contains(x, y) || plateau.isBlocked(x, y)) {
+            return true;
+        }
+        long cell = cell(x, y);
+        int bit = markBit(cell);
+        if ((marks[bit >>> 6] & 1L << bit) == 0) {
+            return false;
+        }
+        int owner = starts.get(cell);
+        if (owner != -1 && owner != slot && (owner > slot || !reached[owner])) {
+            return true;
+        }
+        for (int other = targets.get(cell); other != -1 && other < slot; other = sameTarget[other]) {
+            if (reached[other]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plans a range of the pending rovers, splitting it while it is large.
+     */
+    private class PlanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] pending;
+        private final int from;
+        private final int to;
+
+        PlanTask(int[] pending, int from, int to) {
+            this.pending = pending;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > TASK_ROVERS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PlanTask(pending, from, mid), new PlanTask(pending, mid, to));
+            } else {
+                for (int i = from; i < to; i++) {
+                    planRover(pending[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Search buffers of one planning thread. A state is a cell and a
+     * heading, and the four states of a cell are numbered together, so a
+     * turn finds its state without a lookup. The hash table maps a packed
+     * cell to its number and the open queue holds state numbers.
+     */
+    private class Search {
+
+        private long[] cellKey = new long[256];
+        private int cells;
+        private long[] stateCost = new long[1024];
+        private int[] stateParent = new int[1024];
+        private boolean[] stateClosed = new boolean[1024];
+
+        private long[] tableKeys = new long[512];
+        private int[] tableCells = new int[512];
+        private int[] tableStamps = new int[512];
+        private int stamp;
+
+        private int[] bucketHead = new int[0];
+        private int bucketMask;
+        private long lowest;
+        private int[] entryState = new int[1024];
+        private int[] entryNext = new int[1024];
+        private int entries;
+        private int open;
+
+        private char[] path = new char[256];
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+
+        /**
+         * Searches the cheapest program of a rover.
+         *
+         * @return the program, or null if the target can't be reached
+         */
+        String run(int slot) {
+            int startX = fleet.x[slot];
+            int startY = fleet.y[slot];
+            int goalX = targetX[slot];
+            int goalY = targetY[slot];
+            minX = maxX = startX;
+            minY = maxY = startY;
+            if (!plateau.contains(startX, startY)) {
+                return null;
+            }
+            if (startX == goalX && startY == goalY) {
+                return "";
+            }
+            if (isBlocked(slot, goalX, goalY)) {
+                return null;
+            }
+            cells = 0;
+            entries = 0;
+            open = 0;
+            // a step raises the priority by at most 3 turn costs plus 2, so
+            // the open states fit in a window of buckets from the lowest
+            int window = Integer.highestOneBit(3 * turnCost + 2) << 1;
+            if (bucketHead.length != window) {
+                bucketHead = new int[window];
+                bucketMask = window - 1;
+            }
+            Arrays.fill(bucketHead, -1);
+            if (++stamp == 0) {
+                Arrays.fill(tableStamps, 0);
+                stamp = 1;
+            }
+            int start = 4 * cellOf(startX, startY) + fleet.heading[slot];
+            lowest = estimate(startX, startY, fleet.heading[slot], goalX, goalY);
+            relax(-1, start, 0, lowest);
+            int expanded = 0;
+            while (open > 0) {
+                int state = pop();
+                if (stateClosed[state]) {
+                    continue;
+                }
+                stateClosed[state] = true;
+                long key = cellKey[state >>> 2];
+                int x = (int) (key >>> 32);
+                int y = (int) key;
+                int h = state & 3;
+                if (x == goalX && y == goalY) {
+                    return program(state);
+                }
+                if (++expanded > searchLimit) {
+                    return null;
+                }
+                long cost = stateCost[state];
+                int left = FleetStepper.LEFT[h];
+                int right = FleetStepper.RIGHT[h];
+                relax(state, (state & ~3) + left, cost + turnCost, estimate(x, y, left, goalX, goalY));
+                relax(state, (state & ~3) + right, cost + turnCost, estimate(x, y, right, goalX, goalY));
+                int newX = x + FleetStepper.DX[h];
+                int newY = y + FleetStepper.DY[h];
+                if (!isBlocked(slot, newX, newY)) {
+                    relax(state, 4 * cellOf(newX, newY) + h, cost + 1, estimate(newX, newY, h, goalX, goalY));
+                }
+            }
+            return null;
+        }
+
+        private boolean isBlocked(int slot, int x, int y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            return blocked(slot, x, y);
+        }
+
+        /**
+         * Reaches a state at a cost, keeping the cheaper of the known and
+         * the new way there.
+         */
+        private void relax(int parent, int state, long cost, long estimate) {
+            if (stateClosed[state] || stateCost[state] <= cost) {
+                return;
+            }
+            stateCost[state] = cost;
+            stateParent[state] = parent;
+            push(cost + estimate, state);
+        }
+
+        /**
+         * Lower bound of the cost to the goal: the Manhattan distance plus
+         * the turns needed to face every direction the goal lies in. Moves
+         * never lower the number of turns needed, so the bound is consistent
+         * and a closed state is never reached more cheaply later.
+         */
+        private long estimate(int x, int y, int h, int goalX, int goalY) {
+            long dx = (long) goalX - x;
+            long dy = (long) goalY - y;
+            int across = dx > 0 ? 1 : dx < 0 ? 3 : -1;
+            int along = dy > 0 ? 0 : dy < 0 ? 2 : -1;
+            int turns;
+            if (across == -1 && along == -1) {
+                turns = 0;
+            } else if (across == -1 || along == -1) {
+                int quarter = (h - Math.max(across, along)) & 3;
+                turns = quarter == 0 ? 0 : quarter == 2 ? 2 : 1;
+            } else {
+                turns = h == across || h == along ? 1 : 2;
+            }
+            return Math.abs(dx) + Math.abs(dy) + (long) turnCost * turns;
+        }
+
+        private String program(int state) {
+            int length = 0;
+            for (int s = state; stateParent[s] != -1; s = stateParent[s]) {
+                length++;
+            }
+            if (path.length < length) {
+                path = new char[Math.max(length, path.length * 2)];
+            }
+            int i = length;
+            for (int s = state; stateParent[s] != -1; s = stateParent[s]) {
+                int parent = stateParent[s];
+                if (s >>> 2 != parent >>> 2) {
+                    path[--i] = 'M';
+                } else if ((s & 3) == FleetStepper.RIGHT[parent & 3]) {
+                    path[--i] = 'R';
+                } else {
+                    path[--i] = 'L';
+                }
+            }
+            return new String(path, 0, length);
+        }
+
+        /**
+         * Get the number of a cell, adding the cell and its four unreached
+         * states on first sight.
+         */
+        private int cellOf(int x, int y) {
+            long key = cell(x, y);
+            int mask = tableKeys.length - 1;
+            int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+            while (tableStamps[i] == stamp) {
+                if (tableKeys[i] == key) {
+                    return tableCells[i];
+                }
+                i = (i + 1) & mask;
+            }
+            if (cells == cellKey.length) {
+                int capacity = cells * 2;
+                cellKey = Arrays.copyOf(cellKey, capacity);
+                stateCost = Arrays.copyOf(stateCost, 4 * capacity);
+                stateParent = Arrays.copyOf(stateParent, 4 * capacity);
+                stateClosed = Arrays.copyOf(stateClosed, 4 * capacity);
+            }
+            int c = cells++;
+            cellKey[c] = key;
+            Arrays.fill(stateCost, 4 * c, 4 * c + 4, Long.MAX_VALUE);
+            Arrays.fill(stateClosed, 4 * c, 4 * c + 4, false);
+            if (2 * cells > tableKeys.length) {
+                tableKeys = new long[tableKeys.length * 2];
+                tableCells = new int[tableKeys.length];
+                tableStamps = new int[tableKeys.length];
+                stamp = 1;
+                for (int other = 0; other < cells; other++) {
+                    insert(cellKey[other], other);
+                }
+            } else {
+                tableKeys[i] = key;
+                tableCells[i] = c;
+                tableStamps[i] = stamp;
+            }
+            return c;
+        }
+
+        private void insert(long key, int c) {
+            int mask = tableKeys.length - 1;
+            int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+            while (tableStamps[i] == stamp) {
+                i = (i + 1) & mask;
+            }
+            tableKeys[i] = key;
+            tableCells[i] = c;
+            tableStamps[i] = stamp;
+        }
+
+        /**
+         * Adds a state to the open queue. States of equal priority come out
+         * last in, first out, which follows the latest path deeper first.
+         */
+        private void push(long priority, int state) {
+            if (entries == entryState.length) {
+                entryState = Arrays.copyOf(entryState, entries * 2);
+                entryNext = Arrays.copyOf(entryNext, entries * 2);
+            }
+            int bucket = (int) priority & bucketMask;
+            int e = entries++;
+            entryState[e] = state;
+            entryNext[e] = bucketHead[bucket];
+            bucketHead[bucket] = e;
+            open++;
+        }
+
+        private int pop() {
+            while (bucketHead[(int) lowest & bucketMask] == -1) {
+                lowest++;
+            }
+            int bucket = (int) lowest & bucketMask;
+            int e = bucketHead[bucket];
+            bucketHead[bucket] = entryNext[e];
+            open--;
+            return entryState[e];
+        }
+    }
+
+    /**
+     * Main method planning a mission from the command line.
+     *
+     * @param args - options, mission file name, targets file name and output
+     * file name
+     */
+    public static void main(String[] args) {
+        int turnCost = 1;
+        String terrainFileName = null;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            if (args[i].equals("--turn-cost") && i + 1 < args.length && args[i + 1].matches("[0-9]{1,4}")
+                    && Integer.parseInt(args[i + 1]) <= MAX_TURN_COST) {
+                turnCost = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--terrain") && i + 1 < args.length) {
+                terrainFileName = args[++i];
+            } else {
+                System.out.println("Unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+        if (args.length - i != 3) {
+            System.out.println("Usage: java marsrover.PathPlanner [options] mission-file targets-file output-file");
+            System.exit(1);
+        }
+
+        try (MissionFile file = new MissionFile(new File(args[i]));
+                TerrainMap terrain = terrainFileName == null ? null : TerrainMap.open(new File(terrainFileName))) {
+            MissionReader parser = MissionReader.open(file);
+            FleetLoader loader = new FleetLoader(file, parser);
+            loader.setTerrain(terrain);
+            parser.parse(loader);
+            FleetStore fleet = loader.getFleet();
+            int[] targetX = new int[fleet.size()];
+            int[] targetY = new int[fleet.size()];
+            readTargets(new File(args[i + 1]), targetX, targetY);
+
+            PathPlanner planner = new PathPlanner(loader.getPlateau(), fleet);
+            planner.setTurnCost(turnCost);
+            String[] programs = planner.plan(targetX, targetY, ForkJoinPool.commonPool());
+            for (int slot = 0; slot < programs.length; slot++) {
+                if (targetX[slot] >= 0 && programs[slot] == null) {
+                    System.out.println("No path for rover " + slot + " to " + targetX[slot] + " " + targetY[slot]);
+                }
+            }
+            writeMission(loader.getPlateau(), fleet, programs, new File(args[i + 2]));
+        } catch (IOException e) {
+            System.out.println("Can't plan mission - " + e);
+            System.exit(1);
+        } catch (Plateau.InvalidSizeException | Rover.InvalidInputException
+                | MissionParser.MalformedMissionException e) {
+            System.out.println("Exiting program now. Please try again.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads one target line per rover; rovers without a line stay.
+     */
+    private static void readTargets(File file, int[] targetX, int[] targetY) throws IOException {
+        Arrays.fill(targetX, -1);
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            int slot = 0;
+            while ((line = in.readLine()) != null && slot < targetX.length) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length == 1 && tokens[0].equals("-")) {
+                    slot++;
+                } else if (tokens.length == 2 && tokens[0].matches("[0-9]{1,9}") && tokens[1].matches("[0-9]{1,9}")) {
+                    targetX[slot] = Integer.parseInt(tokens[0]);
+                    targetY[slot] = Integer.parseInt(tokens[1]);
+                    slot++;
+                } else if (!line.trim().isEmpty()) {
+                    throw new IOException("Target of rover " + slot + " must be \"x y\" or \"-\": " + line);
+                }
+            }
+        }
+    }
+
+    private static void writeMission(Plateau p, FleetStore fleet, String[] programs, File output)
+            throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(output))) {
+            out.write((p.getWidth() - 1) + " " + (p.getHeight() - 1) + "\n");
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                String program = programs[slot];
+                out.write(fleet.getX(slot) + " " + fleet.getY(slot) + " "
+                        + FleetStore.directionOf(fleet.getHeading(slot)) + "\n");
+                out.write(program == null || program.isEmpty() ? "LR" : program);
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -8,6 +8,9 @@ public class Plateau {
 
     private int plateauWidth;
     private int plateauHeight;
+    private TerrainMap terrain;
+    private int terrainX;
+    private int terrainY;
 
     /**
      * Constructs the Plateau object.
@@ -50,13 +53,92 @@ public class Plateau {
         return this.plateauHeight;
     }
 
+    /**
+     * Checks whether the location lies within the bounds of the plateau.
+     * 
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     * @return true if the location is on the plateau, otherwise false
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < plateauWidth && y < plateauHeight;
+    }
+
+    /**
+     * Get the number of cells of the plateau.
+     * 
+     * @return long representing width times height of the plateau
+     */
+    public long getArea() {
+        return (long) plateauWidth * plateauHeight;
+    }
+
+    /**
+     * Set the impassable cells of the plateau. The cell (x, y) of the
+     * plateau is the cell (x, y) of the map.
+     * 
+     * @param terrain - the terrain map, or null for open ground everywhere
+     */
+    public void setTerrain(TerrainMap terrain) {
+        this.terrain = terrain;
+        this.terrainX = 0;
+        this.terrainY = 0;
+    }
+
+    /**
+     * Get the impassable cells of the plateau.
+     * 
+     * @return the TerrainMap object, or null if there is no terrain
+     */
+    public TerrainMap getTerrain() {
+        return terrain;
+    }
+
+    int getTerrainX() {
+        return terrainX;
+    }
+
+    int getTerrainY() {
+        return terrainY;
+    }
+
+    /**
+     * Checks whether the terrain makes a location impassable.
+     * 
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     * @return true if the terrain blocks the location, otherwise false
+     */
+    public boolean isBlocked(int x, int y) {
+        return terrain != null && terrain.isBlocked(x + terrainX, y + terrainY);
+    }
+
+    /**
+     * Get a plateau covering a rectangle of this one, with its bottom left
+     * cell as (0, 0) and the matching part of the terrain.
+     * 
+     * @param left - X coordinate of the left column
+     * @param bottom - Y coordinate of the bottom row
+     * @param right - X coordinate of the right column
+     * @param top - Y coordinate of the top row
+     * @return the Plateau object of the rectangle
+     * @throws marsrover.Plateau.InvalidSizeException if the rectangle is empty
+     */
+    Plateau region(int left, int bottom, int right, int top) throws InvalidSizeException {
+        Plateau region = new Plateau(right - left, top - bottom);
+        region.terrain = terrain;
+        region.terrainX = terrainX + left;
+        region.terrainY = terrainY + bottom;
+        return region;
+    }
+
     /**
      * Exception handler for invalid plateau size (negative dimension(s)).
      * 
      */
     public static class InvalidSizeException extends Exception {
         public InvalidSizeException(String message) {
-            System.out.println(message);
+            MessageStream.get().println(message);
         }
     }
 }
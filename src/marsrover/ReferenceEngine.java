@@ -0,0 +1,45 @@
+package marsrover;
+
+import java.util.List;
+
+/**
+ * Executes the rovers' move commands the simplest way, one command at a
+ * time, as the other engines must.
+ *
+ * Each rover runs all of its commands in list order through
+ * Rover.executeMovementCommands, which checks every move against the
+ * plateau, its terrain and the position of every rover in the list. There
+ * are no runs of M resolved at once, no folded turns, no repeat groups
+ * skipped and no occupancy index in the collision checks, so nothing the
+ * faster engines do to go fast takes part. The cost is a pass over the
+ * rovers for each M command, which keeps this engine to the missions of
+ * tests and EngineFuzzer.
+ *
+ * @author Tempest
+ */
+public class ReferenceEngine implements MissionEngine {
+
+    /**
+     * Execute the movement commands of each rover in the roversList, then
+     * bring the occupancy index in sync with the rover's final position.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of deployed Rover objects
+     * @param occupancy - occupancy index in sync with the roversList
+     */
+    @Override
+    public void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy) {
+        for (Rover rover : roversList) {
+            int x = rover.getX();
+            int y = rover.getY();
+            rover.executeMovementCommands(p, roversList);
+            if (rover.getX() != x || rover.getY() != y) {
+                occupancy.vacate(x, y);
+                occupancy.occupy(rover.getX(), rover.getY());
+            }
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.progress(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes final rover positions through one reusable byte buffer.
+ *
+ * Positions are formatted straight into the buffer, with no String per
+ * rover, and the buffer goes to the target in large blocks. The target is
+ * either an OutputStream, such as System.out, or a channel, such as a
+ * FileChannel.
+ *
+ * Two formats exist. TEXT gives the same lines as Rover.getPosition(),
+ * "x y D", one per rover. BINARY starts with the four bytes "MRRS" and an
+ * int version number (1). Then comes one 13-byte record per rover: int ID,
+ * int x, int y, and a heading byte (0 to 3 for N, E, S, W). Ints are
+ * big-endian, as read by DataInputStream.
+ *
+ * @author Tempest
+ */
+public class ResultWriter implements Flushable, Closeable {
+
+    /**
+     * Output formats.
+     */
+    public enum Format {
+        TEXT, BINARY
+    }
+
+    /**
+     * First bytes of a binary result file.
+     */
+    public static final byte[] MAGIC = {'M', 'R', 'R', 'S'};
+
+    /**
+     * Version of the binary format written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of one rover record in the binary format, in bytes.
+     */
+    public static final int RECORD_BYTES = 13;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Longest text line: two ints with signs, a direction and the separators.
+     */
+    private static final int MAX_LINE_BYTES = 32;
+
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DIRECTIONS = {'N', 'E', 'S', 'W'};
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+
+    /**
+     * Constructs a writer on a stream. Closing the writer flushes it but
+     * leaves the stream open, so that System.out can be used.
+     *
+     * @param stream - the stream to write to
+     * @param format - the output format
+     * @throws IOException if the header can't be written
+     */
+    public ResultWriter(OutputStream stream, Format format) throws IOException {
+        this.stream = stream;
+        this.channel = null;
+        this.format = format;
+        writeHeader();
+    }
+
+    /**
+     * Constructs a writer on a channel. Closing the writer flushes it and
+     * closes the channel.
+     *
+     * @param channel - the channel to write to
+     * @param format - the output format
+     * @throws IOException if the header can't be written
+     */
+    public ResultWriter(WritableByteChannel channel, Format format) throws IOException {
+        this.stream = null;
+        this.channel = channel;
+        this.format = format;
+        writeHeader();
+    }
+
+    /**
+     * Writes the position of one rover.
+     *
+     * @param id - ID of the rover
+     * @param x - X coordinate of the rover
+     * @param y - Y coordinate of the rover
+     * @param heading - heading of the rover, 0 to 3 for N, E, S, W
+     * @throws IOException if the buffer can't be flushed
+     */
+    public void write(int id, int x, int y, byte heading) throws IOException {
+        if (pos > BUFFER_SIZE - MAX_LINE_BYTES) {
+            flushBuffer();
+        }
+        if (format == Format.BINARY) {
+            putInt(id);
+            putInt(x);
+            putInt(y);
+            buffer[pos++] = heading;
+        } else {
+            putDecimal(x);
+            buffer[pos++] = ' ';
+            putDecimal(y);
+            buffer[pos++] = ' ';
+            buffer[pos++] = DIRECTIONS[heading];
+            for (byte b : NEWLINE) {
+                buffer[pos++] = b;
+            }
+        }
+    }
+
+    /**
+     * Writes the positions of every rover in a list.
+     *
+     * @param roversList - list of Rover objects
+     * @throws IOException if the buffer can't be flushed
+     */
+    public void write(List<Rover> roversList) throws IOException {
+        for (int i = 0; i < roversList.size(); i++) {
+            Rover rover = roversList.get(i);
+            FleetStore fleet = rover.getFleet();
+            int slot = rover.getSlot();
+            write(rover.getId(), fleet.x[slot], fleet.y[slot], fleet.heading[slot]);
+        }
+    }
+
+    /**
+     * Writes the positions of every rover in a fleet store, using the slot
+     * as ID.
+     *
+     * @param fleet - the FleetStore holding the rovers
+     * @throws IOException if the buffer can't be flushed
+     */
+    public void write(FleetStore fleet) throws IOException {
+        for (int slot = 0; slot < fleet.size(); slot++) {
+            write(slot, fleet.x[slot], fleet.y[slot], fleet.heading[slot]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (format == Format.BINARY) {
+            System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+            pos = MAGIC.length;
+            putInt(VERSION);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos == 0) {
+            return;
+        }
+        if (stream != null) {
+            stream.write(buffer, 0, pos);
+        } else {
+            ByteBuffer block = ByteBuffer.wrap(buffer, 0, pos);
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        }
+        pos = 0;
+    }
+
+    private void putInt(int value) {
+        buffer[pos++] = (byte) (value >>> 24);
+        buffer[pos++] = (byte) (value >>> 16);
+        buffer[pos++] = (byte) (value >>> 8);
+        buffer[pos++] = (byte) value;
+    }
+
+    private void putDecimal(int value) {
+        long v = value;
+        if (v < 0) {
+            buffer[pos++] = '-';
+            v = -v;
+        }
+        // write the digits backwards after counting them
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            digits++;
+        }
+        pos += digits;
+        int at = pos;
+        do {
+            buffer[--at] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+    }
+}
@@ -0,0 +1,275 @@
+package marsrover;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the rovers of a loaded mission one after another, like
+ * MarsRover.moveRovers, while periodically saving a Checkpoint of the fleet
+ * so that an interrupted mission can be resumed where it stopped.
+ *
+ * Every rover has a command cursor, the number of its move commands already
+ * executed. Long command strings are executed in chunks, so a checkpoint can
+ * fall in the middle of a rover. Commands with repeat groups run in one go
+ * through their CommandPattern, and the cursor of such a rover only goes
+ * from 0 to 1. Between chunks the clock is checked and,
+ * once the interval has passed, the positions, headings and cursors are
+ * copied into a snapshot buffer that a background thread writes to disk
+ * while the rovers keep moving. The copy is the only pause; if the previous
+ * snapshot is still being written the checkpoint is put off until the next
+ * check. The snapshot file is removed once every rover has finished.
+ *
+ * @author Tempest
+ */
+public class ResumableMission {
+
+    /**
+     * Default time between checkpoints, in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = 60000;
+
+    /**
+     * Number of move commands executed between two looks at the clock.
+     */
+    static final int CHUNK = 1 << 16;
+
+    private final FleetLoader loader;
+    private final File checkpointFile;
+    private final long intervalNanos;
+    private final int[] cursor;
+    private final ExecutorService writer;
+    private Checkpoint snapshot;
+    private Future<?> pending;
+    int chunk = CHUNK;
+
+    /**
+     * Constructs a mission that saves checkpoints to the given file.
+     *
+     * @param loader - the FleetLoader that has parsed the mission
+     * @param checkpointFile - the snapshot file
+     * @param intervalMillis - time between checkpoints, in milliseconds
+     */
+    public ResumableMission(FleetLoader loader, File checkpointFile, long intervalMillis) {
+        this.loader = loader;
+        this.checkpointFile = checkpointFile;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.cursor = new int[loader.getFleet().size()];
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "marsrover-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores the fleet from the checkpoint file, if there is one. The
+     * snapshot must have been taken from the same mission.
+     *
+     * @return true if the fleet was restored, false if there is no
+     * checkpoint file
+     * @throws IOException if the checkpoint can't be read, or belongs to
+     * another mission
+     */
+    public boolean resume() throws IOException {
+        if (!checkpointFile.exists()) {
+            return false;
+        }
+        Checkpoint saved = Checkpoint.read(checkpointFile);
+        Plateau p = loader.getPlateau();
+        FleetStore fleet = loader.getFleet();
+        if (saved.rightX != p.getWidth() - 1 || saved.topY != p.getHeight() - 1
+                || saved.missionSize != loader.getFile().size() || saved.size() != fleet.size()) {
+            throw new IOException("Checkpoint " + checkpointFile + " was not taken from this mission");
+        }
+        for (int slot = 0; slot < saved.size(); slot++) {
+            if (saved.cursor[slot] < 0 || saved.cursor[slot] > cursorEnd(fleet, slot)
+                    || (saved.heading[slot] & ~3) != 0 || !p.contains(saved.x[slot], saved.y[slot])) {
+                throw new IOException("Corrupt mission checkpoint: " + checkpointFile);
+            }
+        }
+
+        Occupancy occupancy = loader.getOccupancy();
+        for (int slot = 0; slot < fleet.size(); slot++) {
+            occupancy.vacate(fleet.x[slot], fleet.y[slot]);
+        }
+        for (int slot = 0; slot < fleet.size(); slot++) {
+            fleet.moveTo(slot, saved.x[slot], saved.y[slot]);
+            fleet.heading[slot] = saved.heading[slot];
+            cursor[slot] = saved.cursor[slot];
+            occupancy.occupy(saved.x[slot], saved.y[slot]);
+        }
+        // the restored snapshot becomes the buffer of the next one
+        snapshot = saved;
+        return true;
+    }
+
+    /**
+     * Executes the remaining move commands of every rover, then removes the
+     * checkpoint file.
+     *
+     * @param profile - profile receiving the execution time of each rover,
+     * or null
+     */
+    public void run(MissionProfile profile) {
+        run(profile, Long.MAX_VALUE);
+    }
+
+    /**
+     * Executes the remaining move commands of every rover, stopping early
+     * once about the given number of commands has been executed, as if the
+     * mission had been interrupted. The checkpoint file is only removed if
+     * every rover finished.
+     *
+     * @param profile - profile receiving the execution time of each rover,
+     * or null
+     * @param commandLimit - number of commands after which to stop
+     * @return true if every rover finished
+     */
+    boolean run(MissionProfile profile, long commandLimit) {
+        boolean finished = false;
+        try {
+            finished = execute(profile, commandLimit);
+        } finally {
+            close(finished);
+        }
+        return finished;
+    }
+
+    /**
+     * Value of a rover's cursor once it has finished.
+     */
+    private static int cursorEnd(FleetStore fleet, int slot) {
+        return fleet.getPattern(slot) != null ? 1 : fleet.getCommandLength(slot);
+    }
+
+    private boolean execute(MissionProfile profile, long commandLimit) {
+        FleetStore fleet = loader.getFleet();
+        FleetStepper stepper = new FleetStepper(loader.getPlateau(), loader.getOccupancy(), fleet);
+        long nextCheckpoint = System.nanoTime() + intervalNanos;
+        long executed = 0;
+        long sinceCheck = 0;
+        for (int slot = 0; slot < cursor.length; slot++) {
+            CommandPattern pattern = fleet.getPattern(slot);
+            int length = cursorEnd(fleet, slot);
+            long start = profile != null ? System.nanoTime() : 0;
+            while (cursor[slot] < length) {
+                int end;
+                long commands;
+                if (pattern != null) {
+                    pattern.run(stepper, slot);
+                    end = 1;
+                    commands = pattern.length();
+                } else {
+                    end = (int) Math.min(length, (long) cursor[slot] + chunk);
+                    stepper.execute(slot, cursor[slot], end);
+                    commands = end - cursor[slot];
+                }
+                executed += commands;
+                sinceCheck += commands;
+                cursor[slot] = end;
+                if (sinceCheck >= chunk) {
+                    sinceCheck = 0;
+                    long now = System.nanoTime();
+                    if (now - nextCheckpoint >= 0 && checkpoint()) {
+                        nextCheckpoint = now + intervalNanos;
+                    }
+                }
+                if (executed >= commandLimit) {
+                    return false;
+                }
+            }
+            if (profile != null) {
+                profile.rover(slot, fleet.getCommandCount(slot), System.nanoTime() - start);
+            }
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.progress(1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the fleet into the snapshot buffer and hands it to the writer
+     * thread, unless the previous snapshot is still being written.
+     *
+     * @return true if a checkpoint was taken
+     */
+    private boolean checkpoint() {
+        if (pending != null) {
+            if (!pending.isDone()) {
+                return false;
+            }
+            collect();
+        }
+        if (snapshot == null) {
+            Plateau p = loader.getPlateau();
+            snapshot = new Checkpoint(p.getWidth() - 1, p.getHeight() - 1, loader.getFile().size(),
+                    cursor.length);
+        }
+        snapshot.copyFrom(loader.getFleet(), cursor);
+        Checkpoint taken = snapshot;
+        pending = writer.submit(() -> {
+            taken.write(checkpointFile);
+            return null;
+        });
+        return true;
+    }
+
+    /**
+     * Waits for the last snapshot to be written and stops the writer thread.
+     *
+     * @param finished - true if every rover finished, so the checkpoint file
+     * is no longer needed
+     */
+    private void close(boolean finished) {
+        writer.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (pending != null) {
+            collect();
+        }
+        if (finished) {
+            checkpointFile.delete();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reports the outcome of the last snapshot written.
+     */
+    private void collect() {
+        try {
+            pending.get();
+        } catch (ExecutionException e) {
+            System.out.println("Can't write checkpoint - " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending = null;
+    }
+
+    /**
+     * Get the number of move commands executed by a rover.
+     *
+     * @param slot - slot of the rover
+     * @return the command cursor of the rover
+     */
+    public int getCursor(int slot) {
+        return cursor[slot];
+    }
+}
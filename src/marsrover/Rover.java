@@ -3,21 +3,35 @@ package marsrover;
 import java.util.List;
 
 /**
+ * A rover, stored as a view over one slot of a FleetStore.
  *
  * @author Tempest
  */
 public class Rover {
-    private int xCoord;
-    private int yCoord;
-    private char direction;
+    private static final String VALID_MOVEMENTS = "LRM";
+
+    /**
+     * Number of rovers constructed on their own that share one store.
+     */
+    private static final int STANDALONE_CAPACITY = 64;
+
+    /**
+     * Store taking the rovers constructed on their own, replaced by a new
+     * one once full.
+     */
+    private static FleetStore standalone;
+
+    private final FleetStore fleet;
+    private final int slot;
     private final int id;
-    private String moveCommands;
-    private final String cardinalDirections = "NESW";
-    private final String validMovements = "LRM";
 
     /**
      * Constructs a Rover object.
      * 
+     * The rover gets a slot in a small store shared with other rovers
+     * constructed this way, so rovers made on different threads must not be
+     * given move commands at the same time.
+     * 
      * @param x - X coordinate of the rover
      * @param y - Y coordinate of the rover
      * @param direction - cardinal direction the rover is facing
@@ -26,14 +40,58 @@ public class Rover {
      * cardinal direction
      */
     public Rover(int x, int y, char direction, int id) throws InvalidInputException {
-        this.xCoord = x;
-        this.yCoord = y;
-        if (cardinalDirections.indexOf(direction) == -1) {
-            throw new InvalidInputException("Direction must be N, S, E, or W.");
+        byte heading = headingOf(direction);
+        synchronized (Rover.class) {
+            if (standalone == null || standalone.size() == STANDALONE_CAPACITY) {
+                standalone = new FleetStore(STANDALONE_CAPACITY);
+            }
+            this.fleet = standalone;
+            this.slot = standalone.add(x, y, heading);
         }
-        this.direction = direction;
         this.id = id;
-        this.moveCommands = "";
+    }
+
+    /**
+     * Constructs a Rover object in a new slot of a fleet.
+     * 
+     * @param fleet - the store to add the rover to
+     * @param x - X coordinate of the rover
+     * @param y - Y coordinate of the rover
+     * @param direction - cardinal direction the rover is facing
+     * @param id - the rover ID number
+     * @throws marsrover.Rover.InvalidInputException - thrown if given invalid
+     * cardinal direction
+     */
+    public Rover(FleetStore fleet, int x, int y, char direction, int id)
+            throws InvalidInputException {
+        byte heading = headingOf(direction);
+        this.fleet = fleet;
+        this.slot = fleet.add(x, y, heading);
+        this.id = id;
+    }
+
+    /**
+     * Constructs a Rover view over a rover already in a FleetStore.
+     * 
+     * @param fleet - the store holding the rover
+     * @param slot - slot of the rover in the store
+     * @param id - the rover ID number
+     */
+    Rover(FleetStore fleet, int slot, int id) {
+        this.fleet = fleet;
+        this.slot = slot;
+        this.id = id;
+    }
+
+    /**
+     * Converts a cardinal direction letter into a heading.
+     */
+    private static byte headingOf(char direction) throws InvalidInputException {
+        byte heading = FleetStore.headingOf(direction);
+        if (heading == -1) {
+            throw new InvalidInputException("Direction must be N, S, E, or W.");
+        }
+        return heading;
     }
 
     /**
@@ -42,7 +100,7 @@ public class Rover {
      * @return integer representing the X coordinate of the rover.
      */
     public int getX() {
-        return xCoord;
+        return fleet.x[slot];
     }
 
     /**
@@ -51,7 +109,7 @@ public class Rover {
      * @return integer representing the Y coordinate of the rover.
      */
     public int getY() {
-        return yCoord;
+        return fleet.y[slot];
     }
 
     /**
@@ -60,7 +118,7 @@ public class Rover {
      * @return 'N', 'W', 'S', or 'E'
      */
     public char getDirection() {
-        return direction;
+        return FleetStore.directionOf(fleet.heading[slot]);
     }
     
     /**
@@ -72,7 +130,7 @@ public class Rover {
      * pointing
      */
     public String getPosition() {
-        return this.xCoord + " " + this.yCoord + " " + this.direction;
+        return getX() + " " + getY() + " " + getDirection();
     }
 
     /**
@@ -83,39 +141,85 @@ public class Rover {
     public int getId() {
         return id;
     }
+
+    /**
+     * Get the store holding the rover.
+     * 
+     * @return the FleetStore object
+     */
+    public FleetStore getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Get the slot of the rover in its store.
+     * 
+     * @return integer representing the slot of the rover
+     */
+    public int getSlot() {
+        return slot;
+    }
     
     /**
-     * Get the move commands for the rover.
+     * Get the move commands for the rover, decoded from the fleet's command
+     * arena, or expanded from their repeat groups.
      * 
      * @return String of characters M, L, and/or R.
      */
     public String getMoveCommands() {
-        return moveCommands;
+        CommandPattern pattern = fleet.getPattern(slot);
+        if (pattern == null) {
+            return fleet.commands.text(fleet.commandStart[slot], fleet.commandLength[slot]);
+        }
+        StringBuilder commands = new StringBuilder((int) Math.min(pattern.length(), Integer.MAX_VALUE - 8));
+        pattern.forEach(code -> commands.append(CommandArena.commandOf(code)));
+        return commands.toString();
+    }
+
+    /**
+     * Get the number of move commands of the rover, without decoding or
+     * expanding them.
+     * 
+     * @return number of move commands
+     */
+    public long getMoveCommandCount() {
+        return fleet.getCommandCount(slot);
     }
     
     /**
-     * Accepts a string with move commands and stores them in a field in the
-     * Rover object.
+     * Accepts a string with move commands and stores them, packed, in the
+     * command arena of the rover's fleet. Setting the commands again adds a
+     * new range to the arena and leaves the old one unused.
+     * 
+     * Commands may be grouped and repeated, as in "MM(LMMRM)50000": they are
+     * stored as a CommandPattern, without expanding the groups, which skips
+     * ahead over the repetitions nothing can block.
      * 
-     * @param moveCommands String of characters M, L, and/or R.
+     * @param moveCommands String of characters M, L, and/or R, and repeat
+     * groups of them.
      * @throws marsrover.Rover.InvalidInputException if the input string has
-     * any characters other than M, L, and R.
+     * any characters other than M, L, and R outside of valid repeat groups.
      */
     public void setMoveCommands(String moveCommands) throws InvalidInputException {
+        if (CommandPattern.hasGroups(moveCommands)) {
+            fleet.setPattern(slot, CommandPattern.parse(moveCommands));
+            return;
+        }
         for (int i = 0; i < moveCommands.length(); i++) {
-            if (validMovements.indexOf(moveCommands.charAt(i)) == -1) {
+            if (VALID_MOVEMENTS.indexOf(moveCommands.charAt(i)) == -1) {
                 throw new InvalidInputException("Movement command must be L, R, or M.");
             }
         }
-        this.moveCommands = moveCommands.toUpperCase();
+        fleet.setCommands(slot, fleet.commands.append(moveCommands), moveCommands.length());
     }
     
     /**
      * Static method checking whether the location is valid given an initialized
      * Plateau object and a list of rovers.
      * 
-     * A location is considered valid if it's within the bounds of the plateau
-     * and no rover is already located at that location.
+     * A location is considered valid if it's within the bounds of the plateau,
+     * not impassable terrain, and no rover is already located at that
+     * location.
      * 
      * @param x X coordinate of the location to test
      * @param y Y coordinate of the location to test
@@ -127,7 +231,7 @@ public class Rover {
         int width = p.getWidth();
         int height = p.getHeight();
         boolean result = false;
-        if (x >= 0 && y >= 0 && x < width && y < height) {
+        if (x >= 0 && y >= 0 && x < width && y < height && !p.isBlocked(x, y)) {
             result = true;
         }
         
@@ -139,23 +243,31 @@ public class Rover {
         return result;
     }
 
+    /**
+     * Static method checking whether the location is valid given an initialized
+     * Plateau object and an occupancy index kept in sync with the rovers.
+     * 
+     * Same rules as the list-based check, but the rover collision test takes
+     * constant time. An index built for the plateau by Occupancy.forPlateau
+     * also holds the terrain.
+     * 
+     * @param x X coordinate of the location to test
+     * @param y Y coordinate of the location to test
+     * @param p the initialized Plateau object
+     * @param occupancy occupancy index of the deployed rovers
+     * @return true if the location is valid, otherwise false.
+     */
+    public static boolean validLocation(int x, int y, Plateau p, Occupancy occupancy) {
+        return p.contains(x, y) && !occupancy.isOccupied(x, y);
+    }
+
     /**
      * Turn the rover 90 degrees to the left.
      */
     public void turnLeft() {
-        switch (direction) {
-            case 'N':
-                direction = 'W';
-                break;
-            case 'W':
-                direction = 'S';
-                break;
-            case 'S':
-                direction = 'E';
-                break;
-            case 'E':
-                direction = 'N';
-                break;
+        fleet.heading[slot] = FleetStepper.LEFT[fleet.heading[slot]];
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(1);
         }
     }
     
@@ -163,19 +275,9 @@ public class Rover {
      * Turn the rover 90 degrees to the right.
      */
     public void turnRight() {
-        switch (direction) {
-            case 'N':
-                direction = 'E';
-                break;
-            case 'E':
-                direction = 'S';
-                break;
-            case 'S':
-                direction = 'W';
-                break;
-            case 'W':
-                direction = 'N';
-                break;
+        fleet.heading[slot] = FleetStepper.RIGHT[fleet.heading[slot]];
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(1);
         }
     }
     
@@ -184,37 +286,43 @@ public class Rover {
      * 
      * If facing North or South, change the y position.
      * If facing East or West, change the x position.
-     * If the rover attempts to move outside of the plateau bounds or to a
-     * location occupied by another rover, then don't move forward.
+     * If the rover attempts to move outside of the plateau bounds, onto
+     * impassable terrain or to a location occupied by another rover, then
+     * don't move forward.
      * 
      * @param p initialized Plateau object
      * @param roversList list of Rover objects
      */
     public void moveForward(Plateau p, List<Rover> roversList) {
-        switch (direction) {
-            case 'N':
-                if (validLocation(xCoord, yCoord + 1, p, roversList)) {
-                    yCoord++;
-                }
-                break;
-            case 'S':
-                if (validLocation(xCoord, yCoord - 1, p, roversList)) {
-                    yCoord--;
-                }
-                break;
-            case 'E':
-                if (validLocation(xCoord + 1, yCoord, p, roversList)) {
-                    xCoord++;
-                }
-                break;
-            case 'W':
-                if (validLocation(xCoord - 1, yCoord, p, roversList)) {
-                    xCoord--;
-                }
-                break;
+        int heading = fleet.heading[slot];
+        int x = fleet.x[slot] + FleetStepper.DX[heading];
+        int y = fleet.y[slot] + FleetStepper.DY[heading];
+        if (validLocation(x, y, p, roversList)) {
+            fleet.moveTo(slot, x, y);
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.commands(1);
+                MissionMetrics.moves(1);
+            }
+        } else if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(1);
+            MissionMetrics.blocked(1, MissionMetrics.causeAt(p, x, y));
         }
     }
     
+    /**
+     * Move the rover forward, keeping the occupancy index up to date.
+     * 
+     * Same rules as the list-based move: if the rover attempts to move outside
+     * of the plateau bounds or to a location occupied by another rover, then
+     * don't move forward.
+     * 
+     * @param p initialized Plateau object
+     * @param occupancy occupancy index of the deployed rovers
+     */
+    public void moveForward(Plateau p, Occupancy occupancy) {
+        fleet.stepper(p, occupancy).move(slot);
+    }
+    
     /**
      * Executes the rover's movement commands.
      * 
@@ -222,22 +330,43 @@ public class Rover {
      * @param roversList list of Rover objects
      */
     public void executeMovementCommands(Plateau p, List<Rover> roversList) {
-        for (int i = 0; i < moveCommands.length(); i++) {
-            char command = moveCommands.charAt(i);
-            switch (command) {
-                case 'L':
-                    turnLeft();
-                    break;
-                case 'R':
-                    turnRight();
-                    break;
-                case 'M':
-                    moveForward(p, roversList);
-                    break;
-            }
+        CommandPattern pattern = fleet.getPattern(slot);
+        if (pattern != null) {
+            pattern.forEach(code -> executeCode(code, p, roversList));
+            return;
+        }
+        CommandArena commands = fleet.commands;
+        long start = fleet.commandStart[slot];
+        for (int i = 0; i < fleet.commandLength[slot]; i++) {
+            executeCode(commands.get(start + i), p, roversList);
         }
     }
 
+    private void executeCode(int code, Plateau p, List<Rover> roversList) {
+        switch (code) {
+            case CommandArena.CODE_LEFT:
+                turnLeft();
+                break;
+            case CommandArena.CODE_RIGHT:
+                turnRight();
+                break;
+            case CommandArena.CODE_MOVE:
+                moveForward(p, roversList);
+                break;
+        }
+    }
+    
+    /**
+     * Executes the rover's movement commands, checking collisions against the
+     * occupancy index.
+     * 
+     * @param p initialized Plateau object
+     * @param occupancy occupancy index of the deployed rovers
+     */
+    public void executeMovementCommands(Plateau p, Occupancy occupancy) {
+        fleet.stepper(p, occupancy).execute(slot);
+    }
+
     /**
      * Exception thrown when provided unexpected input, such as rover direction
      * that is not one of N, W, S, or E, or a movement command that is not one
@@ -246,7 +375,7 @@ public class Rover {
     public static class InvalidInputException extends Exception {
 
         public InvalidInputException(String message) {
-            System.out.println(message);
+            MessageStream.get().println(message);
         }
     }
 }
@@ -0,0 +1,188 @@
+package marsrover;
+
+import java.util.Arrays;
+
+/**
+ * Occupancy index for huge plateaus with only a thin scattering of rovers.
+ *
+ * Cells are packed into a single long and kept in a primitive open-addressing
+ * hash set with linear probing, so memory grows with the number of rovers and
+ * not with the plateau area.
+ *
+ * @author Tempest
+ */
+public class SparseOccupancy implements Occupancy {
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs an empty sparse occupancy index for the plateau.
+     *
+     * @param p - the initialized Plateau object
+     * @param expectedRovers - estimate of the number of rovers to be deployed
+     */
+    public SparseOccupancy(Plateau p, int expectedRovers) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedRovers && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Packs a pair of coordinates into one long key.
+     *
+     * @param x - X coordinate of the location
+     * @param y - Y coordinate of the location
+     * @return packed coordinates
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y) {
+        long key = pack(x, y);
+        int slot = hash(key) & mask;
+        while (true) {
+            long k = keys[slot];
+            if (k == key) {
+                return true;
+            }
+            if (k == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public void occupy(int x, int y) {
+        if (insert(pack(x, y)) && ++size > (keys.length >>> 1)) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    @Override
+    public void vacate(int x, int y) {
+        long key = pack(x, y);
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // backward-shift deletion keeps probe sequences intact without tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    @Override
+    public int getOccupiedCount() {
+        return size;
+    }
+
+    /**
+     * Casts a ray cell by cell, or, when the ray is longer than the table,
+     * finds the nearest occupied cell on it by scanning the table.
+     */
+    @Override
+    public int freeRun(int x, int y, int dx, int dy, int max) {
+        if (max <= keys.length || (dx == 0 && dy == 0)) {
+            return Occupancy.super.freeRun(x, y, dx, dy, max);
+        }
+        long nearest = max + 1L;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                int kx = (int) (key >> 32);
+                int ky = (int) key;
+                // steps from (x, y) along the ray, as dx and dy are -1, 0 or 1
+                long steps = dx != 0 ? ((long) kx - x) * dx : ((long) ky - y) * dy;
+                if (steps >= 1 && steps < nearest && kx == x + dx * steps && ky == y + dy * steps) {
+                    nearest = steps;
+                }
+            }
+        }
+        return (int) (nearest - 1);
+    }
+
+    /**
+     * Checks a rectangle cell by cell, or by scanning the table when that
+     * takes fewer probes.
+     */
+    @Override
+    public boolean isEmpty(int minX, int minY, int maxX, int maxY) {
+        if (Occupancy.super.isEmptyCost(minX, minY, maxX, maxY) <= keys.length) {
+            return Occupancy.super.isEmpty(minX, minY, maxX, maxY);
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                int x = (int) (key >> 32);
+                int y = (int) key;
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long isEmptyCost(int minX, int minY, int maxX, int maxY) {
+        return Math.min(Occupancy.super.isEmptyCost(minX, minY, maxX, maxY), keys.length);
+    }
+
+    private boolean insert(long key) {
+        int slot = hash(key) & mask;
+        while (true) {
+            long k = keys[slot];
+            if (k == key) {
+                return false;
+            }
+            if (k == EMPTY) {
+                keys[slot] = key;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        allocate(capacity);
+        for (long key : old) {
+            if (key != EMPTY) {
+                insert(key);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
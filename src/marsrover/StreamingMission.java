@@ -0,0 +1,119 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Runs a mission without holding the move commands in memory.
+ *
+ * The first pass, driven by a MissionReader, deploys every rover into the
+ * FleetStore, without Rover objects, and records only where its move command
+ * line starts and how long it is. The second pass, run(), streams each
+ * rover's commands straight from the mapped file into a FleetStepper, in
+ * deployment order, resolving each run of M commands in one step. All rovers
+ * are deployed before any of them moves, same as with MarsRover.moveRovers,
+ * but peak memory depends on the fleet size and not on the number of
+ * commands. A command line with repeat groups is compiled into a
+ * CommandPattern when its rover's turn comes, and dropped after it runs.
+ *
+ * @author Tempest
+ */
+public class StreamingMission extends FleetLoader {
+
+    private long[] commandsStarts = new long[16];
+    private int[] commandsLengths = new int[16];
+    private final BitSet grouped = new BitSet();
+    private TrajectoryRecorder recorder;
+
+    /**
+     * Constructs a streaming mission reading the given file.
+     *
+     * @param file - the opened mission file
+     * @param parser - the parser that will report to this mission
+     */
+    public StreamingMission(MissionFile file, MissionReader parser) {
+        // the commands stay in the mapped file, so the fleet has no arena
+        super(file, parser, new ArrayList<Rover>(), new FleetStore(16, -1));
+    }
+
+    /**
+     * Records the location of the rover's move commands and checks them, so
+     * that invalid commands are reported before any rover moves.
+     *
+     * @param slot - slot of the deployed rover in the fleet
+     * @param commandsStart - location of the move commands in the file
+     * @param commandsLength - number of move commands
+     * @throws marsrover.Rover.InvalidInputException if the move commands are
+     * not valid
+     */
+    @Override
+    protected void deployed(int slot, long commandsStart, int commandsLength)
+            throws Rover.InvalidInputException {
+        grouped.set(slot, getReader().checkCommands(commandsStart, commandsLength));
+        if (slot == commandsStarts.length) {
+            commandsStarts = Arrays.copyOf(commandsStarts, slot * 2);
+            commandsLengths = Arrays.copyOf(commandsLengths, slot * 2);
+        }
+        commandsStarts[slot] = commandsStart;
+        commandsLengths[slot] = commandsLength;
+    }
+
+    /**
+     * Set the recorder receiving every step of the rovers, or null.
+     *
+     * @param recorder - the TrajectoryRecorder object, left open by run()
+     */
+    public void setRecorder(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Executes the move commands of every deployed rover, one rover after the
+     * other, reading the commands from the mapped file.
+     */
+    public void run() {
+        run(null);
+    }
+
+    /**
+     * Executes the move commands of every deployed rover, one rover after the
+     * other, reading the commands from the mapped file.
+     *
+     * @param profile - profile receiving the execution time of each rover,
+     * or null
+     */
+    public void run(MissionProfile profile) {
+        FleetStepper stepper = new FleetStepper(getPlateau(), getOccupancy(), getFleet());
+        stepper.setRecorder(recorder);
+        for (int slot = 0; slot < getFleet().size(); slot++) {
+            long start = profile != null ? System.nanoTime() : 0;
+            if (recorder != null) {
+                recorder.track(slot, getFleet());
+            }
+            long count = commandsLengths[slot];
+            if (grouped.get(slot)) {
+                CommandPattern pattern = pattern(slot);
+                count = pattern.length();
+                pattern.run(stepper, slot);
+            } else {
+                getReader().execute(stepper, slot, commandsStarts[slot], commandsLengths[slot]);
+            }
+            if (profile != null) {
+                profile.rover(slot, count, System.nanoTime() - start);
+            }
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.progress(1);
+            }
+        }
+    }
+
+    private CommandPattern pattern(int slot) {
+        try {
+            return CommandPattern.parse(getReader().commands(commandsStarts[slot], commandsLengths[slot]));
+        } catch (Rover.InvalidInputException e) {
+            // checked when the rover was deployed
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Converts a text or PGM picture of the plateau into the terrain map file
+ * read by TerrainMap.
+ *
+ * Usage: java marsrover.TerrainConverter map-file terrain-file
+ *
+ * Both inputs are drawn with North up, so the first row of the picture is
+ * the top row of the plateau and its first column the West edge.
+ *
+ * A text map has one line per row of cells, '#' for an impassable cell and
+ * '.' for open ground. Lines shorter than the longest one are open ground
+ * past their end.
+ *
+ * A PGM map is a grayscale picture in the binary (P5) or plain (P2) Netpbm
+ * format. Pixels darker than half of the maximum gray value are impassable.
+ *
+ * The input is read as a stream and only impassable cells are written, so
+ * maps of tens of billions of cells convert without being held in memory.
+ *
+ * @author Tempest
+ */
+public class TerrainConverter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Main method converting a map from the command line.
+     *
+     * @param args - map file name and terrain file name
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: java marsrover.TerrainConverter map-file terrain-file");
+            System.exit(1);
+        }
+        try {
+            convert(new File(args[0]), new File(args[1]));
+        } catch (IOException e) {
+            System.out.println("Can't convert map - " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts a text or PGM map, picking the format from the first bytes of
+     * the file.
+     *
+     * @param map - the text or PGM map
+     * @param output - the terrain map file to write
+     * @throws IOException if the map can't be read or is malformed, or the
+     * output can't be written
+     */
+    public static void convert(File map, File output) throws IOException {
+        boolean pgm;
+        try (Input in = new Input(map)) {
+            pgm = in.read() == 'P' && (in.peek() == '5' || in.peek() == '2');
+        }
+        if (pgm) {
+            fromPgm(map, output);
+        } else {
+            fromText(map, output);
+        }
+    }
+
+    /**
+     * Converts a text map. The file is read twice: once to measure the map
+     * and once to mark the impassable cells.
+     *
+     * @param map - the text map
+     * @param output - the terrain map file to write
+     * @throws IOException if the map can't be read or is malformed, or the
+     * output can't be written
+     */
+    public static void fromText(File map, File output) throws IOException {
+        long width = 0;
+        long height = 0;
+        try (Input in = new Input(map)) {
+            long column = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    width = Math.max(width, column);
+                    column = 0;
+                    height++;
+                } else if (b == '#' || b == '.') {
+                    column++;
+                } else if (b != '\r') {
+                    throw new IOException("Text map line " + (height + 1)
+                            + ": unexpected character '" + (char) b + "'");
+                }
+            }
+            if (column > 0) {
+                width = Math.max(width, column);
+                height++;
+            }
+        }
+        if (width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) {
+            throw new IOException("Text map is too large: " + width + "x" + height);
+        }
+        try (Input in = new Input(map);
+                TerrainMap terrain = TerrainMap.create(output, (int) width, (int) height)) {
+            int x = 0;
+            int y = (int) height - 1;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    x = 0;
+                    y--;
+                } else if (b == '#') {
+                    terrain.block(x++, y);
+                } else if (b == '.') {
+                    x++;
+                }
+            }
+            terrain.force();
+        }
+    }
+
+    /**
+     * Converts a PGM map.
+     *
+     * @param map - the P5 or P2 grayscale picture
+     * @param output - the terrain map file to write
+     * @throws IOException if the map can't be read or is malformed, or the
+     * output can't be written
+     */
+    public static void fromPgm(File map, File output) throws IOException {
+        try (Input in = new Input(map)) {
+            boolean plain;
+            if (in.read() != 'P') {
+                throw new IOException("Not a PGM map: " + map);
+            }
+            int magic = in.read();
+            if (magic == '5') {
+                plain = false;
+            } else if (magic == '2') {
+                plain = true;
+            } else {
+                throw new IOException("Not a PGM map: " + map);
+            }
+            int width = in.headerNumber();
+            int height = in.headerNumber();
+            int maxValue = in.headerNumber();
+            if (maxValue < 1 || maxValue > 65535) {
+                throw new IOException("PGM map has an invalid maximum gray value: " + maxValue);
+            }
+            if (!plain) {
+                // a single whitespace character separates the header from the pixels
+                in.read();
+            }
+            int threshold = (maxValue + 1) / 2;
+            try (TerrainMap terrain = TerrainMap.create(output, width, height)) {
+                for (int y = height - 1; y >= 0; y--) {
+                    for (int x = 0; x < width; x++) {
+                        int value;
+                        if (plain) {
+                            value = in.headerNumber();
+                        } else if (maxValue < 256) {
+                            value = in.pixelByte();
+                        } else {
+                            value = in.pixelByte() << 8 | in.pixelByte();
+                        }
+                        if (value < threshold) {
+                            terrain.block(x, y);
+                        }
+                    }
+                }
+                terrain.force();
+            }
+        }
+    }
+
+    /**
+     * Buffered byte reader of a map file.
+     */
+    private static class Input implements Closeable {
+
+        private final InputStream stream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        Input(File file) throws IOException {
+            this.stream = new FileInputStream(file);
+        }
+
+        int peek() throws IOException {
+            if (position == limit) {
+                limit = stream.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        int read() throws IOException {
+            int b = peek();
+            if (b != -1) {
+                position++;
+            }
+            return b;
+        }
+
+        int pixelByte() throws IOException {
+            int b = read();
+            if (b == -1) {
+                throw new IOException("PGM map ends before its last pixel");
+            }
+            return b;
+        }
+
+        /**
+         * Reads a decimal number of a PGM header or plain raster, skipping
+         * whitespace and comments before it.
+         */
+        int headerNumber() throws IOException {
+            int b = read();
+            while (b == '#' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                if (b == '#') {
+                    while (b != '\n' && b != -1) {
+                        b = read();
+                    }
+                }
+                b = read();
+            }
+            if (b < '0' || b > '9') {
+                throw new IOException(b == -1 ? "PGM map ends before its last pixel"
+                        : "PGM map has an unexpected character '" + (char) b + "'");
+            }
+            long value = 0;
+            while (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw new IOException("PGM map has a number out of range");
+                }
+                b = peek() >= '0' && peek() <= '9' ? read() : -1;
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped raster of the impassable cells of a plateau, one bit per
+ * cell.
+ *
+ * The file starts with a header page, big-endian:
+ * <pre>
+ *   0  magic "MRTM"
+ *   4  int version (1)
+ *   8  int width of the map, in cells
+ *  12  int height of the map, in cells
+ *  16  int tile width (256)
+ *  20  int tile height (128)
+ *  24  zero up to byte 4096
+ * </pre>
+ * Then come the tiles, row of tiles by row of tiles from the South, each
+ * row West to East. A tile is one 4096-byte page covering 256 by 128 cells:
+ * 32 bytes per row of cells, from the South, and the cell at column c of a
+ * row is bit (c &amp; 7) of byte (c &gt;&gt;&gt; 3), set when the cell is
+ * impassable. A rover crossing the plateau touches a handful of pages, so
+ * only the tiles it gets near are read from disk, and a map of tens of
+ * billions of cells stays off the heap. Tiles without obstacles may be left
+ * as holes of a sparse file.
+ *
+ * Cells beyond the width and height of the map are open ground, so a map
+ * may cover only part of a plateau.
+ *
+ * @author Tempest
+ */
+public class TerrainMap implements Closeable {
+
+    /**
+     * First bytes of a terrain map file.
+     */
+    public static final byte[] MAGIC = {'M', 'R', 'T', 'M'};
+
+    /**
+     * Version of the terrain map format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes, one page so that tiles are page aligned.
+     */
+    public static final int HEADER_BYTES = 4096;
+
+    /**
+     * Width of a tile, in cells.
+     */
+    public static final int TILE_WIDTH = 256;
+
+    /**
+     * Height of a tile, in cells.
+     */
+    public static final int TILE_HEIGHT = 128;
+
+    /**
+     * Size of a tile, in bytes.
+     */
+    public static final int TILE_BYTES = TILE_WIDTH / 8 * TILE_HEIGHT;
+
+    private static final int ROW_BYTES = TILE_WIDTH / 8;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer[] segments;
+    private final int width;
+    private final int height;
+    private final long tilesAcross;
+
+    private TerrainMap(RandomAccessFile raf, FileChannel.MapMode mode, int width, int height)
+            throws IOException {
+        this.raf = raf;
+        this.width = width;
+        this.height = height;
+        this.tilesAcross = (width + (long) TILE_WIDTH - 1) / TILE_WIDTH;
+        long size = fileSize(width, height);
+        if (raf.length() < size) {
+            throw new IOException("Terrain map is shorter than its " + width + "x" + height + " cells");
+        }
+        FileChannel channel = raf.getChannel();
+        int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, start, Math.min(size - start, 1L << SEGMENT_SHIFT));
+            // tile rows are read as little-endian longs, bit c of a word being column c
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Opens and maps a terrain map for reading.
+     *
+     * @param file - the terrain map file
+     * @return the mapped terrain
+     * @throws IOException if the file can't be opened or mapped, or is not a
+     * terrain map
+     */
+    public static TerrainMap open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() < HEADER_BYTES) {
+                throw new IOException("Not a terrain map: " + file);
+            }
+            byte[] magic = new byte[MAGIC.length];
+            raf.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("Not a terrain map: " + file);
+                }
+            }
+            if (raf.readInt() != VERSION) {
+                throw new IOException("Unsupported terrain map version: " + file);
+            }
+            int width = raf.readInt();
+            int height = raf.readInt();
+            if (width < 0 || height < 0 || raf.readInt() != TILE_WIDTH || raf.readInt() != TILE_HEIGHT) {
+                throw new IOException("Terrain map header is corrupt: " + file);
+            }
+            return new TerrainMap(raf, FileChannel.MapMode.READ_ONLY, width, height);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a terrain map file with every cell open, and maps it for
+     * writing. The file is sparse where the file system allows it.
+     *
+     * @param file - the terrain map file, replaced if it exists
+     * @param width - width of the map, in cells
+     * @param height - height of the map, in cells
+     * @return the mapped terrain, open for block()
+     * @throws IOException if the file can't be created or mapped
+     */
+    public static TerrainMap create(File file, int width, int height) throws IOException {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Terrain map size must not be negative: "
+                    + width + "x" + height);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeInt(width);
+            raf.writeInt(height);
+            raf.writeInt(TILE_WIDTH);
+            raf.writeInt(TILE_HEIGHT);
+            raf.setLength(fileSize(width, height));
+            return new TerrainMap(raf, FileChannel.MapMode.READ_WRITE, width, height);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the size of the file holding a map.
+     *
+     * @param width - width of the map, in cells
+     * @param height - height of the map, in cells
+     * @return size of the file, in bytes
+     */
+    static long fileSize(int width, int height) {
+        long tiles = (width + (long) TILE_WIDTH - 1) / TILE_WIDTH
+                * ((height + (long) TILE_HEIGHT - 1) / TILE_HEIGHT);
+        return HEADER_BYTES + tiles * TILE_BYTES;
+    }
+
+    /**
+     * Get the width of the map.
+     *
+     * @return width of the map, in cells
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the map.
+     *
+     * @return height of the map, in cells
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks whether a cell is impassable.
+     *
+     * @param x - X coordinate of the cell
+     * @param y - Y coordinate of the cell
+     * @return true if the cell is on the map and impassable, otherwise false
+     */
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        long pos = rowStart(x, y) + ((x & (TILE_WIDTH - 1)) >>> 3);
+        return (segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & SEGMENT_MASK)) & (1 << (x & 7))) != 0;
+    }
+
+    /**
+     * Marks a cell as impassable. The map must have been opened with create().
+     *
+     * @param x - X coordinate of the cell, from 0 to getWidth() - 1
+     * @param y - Y coordinate of the cell, from 0 to getHeight() - 1
+     */
+    public void block(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IndexOutOfBoundsException("Cell " + x + " " + y + " is off the "
+                    + width + "x" + height + " terrain map");
+        }
+        long pos = rowStart(x, y) + ((x & (TILE_WIDTH - 1)) >>> 3);
+        MappedByteBuffer segment = segments[(int) (pos >>> SEGMENT_SHIFT)];
+        int i = (int) (pos & SEGMENT_MASK);
+        segment.put(i, (byte) (segment.get(i) | (1 << (x & 7))));
+    }
+
+    /**
+     * Casts a ray from a cell and counts the open cells in front of it.
+     * Rows are scanned a 64-cell word at a time, and columns one tile at a
+     * time, stepping through the rows of the tile.
+     *
+     * @param x - X coordinate of the starting cell
+     * @param y - Y coordinate of the starting cell
+     * @param dx - step along X, one of -1, 0 or 1
+     * @param dy - step along Y, one of -1, 0 or 1
+     * @param max - largest number of cells to test
+     * @return number of open cells before the first impassable one, at most
+     * max
+     */
+    public int freeRun(int x, int y, int dx, int dy, int max) {
+        if (dy == 0 && dx != 0) {
+            if (y < 0 || y >= height) {
+                return max;
+            }
+            long from = (long) x + dx;
+            long to = (long) x + (long) dx * max;
+            long hit = dx > 0 ? nextBlocked(y, from, to) : previousBlocked(y, to, from);
+            return hit < 0 ? max : (int) Math.abs(hit - x) - 1;
+        }
+        if (dx == 0 && dy != 0) {
+            return columnRun(x, y, dy, max);
+        }
+        int n = 0;
+        while (n < max && !isBlocked(x + dx * (n + 1), y + dy * (n + 1))) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Counts the open cells above or below a cell. The rows of a column
+     * within a tile are ROW_BYTES apart on the same page.
+     */
+    private int columnRun(int x, int y, int dy, int max) {
+        if (x < 0 || x >= width) {
+            return max;
+        }
+        int mask = 1 << (x & 7);
+        int n = 0;
+        while (n < max) {
+            long cy = y + (long) dy * (n + 1);
+            if (cy < 0 || cy >= height) {
+                if ((cy < 0) == (dy < 0)) {
+                    // off the map, open ground to the end of the ray
+                    return max;
+                }
+                n = (int) Math.min(max, n + (dy > 0 ? -cy : cy - height + 1));
+                continue;
+            }
+            int row = (int) cy & (TILE_HEIGHT - 1);
+            int rows = dy > 0 ? (int) Math.min(TILE_HEIGHT - row, height - cy) : row + 1;
+            rows = Math.min(rows, max - n);
+            long pos = rowStart(x, (int) cy) + ((x & (TILE_WIDTH - 1)) >>> 3);
+            MappedByteBuffer segment = segments[(int) (pos >>> SEGMENT_SHIFT)];
+            int i = (int) (pos & SEGMENT_MASK);
+            for (int k = 0; k < rows; k++) {
+                if ((segment.get(i) & mask) != 0) {
+                    return n;
+                }
+                i += dy * ROW_BYTES;
+                n++;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Checks that no cell of a rectangle is impassable.
+     *
+     * @param minX - X coordinate of the left column
+     * @param minY - Y coordinate of the bottom row
+     * @param maxX - X coordinate of the right column
+     * @param maxY - Y coordinate of the top row
+     * @return true if every cell of the rectangle is open
+     */
+    public boolean isEmpty(int minX, int minY, int maxX, int maxY) {
+        int top = Math.min(maxY, height - 1);
+        for (int y = Math.max(minY, 0); y <= top; y++) {
+            if (nextBlocked(y, minX, maxX) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the work of isEmpty on a rectangle, in word probes.
+     *
+     * @param minX - X coordinate of the left column
+     * @param minY - Y coordinate of the bottom row
+     * @param maxX - X coordinate of the right column
+     * @param maxY - Y coordinate of the top row
+     * @return estimated number of probes
+     */
+    public long isEmptyCost(int minX, int minY, int maxX, int maxY) {
+        long rows = Math.min(maxY, height - 1L) - Math.max(minY, 0) + 1;
+        long words = (Math.min(maxX, width - 1L) >> 6) - (Math.max(minX, 0) >> 6) + 1;
+        return rows > 0 && words > 0 ? rows * words : 1;
+    }
+
+    /**
+     * Finds the westernmost impassable cell of a row between two columns.
+     */
+    private long nextBlocked(int y, long from, long to) {
+        long x = Math.max(from, 0);
+        long last = Math.min(to, width - 1L);
+        while (x <= last) {
+            long word = word((int) x, y) >>> (x & 63);
+            if (word != 0) {
+                long hit = x + Long.numberOfTrailingZeros(word);
+                return hit <= last ? hit : -1;
+            }
+            x = (x | 63) + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the easternmost impassable cell of a row between two columns.
+     */
+    private long previousBlocked(int y, long from, long to) {
+        long x = Math.min(to, width - 1L);
+        long first = Math.max(from, 0);
+        while (x >= first) {
+            long word = word((int) x, y) << (63 - (x & 63));
+            if (word != 0) {
+                long hit = x - Long.numberOfLeadingZeros(word);
+                return hit >= first ? hit : -1;
+            }
+            x = (x & ~63L) - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the 64 cells of a row sharing a word with the given cell.
+     */
+    private long word(int x, int y) {
+        long pos = rowStart(x, y) + ((x & (TILE_WIDTH - 1)) >>> 6 << 3);
+        return segments[(int) (pos >>> SEGMENT_SHIFT)].getLong((int) (pos & SEGMENT_MASK));
+    }
+
+    /**
+     * Get the file position of the row of cells holding the given cell
+     * within its tile.
+     */
+    private long rowStart(int x, int y) {
+        long tile = (y / TILE_HEIGHT) * tilesAcross + x / TILE_WIDTH;
+        return HEADER_BYTES + tile * TILE_BYTES + (y & (TILE_HEIGHT - 1)) * ROW_BYTES;
+    }
+
+    /**
+     * Writes the cells marked with block() to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Releases the file. The mapped segments are released by the garbage
+     * collector once unreachable.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
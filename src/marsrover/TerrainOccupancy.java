@@ -0,0 +1,81 @@
+package marsrover;
+
+/**
+ * Occupancy index of a plateau with terrain: the impassable cells of the
+ * plateau's TerrainMap count as occupied, on top of the cells taken by
+ * rovers.
+ *
+ * Rovers are still tracked by the wrapped index, so occupy, vacate and the
+ * occupied count only concern rovers. Every check that goes through the
+ * index, from deployment to ray-casts and the rectangle checks of repeated
+ * commands, respects the terrain without the map being read onto the heap.
+ *
+ * @author Tempest
+ */
+public class TerrainOccupancy implements Occupancy {
+
+    private final Occupancy rovers;
+    private final TerrainMap terrain;
+    private final int originX;
+    private final int originY;
+
+    /**
+     * Constructs the index for a plateau with terrain.
+     *
+     * @param rovers - occupancy index of the rovers
+     * @param p - the plateau, with its terrain set
+     */
+    public TerrainOccupancy(Occupancy rovers, Plateau p) {
+        this.rovers = rovers;
+        this.terrain = p.getTerrain();
+        this.originX = p.getTerrainX();
+        this.originY = p.getTerrainY();
+    }
+
+    /**
+     * Get the occupancy index of the rovers alone.
+     *
+     * @return the wrapped Occupancy object
+     */
+    public Occupancy getRovers() {
+        return rovers;
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y) {
+        return terrain.isBlocked(x + originX, y + originY) || rovers.isOccupied(x, y);
+    }
+
+    @Override
+    public void occupy(int x, int y) {
+        rovers.occupy(x, y);
+    }
+
+    @Override
+    public void vacate(int x, int y) {
+        rovers.vacate(x, y);
+    }
+
+    @Override
+    public int getOccupiedCount() {
+        return rovers.getOccupiedCount();
+    }
+
+    @Override
+    public int freeRun(int x, int y, int dx, int dy, int max) {
+        int run = terrain.freeRun(x + originX, y + originY, dx, dy, max);
+        return rovers.freeRun(x, y, dx, dy, run);
+    }
+
+    @Override
+    public boolean isEmpty(int minX, int minY, int maxX, int maxY) {
+        return terrain.isEmpty(minX + originX, minY + originY, maxX + originX, maxY + originY)
+                && rovers.isEmpty(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public long isEmptyCost(int minX, int minY, int maxX, int maxY) {
+        return terrain.isEmptyCost(minX + originX, minY + originY, maxX + originX, maxY + originY)
+                + rovers.isEmptyCost(minX, minY, maxX, maxY);
+    }
+}
@@ -0,0 +1,349 @@
+package marsrover;
+
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simultaneous, tick-based execution of the rovers' move commands.
+ *
+ * Instead of one rover finishing all of its commands before the next one
+ * starts, every rover executes one command per tick, all at the same time.
+ * Turns and moves follow the usual rules, with two additions for rovers
+ * moving at once: a rover can only move into a cell that was free at the
+ * start of the tick, and when several rovers move into the same cell the
+ * one with the lowest ID wins while the others stay put. The result does not
+ * depend on the number of threads.
+ *
+ * Each tick has two phases separated by a Phaser, which has no global lock.
+ * In the claim phase every worker thread turns its rovers and claims the
+ * target cells of its moving rovers with a compare-and-set in the tick's
+ * cell table, keeping the lowest ID. In the commit phase the winners move,
+ * and every rover enters its cell in the table of the next tick as
+ * occupied.
+ *
+ * A cell table is an open-addressing hash table of cells, sized from the
+ * fleet and not from the plateau, holding the cells occupied at the start
+ * of the tick and the cells claimed during it. There are two tables used in
+ * turn: the one of the next tick is cleared during the claim phase, while
+ * no one reads it. If a worker fails, the Phaser is terminated so that the
+ * others stop at the next phase, and run() throws the failure.
+ *
+ * @author Tempest
+ */
+public class TickSimulation {
+
+    private final Plateau plateau;
+    private final int width;
+    private final int size;
+    private final int[] x;
+    private final int[] y;
+    private final byte[] heading;
+    private final CommandArena commands;
+    private final CommandPattern[] patterns;
+    private final long[] commandStart;
+    private final int[] commandLength;
+    private final int[] targets;
+    private final AtomicLongArray[] tableCells = new AtomicLongArray[2];
+    private final AtomicLongArray[] tableClaims = new AtomicLongArray[2];
+    private final int tableMask;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final int ticks;
+
+    /**
+     * Claim of a cell occupied at the start of the tick, which no rover can
+     * take.
+     */
+    private static final long OCCUPIED = Long.MAX_VALUE;
+
+    /**
+     * Constructs a simulation for the deployed rovers.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of deployed Rover objects, ordered by ID
+     * @throws IllegalArgumentException if a rover has more commands than an
+     * int number of ticks
+     */
+    public TickSimulation(Plateau p, List<Rover> roversList) {
+        this.plateau = p;
+        this.width = p.getWidth();
+        this.size = roversList.size();
+        this.x = new int[size];
+        this.y = new int[size];
+        this.heading = new byte[size];
+        this.patterns = new CommandPattern[size];
+        this.commandStart = new long[size];
+        this.commandLength = new int[size];
+        this.targets = new int[size];
+        // room for every rover's cell and target at half load
+        int capacity = 16;
+        while (capacity < 4L * size && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        this.tableMask = capacity - 1;
+        for (int t = 0; t < 2; t++) {
+            tableCells[t] = new AtomicLongArray(capacity);
+            tableClaims[t] = new AtomicLongArray(capacity);
+        }
+        // gather the commands into one arena, as the rovers may come from
+        // different fleets; patterns are read as they are
+        long total = 0;
+        for (Rover rover : roversList) {
+            total += rover.getFleet().getCommandLength(rover.getSlot());
+        }
+        this.commands = new CommandArena(total);
+        int longest = 0;
+        for (int i = 0; i < size; i++) {
+            Rover rover = roversList.get(i);
+            FleetStore fleet = rover.getFleet();
+            int slot = rover.getSlot();
+            x[i] = rover.getX();
+            y[i] = rover.getY();
+            heading[i] = fleet.getHeading(slot);
+            patterns[i] = fleet.getPattern(slot);
+            if (patterns[i] != null) {
+                if (patterns[i].length() > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Move commands are too long for the tick simulation: "
+                            + patterns[i].length());
+                }
+                commandLength[i] = (int) patterns[i].length();
+            } else {
+                commandLength[i] = fleet.getCommandLength(slot);
+                commandStart[i] = commands.append(fleet.getCommands(), fleet.getCommandStart(slot),
+                        commandLength[i]);
+            }
+            longest = Math.max(longest, commandLength[i]);
+            tableClaims[0].set(slot(0, cell(x[i], y[i])), OCCUPIED);
+        }
+        this.ticks = longest;
+    }
+
+    /**
+     * Runs the rovers of the list tick by tick, then stores the final
+     * positions in the Rover objects and the caller's occupancy index.
+     *
+     * @param p - the initialized Plateau object
+     * @param roversList - list of deployed Rover objects, ordered by ID
+     * @param occupancy - occupancy index in sync with the roversList
+     * @param threads - number of threads to run the ticks on
+     */
+    public static void moveRovers(Plateau p, List<Rover> roversList, Occupancy occupancy, int threads) {
+        TickSimulation simulation = new TickSimulation(p, roversList);
+        simulation.run(threads);
+        for (Rover rover : roversList) {
+            occupancy.vacate(rover.getX(), rover.getY());
+        }
+        for (int i = 0; i < simulation.size; i++) {
+            Rover rover = roversList.get(i);
+            FleetStore fleet = rover.getFleet();
+            fleet.moveTo(rover.getSlot(), simulation.x[i], simulation.y[i]);
+            fleet.heading[rover.getSlot()] = simulation.heading[i];
+            occupancy.occupy(simulation.x[i], simulation.y[i]);
+        }
+    }
+
+    /**
+     * Get the number of ticks, which is the length of the longest command
+     * String.
+     *
+     * @return integer representing the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Runs every tick. The rovers and the cell tables are split into one
+     * contiguous range per thread; the calling thread works on the first
+     * range.
+     *
+     * @param threads - number of threads to run the ticks on
+     * @throws RuntimeException or Error thrown by a worker thread
+     */
+    public void run(int threads) {
+        threads = Math.max(1, Math.min(threads, Math.max(1, size)));
+        Phaser phaser = new Phaser(threads);
+        Thread[] workers = new Thread[threads - 1];
+        for (int t = 1; t < threads; t++) {
+            final int part = t;
+            final int parts = threads;
+            workers[t - 1] = new Thread(() -> work(phaser, part, parts), "tick-worker-" + t);
+            workers[t - 1].setDaemon(true);
+            workers[t - 1].start();
+        }
+        work(phaser, 0, threads);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        } else if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+    }
+
+    /**
+     * Gets the position of a rover after run().
+     *
+     * @param i - index of the rover in the list
+     * @return String of format "x y D", same as Rover.getPosition()
+     */
+    public String getPosition(int i) {
+        return x[i] + " " + y[i] + " " + FleetStore.directionOf(heading[i]);
+    }
+
+    /**
+     * Runs every tick on one part of the rovers, clearing the same part of
+     * the next tick's cell table. Stops when the phaser is terminated by a
+     * failing worker.
+     */
+    private void work(Phaser phaser, int part, int parts) {
+        int from = (int) ((long) size * part / parts);
+        int to = (int) ((long) size * (part + 1) / parts);
+        int clearFrom = (int) ((long) (tableMask + 1) * part / parts);
+        int clearTo = (int) ((long) (tableMask + 1) * (part + 1) / parts);
+        try {
+            for (int tick = 0; tick < ticks; tick++) {
+                int table = tick & 1;
+                for (int i = from; i < to; i++) {
+                    claim(i, tick, table);
+                }
+                for (int s = clearFrom; s < clearTo; s++) {
+                    tableCells[table ^ 1].set(s, 0);
+                    tableClaims[table ^ 1].set(s, 0);
+                }
+                if (phaser.arriveAndAwaitAdvance() < 0) {
+                    return;
+                }
+                for (int i = from; i < to; i++) {
+                    commit(i, table);
+                }
+                if (phaser.arriveAndAwaitAdvance() < 0) {
+                    return;
+                }
+                if (MissionMetrics.ENABLED && part == 0) {
+                    MissionMetrics.progress(1);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+            phaser.forceTermination();
+        }
+    }
+
+    /**
+     * Executes a turn, or claims the target cell of a move.
+     */
+    private void claim(int i, int tick, int table) {
+        targets[i] = -1;
+        if (tick >= commandLength[i]) {
+            return;
+        }
+        int h = heading[i];
+        if (MissionMetrics.ENABLED) {
+            MissionMetrics.commands(1);
+        }
+        int code = patterns[i] != null ? patterns[i].codeAt(tick) : commands.get(commandStart[i] + tick);
+        switch (code) {
+            case CommandArena.CODE_LEFT:
+                heading[i] = FleetStepper.LEFT[h];
+                break;
+            case CommandArena.CODE_RIGHT:
+                heading[i] = FleetStepper.RIGHT[h];
+                break;
+            case CommandArena.CODE_MOVE:
+                int newX = x[i] + FleetStepper.DX[h];
+                int newY = y[i] + FleetStepper.DY[h];
+                if (plateau.contains(newX, newY)) {
+                    int target = plateau.isBlocked(newX, newY) ? -1 : slot(table, cell(newX, newY));
+                    if (target >= 0 && claimCell(table, target, i + 1)) {
+                        targets[i] = target;
+                    } else if (MissionMetrics.ENABLED) {
+                        MissionMetrics.blocked(1, target < 0 ? MissionMetrics.Block.TERRAIN
+                                : MissionMetrics.Block.ROVER);
+                    }
+                } else if (MissionMetrics.ENABLED) {
+                    MissionMetrics.blocked(1, MissionMetrics.Block.EDGE);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Moves a rover whose claim survived the claim phase.
+     */
+    private void commit(int i, int table) {
+        int target = targets[i];
+        if (target >= 0 && tableClaims[table].get(target) == i + 1) {
+            long cell = tableCells[table].get(target) - 1;
+            x[i] = (int) (cell % width);
+            y[i] = (int) (cell / width);
+            if (MissionMetrics.ENABLED) {
+                MissionMetrics.moves(1);
+            }
+        } else if (target >= 0 && MissionMetrics.ENABLED) {
+            // lost the cell to a lower ID
+            MissionMetrics.blocked(1, MissionMetrics.Block.ROVER);
+        }
+        tableClaims[table ^ 1].set(slot(table ^ 1, cell(x[i], y[i])), OCCUPIED);
+    }
+
+    /**
+     * Claims a cell for this tick unless it was occupied at the start of the
+     * tick or a lower ID already holds it.
+     *
+     * @return false if the cell is occupied or held by a lower ID
+     */
+    private boolean claimCell(int table, int target, long claim) {
+        AtomicLongArray claims = tableClaims[table];
+        while (true) {
+            long current = claims.get(target);
+            if (current != 0 && current <= claim) {
+                return current == claim;
+            }
+            if (current == OCCUPIED) {
+                return false;
+            }
+            if (claims.compareAndSet(target, current, claim)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of a cell in a cell table, adding the cell if it is
+     * not there yet.
+     *
+     * @return index of the entry
+     */
+    private int slot(int table, long cell) {
+        AtomicLongArray cells = tableCells[table];
+        long key = cell + 1;
+        int s = hash(key) & tableMask;
+        while (true) {
+            long k = cells.get(s);
+            if (k == key || (k == 0 && (cells.compareAndSet(s, 0, key) || cells.get(s) == key))) {
+                return s;
+            }
+            s = (s + 1) & tableMask;
+        }
+    }
+
+    private long cell(int cx, int cy) {
+        return (long) cy * width + cx;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
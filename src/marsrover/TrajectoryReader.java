@@ -0,0 +1,283 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a trace file written by TrajectoryRecorder.
+ *
+ * The index at the end of the file gives the position of each rover's
+ * path, so a path is found with one read, whatever the size of the trace.
+ * A Path then walks the step records of one rover, keeping its pose after
+ * each record, through a small buffer of its own.
+ *
+ * @author Tempest
+ */
+public class TrajectoryReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long index;
+    private final int slots;
+
+    /**
+     * Opens a trace file and reads its index position.
+     *
+     * @param file - the trace file
+     * @throws IOException if the file can't be read or is not a trace
+     */
+    public TrajectoryReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TrajectoryRecorder.HEADER_BYTES + TrajectoryRecorder.TRAILER_BYTES) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            ByteBuffer header = read(0, TrajectoryRecorder.HEADER_BYTES);
+            if (!magic(header) || header.getInt() != TrajectoryRecorder.VERSION) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            ByteBuffer trailer = read(size - TrajectoryRecorder.TRAILER_BYTES, TrajectoryRecorder.TRAILER_BYTES);
+            index = trailer.getLong();
+            slots = trailer.getInt();
+            if (!magic(trailer) || slots < 0 || index < TrajectoryRecorder.HEADER_BYTES
+                    || index + 8L * slots != size - TrajectoryRecorder.TRAILER_BYTES) {
+                throw new IOException("Trace file is incomplete: " + file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean magic(ByteBuffer buffer) {
+        byte[] magic = new byte[TrajectoryRecorder.MAGIC.length];
+        buffer.get(magic);
+        return Arrays.equals(magic, TrajectoryRecorder.MAGIC);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Trace file is truncated: " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Get the number of slots covered by the index, the highest recorded
+     * slot plus one.
+     *
+     * @return number of slots
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Finds the path of a rover.
+     *
+     * @param slot - slot of the rover in the fleet
+     * @return the path, positioned before its first step, or null if the
+     * rover has no recorded path
+     * @throws IOException if the file can't be read
+     */
+    public Path path(int slot) throws IOException {
+        if (slot < 0 || slot >= slots) {
+            return null;
+        }
+        long position = read(index + 8L * slot, 8).getLong();
+        return position < 0 ? null : new Path(position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Cursor over the step records of one rover's path.
+     */
+    public class Path {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long position;
+        private final int slot;
+        private final int startX;
+        private final int startY;
+        private final byte startHeading;
+        private int x;
+        private int y;
+        private byte heading;
+        private int kind = -1;
+        private long count;
+
+        Path(long position) throws IOException {
+            this.position = position;
+            buffer.limit(0);
+            slot = (int) varint();
+            startX = unzigzag(varint());
+            startY = unzigzag(varint());
+            startHeading = (byte) (read() & 3);
+            x = startX;
+            y = startY;
+            heading = startHeading;
+        }
+
+        private int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                if (position >= index) {
+                    throw new EOFException("Trace file is truncated: " + file);
+                }
+                buffer.limit((int) Math.min(BUFFER_SIZE, index - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("Trace file is truncated: " + file);
+                    }
+                }
+                position += buffer.limit();
+                buffer.flip();
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+            throw new IOException("Trace file has a malformed record: " + file);
+        }
+
+        private int unzigzag(long value) {
+            return (int) (value >>> 1) ^ -(int) (value & 1);
+        }
+
+        /**
+         * Reads the next step record and applies it to the pose.
+         *
+         * @return false once the end of the path is reached
+         * @throws IOException if the file can't be read or is malformed
+         */
+        public boolean next() throws IOException {
+            if (kind == TrajectoryRecorder.END) {
+                return false;
+            }
+            long record = varint();
+            kind = (int) record & 3;
+            count = record >>> 2;
+            switch (kind) {
+                case TrajectoryRecorder.MOVES:
+                    x += (int) (FleetStepper.DX[heading] * count);
+                    y += (int) (FleetStepper.DY[heading] * count);
+                    return true;
+                case TrajectoryRecorder.TURN:
+                    heading = (byte) ((heading + count) & 3);
+                    return true;
+                case TrajectoryRecorder.BLOCKED:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Get the slot of the rover in the fleet.
+         *
+         * @return slot of the rover
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        /**
+         * Get the X coordinate the rover started from.
+         *
+         * @return X coordinate before the first step
+         */
+        public int getStartX() {
+            return startX;
+        }
+
+        /**
+         * Get the Y coordinate the rover started from.
+         *
+         * @return Y coordinate before the first step
+         */
+        public int getStartY() {
+            return startY;
+        }
+
+        /**
+         * Get the heading the rover started with.
+         *
+         * @return heading before the first step, 0 to 3 for N, E, S, W
+         */
+        public byte getStartHeading() {
+            return startHeading;
+        }
+
+        /**
+         * Get the X coordinate of the rover after the current record.
+         *
+         * @return X coordinate
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Get the Y coordinate of the rover after the current record.
+         *
+         * @return Y coordinate
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Get the heading of the rover after the current record.
+         *
+         * @return heading, 0 to 3 for N, E, S, W
+         */
+        public byte getHeading() {
+            return heading;
+        }
+
+        /**
+         * Get the kind of the current record.
+         *
+         * @return TrajectoryRecorder.MOVES, BLOCKED, TURN or END
+         */
+        public int getKind() {
+            return kind;
+        }
+
+        /**
+         * Get the count of the current record: cells moved, moves blocked,
+         * or quarter turns to the right.
+         *
+         * @return count of the current record
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+}
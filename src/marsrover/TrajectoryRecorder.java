@@ -0,0 +1,297 @@
+package marsrover;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Records the path of every rover into a trace file while a mission runs.
+ *
+ * Attached to a FleetStepper, the recorder receives every turn and move of
+ * the rovers. A path is the start pose of a rover followed by its steps,
+ * each step record being the change from the pose before it: a rotation,
+ * a number of unit moves along the heading, or a number of moves blocked
+ * by the plateau edge, the terrain or another rover. Steps of one kind in a
+ * row share a record, and turns in a row become their net rotation, so a
+ * turn that brings the rover back to its heading leaves no record. Runs of
+ * M resolved in one ray-cast are recorded in constant time.
+ *
+ * Records are unsigned LEB128 varints holding the count shifted left over a
+ * two-bit kind, so most records take one byte. They are formatted into one
+ * reusable 64 KiB buffer, which goes to the channel whenever it fills up;
+ * the memory used does not grow with the mission, apart from the index of
+ * one long per rover.
+ *
+ * The trace starts with the four bytes "MRTR" and an int version number
+ * (1). Each path is a varint slot, the start X and Y as zigzag varints, a
+ * heading byte (0 to 3 for N, E, S, W), the step records and an end record.
+ * After the paths comes the index, the file position of the path of each
+ * slot or -1, then the position of the index as a long, the number of slots
+ * as an int and "MRTR" again. Ints and longs are big-endian. TrajectoryReader
+ * reads the trace.
+ *
+ * Rovers must run one after the other, as in MarsRover.moveRovers and
+ * StreamingMission. A rover that runs again later gets a new path, and the
+ * index points at the last one.
+ *
+ * @author Tempest
+ */
+public class TrajectoryRecorder implements Closeable {
+
+    /**
+     * First and last bytes of a trace file.
+     */
+    public static final byte[] MAGIC = {'M', 'R', 'T', 'R'};
+
+    /**
+     * Version of the trace format written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Kind of a record of unit moves.
+     */
+    public static final int MOVES = 0;
+
+    /**
+     * Kind of a record of blocked moves.
+     */
+    public static final int BLOCKED = 1;
+
+    /**
+     * Kind of a record of a rotation, in quarter turns to the right.
+     */
+    public static final int TURN = 2;
+
+    /**
+     * Kind of the record ending a path.
+     */
+    public static final int END = 3;
+
+    /**
+     * Size of the header: magic and version.
+     */
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * Size of the trailer after the index: index position, slots and magic.
+     */
+    static final int TRAILER_BYTES = 16;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Longest path start: slot and coordinates as varints and a heading.
+     */
+    private static final int MAX_START_BYTES = 16;
+
+    /**
+     * Longest record: a count of up to 62 bits and the kind as a varint.
+     */
+    private static final int MAX_RECORD_BYTES = 10;
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private long written;
+    private long[] paths = new long[16];
+    private int slots;
+    private int slot = -1;
+    private int kind = -1;
+    private long count;
+    private int rotation;
+
+    /**
+     * Constructs a recorder writing to a channel, such as a FileChannel.
+     * Closing the recorder writes the index and closes the channel.
+     *
+     * @param channel - the channel to write the trace to
+     * @throws IOException if the header can't be written
+     */
+    public TrajectoryRecorder(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        Arrays.fill(paths, -1);
+        System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+        pos = MAGIC.length;
+        putInt(VERSION);
+    }
+
+    /**
+     * Get the number of bytes of the trace so far.
+     *
+     * @return bytes written to the channel or waiting in the buffer
+     */
+    public long size() {
+        return written + pos;
+    }
+
+    /**
+     * Called before a rover steps. Starts its path, ending the path of the
+     * rover before it, unless it is the rover being recorded.
+     *
+     * @param slot - slot of the rover
+     * @param fleet - the fleet, with the rover at its pose before the step
+     */
+    void track(int slot, FleetStore fleet) {
+        if (slot == this.slot) {
+            return;
+        }
+        endPath();
+        if (slot >= paths.length) {
+            int capacity = Math.max(paths.length * 2, slot + 1);
+            paths = Arrays.copyOf(paths, capacity);
+            Arrays.fill(paths, slots, capacity, -1);
+        }
+        reserve(MAX_START_BYTES);
+        paths[slot] = size();
+        slots = Math.max(slots, slot + 1);
+        this.slot = slot;
+        putVarint(slot);
+        putVarint(zigzag(fleet.x[slot]));
+        putVarint(zigzag(fleet.y[slot]));
+        buffer[pos++] = fleet.heading[slot];
+    }
+
+    /**
+     * Records a rotation of the rover being recorded.
+     *
+     * @param quarterTurns - number of 90 degree turns to the right
+     */
+    void turned(int quarterTurns) {
+        rotation = (rotation + quarterTurns) & 3;
+    }
+
+    /**
+     * Records unit moves of the rover being recorded.
+     *
+     * @param moves - number of cells moved
+     */
+    void moved(long moves) {
+        add(MOVES, moves);
+    }
+
+    /**
+     * Records blocked moves of the rover being recorded.
+     *
+     * @param moves - number of M commands that left the rover in place
+     */
+    void blocked(long moves) {
+        add(BLOCKED, moves);
+    }
+
+    private void add(int kind, long moves) {
+        if (moves == 0) {
+            return;
+        }
+        if (rotation != 0 || this.kind != kind) {
+            flushRecord();
+            this.kind = kind;
+        }
+        count += moves;
+    }
+
+    /**
+     * Writes the pending moves and then the pending turn, if any. Turns are
+     * only written once the rover moves again, so that a turn cancelled by
+     * the next one does not split a run of moves.
+     */
+    private void flushRecord() {
+        if (kind != -1) {
+            reserve(MAX_RECORD_BYTES);
+            putVarint(count << 2 | kind);
+        }
+        if (rotation != 0) {
+            reserve(1);
+            buffer[pos++] = (byte) (rotation << 2 | TURN);
+        }
+        kind = -1;
+        count = 0;
+        rotation = 0;
+    }
+
+    private void endPath() {
+        if (slot != -1) {
+            flushRecord();
+            reserve(1);
+            buffer[pos++] = END;
+            slot = -1;
+        }
+    }
+
+    /**
+     * Ends the last path and writes the index, then closes the channel.
+     *
+     * @throws IOException if the trace can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endPath();
+            long index = size();
+            for (int i = 0; i < slots; i++) {
+                reserve(8);
+                putLong(paths[i]);
+            }
+            reserve(TRAILER_BYTES);
+            putLong(index);
+            putInt(slots);
+            System.arraycopy(MAGIC, 0, buffer, pos, MAGIC.length);
+            pos += MAGIC.length;
+            flushBuffer();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static long zigzag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    private void reserve(int bytes) {
+        if (pos > BUFFER_SIZE - bytes) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Writes the buffer to the channel. Write errors are thrown as
+     * UncheckedIOException, to get through the FleetStepper calls.
+     */
+    private void flushBuffer() {
+        try {
+            ByteBuffer block = ByteBuffer.wrap(buffer, 0, pos);
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += pos;
+        pos = 0;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        buffer[pos++] = (byte) (value >>> 24);
+        buffer[pos++] = (byte) (value >>> 16);
+        buffer[pos++] = (byte) (value >>> 8);
+        buffer[pos++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+}
@@ -0,0 +1,230 @@
+package marsrover;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Errors found while validating a mission file, collected without throwing.
+ *
+ * Every error is counted by its code. The first MAX_ENTRIES errors are also
+ * kept with their line and column, in parallel primitive arrays, so even a
+ * very dirty file of millions of rovers gives a report of bounded size.
+ *
+ * @author Tempest
+ */
+public class ValidationReport {
+
+    /**
+     * Kinds of error, with the message the exceptions of the normal parse
+     * print for them.
+     */
+    public enum Code {
+        PLATEAU("Plateau requires top and right coordinates!"),
+        PLATEAU_SIZE("Plateau top and right coordinates must be greater than 0!"),
+        ROVER("Rover requires X and Y coordinates and a direction."),
+        DIRECTION("Direction must be N, S, E, or W."),
+        COMMAND("Movement command must be L, R, or M."),
+        REJECTED("Rover was rejected by the mission.");
+
+        private final String message;
+
+        Code(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Get the description of the error.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Number of errors kept with their line and column.
+     */
+    public static final int MAX_ENTRIES = 1000;
+
+    private static final Code[] CODES = Code.values();
+
+    private long[] lines = new long[16];
+    private int[] columns = new int[16];
+    private byte[] codes = new byte[16];
+    private int entries;
+    private final long[] counts = new long[CODES.length];
+    private long rovers;
+    private long skipped;
+    private boolean stopped;
+
+    /**
+     * Records an error.
+     *
+     * @param line - line of the error, from 1
+     * @param column - column of the error, from 1
+     * @param code - kind of error
+     */
+    void error(long line, int column, Code code) {
+        counts[code.ordinal()]++;
+        if (entries < MAX_ENTRIES) {
+            if (entries == lines.length) {
+                int capacity = Math.min(MAX_ENTRIES, entries * 2);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                codes = Arrays.copyOf(codes, capacity);
+            }
+            lines[entries] = line;
+            columns[entries] = column;
+            codes[entries] = (byte) code.ordinal();
+            entries++;
+        }
+    }
+
+    /**
+     * Counts a rover line.
+     *
+     * @param valid - false if the rover is skipped because of an error
+     */
+    void rover(boolean valid) {
+        rovers++;
+        if (!valid) {
+            skipped++;
+        }
+    }
+
+    /**
+     * Marks the validation as stopped before the end of the file.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Checks whether the file had no errors.
+     *
+     * @return true if no error was found
+     */
+    public boolean isValid() {
+        return getErrorCount() == 0;
+    }
+
+    /**
+     * Checks whether the validation stopped before the end of the file,
+     * after a plateau error or the first error in strict mode.
+     *
+     * @return true if the rest of the file was not checked
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Get the total number of errors.
+     *
+     * @return number of errors
+     */
+    public long getErrorCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of errors of one kind.
+     *
+     * @param code - kind of error
+     * @return number of errors
+     */
+    public long getErrorCount(Code code) {
+        return counts[code.ordinal()];
+    }
+
+    /**
+     * Get the number of rover lines checked.
+     *
+     * @return number of rovers
+     */
+    public long getRoverCount() {
+        return rovers;
+    }
+
+    /**
+     * Get the number of rovers skipped because of an error.
+     *
+     * @return number of skipped rovers
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Get the number of errors kept with their location.
+     *
+     * @return number of entries, at most MAX_ENTRIES
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Get the line of a kept error.
+     *
+     * @param entry - index of the entry
+     * @return line number, from 1
+     */
+    public long getLine(int entry) {
+        return lines[entry];
+    }
+
+    /**
+     * Get the column of a kept error.
+     *
+     * @param entry - index of the entry
+     * @return column number, from 1
+     */
+    public int getColumn(int entry) {
+        return columns[entry];
+    }
+
+    /**
+     * Get the kind of a kept error.
+     *
+     * @param entry - index of the entry
+     * @return the error code
+     */
+    public Code getCode(int entry) {
+        return CODES[codes[entry]];
+    }
+
+    /**
+     * Prints the summary, the count of each kind of error and the kept
+     * errors with their location.
+     *
+     * @param out - the stream to print to
+     */
+    public void print(PrintStream out) {
+        StringBuilder text = new StringBuilder(64 + entries * 64);
+        text.append("Checked ").append(rovers).append(" rovers: ").append(getErrorCount()).append(" errors, ")
+                .append(skipped).append(" rovers skipped");
+        if (stopped) {
+            text.append(", stopped at the first error");
+        }
+        text.append('\n');
+        for (Code code : CODES) {
+            if (counts[code.ordinal()] > 0) {
+                text.append("  ").append(code).append(' ').append(counts[code.ordinal()]).append('\n');
+            }
+        }
+        for (int i = 0; i < entries; i++) {
+            text.append("Line ").append(lines[i]).append(", column ").append(columns[i]).append(": ")
+                    .append(CODES[codes[i]].getMessage()).append('\n');
+        }
+        if (getErrorCount() > entries) {
+            text.append("... and ").append(getErrorCount() - entries).append(" more\n");
+        }
+        out.print(text);
+    }
+}
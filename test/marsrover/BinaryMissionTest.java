@@ -0,0 +1,157 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class BinaryMissionTest {
+
+    private static File writeMission(String text) throws IOException {
+        File file = File.createTempFile("mission", ".txt");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    private static File toBinary(File text) throws Exception {
+        File binary = File.createTempFile("mission", ".bin");
+        binary.deleteOnExit();
+        try (MissionFile input = new MissionFile(text)) {
+            MissionConverter.toBinary(input, binary);
+        }
+        return binary;
+    }
+
+    private static List<String> run(File mission, boolean streaming) throws Exception {
+        List<String> positions = new ArrayList<>();
+        try (MissionFile file = new MissionFile(mission)) {
+            MissionReader reader = MissionReader.open(file);
+            if (streaming) {
+                StreamingMission loader = new StreamingMission(file, reader);
+                reader.parse(loader);
+                loader.run();
+                for (int slot = 0; slot < loader.getFleet().size(); slot++) {
+                    positions.add(loader.getFleet().rover(slot).getPosition());
+                }
+            } else {
+                FleetLoader loader = new FleetLoader(file, reader);
+                reader.parse(loader);
+                MarsRover.moveRovers(loader.getPlateau(), loader.getRovers(), loader.getOccupancy());
+                for (Rover rover : loader.getRovers()) {
+                    positions.add(rover.getPosition());
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Test of MissionReader.open, picking the binary format, and of
+     * BinaryMissionParser giving the same results as the text format.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSameResultsAsText() throws Exception {
+        File text = writeMission("5 5\n\n1 2 N\n\nLMLMLMLMM\n\n3 3 E\n\nMMRMMRMRRM\n\n"
+                + "4 4 s\n\nM\n\n9 9 N\n\nM\n\n0 0 W\n\n");
+        File binary = toBinary(text);
+        try (MissionFile file = new MissionFile(binary)) {
+            assertTrue(MissionReader.open(file) instanceof BinaryMissionParser);
+        }
+        assertEquals(run(text, false), run(binary, false));
+        assertEquals(run(text, true), run(binary, true));
+        assertEquals("1 3 N", run(binary, false).get(0));
+        assertEquals("5 1 E", run(binary, false).get(1));
+    }
+
+    /**
+     * Test of MissionConverter, converting a generated mission to binary and
+     * back to text.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        MissionGenerator generator = new MissionGenerator();
+        generator.setPlateau(99999, 70000);
+        generator.setRovers(300);
+        generator.setCommandLength(201);
+        File text = File.createTempFile("mission", ".txt");
+        text.deleteOnExit();
+        generator.write(text);
+
+        File binary = toBinary(text);
+        assertTrue(binary.length() * 3 < text.length());
+        File back = File.createTempFile("mission", ".txt");
+        back.deleteOnExit();
+        try (MissionFile input = new MissionFile(binary)) {
+            MissionConverter.toText(input, back);
+        }
+        assertArrayEquals(Files.readAllBytes(text.toPath()), Files.readAllBytes(back.toPath()));
+        assertEquals(run(text, false), run(binary, true));
+    }
+
+    /**
+     * Test of BinaryMissionParser.checkCommands, rejecting a deployed rover
+     * with an invalid command like the text format does.
+     * @throws java.lang.Exception
+     */
+    @Test(expected = Rover.InvalidInputException.class)
+    public void testInvalidCommand() throws Exception {
+        run(toBinary(writeMission("5 5\n\n1 2 N\n\nLMX\n")), true);
+    }
+
+    /**
+     * Test of MissionConverter and StreamingMission on repeat groups: the
+     * binary file holds the expanded commands, and every path gives the same
+     * results.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRepeatGroups() throws Exception {
+        File text = writeMission("5 5\n\n1 2 N\n\nL(ML)3MM\n\n3 3 E\n\n(MM(RM)2)2RRM\n\n"
+                + "0 0 N\n\n(M)100000\n");
+        File binary = toBinary(text);
+        File back = File.createTempFile("mission", ".txt");
+        back.deleteOnExit();
+        try (MissionFile input = new MissionFile(binary)) {
+            MissionConverter.toText(input, back);
+        }
+        String expanded = new String(Files.readAllBytes(back.toPath()), StandardCharsets.US_ASCII);
+        assertTrue(expanded.startsWith("5 5\n\n1 2 N\n\nLMLMLMLMM\n\n3 3 E\n\nMMRMRMMMRMRMRRM\n\n"));
+        assertEquals("1 3 N", run(text, false).get(0));
+        assertEquals(run(text, false), run(text, true));
+        assertEquals(run(text, false), run(binary, true));
+    }
+
+    /**
+     * Test of MissionConverter rejecting repeat groups that expand past what
+     * a binary rover can hold.
+     * @throws java.lang.Exception
+     */
+    @Test(expected = Rover.InvalidInputException.class)
+    public void testRepeatGroupsTooLong() throws Exception {
+        toBinary(writeMission("5 5\n\n1 2 N\n\n(MM)1073741824\n"));
+    }
+
+    /**
+     * Test of StreamingMission rejecting malformed repeat groups before any
+     * rover moves.
+     * @throws java.lang.Exception
+     */
+    @Test(expected = Rover.InvalidInputException.class)
+    public void testStreamingMalformedGroups() throws Exception {
+        run(writeMission("5 5\n\n1 2 N\n\nM(LM\n"), true);
+    }
+}
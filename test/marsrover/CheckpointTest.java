@@ -0,0 +1,143 @@
+package marsrover;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class CheckpointTest {
+
+    private static File generateMission(int rovers, int commands) throws IOException {
+        File file = File.createTempFile("mission", ".txt");
+        file.deleteOnExit();
+        MissionGenerator generator = new MissionGenerator();
+        generator.setPlateau(20, 20);
+        generator.setRovers(rovers);
+        generator.setCommandLength(commands);
+        generator.setCollisionRate(0.5);
+        generator.setSeed(7);
+        generator.write(file);
+        return file;
+    }
+
+    private static File checkpointFile() throws IOException {
+        File file = File.createTempFile("checkpoint", ".dat");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static List<String> positions(FleetLoader loader) {
+        List<String> positions = new ArrayList<>();
+        for (Rover rover : loader.getRovers()) {
+            positions.add(rover.getPosition());
+        }
+        return positions;
+    }
+
+    /**
+     * Test of Checkpoint.write and Checkpoint.read.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteAndRead() throws Exception {
+        FleetStore fleet = new FleetStore(4);
+        fleet.add(1, 2, (byte) 0);
+        fleet.add(3, 4, (byte) 3);
+        Checkpoint checkpoint = new Checkpoint(5, 6, 1234, 2);
+        checkpoint.copyFrom(fleet, new int[]{7, 0});
+
+        File file = checkpointFile();
+        checkpoint.write(file);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals(28 + 2 * 17 + 8, file.length());
+
+        Checkpoint read = Checkpoint.read(file);
+        assertEquals(5, read.rightX);
+        assertEquals(6, read.topY);
+        assertEquals(1234, read.missionSize);
+        assertEquals(2, read.size());
+        assertEquals(3, read.x[1]);
+        assertEquals(4, read.y[1]);
+        assertEquals(3, read.heading[1]);
+        assertEquals(7, read.cursor[0]);
+    }
+
+    /**
+     * Test of Checkpoint.read, rejecting a damaged file.
+     * @throws java.lang.Exception
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptCheckpoint() throws Exception {
+        Checkpoint checkpoint = new Checkpoint(5, 5, 10, 1);
+        File file = checkpointFile();
+        checkpoint.write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(40);
+            raf.write(9);
+        }
+        Checkpoint.read(file);
+    }
+
+    /**
+     * Test of ResumableMission, interrupting a mission and resuming it from
+     * its last checkpoint.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        File mission = generateMission(40, 50);
+        List<String> expected;
+        try (MissionFile file = new MissionFile(mission)) {
+            FleetLoader loader = new FleetLoader(file, MissionReader.open(file));
+            loader.getReader().parse(loader);
+            MarsRover.moveRovers(loader.getPlateau(), loader.getRovers(), loader.getOccupancy());
+            expected = positions(loader);
+        }
+
+        File checkpoint = checkpointFile();
+        try (MissionFile file = new MissionFile(mission)) {
+            FleetLoader loader = new FleetLoader(file, MissionReader.open(file));
+            loader.getReader().parse(loader);
+            ResumableMission interrupted = new ResumableMission(loader, checkpoint, 0);
+            interrupted.chunk = 7;
+            assertFalse(interrupted.run(null, 1000));
+        }
+        assertTrue(checkpoint.exists());
+        assertTrue(Checkpoint.read(checkpoint).cursor[0] > 0);
+
+        try (MissionFile file = new MissionFile(mission)) {
+            FleetLoader loader = new FleetLoader(file, MissionReader.open(file));
+            loader.getReader().parse(loader);
+            ResumableMission resumed = new ResumableMission(loader, checkpoint, 0);
+            assertTrue(resumed.resume());
+            resumed.run(null);
+            assertEquals(expected, positions(loader));
+            assertEquals(50, resumed.getCursor(0));
+        }
+        assertFalse(checkpoint.exists());
+    }
+
+    /**
+     * Test of ResumableMission.resume, refusing a checkpoint of another
+     * mission.
+     * @throws java.lang.Exception
+     */
+    @Test(expected = IOException.class)
+    public void testResumeOtherMission() throws Exception {
+        File checkpoint = checkpointFile();
+        new Checkpoint(20, 20, 1, 3).write(checkpoint);
+        try (MissionFile file = new MissionFile(generateMission(3, 5))) {
+            FleetLoader loader = new FleetLoader(file, MissionReader.open(file));
+            loader.getReader().parse(loader);
+            new ResumableMission(loader, checkpoint, 0).resume();
+        }
+    }
+}
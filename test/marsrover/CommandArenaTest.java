@@ -0,0 +1,88 @@
+package marsrover;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class CommandArenaTest {
+
+    private static String randomCommands(Random random, int length) {
+        StringBuilder commands = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            commands.append("LRM".charAt(random.nextInt(3)));
+        }
+        return commands.toString();
+    }
+
+    /**
+     * Test of append and text methods, of class CommandArena, with ranges
+     * crossing word boundaries and an arena that has to grow.
+     */
+    @Test
+    public void testAppendAndText() {
+        Random random = new Random(42);
+        CommandArena arena = new CommandArena(1);
+        String[] commands = new String[200];
+        long[] starts = new long[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = randomCommands(random, random.nextInt(100));
+            starts[i] = arena.append(commands[i]);
+        }
+        for (int i = 0; i < commands.length; i++) {
+            assertEquals(commands[i], arena.text(starts[i], commands[i].length()));
+        }
+        assertEquals(starts[commands.length - 1] + commands[commands.length - 1].length(), arena.size());
+    }
+
+    /**
+     * Test of get method, of class CommandArena, giving the turn codes as
+     * quarter turns clockwise.
+     */
+    @Test
+    public void testGet() {
+        CommandArena arena = new CommandArena(4);
+        arena.append("MRLX");
+        assertEquals(CommandArena.CODE_MOVE, arena.get(0));
+        assertEquals(1, arena.get(1));
+        assertEquals(3, arena.get(2));
+        assertEquals(CommandArena.CODE_INVALID, arena.get(3));
+    }
+
+    /**
+     * Test of append method, of class CommandArena, copying a range of
+     * another arena.
+     */
+    @Test
+    public void testAppendFromArena() {
+        CommandArena source = new CommandArena(0);
+        source.append("LLLLLLLLLL");
+        long start = source.append("MRMLMMRRLLMMMMMMMMMMMMMMMMMMMMMMMMMMMRL");
+        CommandArena target = new CommandArena(0);
+        target.append("R");
+        long copied = target.append(source, start, 39);
+        assertEquals(1, copied);
+        assertEquals("MRMLMMRRLLMMMMMMMMMMMMMMMMMMMMMMMMMMMRL", target.text(copied, 39));
+    }
+
+    /**
+     * Test of setMoveCommands method, of class Rover, sharing the arena of
+     * the rover's fleet.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRoversShareArena() throws Exception {
+        FleetStore fleet = new FleetStore(2);
+        Rover first = fleet.rover(fleet.add(0, 0, (byte) 0));
+        Rover second = fleet.rover(fleet.add(1, 1, (byte) 1));
+        first.setMoveCommands("MMRM");
+        second.setMoveCommands("LMLMLM");
+        assertEquals("MMRM", first.getMoveCommands());
+        assertEquals("LMLMLM", second.getMoveCommands());
+        assertEquals(6, second.getMoveCommandCount());
+        assertEquals(10, fleet.getCommands().size());
+    }
+}
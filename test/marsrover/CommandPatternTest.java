@@ -0,0 +1,174 @@
+package marsrover;
+
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class CommandPatternTest {
+
+    /**
+     * Writes a random pattern and its expansion.
+     */
+    private static void randomPattern(Random random, int depth, StringBuilder pattern, StringBuilder expanded) {
+        int parts = 1 + random.nextInt(3);
+        for (int i = 0; i < parts; i++) {
+            if (depth < 3 && random.nextInt(3) == 0) {
+                StringBuilder body = new StringBuilder();
+                StringBuilder bodyExpanded = new StringBuilder();
+                randomPattern(random, depth + 1, body, bodyExpanded);
+                int count = random.nextInt(depth == 0 ? 40 : 6);
+                pattern.append('(').append(body).append(')').append(count);
+                for (int c = 0; c < count; c++) {
+                    expanded.append(bodyExpanded);
+                }
+            } else {
+                int length = random.nextInt(6);
+                for (int c = 0; c < length; c++) {
+                    char command = "MMMLR".charAt(random.nextInt(5));
+                    pattern.append(command);
+                    expanded.append(command);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of parse method, of class CommandPattern, expanding groups.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExpand() throws Exception {
+        FleetStore fleet = new FleetStore(1);
+        Rover rover = fleet.rover(fleet.add(0, 0, (byte) 0));
+        rover.setMoveCommands("M(LR)2(M(R)3)2()5(L)0M");
+        assertEquals("MLRLRMRRRMRRRM", rover.getMoveCommands());
+        assertEquals(14, rover.getMoveCommandCount());
+        assertNotNull(fleet.getPattern(0));
+        rover.setMoveCommands("MMR");
+        assertNull(fleet.getPattern(0));
+        assertEquals("MMR", rover.getMoveCommands());
+    }
+
+    /**
+     * Test of errorIndex and parse methods, of class CommandPattern, on
+     * malformed patterns.
+     */
+    @Test
+    public void testErrors() {
+        assertEquals(-1, CommandPattern.errorIndex("LM(MR(M)3)40"));
+        assertEquals(3, CommandPattern.errorIndex("(LM"));
+        assertEquals(4, CommandPattern.errorIndex("(LM)"));
+        assertEquals(2, CommandPattern.errorIndex("LM)2"));
+        assertEquals(4, CommandPattern.errorIndex("(LM)x"));
+        assertEquals(2, CommandPattern.errorIndex("(LX)2"));
+        assertEquals(-1, CommandPattern.errorIndex("(MM)2000000000"));
+        assertEquals(4, CommandPattern.errorIndex("(MM)1000000000000000000"));
+        assertEquals(4, CommandPattern.errorIndex("(MM)99999999999999999999999"));
+        try {
+            CommandPattern.parse("(M)1(");
+            fail("Expected InvalidInputException");
+        } catch (Rover.InvalidInputException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of run method, of class CommandPattern, against the expanded
+     * commands run one at a time, on crowded dense and sparse plateaus.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSameResultAsExpanded() throws Exception {
+        Random random = new Random(20);
+        for (int mission = 0; mission < 400; mission++) {
+            int size = 4 + random.nextInt(40);
+            Plateau p = new Plateau(size - 1, size - 1);
+            FleetStore fast = new FleetStore(8);
+            FleetStore slow = new FleetStore(8);
+            Occupancy fastCells = mission % 2 == 0 ? new OccupancyGrid(p) : new SparseOccupancy(p, 4);
+            Occupancy slowCells = new OccupancyGrid(p);
+            int rovers = 1 + random.nextInt(size * size / 8 + 1);
+            for (int i = 0; i < rovers; i++) {
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                if (!slowCells.isOccupied(x, y)) {
+                    byte heading = (byte) random.nextInt(4);
+                    fast.add(x, y, heading);
+                    slow.add(x, y, heading);
+                    fastCells.occupy(x, y);
+                    slowCells.occupy(x, y);
+                }
+            }
+            StringBuilder pattern = new StringBuilder();
+            StringBuilder expanded = new StringBuilder();
+            randomPattern(random, 0, pattern, expanded);
+            if (!CommandPattern.hasGroups(pattern)) {
+                pattern.insert(0, "(MMR)0");
+            }
+            fast.rover(0).setMoveCommands(pattern.toString());
+            assertEquals(expanded.toString(), fast.rover(0).getMoveCommands());
+
+            new FleetStepper(p, fastCells, fast).execute(0);
+            new FleetStepper(p, slowCells, slow).execute(0, expanded);
+            assertEquals(pattern.toString(), slow.rover(0).getPosition(), fast.rover(0).getPosition());
+            assertTrue(fastCells.isOccupied(fast.getX(0), fast.getY(0)));
+            assertEquals(slowCells.getOccupiedCount(), fastCells.getOccupiedCount());
+        }
+    }
+
+    /**
+     * Test of run method, of class CommandPattern, skipping ahead over a
+     * long unobstructed survey loop up to a blocking rover.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSkipToBlocker() throws Exception {
+        Plateau p = new Plateau(99999, 9);
+        FleetStore fleet = new FleetStore(2);
+        Occupancy occupancy = new OccupancyGrid(p);
+        fleet.add(0, 0, FleetStore.headingOf('E'));
+        fleet.add(90001, 1, FleetStore.headingOf('N'));
+        occupancy.occupy(0, 0);
+        occupancy.occupy(90001, 1);
+        fleet.rover(0).setMoveCommands("((LMRMRML)1000)1000");
+        new FleetStepper(p, occupancy, fleet).execute(0);
+        // every loop moves one cell East, passing through row 1
+        assertEquals("90000 0 E", fleet.rover(0).getPosition());
+    }
+
+    /**
+     * Test of codeAt, moves and run methods, of class CommandPattern, on a
+     * pattern far longer than an arena could hold, kept unexpanded.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testHugeCount() throws Exception {
+        CommandPattern pattern = CommandPattern.parse("R((LMRMLMRRMLLMR)1000000000000)1000");
+        assertEquals(1 + 13L * 1000000000000L * 1000, pattern.length());
+        assertEquals(CommandArena.CODE_RIGHT, pattern.codeAt(0));
+        assertEquals(CommandArena.CODE_LEFT, pattern.codeAt(1));
+        assertEquals(CommandArena.CODE_MOVE, pattern.codeAt(1 + 13L * 1000000000000L * 999 + 1));
+        assertEquals(CommandArena.CODE_RIGHT, pattern.codeAt(pattern.length() - 1));
+        // each repetition moves three cells North, one East and one South
+        long[] moves = pattern.moves(FleetStore.headingOf('N'));
+        assertEquals(3 * 1000000000000000L, moves[0]);
+        assertEquals(1000000000000000L, moves[1]);
+        assertEquals(1000000000000000L, moves[2]);
+        assertEquals(0, moves[3]);
+
+        Plateau p = new Plateau(9, 9);
+        FleetStore fleet = new FleetStore(1);
+        fleet.add(4, 4, FleetStore.headingOf('N'));
+        Rover rover = fleet.rover(0);
+        rover.setMoveCommands("R((LMRMLMRRMLLMR)1000000000000)1000");
+        assertEquals(0, fleet.getCommands().size());
+        assertEquals(pattern.length(), rover.getMoveCommandCount());
+        new FleetStepper(p, Occupancy.of(p, Collections.singletonList(rover)), fleet).execute(0);
+        assertEquals("9 9 E", rover.getPosition());
+    }
+}
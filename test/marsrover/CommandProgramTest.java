@@ -0,0 +1,91 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class CommandProgramTest {
+
+    /**
+     * Test of compile method, of class CommandProgram.
+     */
+    @Test
+    public void testCompileFoldsRunsAndTurns() {
+        assertEquals(1, CommandProgram.compile("MMMMMMMM").size());
+        assertEquals(1, CommandProgram.compile("MMLRMMRLMM").size());
+        assertEquals(3, CommandProgram.compile("MMLLLLLMM").size());
+        assertEquals(0, CommandProgram.compile("LLRRLRLR").size());
+    }
+
+    /**
+     * Test of run method, of class CommandProgram.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testRun() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Plateau p = new Plateau(5, 5);
+        Occupancy occupancy = new OccupancyGrid(p);
+        Rover instance = new Rover(3, 2, 'N', 0);
+        occupancy.occupy(3, 2);
+        occupancy.occupy(3, 5);
+        CommandProgram.compile("MMMMMMRMMMMMMMM").run(instance, p, occupancy);
+        assertEquals("5 4 E", instance.getPosition());
+        assertTrue(occupancy.isOccupied(5, 4));
+        assertFalse(occupancy.isOccupied(3, 2));
+    }
+
+    /**
+     * Test of run method, of class CommandProgram, against
+     * Rover.executeMovementCommands on random crowded missions, with both the
+     * dense and the sparse occupancy index.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testRunMatchesInterpreter() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Random random = new Random(7);
+        for (int mission = 0; mission < 200; mission++) {
+            Plateau p = new Plateau(random.nextInt(150), random.nextInt(20));
+            List<Rover> expected = new ArrayList<>();
+            List<Rover> actual = new ArrayList<>();
+            Occupancy dense = new OccupancyGrid(p);
+            Occupancy sparse = new SparseOccupancy(p, 4);
+            List<Rover> actualSparse = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                int x = random.nextInt(p.getWidth());
+                int y = random.nextInt(p.getHeight());
+                if (!dense.isOccupied(x, y)) {
+                    char direction = "NESW".charAt(random.nextInt(4));
+                    StringBuilder commands = new StringBuilder();
+                    for (int c = random.nextInt(200); c > 0; c--) {
+                        commands.append("MMMMMMLR".charAt(random.nextInt(8)));
+                    }
+                    expected.add(new Rover(x, y, direction, i));
+                    actual.add(new Rover(x, y, direction, i));
+                    actualSparse.add(new Rover(x, y, direction, i));
+                    expected.get(expected.size() - 1).setMoveCommands(commands.toString());
+                    dense.occupy(x, y);
+                    sparse.occupy(x, y);
+                }
+            }
+            Occupancy reference = Occupancy.of(p, expected);
+            for (int i = 0; i < expected.size(); i++) {
+                CommandProgram program = CommandProgram.compile(expected.get(i).getMoveCommands());
+                expected.get(i).executeMovementCommands(p, reference);
+                program.run(actual.get(i), p, dense);
+                program.run(actualSparse.get(i), p, sparse);
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+                assertEquals(expected.get(i).getPosition(), actualSparse.get(i).getPosition());
+            }
+        }
+    }
+}
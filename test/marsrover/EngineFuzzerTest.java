@@ -0,0 +1,91 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class EngineFuzzerTest {
+
+    /**
+     * Test that the reference engine gives the final positions of the
+     * original example.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testReferenceEngine() throws Exception {
+        Plateau p = new Plateau(5, 5);
+        FleetStore fleet = new FleetStore(2);
+        List<Rover> rovers = new ArrayList<>();
+        rovers.add(fleet.rover(fleet.add(1, 2, FleetStore.headingOf('N'))));
+        rovers.add(fleet.rover(fleet.add(3, 3, FleetStore.headingOf('E'))));
+        rovers.get(0).setMoveCommands("LMLMLMLMM");
+        rovers.get(1).setMoveCommands("MMRMMRMRRM");
+        Occupancy occupancy = Occupancy.of(p, rovers);
+        MissionEngine.forName("reference").moveRovers(p, rovers, occupancy);
+        assertEquals("1 3 N", rovers.get(0).getPosition());
+        assertEquals("5 1 E", rovers.get(1).getPosition());
+        assertTrue(occupancy.isOccupied(1, 3));
+        assertFalse(occupancy.isOccupied(1, 2));
+        assertEquals(2, occupancy.getOccupiedCount());
+    }
+
+    /**
+     * Test that every engine agrees with the reference.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEnginesAgree() throws Exception {
+        EngineFuzzer fuzzer = new EngineFuzzer();
+        fuzzer.setSeed(7);
+        fuzzer.setMissions(40);
+        for (String name : MissionEngine.NAMES) {
+            assertNull(name, fuzzer.run(MissionEngine.forName(name)));
+        }
+        assertNull(MissionEngine.forName("ticks"));
+    }
+
+    /**
+     * Test that an engine ignoring the other rovers is caught, and that the
+     * first rover it leaves elsewhere is reported.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testReportsFirstDivergingRover() throws Exception {
+        MissionEngine careless = (p, roversList, occupancy) -> {
+            Occupancy empty = Occupancy.forPlateau(p, 1);
+            for (Rover rover : roversList) {
+                int x = rover.getX();
+                int y = rover.getY();
+                empty.occupy(x, y);
+                rover.executeMovementCommands(p, empty);
+                empty.vacate(rover.getX(), rover.getY());
+                occupancy.vacate(x, y);
+                occupancy.occupy(rover.getX(), rover.getY());
+            }
+        };
+        EngineFuzzer fuzzer = new EngineFuzzer();
+        fuzzer.setSeed(11);
+        EngineFuzzer.Divergence divergence = fuzzer.run(careless);
+        assertNotNull(divergence);
+        assertTrue(divergence.getMissionFile().delete());
+        if (divergence.getTerrainFile() != null) {
+            assertTrue(divergence.getTerrainFile().delete());
+        }
+        assertFalse(divergence.getExpected().equals(divergence.getActual()));
+
+        // the mission seed replays the same divergence
+        EngineFuzzer.Divergence again = fuzzer.check(careless, divergence.getMissionSeed());
+        assertEquals(divergence.getSlot(), again.getSlot());
+        assertEquals(divergence.getStart(), again.getStart());
+        assertEquals(divergence.getActual(), again.getActual());
+        again.getMissionFile().delete();
+        if (again.getTerrainFile() != null) {
+            again.getTerrainFile().delete();
+        }
+    }
+}
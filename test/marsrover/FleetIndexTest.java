@@ -0,0 +1,193 @@
+package marsrover;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class FleetIndexTest {
+
+    private static long distance(FleetStore fleet, int slot, int x, int y) {
+        long dx = fleet.getX(slot) - (long) x;
+        long dy = fleet.getY(slot) - (long) y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Checks every kind of query at random points against a scan of the
+     * fleet.
+     */
+    private static void checkQueries(FleetIndex index, FleetStore fleet, int size, Random random) {
+        for (int q = 0; q < 50; q++) {
+            int minX = random.nextInt(size + 10) - 5;
+            int minY = random.nextInt(size + 10) - 5;
+            int maxX = minX + random.nextInt(size / 2 + 1);
+            int maxY = minY + random.nextInt(size / 2 + 1);
+            List<Integer> expected = new ArrayList<>();
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                if (fleet.getX(slot) >= minX && fleet.getX(slot) <= maxX
+                        && fleet.getY(slot) >= minY && fleet.getY(slot) <= maxY) {
+                    expected.add(slot);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            assertEquals(expected.size(), index.rectangle(minX, minY, maxX, maxY, actual::add));
+            actual.sort(null);
+            assertEquals(expected, actual);
+
+            int x = random.nextInt(size + 10) - 5;
+            int y = random.nextInt(size + 10) - 5;
+            int radius = random.nextInt(size / 3 + 1);
+            expected.clear();
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                if (distance(fleet, slot, x, y) <= (long) radius * radius) {
+                    expected.add(slot);
+                }
+            }
+            actual.clear();
+            assertEquals(expected.size(), index.radius(x, y, radius, actual::add));
+            actual.sort(null);
+            assertEquals(expected, actual);
+
+            Integer[] byDistance = new Integer[fleet.size()];
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                byDistance[slot] = slot;
+            }
+            Arrays.sort(byDistance, (a, b) -> {
+                int c = Long.compare(distance(fleet, a, x, y), distance(fleet, b, x, y));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            int[] nearest = new int[random.nextInt(12) + 1];
+            int k = index.nearest(x, y, nearest);
+            assertEquals(Math.min(nearest.length, fleet.size()), k);
+            for (int i = 0; i < k; i++) {
+                assertEquals((int) byDistance[i], nearest[i]);
+            }
+            assertEquals(fleet.size() == 0 ? -1 : (int) byDistance[0], index.nearest(x, y));
+        }
+    }
+
+    /**
+     * Test of FleetIndex queries on fleets of several densities, and on
+     * rovers added after the index was created.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testQueries() throws Exception {
+        Random random = new Random(17);
+        for (int round = 0; round < 30; round++) {
+            int size = 1 + random.nextInt(round % 3 == 0 ? 20 : 2000);
+            Plateau p = new Plateau(size - 1, size - 1);
+            FleetStore fleet = new FleetStore(4);
+            int rovers = random.nextInt(300);
+            for (int i = 0; i < rovers / 2; i++) {
+                fleet.add(random.nextInt(size), random.nextInt(size), (byte) 0);
+            }
+            FleetIndex index = new FleetIndex(p, fleet, rovers);
+            assertSame(index, fleet.getIndex());
+            checkQueries(index, fleet, size, random);
+            for (int i = rovers / 2; i < rovers; i++) {
+                fleet.add(random.nextInt(size), random.nextInt(size), (byte) 0);
+            }
+            // a rover placed by hand off the plateau
+            fleet.add(-3, size + 2, (byte) 0);
+            checkQueries(index, fleet, size, random);
+        }
+    }
+
+    /**
+     * Test that the index follows the rovers through every way of moving
+     * them.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFollowsMoves() throws Exception {
+        Random random = new Random(29);
+        for (int round = 0; round < 12; round++) {
+            int size = 20 + random.nextInt(400);
+            Plateau p = new Plateau(size - 1, size - 1);
+            FleetStore fleet = new FleetStore(16);
+            Occupancy occupancy = Occupancy.forPlateau(p, 100);
+            for (int i = 0; i < 100; i++) {
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                if (!occupancy.isOccupied(x, y)) {
+                    occupancy.occupy(x, y);
+                    int slot = fleet.add(x, y, (byte) random.nextInt(4));
+                    StringBuilder commands = new StringBuilder();
+                    for (int c = random.nextInt(300); c > 0; c--) {
+                        commands.append("MMMMLR".charAt(random.nextInt(6)));
+                    }
+                    if (random.nextBoolean()) {
+                        commands.insert(0, "(").append(")").append(1 + random.nextInt(20));
+                    }
+                    fleet.rover(slot).setMoveCommands(commands.toString());
+                }
+            }
+            FleetIndex index = new FleetIndex(p, fleet);
+            List<Rover> rovers = new ArrayList<>();
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                rovers.add(fleet.rover(slot));
+            }
+            switch (round % 4) {
+                case 0:
+                    MarsRover.moveRovers(p, rovers, occupancy);
+                    break;
+                case 1:
+                    for (Rover rover : rovers) {
+                        rover.executeMovementCommands(p, rovers);
+                    }
+                    break;
+                case 2:
+                    ParallelMission.moveRovers(p, rovers, occupancy, ForkJoinPool.commonPool());
+                    break;
+                default:
+                    TickSimulation.moveRovers(p, rovers, occupancy, 2);
+                    break;
+            }
+            checkQueries(index, fleet, size, random);
+        }
+    }
+
+    /**
+     * Test that moving indexed rovers allocates nothing.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMovesDoNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Plateau p = new Plateau(999, 999);
+        FleetStore fleet = new FleetStore(1000);
+        Occupancy occupancy = Occupancy.forPlateau(p, 1000);
+        for (int i = 0; i < 1000; i++) {
+            fleet.add(i, i, (byte) (i & 3));
+            occupancy.occupy(i, i);
+        }
+        new FleetIndex(p, fleet);
+        FleetStepper stepper = new FleetStepper(p, occupancy, fleet);
+        String commands = "MMMLMMRMMMMRMLLM";
+        for (int warm = 0; warm < 3; warm++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                stepper.execute(slot, commands);
+                stepper.advance(slot, 7);
+            }
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            if (warm == 2) {
+                assertTrue("moves allocated " + allocated + " bytes", allocated < 1024);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package marsrover;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class FleetStoreTest {
+
+    /**
+     * Test of add method, of class FleetStore, growing past the initial
+     * capacity.
+     */
+    @Test
+    public void testAdd() {
+        FleetStore instance = new FleetStore(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, instance.add(i, i + 1, (byte) (i & 3)));
+        }
+        assertEquals(100, instance.size());
+        assertEquals(42, instance.getX(42));
+        assertEquals(43, instance.getY(42));
+        assertEquals(2, instance.getHeading(42));
+    }
+
+    /**
+     * Test of headingOf and directionOf methods, of class FleetStore.
+     */
+    @Test
+    public void testHeadings() {
+        assertEquals(0, FleetStore.headingOf('N'));
+        assertEquals(3, FleetStore.headingOf('W'));
+        assertEquals(-1, FleetStore.headingOf('F'));
+        assertEquals('E', FleetStore.directionOf((byte) 1));
+    }
+
+    /**
+     * Test of rover method, of class FleetStore, checking that the Rover view
+     * reads and writes the store.
+     */
+    @Test
+    public void testRoverView() {
+        FleetStore instance = new FleetStore(4);
+        int slot = instance.add(3, 2, FleetStore.headingOf('N'));
+        Rover rover = instance.rover(slot);
+        rover.turnRight();
+        assertEquals(1, instance.getHeading(slot));
+        assertEquals("3 2 E", rover.getPosition());
+    }
+
+    /**
+     * Test of step method, of class FleetStepper.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testStep() throws Plateau.InvalidSizeException {
+        Plateau p = new Plateau(5, 5);
+        Occupancy occupancy = new OccupancyGrid(p);
+        FleetStore fleet = new FleetStore(2);
+        int first = fleet.add(1, 2, FleetStore.headingOf('N'));
+        int second = fleet.add(3, 3, FleetStore.headingOf('E'));
+        occupancy.occupy(1, 2);
+        occupancy.occupy(3, 3);
+        FleetStepper instance = new FleetStepper(p, occupancy, fleet);
+        instance.execute(first, "LMLMLMLMM");
+        instance.execute(second, "MMRMMRMRRM");
+        assertEquals("1 3 N", fleet.rover(first).getPosition());
+        assertEquals("5 1 E", fleet.rover(second).getPosition());
+        assertTrue(occupancy.isOccupied(5, 1));
+        assertEquals(2, occupancy.getOccupiedCount());
+    }
+
+    /**
+     * Test of stepper method, of class FleetStore, reusing the stepper of
+     * the same plateau and occupancy index across Rover calls.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testStepperReused() throws Plateau.InvalidSizeException {
+        Plateau p = new Plateau(5, 5);
+        Occupancy occupancy = new OccupancyGrid(p);
+        FleetStore fleet = new FleetStore(1);
+        Rover rover = fleet.rover(fleet.add(1, 2, FleetStore.headingOf('N')));
+        occupancy.occupy(1, 2);
+        FleetStepper stepper = fleet.stepper(p, occupancy);
+        rover.moveForward(p, occupancy);
+        rover.moveForward(p, occupancy);
+        assertSame(stepper, fleet.stepper(p, occupancy));
+        assertEquals("1 4 N", rover.getPosition());
+        assertTrue(occupancy.isOccupied(1, 4));
+        assertNotSame(stepper, fleet.stepper(p, new OccupancyGrid(p)));
+    }
+}
@@ -0,0 +1,60 @@
+package marsrover;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test of getValueAtPercentile method, of class LatencyHistogram, staying
+     * within the bucket precision.
+     */
+    @Test
+    public void testGetValueAtPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v * 1000);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000L, histogram.getMax());
+        assertEquals(50000000L, histogram.getValueAtPercentile(50), 50000000L * 0.04);
+        assertEquals(99000000L, histogram.getValueAtPercentile(99), 99000000L * 0.04);
+        assertEquals(99900000L, histogram.getValueAtPercentile(99.9), 99900000L * 0.04);
+        assertEquals(100000000L, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Test of record method, of class LatencyHistogram, with small, huge and
+     * negative values.
+     */
+    @Test
+    public void testRecordExtremes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(10));
+        assertEquals(3, histogram.getValueAtPercentile(60));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Test of add method, of class LatencyHistogram.
+     */
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(30);
+        a.add(b);
+        assertEquals(3, a.getCount());
+        assertEquals(30, a.getMax());
+        assertEquals(20, a.getValueAtPercentile(50));
+    }
+}
@@ -8,7 +8,18 @@ import org.junit.runners.Suite;
  * @author Tempest
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({marsrover.RoverTest.class, marsrover.PlateauTest.class})
+@Suite.SuiteClasses({marsrover.RoverTest.class, marsrover.PlateauTest.class,
+    marsrover.OccupancyGridTest.class, marsrover.SparseOccupancyTest.class,
+    marsrover.MissionParserTest.class, marsrover.CommandProgramTest.class,
+    marsrover.FleetStoreTest.class, marsrover.ParallelMissionTest.class,
+    marsrover.TickSimulationTest.class, marsrover.MissionGeneratorTest.class,
+    marsrover.MissionMetricsTest.class, marsrover.LatencyHistogramTest.class,
+    marsrover.ResultWriterTest.class, marsrover.BinaryMissionTest.class,
+    marsrover.CommandArenaTest.class, marsrover.CheckpointTest.class,
+    marsrover.MissionServerTest.class, marsrover.MissionBatchTest.class,
+    marsrover.CommandPatternTest.class, marsrover.TerrainMapTest.class,
+    marsrover.FleetIndexTest.class, marsrover.PathPlannerTest.class,
+    marsrover.TrajectoryRecorderTest.class, marsrover.EngineFuzzerTest.class})
 public class MarsRoverSuite {
 
     
@@ -0,0 +1,115 @@
+package marsrover;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class MissionBatchTest {
+
+    private static File writeMission(File dir, String name, String text) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("batch").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Test of MissionBatch.run, merging the outputs in order with a failing
+     * mission in the middle.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testMergedOutput() throws Exception {
+        File dir = tempDir();
+        List<File> missions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            missions.add(writeMission(dir, "m" + i + ".txt", "5 5\n\n1 2 N\n\nLMLMLMLMM\n\n1 2 E\n\nM\n\n"
+                    + i % 6 + " 0 E\n\nMMMMMMMMMM\n\n"));
+        }
+        missions.set(7, writeMission(dir, "bad.txt", "5 5\n\n1 2 Q\n\nM\n\n"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, new MissionBatch(3).run(missions, out));
+        String[] lines = out.toString("US-ASCII").split("\n");
+        assertEquals("# " + missions.get(0), lines[0]);
+        assertEquals("Could not deploy rover at 1 2 E", lines[1]);
+        assertEquals("1 3 N", lines[2]);
+        assertEquals("5 0 E", lines[3]);
+        assertEquals("# " + missions.get(7), lines[7 * 4]);
+        assertEquals("# " + missions.get(8), lines[7 * 4 + 2]);
+        assertEquals(20 * 4 - 2, lines.length);
+
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        new MissionBatch(1).run(missions, again);
+        assertEquals(out.toString("US-ASCII"), again.toString("US-ASCII"));
+    }
+
+    /**
+     * Test of MissionBatch.run, writing one output file per mission.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testOutputDir() throws Exception {
+        File dir = tempDir();
+        File outDir = tempDir();
+        File first = writeMission(dir, "a.txt", "5 5\n\n1 2 N\n\nLMLMLMLMM\n\n");
+        File second = writeMission(dir, "b.txt", "5 5\n\n3 3 E\n\nMMRMMRMRRM\n\n");
+        MissionBatch batch = new MissionBatch(2);
+        batch.setOutputDir(outDir);
+        assertEquals(0, batch.run(Arrays.asList(first, second), null));
+        File out = new File(outDir, "b.txt.out");
+        out.deleteOnExit();
+        new File(outDir, "a.txt.out").deleteOnExit();
+        assertEquals("5 1 E\n", new String(Files.readAllBytes(out.toPath()), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Test of MissionBatch.run, writing apart the outputs of missions with
+     * the same file name, and leaving System.out alone.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testOutputDirSameNames() throws Exception {
+        File outDir = tempDir();
+        File first = writeMission(tempDir(), "input.txt", "5 5\n\n1 2 N\n\nLMLMLMLMM\n\n");
+        File second = writeMission(tempDir(), "input.txt", "5 5\n\n3 3 E\n\nMMRMMRMRRM\n\n9 9 N\n\nM\n\n");
+        File third = writeMission(tempDir(), "other.txt", "5 5\n\n0 0 N\n\nM\n\n");
+        assertEquals(Arrays.asList("input.txt-1.out", "input.txt-2.out", "other.txt.out"),
+                MissionBatch.outputNames(Arrays.asList(first, second, third)));
+
+        PrintStream console = System.out;
+        MissionBatch batch = new MissionBatch(2);
+        batch.setOutputDir(outDir);
+        assertEquals(0, batch.run(Arrays.asList(first, second, third), null));
+        assertSame(console, System.out);
+        for (String name : new String[]{"input.txt-1.out", "input.txt-2.out", "other.txt.out"}) {
+            new File(outDir, name).deleteOnExit();
+        }
+        assertEquals("1 3 N\n", new String(Files.readAllBytes(new File(outDir, "input.txt-1.out").toPath()),
+                StandardCharsets.US_ASCII));
+        assertEquals("Could not deploy rover at 9 9 N\n5 1 E\n",
+                new String(Files.readAllBytes(new File(outDir, "input.txt-2.out").toPath()),
+                        StandardCharsets.US_ASCII));
+    }
+}
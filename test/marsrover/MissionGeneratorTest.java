@@ -0,0 +1,76 @@
+package marsrover;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class MissionGeneratorTest {
+
+    private static MissionGenerator generator(long seed) {
+        MissionGenerator generator = new MissionGenerator();
+        generator.setPlateau(49, 29);
+        generator.setRovers(200);
+        generator.setCommandLength(40);
+        generator.setCollisionRate(0.5);
+        generator.setSeed(seed);
+        return generator;
+    }
+
+    private static String generate(MissionGenerator generator) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out);
+        return out.toString("US-ASCII");
+    }
+
+    /**
+     * Test of write method, of class MissionGenerator, giving the same
+     * mission for the same seed and a different one for another seed.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteIsReproducible() throws Exception {
+        assertEquals(generate(generator(7)), generate(generator(7)));
+        assertFalse(generate(generator(7)).equals(generate(generator(8))));
+    }
+
+    /**
+     * Test of write method, of class MissionGenerator, writing a mission the
+     * parser reads back with the requested fleet.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteParses() throws Exception {
+        File file = File.createTempFile("mission", ".txt");
+        file.deleteOnExit();
+        MissionGenerator generator = generator(7);
+        generator.setCollisionRate(0);
+        generator.setRovers(1);
+        generator.write(file);
+        try (MissionFile mission = new MissionFile(file)) {
+            MissionParser parser = new MissionParser(mission);
+            FleetLoader loader = new FleetLoader(mission, parser);
+            parser.parse(loader);
+            assertEquals(50, loader.getPlateau().getWidth());
+            assertEquals(30, loader.getPlateau().getHeight());
+            assertEquals(1, loader.getRovers().size());
+            assertEquals(40, loader.getRovers().get(0).getMoveCommands().length());
+        }
+    }
+
+    /**
+     * Test of setDensity method, of class MissionGenerator.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetDensity() throws Exception {
+        MissionGenerator generator = generator(7);
+        generator.setDensity(0.1);
+        String[] blocks = generate(generator).split("\n\n");
+        assertEquals(1 + 2 * 150, blocks.length);
+    }
+}
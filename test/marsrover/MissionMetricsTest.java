@@ -0,0 +1,73 @@
+package marsrover;
+
+import java.io.File;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class MissionMetricsTest {
+
+    /**
+     * Test of the recording methods, of class MissionMetrics, as read through
+     * the MBean.
+     */
+    @Test
+    public void testCounters() {
+        MissionMetrics.reset();
+        MissionMetrics metrics = new MissionMetrics();
+        MissionMetrics.commands(10);
+        MissionMetrics.moves(6);
+        MissionMetrics.moves(1);
+        MissionMetrics.blocked(2, MissionMetrics.Block.EDGE);
+        MissionMetrics.blocked(1, MissionMetrics.Block.ROVER);
+        MissionMetrics.blocked(3, MissionMetrics.Block.TERRAIN);
+        MissionMetrics.deployment(true);
+        MissionMetrics.deployment(true);
+        MissionMetrics.deployment(false);
+        assertEquals(10, metrics.getCommandsExecuted());
+        assertEquals(7, metrics.getMovesTaken());
+        assertEquals(2, metrics.getMovesBlockedByEdge());
+        assertEquals(1, metrics.getMovesBlockedByRover());
+        assertEquals(3, metrics.getMovesBlockedByTerrain());
+        assertEquals(2, metrics.getRoversDeployed());
+        assertEquals(1, metrics.getRoversRejected());
+        MissionMetrics.reset();
+        assertEquals(0, metrics.getCommandsExecuted());
+        assertEquals("idle", metrics.getPhase());
+    }
+
+    /**
+     * Test of causeAt method, of class MissionMetrics, telling impassable
+     * terrain apart from rovers.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testCauseAt() throws Exception {
+        File file = File.createTempFile("terrain", ".map");
+        file.deleteOnExit();
+        Plateau p = new Plateau(5, 5);
+        try (TerrainMap terrain = TerrainMap.create(file, 6, 6)) {
+            terrain.block(2, 3);
+            p.setTerrain(terrain);
+            assertEquals(MissionMetrics.Block.TERRAIN, MissionMetrics.causeAt(p, 2, 3));
+            assertEquals(MissionMetrics.Block.ROVER, MissionMetrics.causeAt(p, 3, 3));
+            assertEquals(MissionMetrics.Block.EDGE, MissionMetrics.causeAt(p, 6, 3));
+        }
+    }
+
+    /**
+     * Test of getPhaseProgress method, of class MissionMetrics, for a phase
+     * of unknown size.
+     */
+    @Test
+    public void testPhaseProgressUnknown() {
+        MissionMetrics.reset();
+        MissionMetrics.progress(5);
+        MissionMetrics metrics = new MissionMetrics();
+        assertEquals(5, metrics.getPhaseDone());
+        assertEquals(-1.0, metrics.getPhaseProgress(), 0.0);
+    }
+}
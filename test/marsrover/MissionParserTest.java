@@ -0,0 +1,239 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class MissionParserTest {
+
+    private static File writeMission(String text) throws IOException {
+        File file = File.createTempFile("mission", ".txt");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    private static List<Rover> load(String text) throws Exception {
+        List<Rover> roversList = new ArrayList<>();
+        try (MissionFile file = new MissionFile(writeMission(text))) {
+            MissionParser parser = new MissionParser(file);
+            FleetLoader loader = new FleetLoader(file, parser, roversList);
+            parser.parse(loader);
+            MarsRover.moveRovers(loader.getPlateau(), roversList, loader.getOccupancy());
+        }
+        return roversList;
+    }
+
+    /**
+     * Test of parse method, of class MissionParser, on the sample mission.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testParseSampleMission() throws Exception {
+        List<Rover> roversList = load("5 5\n\n1 2 N\n\nLMLMLMLMM\n\n3 3 E\n\nMMRMMRMRRM");
+        assertEquals(2, roversList.size());
+        assertEquals("1 3 N", roversList.get(0).getPosition());
+        assertEquals("5 1 E", roversList.get(1).getPosition());
+    }
+
+    /**
+     * Test of parse method, of class MissionParser, without blank separator
+     * lines and with Windows line endings.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testParseWithoutSeparatorsAndCrLf() throws Exception {
+        List<Rover> roversList = load("5 5\r\n1 2 n\r\nLMLMLMLMM\r\n3 3 E\r\nMMRMMRMRRM\r\n");
+        assertEquals(2, roversList.size());
+        assertEquals("1 3 N", roversList.get(0).getPosition());
+        assertEquals("5 1 E", roversList.get(1).getPosition());
+    }
+
+    /**
+     * Test of parse and validate methods, of class MissionParser, on a rover
+     * with an empty command line: only one blank line is skipped before the
+     * command line, so the next rover line is not taken for commands.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testParseEmptyCommandLine() throws Exception {
+        String text = "9 9\n\n0 6 S\n\n\n\n2 7 N\n\nM\n\n4 4 E\n\n\n";
+        List<Rover> roversList = load(text);
+        assertEquals(3, roversList.size());
+        assertEquals("0 6 S", roversList.get(0).getPosition());
+        assertEquals("2 8 N", roversList.get(1).getPosition());
+        assertEquals("4 4 E", roversList.get(2).getPosition());
+        try (MissionFile file = new MissionFile(writeMission(text))) {
+            assertTrue(new MissionParser(file).validate(null, true).isValid());
+        }
+    }
+
+    /**
+     * Test of parse method, of class MissionParser, skipping a rover that
+     * can't be deployed together with its move commands.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testParseSkipsUndeployableRover() throws Exception {
+        List<Rover> roversList = load("5 5\n\n1 2 N\n\nM\n\n1 2 E\n\nMMM\n\n9 9 N\n\nM\n\n0 0 E\n\nM\n");
+        assertEquals(2, roversList.size());
+        assertEquals("1 3 N", roversList.get(0).getPosition());
+        assertEquals("1 0 E", roversList.get(1).getPosition());
+        assertEquals(1, roversList.get(1).getId());
+    }
+
+    /**
+     * Test of parse method, of class MissionParser, with a malformed plateau
+     * line.
+     * @throws java.lang.Exception
+     */
+    @Test (expected=Plateau.InvalidSizeException.class)
+    public void testParseExpectedInvalidSizeException() throws Exception {
+        load("5\n\n1 2 N\n\nM");
+        fail("testParseExpectedInvalidSizeException failed");
+    }
+
+    /**
+     * Test of parse method, of class MissionParser, with a malformed rover
+     * line.
+     * @throws java.lang.Exception
+     */
+    @Test (expected=MissionParser.MalformedMissionException.class)
+    public void testParseExpectedMalformedMissionException() throws Exception {
+        load("5 5\n\n1 N\n\nM");
+        fail("testParseExpectedMalformedMissionException failed");
+    }
+
+    /**
+     * Test that the occupancy index of a loaded mission follows the number
+     * of rovers, not the length of their command lines: sparse for a few
+     * rovers on a huge plateau, switching to dense once the fleet is big.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoaderPicksStorageByFleetSize() throws Exception {
+        StringBuilder text = new StringBuilder("39999 39999\n");
+        for (int i = 0; i < 20; i++) {
+            text.append(i).append(' ').append(i).append(" N\n");
+            for (int c = 0; c < 100000; c++) {
+                text.append('M');
+            }
+            text.append('\n');
+        }
+        try (MissionFile file = new MissionFile(writeMission(text.toString()))) {
+            StreamingMission mission = new StreamingMission(file, new MissionParser(file));
+            new MissionParser(file).parse(mission);
+            assertTrue(mission.getOccupancy() instanceof SparseOccupancy);
+        }
+
+        File big = File.createTempFile("mission", ".txt");
+        big.deleteOnExit();
+        MissionGenerator generator = new MissionGenerator();
+        generator.setPlateau(2999, 2999);
+        generator.setRovers(72000);
+        generator.setCommandLength(1);
+        generator.write(big);
+        try (MissionFile file = new MissionFile(big)) {
+            MissionParser parser = new MissionParser(file);
+            FleetLoader loader = new FleetLoader(file, parser);
+            parser.parse(loader);
+            FleetStore fleet = loader.getFleet();
+            assertTrue(fleet.size() >= Occupancy.denseFleetSize(loader.getPlateau()));
+            assertTrue(loader.getOccupancy() instanceof OccupancyGrid);
+            assertEquals(fleet.size(), loader.getOccupancy().getOccupiedCount());
+            for (int slot = 0; slot < fleet.size(); slot++) {
+                assertTrue(loader.getOccupancy().isOccupied(fleet.getX(slot), fleet.getY(slot)));
+            }
+        }
+    }
+
+    /**
+     * Test of run method, of class StreamingMission.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testStreamingMission() throws Exception {
+        String text = "5 5\n\n1 2 N\n\nLMLMLMLMM\n\n1 2 E\n\nM\n\n3 3 E\n\nMMRMMRMRRM";
+        try (MissionFile file = new MissionFile(writeMission(text))) {
+            MissionParser parser = new MissionParser(file);
+            StreamingMission mission = new StreamingMission(file, parser);
+            parser.parse(mission);
+            mission.run();
+            assertEquals(2, mission.getFleet().size());
+            assertEquals("1 3 N", mission.getFleet().rover(0).getPosition());
+            assertEquals("5 1 E", mission.getFleet().rover(1).getPosition());
+            assertEquals(0, mission.getRovers().size());
+        }
+    }
+
+    /**
+     * Test of validate method, of class MissionParser, skipping malformed
+     * rovers in lenient mode.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testValidateLenient() throws Exception {
+        List<Rover> roversList = new ArrayList<>();
+        try (MissionFile file = new MissionFile(writeMission("5 5\n\n1 2 N\n\nLMLMLMLMM\n\n"
+                + "1 x N\n\nMMM\n\n2 2 Q\n\nM\n\n4 4 S\n\nMMXM\n\n3 3 E\n\nMMRMMRMRRM\n\n7\n\nM\n"))) {
+            MissionParser parser = new MissionParser(file);
+            FleetLoader loader = new FleetLoader(file, parser, roversList);
+            ValidationReport report = parser.validate(loader, false);
+            MarsRover.moveRovers(loader.getPlateau(), roversList, loader.getOccupancy());
+
+            assertFalse(report.isValid());
+            assertFalse(report.isStopped());
+            assertEquals(6, report.getRoverCount());
+            assertEquals(4, report.getSkippedCount());
+            assertEquals(4, report.getErrorCount());
+            assertEquals(2, report.getErrorCount(ValidationReport.Code.ROVER));
+            assertEquals(7, report.getLine(0));
+            assertEquals(3, report.getColumn(0));
+            assertEquals(ValidationReport.Code.DIRECTION, report.getCode(1));
+            assertEquals(11, report.getLine(1));
+            assertEquals(5, report.getColumn(1));
+            assertEquals(ValidationReport.Code.COMMAND, report.getCode(2));
+            assertEquals(17, report.getLine(2));
+            assertEquals(3, report.getColumn(2));
+            assertEquals(23, report.getLine(3));
+        }
+        assertEquals(2, roversList.size());
+        assertEquals("1 3 N", roversList.get(0).getPosition());
+        assertEquals("5 1 E", roversList.get(1).getPosition());
+    }
+
+    /**
+     * Test of validate method, of class MissionParser, stopping at the first
+     * error in strict mode and at a bad plateau line.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testValidateStrict() throws Exception {
+        try (MissionFile file = new MissionFile(writeMission("5 5\n1 2 N\nLMX\n3 3 E\nM\n1 1 Z\nM\n"))) {
+            ValidationReport report = new MissionParser(file).validate(null, true);
+            assertTrue(report.isStopped());
+            assertEquals(1, report.getErrorCount());
+            assertEquals(3, report.getLine(0));
+            assertEquals(3, report.getColumn(0));
+        }
+        try (MissionFile file = new MissionFile(writeMission("5 -5\n1 2 N\nM\n"))) {
+            ValidationReport report = new MissionParser(file).validate(null, false);
+            assertTrue(report.isStopped());
+            assertEquals(ValidationReport.Code.PLATEAU_SIZE, report.getCode(0));
+        }
+        try (MissionFile file = new MissionFile(writeMission("5 5\n1 2 N\nLMLMLMLMM\n"))) {
+            assertTrue(new MissionParser(file).validate(null, true).isValid());
+        }
+    }
+}
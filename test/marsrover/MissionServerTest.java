@@ -0,0 +1,91 @@
+package marsrover;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class MissionServerTest {
+
+    /**
+     * Test of MissionServer.request, running the sample mission in batches.
+     */
+    @Test
+    public void testRequests() {
+        MissionServer server = new MissionServer();
+        assertTrue(server.request("DEPLOY 1 2 N").startsWith("ERR"));
+        assertEquals("OK", server.request("PLATEAU 5 5"));
+        assertEquals("OK 0", server.request("DEPLOY 1 2 N"));
+        assertEquals("OK 1", server.request("deploy 3 3 e"));
+        assertTrue(server.request("DEPLOY 3 3 N").startsWith("ERR"));
+        assertTrue(server.request("DEPLOY 6 0 N").startsWith("ERR"));
+        assertEquals("0 1 S", server.request("MOVE 0 LMLM"));
+        assertEquals("1 3 N", server.request("MOVE 0 LMLMM"));
+        assertEquals("5 1 E", server.request("MOVE 1 MMRMMRMRRM"));
+        assertTrue(server.request("MOVE 1 MMX").startsWith("ERR"));
+        assertEquals("5 1 E", server.request("POSITION 1"));
+        assertTrue(server.request("POSITION 2").startsWith("ERR"));
+        assertEquals("OK 2\n1 3 N\n5 1 E", server.request("POSITIONS"));
+    }
+
+    /**
+     * Test of the WITHIN, RADIUS and NEAREST queries, before and after moves.
+     */
+    @Test
+    public void testQueries() {
+        MissionServer server = new MissionServer();
+        assertEquals("OK", server.request("PLATEAU 100 100"));
+        assertEquals("OK 0", server.request("DEPLOY 10 10 N"));
+        assertEquals("OK 1", server.request("DEPLOY 20 10 E"));
+        assertEquals("OK 2", server.request("DEPLOY 90 90 S"));
+        assertEquals("OK 2 0 1", server.request("WITHIN 0 0 50 50"));
+        assertEquals("OK 1 1", server.request("WITHIN 25 5 15 15"));
+        assertEquals("OK 0", server.request("WITHIN 30 30 40 40"));
+        assertEquals("OK 1 0", server.request("RADIUS 12 12 3"));
+        assertEquals("OK 2 0 1", server.request("RADIUS 15 10 5"));
+        assertEquals("OK 1 2", server.request("NEAREST 80 80"));
+        assertEquals("OK 3 1 0 2", server.request("NEAREST 19 11 5"));
+        assertEquals("30 10 E", server.request("MOVE 1 MMMMMMMMMM"));
+        assertEquals("10 60 N", server.request("MOVE 0 MMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMM"));
+        assertEquals("OK 1 1", server.request("WITHIN 0 0 50 50"));
+        assertEquals("OK 2 0 2", server.request("NEAREST 50 75 2"));
+        assertTrue(server.request("RADIUS 1 1 -2").startsWith("ERR"));
+    }
+
+    /**
+     * Test of MissionServer.serve, with pipelined requests and QUIT.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testServe() throws Exception {
+        MissionServer server = new MissionServer();
+        StringWriter out = new StringWriter();
+        server.serve(new BufferedReader(new StringReader("PLATEAU 5 5\nDEPLOY 0 0 E\nMOVE 0 MMMMMMMM\n"
+                + "QUIT\nPOSITION 0\n")), out);
+        assertEquals("OK\nOK 0\n5 0 E\n", out.toString());
+    }
+
+    /**
+     * Test of MissionServer holding a loaded fleet.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLoadedFleet() throws Exception {
+        Plateau p = new Plateau(5, 5);
+        FleetStore fleet = new FleetStore(2);
+        fleet.add(1, 3, FleetStore.headingOf('N'));
+        fleet.add(1, 4, FleetStore.headingOf('S'));
+        Occupancy occupancy = Occupancy.forPlateau(p, 2);
+        occupancy.occupy(1, 3);
+        occupancy.occupy(1, 4);
+        MissionServer server = new MissionServer(p, occupancy, fleet);
+        assertEquals("1 3 N", server.request("MOVE 0 MMM"));
+        assertEquals("1 5 S", server.request("MOVE 1 RRMMMMMMRR"));
+        assertEquals("OK 2", server.request("DEPLOY 1 4 W"));
+    }
+}
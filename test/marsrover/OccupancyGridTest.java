@@ -0,0 +1,77 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class OccupancyGridTest {
+
+    /**
+     * Test of occupy and isOccupied methods, of class OccupancyGrid.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testOccupy() throws Plateau.InvalidSizeException {
+        OccupancyGrid instance = new OccupancyGrid(new Plateau(5, 5));
+        assertFalse(instance.isOccupied(3, 2));
+        instance.occupy(3, 2);
+        assertTrue(instance.isOccupied(3, 2));
+        assertFalse(instance.isOccupied(2, 3));
+        assertEquals(1, instance.getOccupiedCount());
+    }
+
+    /**
+     * Test of vacate method, of class OccupancyGrid.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testVacate() throws Plateau.InvalidSizeException {
+        OccupancyGrid instance = new OccupancyGrid(new Plateau(5, 5));
+        instance.occupy(5, 5);
+        instance.vacate(5, 5);
+        assertFalse(instance.isOccupied(5, 5));
+        assertEquals(0, instance.getOccupiedCount());
+    }
+
+    /**
+     * Test of of method, of class Occupancy.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testOfRoversList() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        List<Rover> roversList = new ArrayList<>();
+        roversList.add(new Rover(3, 2, 'N', 0));
+        roversList.add(new Rover(6, 7, 'N', 1));
+        Occupancy instance = Occupancy.of(new Plateau(5, 5), roversList);
+        assertTrue(instance.isOccupied(3, 2));
+        assertEquals(1, instance.getOccupiedCount());
+    }
+
+    /**
+     * Test of validLocation and moveForward methods, of class Rover, when
+     * using the occupancy grid.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testMoveForwardWithGrid() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Plateau p = new Plateau(5, 5);
+        OccupancyGrid grid = new OccupancyGrid(p);
+        Rover instance = new Rover(3, 2, 'N', 0);
+        grid.occupy(3, 2);
+        grid.occupy(3, 4);
+        instance.moveForward(p, grid);
+        assertEquals("3 3 N", instance.getPosition());
+        assertFalse(grid.isOccupied(3, 2));
+        assertTrue(grid.isOccupied(3, 3));
+        instance.moveForward(p, grid);
+        assertEquals("3 3 N", instance.getPosition());
+        assertFalse(Rover.validLocation(6, 5, p, grid));
+    }
+}
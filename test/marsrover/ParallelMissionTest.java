@@ -0,0 +1,63 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class ParallelMissionTest {
+
+    private static List<Rover> deploy(Plateau p, long seed, int rovers, int commands)
+            throws Rover.InvalidInputException {
+        Random random = new Random(seed);
+        Occupancy occupancy = Occupancy.forPlateau(p, rovers);
+        List<Rover> roversList = new ArrayList<>();
+        for (int i = 0; i < rovers; i++) {
+            int x = random.nextInt(p.getWidth());
+            int y = random.nextInt(p.getHeight());
+            if (!occupancy.isOccupied(x, y)) {
+                occupancy.occupy(x, y);
+                Rover rover = new Rover(x, y, "NESW".charAt(random.nextInt(4)), roversList.size());
+                StringBuilder moves = new StringBuilder();
+                for (int c = random.nextInt(commands); c > 0; c--) {
+                    moves.append("MMMLR".charAt(random.nextInt(5)));
+                }
+                rover.setMoveCommands(moves.toString());
+                roversList.add(rover);
+            }
+        }
+        return roversList;
+    }
+
+    /**
+     * Test of moveRovers method, of class ParallelMission, against
+     * MarsRover.moveRovers on sparse and crowded missions.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testMoveRoversMatchesSequential() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int[][] shapes = {{999, 999, 20000, 30}, {40, 40, 1000, 60}, {9, 9, 50, 200}, {4999, 3, 5000, 400}};
+        for (int[] shape : shapes) {
+            Plateau p = new Plateau(shape[0], shape[1]);
+            List<Rover> expected = deploy(p, shape[2], shape[2], shape[3]);
+            List<Rover> actual = deploy(p, shape[2], shape[2], shape[3]);
+            MarsRover.moveRovers(p, expected);
+            Occupancy occupancy = Occupancy.of(p, actual);
+            ParallelMission.moveRovers(p, actual, occupancy, pool);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+                assertTrue(occupancy.isOccupied(actual.get(i).getX(), actual.get(i).getY()));
+            }
+            assertEquals(actual.size(), occupancy.getOccupiedCount());
+        }
+        pool.shutdown();
+    }
+}
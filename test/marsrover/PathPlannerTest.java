@@ -0,0 +1,200 @@
+package marsrover;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class PathPlannerTest {
+
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    /**
+     * Cost of the cheapest program from a pose to a cell by Dijkstra's
+     * algorithm over every (cell, heading) state, or -1 if there is none.
+     */
+    private static long cheapest(boolean[][] taken, int x, int y, int h, int goalX, int goalY,
+            int turnCost) {
+        int width = taken.length;
+        int height = taken[0].length;
+        if (taken[goalX][goalY] && (x != goalX || y != goalY)) {
+            return -1;
+        }
+        long[] best = new long[width * height * 4];
+        Arrays.fill(best, Long.MAX_VALUE);
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        best[(y * width + x) * 4 + h] = 0;
+        open.add(new long[]{0, x, y, h});
+        while (!open.isEmpty()) {
+            long[] state = open.poll();
+            int sx = (int) state[1];
+            int sy = (int) state[2];
+            int sh = (int) state[3];
+            if (state[0] > best[(sy * width + sx) * 4 + sh]) {
+                continue;
+            }
+            if (sx == goalX && sy == goalY) {
+                return state[0];
+            }
+            int[][] next = {{sx, sy, (sh + 3) & 3, turnCost}, {sx, sy, (sh + 1) & 3, turnCost},
+                {sx + DX[sh], sy + DY[sh], sh, 1}};
+            for (int[] n : next) {
+                if (n[0] < 0 || n[1] < 0 || n[0] >= width || n[1] >= height
+                        || (n[3] == 1 && taken[n[0]][n[1]])) {
+                    continue;
+                }
+                int index = (n[1] * width + n[0]) * 4 + n[2];
+                if (state[0] + n[3] < best[index]) {
+                    best[index] = state[0] + n[3];
+                    open.add(new long[]{best[index], n[0], n[1], n[2]});
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Test of a single rover on an empty plateau.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSingleRover() throws Exception {
+        Plateau p = new Plateau(4, 4);
+        FleetStore fleet = new FleetStore(2);
+        fleet.add(1, 2, FleetStore.headingOf('N'));
+        fleet.add(4, 4, FleetStore.headingOf('S'));
+        PathPlanner planner = new PathPlanner(p, fleet);
+        String[] programs = planner.plan(new int[]{3, -1}, new int[]{3, 0}, null);
+        assertEquals("MRMM", programs[0]);
+        assertNull(programs[1]);
+        programs = planner.plan(new int[]{1, 4}, new int[]{2, 4}, null);
+        assertEquals("", programs[0]);
+        assertEquals("", programs[1]);
+        // the target is taken by a rover that stays
+        programs = planner.plan(new int[]{4, -1}, new int[]{4, 0}, null);
+        assertNull(programs[0]);
+    }
+
+    /**
+     * Test on random fleets and terrain that the programs are valid and as
+     * cheap as possible when run in slot order, and that planning on a pool
+     * gives the same programs as planning on one thread.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testProgramsAreValidAndCheapest() throws Exception {
+        Random random = new Random(41);
+        for (int round = 0; round < 24; round++) {
+            int width = 5 + random.nextInt(40);
+            int height = 5 + random.nextInt(40);
+            File file = File.createTempFile("planner", ".map");
+            file.deleteOnExit();
+            boolean[][] taken = new boolean[width][height];
+            try (TerrainMap terrain = TerrainMap.create(file, width, height)) {
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        if (random.nextInt(round % 3 == 0 ? 3 : 6) == 0) {
+                            terrain.block(x, y);
+                            taken[x][y] = true;
+                        }
+                    }
+                }
+                Plateau p = new Plateau(width - 1, height - 1);
+                p.setTerrain(terrain);
+                FleetStore fleet = new FleetStore(16);
+                for (int i = 0; i < 200; i++) {
+                    int x = random.nextInt(width);
+                    int y = random.nextInt(height);
+                    if (!taken[x][y]) {
+                        taken[x][y] = true;
+                        fleet.add(x, y, (byte) random.nextInt(4));
+                    }
+                }
+                int size = fleet.size();
+                int[] targetX = new int[size];
+                int[] targetY = new int[size];
+                for (int slot = 0; slot < size; slot++) {
+                    if (random.nextInt(10) == 0) {
+                        targetX[slot] = -1;
+                    } else if (random.nextInt(10) == 0 && slot > 0) {
+                        // the start of another rover, or the target of one
+                        int other = random.nextInt(size);
+                        boolean start = random.nextBoolean() || targetX[other % slot] < 0;
+                        targetX[slot] = start ? fleet.getX(other) : targetX[other % slot];
+                        targetY[slot] = start ? fleet.getY(other) : targetY[other % slot];
+                    } else {
+                        targetX[slot] = random.nextInt(width);
+                        targetY[slot] = random.nextInt(height);
+                    }
+                }
+                int turnCost = round % 4 == 3 ? 0 : 1 + round % 3;
+                PathPlanner planner = new PathPlanner(p, fleet);
+                planner.setTurnCost(turnCost);
+                String[] programs = planner.plan(targetX, targetY, null);
+                assertArrayEquals(programs, planner.plan(targetX, targetY, ForkJoinPool.commonPool()));
+
+                // replay in slot order against the cheapest program at that time
+                int[] x = new int[size];
+                int[] y = new int[size];
+                List<Rover> rovers = new ArrayList<>();
+                for (int slot = 0; slot < size; slot++) {
+                    x[slot] = fleet.getX(slot);
+                    y[slot] = fleet.getY(slot);
+                    rovers.add(fleet.rover(slot));
+                }
+                for (int slot = 0; slot < size; slot++) {
+                    String program = programs[slot];
+                    if (targetX[slot] < 0) {
+                        assertNull(program);
+                        continue;
+                    }
+                    long expected = cheapest(taken, x[slot], y[slot], fleet.getHeading(slot),
+                            targetX[slot], targetY[slot], turnCost);
+                    assertEquals("rover " + slot, expected == -1, program == null);
+                    if (program == null) {
+                        continue;
+                    }
+                    taken[x[slot]][y[slot]] = false;
+                    long cost = 0;
+                    int h = fleet.getHeading(slot);
+                    for (char c : program.toCharArray()) {
+                        if (c == 'M') {
+                            x[slot] += DX[h];
+                            y[slot] += DY[h];
+                            assertFalse(taken[x[slot]][y[slot]]);
+                            cost++;
+                        } else {
+                            h = (h + (c == 'R' ? 1 : 3)) & 3;
+                            cost += turnCost;
+                        }
+                    }
+                    assertEquals("rover " + slot, expected, cost);
+                    assertEquals(targetX[slot], x[slot]);
+                    assertEquals(targetY[slot], y[slot]);
+                    taken[x[slot]][y[slot]] = true;
+                }
+
+                // and the mission engine takes every rover where planned
+                for (int slot = 0; slot < size; slot++) {
+                    String program = programs[slot];
+                    fleet.rover(slot).setMoveCommands(program == null || program.isEmpty() ? "LR" : program);
+                }
+                MarsRover.moveRovers(p, rovers, Occupancy.of(p, rovers));
+                for (int slot = 0; slot < size; slot++) {
+                    assertEquals(x[slot], fleet.getX(slot));
+                    assertEquals(y[slot], fleet.getY(slot));
+                }
+            }
+        }
+    }
+}
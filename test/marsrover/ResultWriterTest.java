@@ -0,0 +1,101 @@
+package marsrover;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class ResultWriterTest {
+
+    private static FleetStore fleet() {
+        FleetStore fleet = new FleetStore(4);
+        fleet.add(1, 3, FleetStore.headingOf('N'));
+        fleet.add(5, 1, FleetStore.headingOf('E'));
+        fleet.add(-7, Integer.MIN_VALUE, FleetStore.headingOf('W'));
+        return fleet;
+    }
+
+    /**
+     * Test of write method, of class ResultWriter, in the text format
+     * matching Rover.getPosition().
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteText() throws Exception {
+        FleetStore fleet = fleet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultWriter writer = new ResultWriter(out, ResultWriter.Format.TEXT)) {
+            writer.write(fleet);
+        }
+        String n = System.lineSeparator();
+        assertEquals(fleet.rover(0).getPosition() + n + fleet.rover(1).getPosition() + n
+                + fleet.rover(2).getPosition() + n, out.toString("US-ASCII"));
+    }
+
+    /**
+     * Test of write method, of class ResultWriter, in the binary format
+     * written to a file channel.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteBinary() throws Exception {
+        File file = File.createTempFile("results", ".bin");
+        file.deleteOnExit();
+        try (ResultWriter writer = new ResultWriter(new FileOutputStream(file).getChannel(),
+                ResultWriter.Format.BINARY)) {
+            writer.write(fleet());
+        }
+        assertEquals(8 + 3 * ResultWriter.RECORD_BYTES, file.length());
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] magic = new byte[4];
+            in.readFully(magic);
+            assertArrayEquals(ResultWriter.MAGIC, magic);
+            assertEquals(ResultWriter.VERSION, in.readInt());
+            in.skipBytes(ResultWriter.RECORD_BYTES);
+            assertEquals(1, in.readInt());
+            assertEquals(5, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(FleetStore.headingOf('E'), in.readByte());
+            assertEquals(2, in.readInt());
+            assertEquals(-7, in.readInt());
+            assertEquals(Integer.MIN_VALUE, in.readInt());
+        }
+    }
+
+    /**
+     * Test of write method, of class ResultWriter, with more rovers than fit
+     * in the buffer.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteManyRovers() throws Exception {
+        FleetStore fleet = new FleetStore(16);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            fleet.add(i, i * 7, (byte) (i & 3));
+            expected.append(fleet.rover(i).getPosition()).append(System.lineSeparator());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultWriter writer = new ResultWriter(out, ResultWriter.Format.TEXT)) {
+            writer.write(fleet);
+        }
+        assertEquals(expected.toString(), out.toString("US-ASCII"));
+        out.reset();
+        try (ResultWriter writer = new ResultWriter(out, ResultWriter.Format.BINARY)) {
+            writer.write(fleet);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        in.skipBytes(8 + 19999 * ResultWriter.RECORD_BYTES);
+        assertEquals(19999, in.readInt());
+        assertEquals(19999, in.readInt());
+        assertEquals(19999 * 7, in.readInt());
+    }
+}
@@ -22,6 +22,40 @@ public class RoverTest {
         fail("testConstructorExpectedInvalidException failed");
     }
 
+    /**
+     * Test of the constructor of class Rover, adding to a given fleet.
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testConstructorInFleet() throws Rover.InvalidInputException {
+        FleetStore fleet = new FleetStore(1);
+        Rover first = new Rover(fleet, 3, 2, 'N', 7);
+        Rover second = new Rover(fleet, 1, 4, 'W', 8);
+        assertSame(fleet, first.getFleet());
+        assertSame(fleet, second.getFleet());
+        assertEquals(2, fleet.size());
+        assertEquals("3 2 N", first.getPosition());
+        assertEquals("1 4 W", second.getPosition());
+        assertEquals(8, second.getId());
+    }
+
+    /**
+     * Test of the constructor of class Rover, sharing stores between rovers
+     * constructed on their own.
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testConstructorSharesStores() throws Rover.InvalidInputException {
+        List<FleetStore> stores = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            FleetStore fleet = new Rover(i, i, 'N', i).getFleet();
+            if (!stores.contains(fleet)) {
+                stores.add(fleet);
+            }
+        }
+        assertTrue(stores.size() <= 3);
+    }
+
     /**
      * Test of getX method, of class Rover.
      * @throws marsrover.Rover.InvalidInputException
@@ -0,0 +1,108 @@
+package marsrover;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class SparseOccupancyTest {
+
+    /**
+     * Test of occupy and vacate methods, of class SparseOccupancy.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testOccupyAndVacate() throws Plateau.InvalidSizeException {
+        SparseOccupancy instance = new SparseOccupancy(new Plateau(2000000000, 2000000000), 0);
+        instance.occupy(1999999999, 7);
+        instance.occupy(7, 1999999999);
+        assertTrue(instance.isOccupied(1999999999, 7));
+        assertTrue(instance.isOccupied(7, 1999999999));
+        assertFalse(instance.isOccupied(7, 7));
+        instance.vacate(1999999999, 7);
+        assertFalse(instance.isOccupied(1999999999, 7));
+        assertTrue(instance.isOccupied(7, 1999999999));
+        assertEquals(1, instance.getOccupiedCount());
+    }
+
+    /**
+     * Test of the sparse index against the dense grid over many cells,
+     * including growth and deletions within probe chains.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testMatchesOccupancyGrid() throws Plateau.InvalidSizeException {
+        Plateau p = new Plateau(63, 63);
+        SparseOccupancy sparse = new SparseOccupancy(p, 1);
+        OccupancyGrid dense = new OccupancyGrid(p);
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(64);
+            int y = random.nextInt(64);
+            if (random.nextBoolean()) {
+                sparse.occupy(x, y);
+                dense.occupy(x, y);
+            } else {
+                sparse.vacate(x, y);
+                dense.vacate(x, y);
+            }
+        }
+        for (int x = 0; x < 64; x++) {
+            for (int y = 0; y < 64; y++) {
+                assertEquals(dense.isOccupied(x, y), sparse.isOccupied(x, y));
+            }
+        }
+        assertEquals(dense.getOccupiedCount(), sparse.getOccupiedCount());
+    }
+
+    /**
+     * Test of freeRun method, of classes SparseOccupancy and OccupancyGrid,
+     * against cell by cell checks, on rays short and long enough for the
+     * sparse index to scan its table and in every direction.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testFreeRunMatchesCellChecks() throws Plateau.InvalidSizeException {
+        Plateau p = new Plateau(299, 199);
+        SparseOccupancy sparse = new SparseOccupancy(p, 4);
+        OccupancyGrid dense = new OccupancyGrid(p);
+        Random random = new Random(5);
+        for (int i = 0; i < 12; i++) {
+            int x = random.nextInt(300);
+            int y = random.nextInt(200);
+            sparse.occupy(x, y);
+            dense.occupy(x, y);
+        }
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(300);
+            int y = random.nextInt(200);
+            int dx = random.nextInt(3) - 1;
+            int dy = random.nextInt(3) - 1;
+            if (dx == 0 && dy == 0) {
+                continue;
+            }
+            int limitX = dx > 0 ? 299 - x : dx < 0 ? x : Integer.MAX_VALUE;
+            int limitY = dy > 0 ? 199 - y : dy < 0 ? y : Integer.MAX_VALUE;
+            int max = random.nextInt(Math.min(limitX, limitY) + 1);
+            int expected = 0;
+            while (expected < max && !dense.isOccupied(x + dx * (expected + 1), y + dy * (expected + 1))) {
+                expected++;
+            }
+            assertEquals(expected, sparse.freeRun(x, y, dx, dy, max));
+            assertEquals(expected, dense.freeRun(x, y, dx, dy, max));
+        }
+    }
+
+    /**
+     * Test of forPlateau method, of interface Occupancy.
+     * @throws marsrover.Plateau.InvalidSizeException
+     */
+    @Test
+    public void testForPlateauPicksStorage() throws Plateau.InvalidSizeException {
+        assertTrue(Occupancy.forPlateau(new Plateau(5, 5), 2) instanceof OccupancyGrid);
+        assertTrue(Occupancy.forPlateau(new Plateau(2000000000, 2000000000), 1000) instanceof SparseOccupancy);
+    }
+}
@@ -0,0 +1,262 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class TerrainMapTest {
+
+    private static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("terrain", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static File write(String suffix, byte[] content) throws IOException {
+        File file = tempFile(suffix);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private static TerrainMap randomMap(int width, int height, boolean[][] blocked, Random random)
+            throws IOException {
+        File file = tempFile(".map");
+        try (TerrainMap terrain = TerrainMap.create(file, width, height)) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (random.nextInt(8) == 0) {
+                        blocked[x][y] = true;
+                        terrain.block(x, y);
+                    }
+                }
+            }
+        }
+        return TerrainMap.open(file);
+    }
+
+    /**
+     * Test of TerrainMap.create, block and open, across several tiles.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testBlockAndOpen() throws Exception {
+        int width = 600;
+        int height = 300;
+        boolean[][] blocked = new boolean[width][height];
+        try (TerrainMap terrain = randomMap(width, height, blocked, new Random(3))) {
+            assertEquals(width, terrain.getWidth());
+            assertEquals(height, terrain.getHeight());
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    assertEquals(blocked[x][y], terrain.isBlocked(x, y));
+                }
+            }
+            assertFalse(terrain.isBlocked(-1, 0));
+            assertFalse(terrain.isBlocked(width, 0));
+            assertFalse(terrain.isBlocked(0, height));
+        }
+        File file = tempFile(".map");
+        try (TerrainMap terrain = TerrainMap.create(file, width, height)) {
+            terrain.block(width - 1, height - 1);
+        }
+        assertEquals(TerrainMap.HEADER_BYTES + 3 * 3 * TerrainMap.TILE_BYTES, file.length());
+        try {
+            TerrainMap.open(write(".txt", "..#\n".getBytes(StandardCharsets.US_ASCII)));
+            fail("Opened a file that is not a terrain map");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Not a terrain map"));
+        }
+    }
+
+    /**
+     * Test of TerrainMap.freeRun and isEmpty against cell by cell checks,
+     * including rays and rectangles reaching past the map.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testFreeRunAndIsEmpty() throws Exception {
+        int width = 700;
+        int height = 260;
+        boolean[][] blocked = new boolean[width][height];
+        Random random = new Random(11);
+        int[] dx = {0, 1, 0, -1};
+        int[] dy = {1, 0, -1, 0};
+        try (TerrainMap terrain = randomMap(width, height, blocked, random)) {
+            for (int i = 0; i < 20000; i++) {
+                int x = random.nextInt(width + 40) - 20;
+                int y = random.nextInt(height + 40) - 20;
+                int h = random.nextInt(4);
+                int max = random.nextInt(i % 2 == 0 ? 20 : 800);
+                int expected = 0;
+                while (expected < max && !terrain.isBlocked(x + dx[h] * (expected + 1),
+                        y + dy[h] * (expected + 1))) {
+                    expected++;
+                }
+                assertEquals(expected, terrain.freeRun(x, y, dx[h], dy[h], max));
+            }
+            for (int i = 0; i < 2000; i++) {
+                int minX = random.nextInt(width + 20) - 10;
+                int minY = random.nextInt(height + 20) - 10;
+                int maxX = minX + random.nextInt(i % 2 == 0 ? 4 : 200);
+                int maxY = minY + random.nextInt(4);
+                boolean expected = true;
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        expected &= !terrain.isBlocked(x, y);
+                    }
+                }
+                assertEquals(expected, terrain.isEmpty(minX, minY, maxX, maxY));
+            }
+        }
+    }
+
+    /**
+     * Test of TerrainConverter with text, binary PGM and plain PGM maps.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testConvert() throws Exception {
+        File output = tempFile(".map");
+        TerrainConverter.convert(write(".txt", "#..\n.#\r\n...#\n".getBytes(StandardCharsets.US_ASCII)),
+                output);
+        try (TerrainMap terrain = TerrainMap.open(output)) {
+            assertEquals(4, terrain.getWidth());
+            assertEquals(3, terrain.getHeight());
+            assertTrue(terrain.isBlocked(0, 2));
+            assertTrue(terrain.isBlocked(1, 1));
+            assertTrue(terrain.isBlocked(3, 0));
+            assertFalse(terrain.isBlocked(2, 1));
+            assertFalse(terrain.isBlocked(3, 2));
+        }
+
+        byte[] header = "P5\n# a comment\n3 2\n255\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] pgm = new byte[header.length + 6];
+        System.arraycopy(header, 0, pgm, 0, header.length);
+        byte[] pixels = {0, (byte) 255, (byte) 200, (byte) 127, (byte) 128, 10};
+        System.arraycopy(pixels, 0, pgm, header.length, pixels.length);
+        TerrainConverter.convert(write(".pgm", pgm), output);
+        try (TerrainMap terrain = TerrainMap.open(output)) {
+            assertEquals(3, terrain.getWidth());
+            assertEquals(2, terrain.getHeight());
+            assertTrue(terrain.isBlocked(0, 1));
+            assertFalse(terrain.isBlocked(1, 1));
+            assertFalse(terrain.isBlocked(2, 1));
+            assertTrue(terrain.isBlocked(0, 0));
+            assertFalse(terrain.isBlocked(1, 0));
+            assertTrue(terrain.isBlocked(2, 0));
+        }
+
+        TerrainConverter.convert(write(".pgm", "P2 2 1 15\n 15 3\n".getBytes(StandardCharsets.US_ASCII)),
+                output);
+        try (TerrainMap terrain = TerrainMap.open(output)) {
+            assertFalse(terrain.isBlocked(0, 0));
+            assertTrue(terrain.isBlocked(1, 0));
+        }
+
+        try {
+            TerrainConverter.convert(write(".txt", "#.x\n".getBytes(StandardCharsets.US_ASCII)), output);
+            fail("Converted a text map with an unknown character");
+        } catch (IOException e) {
+            assertEquals("Text map line 1: unexpected character 'x'", e.getMessage());
+        }
+    }
+
+    /**
+     * Test that rovers are not deployed or moved onto impassable terrain.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRoversAvoidTerrain() throws Exception {
+        File map = tempFile(".map");
+        TerrainConverter.convert(write(".txt", ("....\n"
+                + "..#.\n"
+                + "....\n"
+                + "#...\n").getBytes(StandardCharsets.US_ASCII)), map);
+        File mission = write(".txt", ("3 3\n0 0 N\nM\n1 0 N\nMMM\n0 2 E\nMMMM\n").getBytes(StandardCharsets.US_ASCII));
+        try (TerrainMap terrain = TerrainMap.open(map);
+                MissionFile file = new MissionFile(mission)) {
+            MissionReader parser = MissionReader.open(file);
+            FleetLoader loader = new FleetLoader(file, parser);
+            loader.setTerrain(terrain);
+            parser.parse(loader);
+            List<Rover> rovers = loader.getRovers();
+            assertEquals(2, rovers.size());
+            assertTrue(loader.getPlateau().isBlocked(2, 2));
+            assertFalse(Rover.validLocation(2, 2, loader.getPlateau(), loader.getOccupancy()));
+            assertFalse(Rover.validLocation(2, 2, loader.getPlateau(), new ArrayList<Rover>()));
+            MarsRover.moveRovers(loader.getPlateau(), rovers, loader.getOccupancy());
+            assertEquals("1 3 N", rovers.get(0).getPosition());
+            assertEquals("1 2 E", rovers.get(1).getPosition());
+        }
+    }
+
+    /**
+     * Test that the sequential, list-based and parallel engines agree on
+     * random missions with terrain, with and without repeat groups.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEnginesAgree() throws Exception {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            int size = 10 + random.nextInt(300);
+            boolean[][] blocked = new boolean[size][size];
+            try (TerrainMap terrain = randomMap(size, size, blocked, random)) {
+                Plateau p = new Plateau(size - 1, size - 1);
+                p.setTerrain(terrain);
+                List<Rover> sequential = new ArrayList<>();
+                List<Rover> listBased = new ArrayList<>();
+                List<Rover> parallel = new ArrayList<>();
+                Occupancy occupancy = Occupancy.forPlateau(p, 100);
+                for (int i = 0; i < 100; i++) {
+                    int x = random.nextInt(size);
+                    int y = random.nextInt(size);
+                    if (!Rover.validLocation(x, y, p, occupancy)) {
+                        continue;
+                    }
+                    occupancy.occupy(x, y);
+                    StringBuilder commands = new StringBuilder();
+                    for (int c = random.nextInt(200); c > 0; c--) {
+                        commands.append("MMMMLR".charAt(random.nextInt(6)));
+                    }
+                    if (random.nextInt(3) == 0) {
+                        // repeat groups fast-forward through the terrain checks of the index
+                        commands.insert(0, "M(").append(")").append(1 + random.nextInt(50));
+                    }
+                    char direction = "NESW".charAt(random.nextInt(4));
+                    for (List<Rover> rovers : Arrays.asList(sequential, listBased, parallel)) {
+                        Rover rover = new Rover(x, y, direction, rovers.size());
+                        rover.setMoveCommands(commands.toString());
+                        rovers.add(rover);
+                    }
+                }
+                MarsRover.moveRovers(p, sequential, Occupancy.of(p, sequential));
+                for (Rover rover : listBased) {
+                    rover.executeMovementCommands(p, listBased);
+                }
+                ParallelMission.moveRovers(p, parallel, Occupancy.of(p, parallel), ForkJoinPool.commonPool());
+                for (int i = 0; i < sequential.size(); i++) {
+                    String position = sequential.get(i).getPosition();
+                    assertFalse(blocked[sequential.get(i).getX()][sequential.get(i).getY()]);
+                    assertEquals(position, listBased.get(i).getPosition());
+                    assertEquals(position, parallel.get(i).getPosition());
+                }
+            }
+        }
+    }
+}
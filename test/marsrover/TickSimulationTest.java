@@ -0,0 +1,140 @@
+package marsrover;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class TickSimulationTest {
+
+    private static Rover rover(int x, int y, char direction, int id, String commands)
+            throws Rover.InvalidInputException {
+        Rover rover = new Rover(x, y, direction, id);
+        rover.setMoveCommands(commands);
+        return rover;
+    }
+
+    /**
+     * Test of run method, of class TickSimulation, with two rovers moving
+     * into the same cell.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testLowestIdWinsContestedCell() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        List<Rover> roversList = new ArrayList<>();
+        roversList.add(rover(1, 0, 'W', 0, "MM"));
+        roversList.add(rover(0, 1, 'S', 1, "M"));
+        TickSimulation instance = new TickSimulation(new Plateau(5, 5), roversList);
+        instance.run(2);
+        assertEquals(2, instance.getTicks());
+        assertEquals("0 0 W", instance.getPosition(0));
+        assertEquals("0 1 S", instance.getPosition(1));
+    }
+
+    /**
+     * Test of run method, of class TickSimulation, with a rover following
+     * another one: it can't move into the cell vacated in the same tick.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testNoMoveIntoCellVacatedInSameTick() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        List<Rover> roversList = new ArrayList<>();
+        roversList.add(rover(0, 0, 'E', 0, "MM"));
+        roversList.add(rover(1, 0, 'E', 1, "MM"));
+        TickSimulation instance = new TickSimulation(new Plateau(5, 5), roversList);
+        instance.run(1);
+        assertEquals("1 0 E", instance.getPosition(0));
+        assertEquals("3 0 E", instance.getPosition(1));
+    }
+
+    /**
+     * Test of moveRovers method, of class TickSimulation, giving the same
+     * result for any number of threads on a crowded mission.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testResultIndependentOfThreads() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Plateau p = new Plateau(30, 30);
+        String[] results = new String[3];
+        int[] threads = {1, 3, 8};
+        for (int run = 0; run < threads.length; run++) {
+            Random random = new Random(11);
+            Occupancy occupancy = new OccupancyGrid(p);
+            List<Rover> roversList = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                int x = random.nextInt(31);
+                int y = random.nextInt(31);
+                StringBuilder commands = new StringBuilder();
+                for (int c = random.nextInt(80); c > 0; c--) {
+                    commands.append("MMMLR".charAt(random.nextInt(5)));
+                }
+                if (!occupancy.isOccupied(x, y)) {
+                    occupancy.occupy(x, y);
+                    roversList.add(rover(x, y, "NESW".charAt(random.nextInt(4)), roversList.size(),
+                            commands.toString()));
+                }
+            }
+            TickSimulation.moveRovers(p, roversList, occupancy, threads[run]);
+            StringBuilder positions = new StringBuilder();
+            for (Rover rover : roversList) {
+                positions.append(rover.getPosition()).append('\n');
+                assertTrue(occupancy.isOccupied(rover.getX(), rover.getY()));
+            }
+            assertEquals(roversList.size(), occupancy.getOccupiedCount());
+            results[run] = positions.toString();
+        }
+        assertEquals(results[0], results[1]);
+        assertEquals(results[0], results[2]);
+    }
+
+    /**
+     * Test of run method, of class TickSimulation, on a plateau of far more
+     * than 2^31 cells: the claims are kept per rover, not per cell.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test
+    public void testHugePlateau() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        List<Rover> roversList = new ArrayList<>();
+        roversList.add(rover(1999999998, 1999999999, 'E', 0, "MMLM"));
+        roversList.add(rover(1999999999, 1999999998, 'N', 1, "MRM"));
+        TickSimulation instance = new TickSimulation(new Plateau(1999999999, 1999999999), roversList);
+        instance.run(2);
+        assertEquals("1999999999 1999999999 N", instance.getPosition(0));
+        assertEquals("1999999999 1999999998 E", instance.getPosition(1));
+    }
+
+    /**
+     * Test of run method, of class TickSimulation, with a worker thread
+     * failing: the other threads are released from the barrier and run()
+     * throws the failure.
+     * @throws marsrover.Plateau.InvalidSizeException
+     * @throws marsrover.Rover.InvalidInputException
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testWorkerFailure() throws Plateau.InvalidSizeException, Rover.InvalidInputException {
+        Plateau p = new Plateau(9, 9) {
+            @Override
+            public boolean isBlocked(int x, int y) {
+                if (x == 9 && y == 9) {
+                    throw new IllegalStateException("terrain unreadable");
+                }
+                return false;
+            }
+        };
+        List<Rover> roversList = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            roversList.add(rover(i, 0, 'N', i, "MMMMMMMMM"));
+        }
+        roversList.add(rover(9, 0, 'N', 8, "MMMMMMMMMM"));
+        new TickSimulation(p, roversList).run(3);
+    }
+}
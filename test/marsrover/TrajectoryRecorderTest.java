@@ -0,0 +1,273 @@
+package marsrover;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Tempest
+ */
+public class TrajectoryRecorderTest {
+
+    private static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("trace", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static File write(String content) throws IOException {
+        File file = tempFile(".txt");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    /**
+     * Random mission on a small plateau, so that rovers block each other.
+     * The expanded commands of each rover go to expanded.
+     */
+    private static String mission(Random random, int size, boolean groups, List<String> expanded) {
+        StringBuilder mission = new StringBuilder();
+        mission.append(size - 1).append(' ').append(size - 1).append('\n');
+        boolean[][] taken = new boolean[size][size];
+        for (int i = 0; i < size * size / 4; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            if (taken[x][y]) {
+                continue;
+            }
+            taken[x][y] = true;
+            StringBuilder commands = new StringBuilder();
+            StringBuilder plain = new StringBuilder();
+            for (int c = 1 + random.nextInt(60); c > 0; c--) {
+                char command = "MMMLRR".charAt(random.nextInt(6));
+                commands.append(command);
+                plain.append(command);
+            }
+            if (groups && random.nextBoolean()) {
+                int count = 1 + random.nextInt(30);
+                commands.append("(ML)").append(count);
+                for (int c = 0; c < count; c++) {
+                    plain.append("ML");
+                }
+            }
+            mission.append(x).append(' ').append(y).append(' ')
+                    .append("NESW".charAt(random.nextInt(4))).append('\n');
+            mission.append(commands).append('\n');
+            expanded.add(plain.toString());
+        }
+        return mission.toString();
+    }
+
+    /**
+     * Records expected from running commands one at a time: moves and
+     * blocked moves in a row share a record, and turns are written as their
+     * net rotation once the rover moves again.
+     */
+    private static List<Long> expectedRecords(boolean[][] taken, int[] pose, String commands) {
+        List<Long> records = new ArrayList<>();
+        int kind = -1;
+        long count = 0;
+        int rotation = 0;
+        for (char c : commands.toCharArray()) {
+            if (c == 'L' || c == 'R') {
+                rotation = (rotation + (c == 'R' ? 1 : 3)) & 3;
+                pose[2] = (pose[2] + (c == 'R' ? 1 : 3)) & 3;
+                continue;
+            }
+            int x = pose[0] + FleetStepper.DX[pose[2]];
+            int y = pose[1] + FleetStepper.DY[pose[2]];
+            boolean free = x >= 0 && y >= 0 && x < taken.length && y < taken.length && !taken[x][y];
+            int stepKind = free ? TrajectoryRecorder.MOVES : TrajectoryRecorder.BLOCKED;
+            if (rotation != 0 || kind != stepKind) {
+                if (kind != -1) {
+                    records.add(count << 2 | kind);
+                }
+                if (rotation != 0) {
+                    records.add((long) rotation << 2 | TrajectoryRecorder.TURN);
+                }
+                kind = stepKind;
+                count = 0;
+                rotation = 0;
+            }
+            count++;
+            if (free) {
+                taken[pose[0]][pose[1]] = false;
+                taken[x][y] = true;
+                pose[0] = x;
+                pose[1] = y;
+            }
+        }
+        if (kind != -1) {
+            records.add(count << 2 | kind);
+        }
+        if (rotation != 0) {
+            records.add((long) rotation << 2 | TrajectoryRecorder.TURN);
+        }
+        return records;
+    }
+
+    /**
+     * Test that the trace holds every step of every rover, including the
+     * repetitions of repeat groups, and that the reader finds each path.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRecordsEveryStep() throws Exception {
+        Random random = new Random(13);
+        for (int round = 0; round < 10; round++) {
+            int size = 4 + random.nextInt(30);
+            List<String> expanded = new ArrayList<>();
+            File trace = tempFile(".trace");
+            List<Rover> rovers;
+            boolean[][] taken = new boolean[size][size];
+            List<int[]> poses = new ArrayList<>();
+            try (MissionFile file = new MissionFile(write(mission(random, size, true, expanded)))) {
+                MissionReader parser = MissionReader.open(file);
+                FleetLoader loader = new FleetLoader(file, parser);
+                parser.parse(loader);
+                rovers = loader.getRovers();
+                FleetStore fleet = loader.getFleet();
+                for (int slot = 0; slot < fleet.size(); slot++) {
+                    taken[fleet.getX(slot)][fleet.getY(slot)] = true;
+                    poses.add(new int[]{fleet.getX(slot), fleet.getY(slot), fleet.getHeading(slot)});
+                }
+                try (TrajectoryRecorder recorder = new TrajectoryRecorder(
+                        new FileOutputStream(trace).getChannel())) {
+                    MarsRover.moveRovers(loader.getPlateau(), rovers, loader.getOccupancy(), null, recorder);
+                }
+            }
+            assertEquals(expanded.size(), rovers.size());
+
+            try (TrajectoryReader reader = new TrajectoryReader(trace)) {
+                assertEquals(rovers.size(), reader.getSlotCount());
+                assertNull(reader.path(rovers.size()));
+                // seek to the paths backwards, the worst order for a stream
+                for (int slot = rovers.size() - 1; slot >= 0; slot--) {
+                    TrajectoryReader.Path path = reader.path(slot);
+                    int[] pose = poses.get(slot);
+                    assertEquals(slot, path.getSlot());
+                    assertEquals(pose[0], path.getStartX());
+                    assertEquals(pose[1], path.getStartY());
+                    assertEquals(pose[2], path.getStartHeading());
+                }
+                for (int slot = 0; slot < rovers.size(); slot++) {
+                    List<Long> expected = expectedRecords(taken, poses.get(slot), expanded.get(slot));
+                    List<Long> actual = new ArrayList<>();
+                    TrajectoryReader.Path path = reader.path(slot);
+                    while (path.next()) {
+                        actual.add(path.getCount() << 2 | path.getKind());
+                    }
+                    assertEquals(TrajectoryRecorder.END, path.getKind());
+                    assertFalse(path.next());
+                    assertEquals("rover " + slot, expected, actual);
+                    assertEquals(rovers.get(slot).getPosition(), path.getX() + " " + path.getY() + " "
+                            + FleetStore.directionOf(path.getHeading()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a streamed mission gives the same trace as a loaded one.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testStreamingGivesSameTrace() throws Exception {
+        Random random = new Random(31);
+        File mission = write(mission(random, 40, false, new ArrayList<String>()));
+        File loaded = tempFile(".trace");
+        File streamed = tempFile(".trace");
+        try (MissionFile file = new MissionFile(mission);
+                TrajectoryRecorder recorder = new TrajectoryRecorder(new FileOutputStream(loaded).getChannel())) {
+            MissionReader parser = MissionReader.open(file);
+            FleetLoader loader = new FleetLoader(file, parser);
+            parser.parse(loader);
+            MarsRover.moveRovers(loader.getPlateau(), loader.getRovers(), loader.getOccupancy(), null, recorder);
+        }
+        try (MissionFile file = new MissionFile(mission);
+                TrajectoryRecorder recorder = new TrajectoryRecorder(new FileOutputStream(streamed).getChannel())) {
+            MissionReader parser = MissionReader.open(file);
+            StreamingMission streaming = new StreamingMission(file, parser);
+            parser.parse(streaming);
+            streaming.setRecorder(recorder);
+            streaming.run();
+        }
+        assertArrayEquals(Files.readAllBytes(loaded.toPath()), Files.readAllBytes(streamed.toPath()));
+    }
+
+    /**
+     * Test that a trace cut short is rejected.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testIncompleteTrace() throws Exception {
+        File trace = tempFile(".trace");
+        Plateau p = new Plateau(9, 9);
+        FleetStore fleet = new FleetStore(1);
+        fleet.add(0, 0, (byte) 0);
+        Occupancy occupancy = Occupancy.forPlateau(p, 1);
+        occupancy.occupy(0, 0);
+        FleetStepper stepper = new FleetStepper(p, occupancy, fleet);
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder(new FileOutputStream(trace).getChannel())) {
+            stepper.setRecorder(recorder);
+            stepper.execute(0, "MMMRMMMMMMMMMMMMMMM");
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(trace)) {
+            TrajectoryReader.Path path = reader.path(0);
+            assertTrue(path.next());
+            assertEquals(3, path.getCount());
+            assertTrue(path.next());
+            assertEquals(TrajectoryRecorder.TURN, path.getKind());
+            assertTrue(path.next());
+            assertEquals(9, path.getX());
+            assertEquals(3, path.getY());
+            assertTrue(path.next());
+            assertEquals(TrajectoryRecorder.BLOCKED, path.getKind());
+            assertEquals(6, path.getCount());
+            assertFalse(path.next());
+        }
+        try (RandomAccessFile file = new RandomAccessFile(trace, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        try {
+            new TrajectoryReader(trace).close();
+            fail("Opened a trace without its trailer");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Trace file is incomplete"));
+        }
+    }
+
+    /**
+     * Test of MarsRover.optionConflict, rejecting --trace and --checkpoint
+     * with the ways of running a mission that don't support them.
+     */
+    @Test
+    public void testOptionConflicts() {
+        assertNull(MarsRover.optionConflict(false, "sequential", false, false, true));
+        assertNull(MarsRover.optionConflict(true, "sequential", false, false, true));
+        assertNull(MarsRover.optionConflict(false, "sequential", false, true, false));
+        assertNull(MarsRover.optionConflict(false, "parallel", false, false, false));
+        assertEquals("--trace can't be used with --ticks.",
+                MarsRover.optionConflict(false, "sequential", true, false, true));
+        assertEquals("--trace can't be used with --checkpoint.",
+                MarsRover.optionConflict(false, "sequential", false, true, true));
+        assertEquals("--trace can't be used with --engine parallel.",
+                MarsRover.optionConflict(false, "parallel", false, false, true));
+        assertEquals("--checkpoint can't be used with --engine reference.",
+                MarsRover.optionConflict(false, "reference", false, true, false));
+        assertEquals("--ticks can't be used with --stream.",
+                MarsRover.optionConflict(true, "sequential", true, false, false));
+    }
+}